@@ -26,11 +26,11 @@
  */
 package edu.berkeley.bidms.app.downstream.service
 
+import edu.berkeley.bidms.app.jmslistener.metrics.ProvisioningMetrics
 import edu.berkeley.bidms.connector.ldap.LdapConnectorException
 import edu.berkeley.bidms.downstream.service.PersistWarningException
 import edu.berkeley.bidms.downstream.service.ProvisioningResult
 import edu.berkeley.bidms.logging.AuditUtil
-import groovy.transform.Synchronized
 import groovy.util.logging.Slf4j
 import jakarta.jms.MapMessage
 
@@ -38,20 +38,25 @@ import jakarta.jms.MapMessage
 abstract class BaseUidQueueConsumerService {
 
     DownstreamProvisionService provisionService
+    ProvisioningMetrics provisioningMetrics
 
-    BaseUidQueueConsumerService(DownstreamProvisionService provisionService) {
+    BaseUidQueueConsumerService(DownstreamProvisionService provisionService, ProvisioningMetrics provisioningMetrics) {
         this.provisionService = provisionService
+        this.provisioningMetrics = provisioningMetrics
     }
 
-    // fields for tracking timing statistics
-    private static final Map<String, Long> counterMap = [:]
-    private static final Map<String, Long> totalProcessingMillisecondsMap = [:]
-    private static final Map<String, Long> startBatchMillisecondsMap = [:]
-    private static final int batchSize = 1000
-
     abstract void consume(MapMessage message)
 
+    /**
+     * @return The source tag of the provisioning metrics recorded for the
+     *         consumed messages.
+     */
+    protected String getMetricsSource() {
+        return "downstreamProvisionUid"
+    }
+
     protected void consumeMessage(MapMessage message) {
+        long start = provisioningMetrics.start()
         try {
             String eventId = message.getStringProperty("eventId") ?: AuditUtil.createEventId()
 
@@ -65,13 +70,13 @@ abstract class BaseUidQueueConsumerService {
                 throw new RuntimeException("uid is missing in the queue message")
             }
 
-            long start = new Date().time
             // We're already consuming asynchronously off ActiveMQ with parallel
             // consumers, so that's why we call provision() synchronously here.
             ProvisioningResult result = provisionService.provision(eventId, downstreamSystemName, uid, false, true)
-            checkTimingStats(downstreamSystemName.toLowerCase(), start, result)
+            provisioningMetrics.record(metricsSource, downstreamSystemName, getOutcome(result), start)
         }
         catch (Exception e) {
+            provisioningMetrics.record(metricsSource, message.getString('downstreamSystemName'), ProvisioningMetrics.Outcome.FAILED, start)
             String msg = "There was an error trying to provision uid ${message.getString('uid')} downstream to ${message.getString('downstreamSystemName')}"
 
             PersistWarningException persistWarningException = PersistWarningException.findPersistWarningExceptionInChain(e)
@@ -121,49 +126,12 @@ abstract class BaseUidQueueConsumerService {
         }
     }
 
-    @Synchronized
-    private final void checkTimingStats(String tagPrefix, long start, ProvisioningResult result) {
-        if (!counterMap.containsKey("${tagPrefix}Changed")) {
-            counterMap["${tagPrefix}Changed"] = 0
-            counterMap["${tagPrefix}Unchanged"] = 0
-            totalProcessingMillisecondsMap["${tagPrefix}Changed"] = 0
-            totalProcessingMillisecondsMap["${tagPrefix}Unchanged"] = 0
-            startBatchMillisecondsMap["${tagPrefix}Changed"] = 0
-            startBatchMillisecondsMap["${tagPrefix}Unchanged"] = 0
+    protected static ProvisioningMetrics.Outcome getOutcome(ProvisioningResult result) {
+        if (result?.count) {
+            return ProvisioningMetrics.Outcome.CHANGED
+        } else if (result?.unchangedCount) {
+            return ProvisioningMetrics.Outcome.UNCHANGED
         }
-
-        long end = new Date().time
-        boolean changed = result.count
-        boolean notChanged = result.unchangedCount
-        if (changed) {
-            totalProcessingMillisecondsMap["${tagPrefix}Changed"] += end - start
-        } else if (notChanged) {
-            totalProcessingMillisecondsMap["${tagPrefix}Unchanged"] += end - start
-        }
-
-        if (changed && counterMap["${tagPrefix}Changed"] > 0 && (counterMap["${tagPrefix}Changed"] % batchSize == 0)) {
-            reportBatchTime("${tagPrefix}Changed")
-        } else if (notChanged && counterMap["${tagPrefix}Unchanged"] > 0 && (counterMap["${tagPrefix}Unchanged"] % batchSize == 0)) {
-            reportBatchTime("${tagPrefix}Unchanged")
-        }
-
-        if (changed) {
-            counterMap["${tagPrefix}Changed"]++
-        } else if (notChanged) {
-            counterMap["${tagPrefix}Unchanged"]++
-        }
-    }
-
-    @SuppressWarnings("GrMethodMayBeStatic")
-    private final void reportBatchTime(String tag) {
-        int batch = counterMap[tag] / batchSize
-        long batchTimeMilliseconds = totalProcessingMillisecondsMap[tag] - startBatchMillisecondsMap[tag]
-        long avgSecondsPerBatch = Math.round((totalProcessingMillisecondsMap[tag] / 1000) / batch)
-        long avgEntriesPerMin = Math.round(counterMap[tag] / (totalProcessingMillisecondsMap[tag] / 1000 / 60))
-        log.info("From AMQ: $tag batch ${batch}: batchSize=$batchSize" +
-                ", ${tag}BatchTime=${batchTimeMilliseconds / 1000}s" +
-                ", ${tag}AvgSecondsPerBatch=${avgSecondsPerBatch}s" +
-                ", ${tag}AvgEntriesPerMin=${avgEntriesPerMin}")
-        startBatchMillisecondsMap[tag] = totalProcessingMillisecondsMap[tag]
+        return ProvisioningMetrics.Outcome.SUCCEEDED
     }
 }
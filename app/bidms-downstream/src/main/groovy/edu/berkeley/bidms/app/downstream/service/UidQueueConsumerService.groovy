@@ -26,6 +26,7 @@
  */
 package edu.berkeley.bidms.app.downstream.service
 
+import edu.berkeley.bidms.app.jmslistener.metrics.ProvisioningMetrics
 import jakarta.jms.MapMessage
 import org.springframework.jms.annotation.JmsListener
 import org.springframework.stereotype.Service
@@ -33,8 +34,8 @@ import org.springframework.stereotype.Service
 @Service
 class UidQueueConsumerService extends BaseUidQueueConsumerService {
 
-    UidQueueConsumerService(DownstreamProvisionService provisionService) {
-        super(provisionService)
+    UidQueueConsumerService(DownstreamProvisionService provisionService, ProvisioningMetrics provisioningMetrics) {
+        super(provisionService, provisioningMetrics)
     }
 
     @Override
@@ -32,6 +32,7 @@ import edu.berkeley.bidms.app.downstream.config.properties.DownstreamConfigPrope
 import edu.berkeley.bidms.app.downstream.service.BaseDownstreamProvisionService
 import edu.berkeley.bidms.app.downstream.service.DownstreamProvisionService
 import edu.berkeley.bidms.app.jmsclient.service.DownstreamProvisioningJmsClientService
+import edu.berkeley.bidms.app.jmslistener.metrics.ProvisioningMetrics
 import edu.berkeley.bidms.app.registryModel.model.DownstreamObject
 import edu.berkeley.bidms.app.registryModel.model.DownstreamSystem
 import edu.berkeley.bidms.app.registryModel.model.Person
@@ -96,14 +97,11 @@ class ProvisionLdapService<PC extends ProvisioningContextProperties> extends Bas
     @Autowired
     private UidObjectDefinition mainEntryUidObjectDefinition
 
-    // fields for tracking timing statistics (asynchronous only)
-    private static final Object lock = new Object()
-    private static final Map<String, Long> counterMap = [changed: 0, unchanged: 0]
-    private static final Map<String, Long> totalProcessingTimeMap = [changed: 0, unchanged: 0]
-    private static final Map<String, Long> startBatchTimeMap = [changed: 0, unchanged: 0]
-    private static final Map<String, Long> batchCountMap = [changed: 0, unchanged: 0]
-    private static final Map<String, Long> totalBatchTimeSecondsMap = [changed: 0, unchanged: 0]
-    private static final int batchSize = 1000
+    @Autowired
+    ProvisioningMetrics provisioningMetrics
+
+    // metrics source tag
+    static final String LDAP_PERSIST_SOURCE = "ldapPersist"
 
     ProvisionLdapService(
             DataSource dataSource,
@@ -155,6 +153,8 @@ class ProvisionLdapService<PC extends ProvisioningContextProperties> extends Bas
     boolean persistUid(String eventId, int downstreamSystemId, String uid, String globUniqId, Map<String, Object> jsonObject, Long hash, boolean isDelete) {
         // This is a method that is called from non-transactional methods so we have to manage the start of the transaction manually.
         boolean wasModified = false
+        long start = provisioningMetrics.start()
+        boolean succeeded = false
         Sql sql = new Sql(dataSource)
         try {
             final def log = log
@@ -190,13 +190,23 @@ class ProvisionLdapService<PC extends ProvisioningContextProperties> extends Bas
                     log.info("uid $uid has been deleted from ${downstreamSystemRepository.get(downstreamSystemId).name}")
                 }
             }
+            succeeded = true
         }
         finally {
             sql.close()
+            provisioningMetrics.record(LDAP_PERSIST_SOURCE, metricsSystemName, !succeeded ? ProvisioningMetrics.Outcome.FAILED : wasModified ? ProvisioningMetrics.Outcome.CHANGED : ProvisioningMetrics.Outcome.UNCHANGED, start)
         }
         return wasModified
     }
 
+    /**
+     * @return The system tag of the provisioning metrics recorded for
+     *         persisted uids.
+     */
+    protected String getMetricsSystemName() {
+        return accepts().first()
+    }
+
     protected LdapRequestContext createLdapRequestContext(String eventId, ProvisionLdapServiceCallbackContext context) {
         return new LdapRequestContext(new LdapTemplate(connector.contextSource), eventId, uidObjectDefinition, context)
     }
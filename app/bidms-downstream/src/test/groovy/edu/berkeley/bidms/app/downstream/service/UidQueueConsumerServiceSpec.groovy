@@ -29,7 +29,9 @@ package edu.berkeley.bidms.app.downstream.service
 import ch.qos.logback.classic.Logger
 import ch.qos.logback.classic.spi.LoggingEvent
 import ch.qos.logback.core.read.ListAppender
+import edu.berkeley.bidms.app.jmslistener.metrics.ProvisioningMetrics
 import edu.berkeley.bidms.connector.ldap.LdapConnectorException
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
 import org.apache.activemq.command.ActiveMQMapMessage
 import org.slf4j.LoggerFactory
 import spock.lang.Specification
@@ -39,7 +41,7 @@ class UidQueueConsumerServiceSpec extends Specification {
     void "test when provision throws an LdapConnectorException"() {
         given:
         def ps = Mock(DownstreamProvisionService)
-        def sut = new UidQueueConsumerService(ps)
+        def sut = new UidQueueConsumerService(ps, new ProvisioningMetrics(new SimpleMeterRegistry()))
 
         and: "a logger that captures log messages in a list appender"
         def logger = (Logger) LoggerFactory.getLogger(BaseUidQueueConsumerService)
@@ -30,6 +30,8 @@ package edu.berkeley.bidms.app.matchengine
 import edu.berkeley.bidms.app.matchengine.config.MatchConfidence
 import edu.berkeley.bidms.app.matchengine.config.MatchConfig
 import edu.berkeley.bidms.app.matchengine.config.MatchReference
+import edu.berkeley.bidms.app.matchengine.config.properties.MatchEngineConfigProperties
+import edu.berkeley.bidms.app.matchengine.config.properties.SearchProperties
 import edu.berkeley.bidms.app.matchengine.database.Candidate
 import edu.berkeley.bidms.app.matchengine.database.Record
 import edu.berkeley.bidms.app.matchengine.service.DatabaseService
@@ -93,9 +95,15 @@ class DatabaseServiceIntegrationSpec extends Specification {
 
         then:
         2 * service.sqlService.sqlInstance >> sqlMock
-        1 * sqlMock.rows('SELECT * FROM myMatchTable WHERE reference_id IS NOT NULL AND lower(FIRST_NAME)=?' as String, ['kryf']) >> rowReturned1
-        1 * sqlMock.rows('SELECT * FROM myMatchTable WHERE reference_id IS NOT NULL AND lower(SUR_NAME)=?' as String, ['plyf']) >> rowReturned2
-        1 * service.rowMapperService.mapDataRowsToRecords(_, ConfidenceType.CANONICAL, _) >> mappedReturned
+        1 * sqlMock.eachRow('SELECT reference_id FROM myMatchTable WHERE reference_id IS NOT NULL AND lower(FIRST_NAME)=?' as String, ['kryf'], _ as Closure) >> { args ->
+            rowReturned1.each { args[2].call(it) }
+        }
+        1 * sqlMock.eachRow('SELECT reference_id FROM myMatchTable WHERE reference_id IS NOT NULL AND lower(SUR_NAME)=?' as String, ['plyf'], _ as Closure) >> { args ->
+            rowReturned2.each { args[2].call(it) }
+        }
+        1 * service.rowMapperService.mapDataRowsToRecords({ List<SearchResult> searchResults ->
+            searchResults*.referenceIds.flatten() as Set == (rowReturned1 + rowReturned2)*.reference_id as Set
+        }, ConfidenceType.CANONICAL, _) >> mappedReturned
         result*.referenceId == expectedReferenceIds
 
         where:
@@ -105,4 +113,32 @@ class DatabaseServiceIntegrationSpec extends Specification {
         "SIS0030" | []                     | []                     | 0             | []                                                                                                  | []
     }
 
-}
\ No newline at end of file
+    @SuppressWarnings("GroovyAssignabilityCheck")
+    void "test searchDatabase combines a tier into one UNION ALL query when enabled"() {
+        given:
+        service.matchEngineConfigProperties = new MatchEngineConfigProperties(search: new SearchProperties(unionAll: true))
+
+        when:
+        def result = service.searchDatabase([names: [[given: 'Kryf', sur: 'Plyf', type: 'official']], sor: 'SIS', id: 'SIS0001'], ConfidenceType.CANONICAL)
+
+        then:
+        1 * service.sqlService.sqlInstance >> sqlMock
+        1 * sqlMock.eachRow({ String sql ->
+            sql.split(' UNION ALL ') as Set == [
+                    'SELECT 0 AS matchruleindex, reference_id FROM myMatchTable WHERE reference_id IS NOT NULL AND lower(FIRST_NAME)=?',
+                    'SELECT 1 AS matchruleindex, reference_id FROM myMatchTable WHERE reference_id IS NOT NULL AND lower(SUR_NAME)=?'
+            ] as Set
+        }, { it as Set == ['kryf', 'plyf'] as Set }, _ as Closure) >> { args ->
+            args[2].call([matchruleindex: 0, reference_id: 'R1'])
+            args[2].call([matchruleindex: 1, reference_id: 'R2'])
+        }
+        0 * sqlMock.rows(*_)
+        1 * service.rowMapperService.mapDataRowsToRecords({ List<SearchResult> searchResults ->
+            searchResults*.referenceIds.flatten() as Set == ['R1', 'R2'] as Set
+        }, ConfidenceType.CANONICAL, _) >> [new Record(referenceId: 'R1', exactMatch: true), new Record(referenceId: 'R2', exactMatch: true)]
+        result*.referenceId == ['R1', 'R2']
+
+        cleanup:
+        service.matchEngineConfigProperties = new MatchEngineConfigProperties()
+    }
+}
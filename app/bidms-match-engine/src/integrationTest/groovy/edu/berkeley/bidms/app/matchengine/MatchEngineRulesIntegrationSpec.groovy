@@ -490,4 +490,72 @@ class MatchEngineRulesIntegrationSpec extends Specification {
         then:
         response.statusCode == HttpStatus.NOT_FOUND
     }
+
+    def "test that a batch of people gives the same responses as matching one person at a time"() {
+        given:
+        List<Map> requestData = [
+                [
+                        systemOfRecord: 'PAYROLL',
+                        identifier    : '300000000'
+                ],
+                [
+                        systemOfRecord: "ALUMNI",
+                        identifier    : '5000000',
+                        dateOfBirth   : '1980-01-01',
+                        names         : [
+                                [type: 'official', givenName: 'John', surName: 'Smith']
+                        ],
+                        identifiers   : [
+                                [type: 'studentId', identifier: '10000000']
+                        ]
+                ],
+                [
+                        systemOfRecord: "ALUMNI",
+                        identifier    : '5000001',
+                        dateOfBirth   : '1970-01-01',
+                        names         : [
+                                [type: 'official', givenName: 'Nobody', surName: 'Nowhere']
+                        ]
+                ]
+        ]
+
+        when: "pre-existing entries are created"
+        sql.executeInsert(
+                "INSERT INTO MatchView (uid, identifierType, identifierSor, identifier, idIsSorPrimaryKey) VALUES(?,?,?,?,?)" as String,
+                "20000000", // uid
+                "employeeId", // identifierType
+                "PAYROLL", // identifierSor
+                "300000000", // identifier
+                true // idIsSorPrimaryKey
+        )
+        sql.executeInsert(
+                "INSERT INTO MatchView (uid, identifierType, identifierSor, identifier, idIsSorPrimaryKey, personNameType, personNameSor, givenName, surName) VALUES(?,?,?,?,?,?,?,?,?)" as String,
+                "20000001", // uid
+                "studentId", // identifierType
+                "STUDENT", // identifierSor
+                "10000000", // identifier
+                true, // idIsSorPrimaryKey
+                "studentName", // personNameType
+                "STUDENT", // personNameSor
+                "John", // givenName
+                "Smith" // surName
+        )
+
+        and: "request a batch match"
+        ResponseEntity<List> response = restTemplate.postForEntity("http://localhost:${port}/match-engine/people" as String, requestData, List)
+
+        and: "cleanup"
+        sql.executeUpdate("DELETE FROM MatchView WHERE uid IN (?, ?)" as String, "20000000", "20000001")
+
+        then:
+        response.statusCode == HttpStatus.OK
+        response.body*.responseCode == [HttpStatus.ACCEPTED.value(), HttpStatus.OK.value(), HttpStatus.NOT_FOUND.value()]
+        response.body[0].response.matchingRecord.referenceId == "20000000"
+        with(response.body[1].response.matchingRecord) {
+            referenceId == "20000001"
+            exactMatch
+            ruleNames == ['CANONICAL_FIRSTNAME_INITIAL_EXACT_LASTNAME_STUDENTID']
+        }
+        response.body[2].response.error == "not found"
+    }
 }
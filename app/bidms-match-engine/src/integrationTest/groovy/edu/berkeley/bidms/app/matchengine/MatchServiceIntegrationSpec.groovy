@@ -26,9 +26,12 @@
  */
 package edu.berkeley.bidms.app.matchengine
 
+import edu.berkeley.bidms.app.matchengine.config.properties.MatchEngineConfigProperties
+import edu.berkeley.bidms.app.matchengine.config.properties.SearchProperties
 import edu.berkeley.bidms.app.matchengine.database.Candidate
 import edu.berkeley.bidms.app.matchengine.service.DatabaseService
 import edu.berkeley.bidms.app.matchengine.service.MatchService
+import edu.berkeley.bidms.app.matchengine.util.sql.StatementCanceller
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.test.context.SpringBootTest
 import spock.lang.Specification
@@ -84,6 +87,48 @@ class MatchServiceIntegrationSpec extends Specification {
         0 * service._(*_)
     }
 
+    @SuppressWarnings("GroovyAssignabilityCheck")
+    void "test speculative findCandidates returns the canonical result when superCanonical does not match"() {
+        given:
+        service.matchEngineConfigProperties = new MatchEngineConfigProperties(search: new SearchProperties(speculative: true))
+
+        when:
+        def result = service.findCandidates([systemOfRecord: "sis", identifier: "123", a: "b"])
+
+        then:
+        1 * service.databaseService.searchDatabase([systemOfRecord: "sis", identifier: "123", a: "b"], ConfidenceType.SUPERCANONICAL) >> []
+        1 * service.databaseService.searchDatabase([systemOfRecord: "sis", identifier: "123", a: "b"], ConfidenceType.CANONICAL, _ as StatementCanceller) >> [new Candidate(referenceId: "ref123", exactMatch: true)]
+        (0..1) * service.databaseService.searchDatabase([systemOfRecord: "sis", identifier: "123", a: "b"], ConfidenceType.POTENTIAL, _ as StatementCanceller) >> [new Candidate(referenceId: "ref456", exactMatch: false)]
+        result*.referenceId == ["ref123"]
+
+        and: "There are no other calls to the service"
+        0 * service.databaseService._(*_)
+
+        cleanup:
+        service.matchEngineConfigProperties = new MatchEngineConfigProperties()
+    }
+
+    @SuppressWarnings("GroovyAssignabilityCheck")
+    void "test speculative findCandidates returns the potential result when no other tier matches"() {
+        given:
+        service.matchEngineConfigProperties = new MatchEngineConfigProperties(search: new SearchProperties(speculative: true))
+
+        when:
+        def result = service.findCandidates([systemOfRecord: "sis", identifier: "123", a: "b"])
+
+        then:
+        1 * service.databaseService.searchDatabase([systemOfRecord: "sis", identifier: "123", a: "b"], ConfidenceType.SUPERCANONICAL) >> []
+        1 * service.databaseService.searchDatabase([systemOfRecord: "sis", identifier: "123", a: "b"], ConfidenceType.CANONICAL, _ as StatementCanceller) >> []
+        1 * service.databaseService.searchDatabase([systemOfRecord: "sis", identifier: "123", a: "b"], ConfidenceType.POTENTIAL, _ as StatementCanceller) >> [new Candidate(referenceId: "ref456", exactMatch: false)]
+        result*.referenceId == ["ref456"]
+
+        and: "There are no other calls to the service"
+        0 * service.databaseService._(*_)
+
+        cleanup:
+        service.matchEngineConfigProperties = new MatchEngineConfigProperties()
+    }
+
     void "test findExistingRecord"() {
         when:
         service.findExistingRecord([systemOfRecord: "sis", identifier: "123", a: "b"])
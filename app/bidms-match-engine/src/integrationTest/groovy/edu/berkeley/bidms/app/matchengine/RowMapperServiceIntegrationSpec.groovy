@@ -47,7 +47,7 @@ class RowMapperServiceIntegrationSpec extends Specification {
             [ruleName: "B", reference_id: 'R1', sor: "Y", sorid: "Y123", attr_identifier_national: "123-45-6789", attr_name_given_official: "James", attr_name_family_official: "Dean", attr_date_of_birth: "1939-02-08", attr_identifier_sor_student: "SID-123"],
             [ruleName: "A", reference_id: 'R2', sor: "X", sorid: "X234", attr_name_given_official: "Jack", attr_name_family_official: "Daniels", attr_date_of_birth: "1901-02-01"],
             [ruleName: "C", reference_id: 'R2', sor: "X", sorid: "X234", attr_name_given_official: "Jack", attr_name_family_official: "Daniels", attr_date_of_birth: "1901-02-01"]
-    ].collect { new SearchResult(it.remove('ruleName'), [it] as Set<Map<String, Object>>) }
+    ].collect { new SearchResult(it.ruleName, [it.reference_id] as Set<String>) }
 
     void "test mapping of single database row to candidates list"() {
         given:
@@ -82,6 +82,22 @@ class RowMapperServiceIntegrationSpec extends Specification {
 
     }
 
+    void "test that a reference id found twice by the same rule has the rule name once"() {
+        given:
+        service.matchConfig = TestMatchConfig.nonInvalidatingConfig
+
+        when:
+        def candidates = service.mapDataRowsToRecords([
+                new SearchResult("A", ['R1', 'R2'] as Set<String>),
+                new SearchResult("A", ['R2'] as Set<String>),
+                new SearchResult("B", ['R2'] as Set<String>)
+        ], ConfidenceType.CANONICAL, [:])
+
+        then:
+        candidates*.referenceId == ['R1', 'R2']
+        candidates*.ruleNames == [['A'], ['A', 'B']]
+    }
+
     static class TestMatchConfig {
         static MatchConfig getNonInvalidatingConfig() {
             def config = '''
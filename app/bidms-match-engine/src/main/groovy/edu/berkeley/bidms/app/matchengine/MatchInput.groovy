@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchengine
+
+import edu.berkeley.bidms.app.matchengine.config.MatchAttributePlan
+import edu.berkeley.bidms.app.matchengine.util.AttributeValueResolver
+import edu.berkeley.bidms.app.matchengine.util.sql.SqlWhereResolver
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * An incoming match request, normalized once and shared by all the rules
+ * of all the confidence tiers.  This is the raw matchInput Map, so it can
+ * be passed anywhere a matchInput is expected, plus a cache of the
+ * resolved and transformed search value of each match attribute and an
+ * index of the typed entries (names, identifiers, ...) of each path.
+ * <p>
+ * The caches are safe for concurrent use since the tiers may be searched
+ * concurrently.
+ */
+class MatchInput implements Map<String, Object> {
+    // ConcurrentHashMap doesn't allow null values
+    private static final Object NO_VALUE = new Object()
+
+    @Delegate(interfaces = false)
+    private final Map<String, Object> raw
+
+    // attribute name -> search value
+    private final Map<String, Object> searchValues = new ConcurrentHashMap<>()
+    // path -> type -> first entry of the path with that type
+    private final Map<String, Map<Object, Map>> entriesByType = new ConcurrentHashMap<>()
+
+    private MatchInput(Map<String, Object> raw) {
+        this.raw = raw
+    }
+
+    /**
+     * @return the matchInput as a MatchInput, which is the matchInput
+     *         itself if it already is one
+     */
+    static MatchInput of(Map matchInput) {
+        return matchInput instanceof MatchInput ? (MatchInput) matchInput : new MatchInput(matchInput as Map<String, Object>)
+    }
+
+    /**
+     * The value to search for with an attribute: the value resolved by
+     * {@link AttributeValueResolver}, with the lower-case, alphanumeric
+     * and dateFormat transforms of the attribute applied.  Resolved once
+     * per attribute.
+     *
+     * @return the search value, a List of search values for a list
+     *         attribute, or null if the matchInput has no value for the
+     *         attribute
+     */
+    Object getSearchValue(MatchAttributePlan attributePlan) {
+        Object noValue = NO_VALUE
+        Object value = searchValues.computeIfAbsent(attributePlan.name) {
+            Object resolved = resolveSearchValue(attributePlan)
+            return resolved != null ? resolved : noValue
+        }
+        return value.is(noValue) ? null : value
+    }
+
+    /**
+     * Same as searching the entries of the path for the first entry with
+     * the type, but the entries of a path are only scanned once.
+     *
+     * @return the first entry of the path with the type, or null if there
+     *         isn't one
+     */
+    Map findEntryOfType(String path, Object type) {
+        // a local since a closure would resolve raw as a key of this Map
+        List<Map> entries = raw[path] as List<Map>
+        return entriesByType.computeIfAbsent(path) {
+            Map<Object, Map> byType = [:]
+            entries?.each { Map entry ->
+                if (entry?.type != null) {
+                    byType.putIfAbsent(entry.type, entry)
+                }
+            }
+            return byType
+        }[type]
+    }
+
+    private Object resolveSearchValue(MatchAttributePlan attributePlan) {
+        def config = attributePlan.config
+        if (attributePlan.listInput) {
+            def values = config.input?.stringList ? AttributeValueResolver.getStringAttributeValues(config, this) : AttributeValueResolver.getAttributeValues(config, this)
+            if (!values) {
+                // cannot have empty lists for the SQL IN clause
+                return null
+            }
+            return SqlWhereResolver.getWhereListClause(attributePlan, values).value
+        }
+        // gets resolved as a string value
+        def value = AttributeValueResolver.getAttributeValue(config, this)
+        return SqlWhereResolver.getWhereClause(attributePlan, value).value
+    }
+
+    @Override
+    boolean equals(Object o) {
+        return raw == (o instanceof MatchInput ? ((MatchInput) o).raw : o)
+    }
+
+    @Override
+    int hashCode() {
+        return raw.hashCode()
+    }
+
+    @Override
+    String toString() {
+        return raw.toString()
+    }
+}
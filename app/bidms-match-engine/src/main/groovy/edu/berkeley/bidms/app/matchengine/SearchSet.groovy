@@ -27,12 +27,10 @@
 package edu.berkeley.bidms.app.matchengine
 
 import edu.berkeley.bidms.app.matchengine.config.MatchAttributeConfig
+import edu.berkeley.bidms.app.matchengine.config.MatchAttributePlan
 import edu.berkeley.bidms.app.matchengine.config.MatchConfidence
-import edu.berkeley.bidms.app.matchengine.config.MatchConfig
-import edu.berkeley.bidms.app.matchengine.util.AttributeValueResolver
-import edu.berkeley.bidms.app.matchengine.util.sql.SqlWhereResolver
+import edu.berkeley.bidms.app.matchengine.config.MatchRulePlan
 import edu.berkeley.bidms.app.matchengine.util.sql.WhereAndValues
-import edu.berkeley.bidms.app.matchengine.util.sql.WhereValue
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 
@@ -42,36 +40,56 @@ class SearchSet {
     MatchConfidence matchConfidence;
     List<MatchAttributeConfig> matchAttributeConfigs;
 
+    /**
+     * The compiled rule.  If not set, the rule is compiled from
+     * matchConfidence and matchAttributeConfigs on first use.
+     */
+    MatchRulePlan rulePlan
+
+    MatchRulePlan getRulePlan() {
+        if (!rulePlan) {
+            rulePlan = MatchRulePlan.compile(null, matchConfidence, matchAttributeConfigs)
+        }
+        return rulePlan
+    }
+
     WhereAndValues buildWhereClause(Map matchInput) {
-        List<WhereValue> whereAndValues = matchConfidence.confidence.collect { String name, MatchConfig.MatchType matchType ->
-            def config = matchAttributeConfigs.find { it.name == name }
-            if (config.input?.fixedValue && matchInput[config.attribute] != config.input.fixedValue) {
+        MatchRulePlan plan = getRulePlan()
+        List<MatchAttributePlan> attributePlans = plan.attributePlans
+        int[] listSizes = plan.hasListInput() ? new int[attributePlans.size()] : null
+        MatchInput input = MatchInput.of(matchInput)
+        List values = new ArrayList<>(attributePlans.size())
+        for (int i = 0; i < attributePlans.size(); i++) {
+            MatchAttributePlan attributePlan = attributePlans[i]
+            def config = attributePlan.config
+            if (config.input?.fixedValue && input[config.attribute] != config.input.fixedValue) {
                 // matchInput attribute value does not match the fixedValue
                 // in the 'input' part of the config
+                log.trace("Skipping ${plan.ruleName} because ${config.name} does not match the input fixedValue")
                 return null
             }
-            if (config.input?.list || config.input?.stringList) {
-                def values = config.input?.stringList ? AttributeValueResolver.getStringAttributeValues(config, matchInput) : AttributeValueResolver.getAttributeValues(config, matchInput)
-                if (values) {
-                    return SqlWhereResolver.getWhereListClause(matchType, config, values)
-                } else {
-                    // cannot have empty lists for the SQL IN clause
-                    return null
-                }
-            } else {
-                // gets resolved as a string value
-                def value = AttributeValueResolver.getAttributeValue(config, matchInput)
-                return SqlWhereResolver.getWhereClause(matchType, config, value)
+            // resolved once per matchInput and shared by all rules
+            def value = input.getSearchValue(attributePlan)
+            if (value == null) {
+                log.trace("Skipping ${plan.ruleName} because ${config.name} has no value")
+                return null
+            }
+            if (attributePlan.listInput) {
+                listSizes[i] = ((List) value).size()
             }
+            values << value
         }
-        log.trace("Found ${whereAndValues.size()} statements for ${matchConfidence.ruleName}. Now checking if all has a value")
-        if (whereAndValues.every { it?.value != null }) {
-            def returnValue = new WhereAndValues(ruleName: matchConfidence.ruleName, sql: whereAndValues.sql.join(' AND '), values: whereAndValues.value)
+        def returnValue = new WhereAndValues(
+                ruleName: plan.ruleName,
+                sql: plan.getWhereSql(listSizes),
+                querySql: plan.getQuerySql(listSizes),
+                unionBranchSql: plan.getUnionBranchSql(listSizes),
+                ruleIndex: plan.ruleIndex,
+                values: values
+        )
+        if (log.isTraceEnabled()) {
             log.trace("Returning search sql: $returnValue.sql with values: ${returnValue.redactedValues}")
-            return returnValue
-        } else {
-            return null
         }
+        return returnValue
     }
 }
-
@@ -71,6 +71,14 @@ class MatchConfigFactoryBean implements FactoryBean<MatchConfig>, InitializingBe
         } catch (e) {
             throw new RuntimeException("Failed to parse script $resource", e)
         }
+        log.debug("MatchConfig compiling rules")
+        try {
+            // Resolve attribute lookups and build the SQL for each rule
+            // once instead of per match request.
+            config.compile()
+        } catch (e) {
+            throw new RuntimeException("Failed to compile match rules in $resource", e)
+        }
     }
 
     static MatchConfig parseConfig(String script) {
@@ -26,6 +26,7 @@
  */
 package edu.berkeley.bidms.app.matchengine.config
 
+import edu.berkeley.bidms.app.matchengine.config.properties.MatchEngineConfigProperties
 import groovy.transform.CompileStatic
 import org.springframework.beans.factory.FactoryBean
 import org.springframework.beans.factory.annotation.Value
@@ -33,6 +34,11 @@ import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.Configuration
 import org.springframework.core.io.Resource
 
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
 @CompileStatic
 @Configuration
 class MatchEngineConfiguration {
@@ -49,4 +55,23 @@ class MatchEngineConfiguration {
         matchConfigFactoryBean.setResource(matchConfigResourceLocation)
         return matchConfigFactoryBean
     }
+
+    /**
+     * Executes lower-priority tier searches when speculative search is
+     * enabled.  The pool is bounded so that speculative searches can't
+     * exhaust the database connection pool.  Threads are virtual and are
+     * only started on demand.
+     */
+    @Bean(name = "matchEngineSearchExecutor", destroyMethod = "shutdownNow")
+    ExecutorService getMatchEngineSearchExecutor(MatchEngineConfigProperties matchEngineConfigProperties) {
+        int threads = Math.max(1, matchEngineConfigProperties.search.speculativeThreads)
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads,
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(threads * 4),
+                Thread.ofVirtual().name("match-engine-search-", 0).factory()
+        )
+        executor.allowCoreThreadTimeOut(true)
+        return executor
+    }
 }
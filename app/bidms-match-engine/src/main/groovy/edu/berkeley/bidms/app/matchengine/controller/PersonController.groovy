@@ -59,4 +59,23 @@ class PersonController {
             return new ResponseEntity<Map>([error: "not found"], HttpStatus.NOT_FOUND)
         }
     }
+
+    /**
+     * Match many people at once.  The request body is a JSON list of match
+     * inputs.  The response body is a JSON list with one entry per match
+     * input, in the same order, where each entry has the responseCode that
+     * /person would have responded with and the response body.
+     */
+    @PostMapping(value = "/people", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<List<Map>> getPeople(@RequestBody List<Map> incomingJson) {
+        List<Response> results = personService.matchPeople(incomingJson)
+        List<Map> body = results.collect { Response result ->
+            [
+                    responseCode: result.responseCode,
+                    response    : result.jsonMap ?: [error: "not found"]
+            ]
+        }
+        log.debug("Matched ${incomingJson.size()} people: ${results.countBy { it.responseCode }}")
+        return new ResponseEntity<List<Map>>(body, HttpStatus.OK)
+    }
 }
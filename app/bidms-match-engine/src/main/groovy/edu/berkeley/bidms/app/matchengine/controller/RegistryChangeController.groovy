@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchengine.controller
+
+import edu.berkeley.bidms.app.matchengine.service.MatchResultCache
+import groovy.util.logging.Slf4j
+import org.springframework.http.HttpStatus
+import org.springframework.http.MediaType
+import org.springframework.http.ResponseEntity
+import org.springframework.web.bind.annotation.PostMapping
+import org.springframework.web.bind.annotation.RequestBody
+import org.springframework.web.bind.annotation.RequestMapping
+import org.springframework.web.bind.annotation.RequestParam
+import org.springframework.web.bind.annotation.RestController
+
+@Slf4j
+@RequestMapping(value = "/match-engine")
+@RestController
+class RegistryChangeController {
+
+    MatchResultCache matchResultCache
+
+    RegistryChangeController(MatchResultCache matchResultCache) {
+        this.matchResultCache = matchResultCache
+    }
+
+    /**
+     * Report that the rows of some people in the match table have changed.
+     * The request body is a JSON list of reference ids.  The match result
+     * cache evicts the responses that the change can affect, if it is
+     * enabled.
+     *
+     * @param newUids true if the reference ids are new uids rather than
+     *        changes to existing people
+     */
+    @PostMapping(value = "/changes", consumes = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<Void> changed(@RequestBody List<String> referenceIds, @RequestParam(required = false) Boolean newUids) {
+        log.debug("Registry changed for ${newUids ? 'new uids ' : ''}$referenceIds")
+        if (matchResultCache.enabled) {
+            matchResultCache.invalidate(referenceIds, newUids as boolean)
+        }
+        return new ResponseEntity<Void>(HttpStatus.NO_CONTENT)
+    }
+}
@@ -27,17 +27,23 @@
 package edu.berkeley.bidms.app.matchengine.service
 
 import edu.berkeley.bidms.app.matchengine.ConfidenceType
+import edu.berkeley.bidms.app.matchengine.MatchInput
 import edu.berkeley.bidms.app.matchengine.SearchResult
 import edu.berkeley.bidms.app.matchengine.SearchSet
-import edu.berkeley.bidms.app.matchengine.config.MatchConfidence
 import edu.berkeley.bidms.app.matchengine.config.MatchConfig
+import edu.berkeley.bidms.app.matchengine.config.MatchRulePlan
+import edu.berkeley.bidms.app.matchengine.config.properties.MatchEngineConfigProperties
 import edu.berkeley.bidms.app.matchengine.database.Record
+import edu.berkeley.bidms.app.matchengine.util.sql.StatementCanceller
 import edu.berkeley.bidms.app.matchengine.util.sql.WhereAndValues
+import groovy.sql.Sql
 import groovy.transform.ToString
 import groovy.util.logging.Slf4j
 import org.springframework.stereotype.Service
 import org.springframework.transaction.annotation.Transactional
 
+import java.sql.Statement
+
 @Slf4j
 @Service("matchEngineDatabaseService")
 @Transactional(readOnly = true)
@@ -46,21 +52,28 @@ class DatabaseService {
     SqlService sqlService
     RowMapperService rowMapperService
     MatchConfig matchConfig
+    MatchEngineConfigProperties matchEngineConfigProperties
 
-    DatabaseService(SqlService sqlService, RowMapperService rowMapperService, MatchConfig matchConfig) {
+    DatabaseService(SqlService sqlService, RowMapperService rowMapperService, MatchConfig matchConfig, MatchEngineConfigProperties matchEngineConfigProperties) {
         this.sqlService = sqlService
         this.rowMapperService = rowMapperService
         this.matchConfig = matchConfig
+        this.matchEngineConfigProperties = matchEngineConfigProperties
     }
 
     /**
      * Search the view for (fuzzy) matches based on the matchInput, the confidenceType and the matchConfig
      * @param matchInput
      * @param confidenceType
+     * @param canceller if not null, the statements of the search are
+     *        registered with it so that the search can be cancelled while
+     *        running
      * @return a list of Record objects, if any rows matches
      */
-    Set<Record> searchDatabase(Map matchInput, ConfidenceType confidenceType) {
-        def searchSets = getSearchSets(confidenceType)
+    Set<Record> searchDatabase(Map matchInput, ConfidenceType confidenceType, StatementCanceller canceller = null) {
+        List<SearchSet> searchSets = getSearchSets(confidenceType)
+        // normalized once for all the rules
+        matchInput = MatchInput.of(matchInput)
 
         // Find where clauses that has content
         List<WhereAndValues> whereClauses = searchSets.collect { searchSet ->
@@ -74,19 +87,68 @@ class DatabaseService {
         }
 
         Set<QueryStatement> sqlStatements = whereClauses.collect { whereClause ->
-            new QueryStatement(
-                    ruleName: whereClause.ruleName,
-                    sql: """
-                            SELECT *
-                                FROM   ${matchConfig.matchTable}
-                                WHERE  ${matchConfig.matchReference.column} IS NOT NULL
-                                AND    ${whereClause.sql}
-                         """.stripIndent(),
-                    values: whereClause.values.flatten())
+            toQueryStatement(whereClause)
         } as Set
 
-        def rows = performSearch(sqlStatements)
+        List<SearchResult> rows = matchEngineConfigProperties?.search?.unionAll ? performUnionSearch(sqlStatements, canceller) : performSearch(sqlStatements, canceller)
+        if (canceller?.cancelled) {
+            // the caller has abandoned this search
+            return []
+        }
+
+        return mapRecords(matchInput, confidenceType, rows, searchSets)
+    }
+
+    /**
+     * Search the view for (fuzzy) matches for many matchInputs at once.
+     * Each rule of the confidence tier is evaluated for all the
+     * matchInputs in one set-based query that joins the match table
+     * against a VALUES list of the inputs.  Rules with list attributes
+     * can't be joined this way and are evaluated per matchInput.
+     *
+     * @param matchInputs the matchInputs, keyed by an index chosen by the
+     *        caller
+     * @param confidenceType
+     * @return the Record objects for each matchInput index, which will be
+     *         empty for a matchInput with no matches
+     */
+    Map<Integer, Set<Record>> searchDatabaseBatch(Map<Integer, Map> matchInputs, ConfidenceType confidenceType) {
+        List<SearchSet> searchSets = getSearchSets(confidenceType)
+        Map<Integer, List<SearchResult>> resultsByInput = matchInputs.keySet().collectEntries { [it, []] }
+        // normalized once for all the rules
+        matchInputs = matchInputs.collectEntries { Integer inputIndex, Map matchInput -> [inputIndex, MatchInput.of(matchInput)] }
+
+        searchSets.each { SearchSet searchSet ->
+            MatchRulePlan rulePlan = searchSet.rulePlan
+            Map<Integer, WhereAndValues> whereClauses = [:]
+            matchInputs.each { Integer inputIndex, Map matchInput ->
+                WhereAndValues whereClause = searchSet.buildWhereClause(matchInput)
+                if (whereClause) {
+                    whereClauses[inputIndex] = whereClause
+                }
+            }
+            if (!whereClauses) {
+                return
+            }
+            Map<Integer, Set<String>> referenceIdsByInput
+            if (rulePlan.batchable) {
+                referenceIdsByInput = performBatchSearch(rulePlan, whereClauses)
+            } else {
+                referenceIdsByInput = whereClauses.collectEntries { Integer inputIndex, WhereAndValues whereClause ->
+                    [inputIndex, performSearch(toQueryStatement(whereClause), null).referenceIds]
+                }
+            }
+            referenceIdsByInput.each { Integer inputIndex, Set<String> referenceIds ->
+                resultsByInput[inputIndex] << new SearchResult(rulePlan.ruleName, referenceIds)
+            }
+        }
+
+        return resultsByInput.collectEntries { Integer inputIndex, List<SearchResult> results ->
+            [inputIndex, results ? mapRecords(matchInputs[inputIndex], confidenceType, groupByRuleName(results), searchSets) : [] as Set<Record>]
+        }
+    }
 
+    private Set<Record> mapRecords(Map matchInput, ConfidenceType confidenceType, List<SearchResult> rows, List<SearchSet> searchSets) {
         Set<Record> records = rowMapperService.mapDataRowsToRecords(rows, confidenceType, matchInput)
 
         if (confidenceType == ConfidenceType.SUPERCANONICAL && !records) {
@@ -98,10 +160,8 @@ class DatabaseService {
             // uid for this when the other potentially matches up to an
             // existing uid.
             rows.each { SearchResult searchResult ->
-                SearchSet searchSet = searchSets.find { it.matchConfidence.ruleName == searchResult.ruleName }
-                def sorMatchAttributeConfig = searchSet.matchConfidence.confidence.collect { matchTypeEntry ->
-                    searchSet.matchAttributeConfigs.find { it.name == matchTypeEntry.key }
-                }.find { it.attribute == "systemOfRecord" }
+                SearchSet searchSet = searchSets.find { it.rulePlan.ruleName == searchResult.ruleName }
+                def sorMatchAttributeConfig = searchSet.rulePlan.systemOfRecordAttributeConfig
                 def targetSorName = sorMatchAttributeConfig.search.fixedValue
                 List<String> partialMatchUids = getSorObjectInPartialMatch(targetSorName, matchInput.identifier)
                 if (partialMatchUids) {
@@ -129,11 +189,7 @@ class DatabaseService {
         def sql = sqlService.sqlInstance
 
         try {
-            def systemOfRecordAttribute = matchConfig.matchAttributeConfigs.find { it.name == matchConfig.matchReference.systemOfRecordAttribute }
-            def identifierAttribute = matchConfig.matchAttributeConfigs.find { it.name == matchConfig.matchReference.identifierAttribute }
-
-            def query = 'SELECT * FROM ' + matchConfig.matchTable + ' WHERE ' + systemOfRecordAttribute.column + '=? AND ' + identifierAttribute.column + '=? AND ' + systemOfRecordAttribute.isPrimaryKeyColumn + '=?'
-            def row = sql.firstRow(query, [systemOfRecord, identifier, true])
+            def row = sql.firstRow(matchConfig.findRecordSql, [systemOfRecord, identifier, true])
 
             return row ? new Record(referenceId: getReferenceIdFromRow(row), exactMatch: true) : null
         }
@@ -142,6 +198,36 @@ class DatabaseService {
         }
     }
 
+    /**
+     * Search to see if the identifiers for many systems of record are
+     * found.  These would be identical matches.
+     *
+     * @param matchInputs the matchInputs, keyed by an index chosen by the
+     *        caller
+     * @return a Record for each matchInput index that was found
+     */
+    Map<Integer, Record> findRecords(Map<Integer, Map> matchInputs) {
+        Map<Integer, Record> records = [:]
+        String referenceColumn = matchConfig.matchReference.column
+        matchInputs.entrySet().collate(batchChunkSize).each { List<Map.Entry<Integer, Map>> chunk ->
+            List values = chunk.collectMany { Map.Entry<Integer, Map> entry ->
+                [entry.key, entry.value.systemOfRecord, entry.value.identifier as String]
+            }
+            values << true
+            def sql = sqlService.sqlInstance
+            try {
+                sql.eachRow(matchConfig.getFindRecordsBatchSql(chunk.size()), values) { row ->
+                    // same as firstRow in findRecord: the first row wins
+                    records.putIfAbsent(row[MatchRulePlan.INPUT_INDEX_COLUMN] as Integer, new Record(referenceId: row[referenceColumn], exactMatch: true))
+                }
+            }
+            finally {
+                sql.close()
+            }
+        }
+        return records
+    }
+
     // If the SORObject is in the PartialMatch table, returns the uids it is
     // potentially matching up to.
     List<String> getSorObjectInPartialMatch(String sorName, String sorObjKey) {
@@ -156,52 +242,176 @@ AND sor.sorName = ? AND so.sorObjKey = ?"""
     }
 
     private List<SearchSet> getSearchSets(ConfidenceType confidenceType) {
-        switch (confidenceType) {
-            case ConfidenceType.SUPERCANONICAL:
-                return matchConfig.superCanonicalConfidences.collect { MatchConfidence matchConfidence ->
-                    new SearchSet(matchConfidence: matchConfidence, matchAttributeConfigs: matchConfig.matchAttributeConfigs)
-                }
-            case ConfidenceType.CANONICAL:
-                return matchConfig.canonicalConfidences.collect { MatchConfidence matchConfidence ->
-                    new SearchSet(matchConfidence: matchConfidence, matchAttributeConfigs: matchConfig.matchAttributeConfigs)
-                }
-            case ConfidenceType.POTENTIAL:
-                return matchConfig.potentialConfidences.collect { confidence ->
-                    new SearchSet(matchConfidence: confidence, matchAttributeConfigs: matchConfig.matchAttributeConfigs)
-                }
+        return matchConfig.getRulePlans(confidenceType).collect { MatchRulePlan rulePlan ->
+            new SearchSet(rulePlan: rulePlan)
         }
     }
 
-    private List<SearchResult> performSearch(Set<QueryStatement> queryStatements) {
+    private List<SearchResult> performSearch(Set<QueryStatement> queryStatements, StatementCanceller canceller) {
         List<SearchResult> results = queryStatements.collect { queryStatement ->
-            return performSearch(queryStatement)
+            return performSearch(queryStatement, canceller)
+        }
+        return groupByRuleName(results)
+    }
+
+    private static List<SearchResult> groupByRuleName(List<SearchResult> results) {
+        // If more than one searchResult stems from the same ruleName, collect the reference ids into one entry
+        Map<String, Set<String>> referenceIdsByRuleName = new LinkedHashMap<>()
+        results.each { SearchResult result ->
+            Set<String> referenceIds = referenceIdsByRuleName.get(result.ruleName)
+            if (referenceIds == null) {
+                referenceIdsByRuleName.put(result.ruleName, new LinkedHashSet<String>(result.referenceIds))
+            } else {
+                referenceIds.addAll(result.referenceIds)
+            }
+        }
+        return referenceIdsByRuleName.collect { String ruleName, Set<String> referenceIds ->
+            new SearchResult(ruleName, referenceIds)
+        }
+    }
+
+    /**
+     * Evaluate one rule for many matchInputs in set-based queries of at
+     * most batchChunkSize inputs each.
+     *
+     * @return the distinct reference ids for each matchInput index in
+     *         whereClauses, which will be empty for a matchInput with no
+     *         matches
+     */
+    private Map<Integer, Set<String>> performBatchSearch(MatchRulePlan rulePlan, Map<Integer, WhereAndValues> whereClauses) {
+        String referenceColumn = matchConfig.matchReference.column
+        Map<Integer, Set<String>> referenceIdsByInput = whereClauses.keySet().collectEntries { [it, new LinkedHashSet<String>()] }
+        whereClauses.entrySet().collate(batchChunkSize).each { List<Map.Entry<Integer, WhereAndValues>> chunk ->
+            String batchSql = rulePlan.getBatchQuerySql(chunk.size())
+            List values = chunk.collectMany { Map.Entry<Integer, WhereAndValues> entry ->
+                [entry.key] + entry.value.values
+            }
+            def sql = sqlService.sqlInstance
+            try {
+                log.debug("Performing batch query for ${rulePlan.ruleName} with ${chunk.size()} inputs")
+                def start = System.currentTimeMillis()
+                sql.eachRow(batchSql, values) { row ->
+                    referenceIdsByInput[row[MatchRulePlan.INPUT_INDEX_COLUMN] as Integer] << (row[referenceColumn] as String)
+                }
+                log.debug("--- batch query for ${rulePlan.ruleName} completed in ${System.currentTimeMillis() - start} ms")
+            }
+            finally {
+                sql.close()
+            }
         }
-        // If more than one searchResult stems from the same ruleName, collect the rows into one entry
-        Map<String, List<SearchResult>> resultsGroupedByName = results.groupBy { it.ruleName }
-        List<SearchResult> rows = resultsGroupedByName.collect { name, searchResults ->
-            new SearchResult(name, searchResults.collect { it.rows }.flatten() as Set<Map>)
+        return referenceIdsByInput
+    }
+
+    /**
+     * Combine all the statements of a confidence tier into one UNION ALL
+     * query so that the tier costs one round trip and one connection
+     * checkout.  Each branch projects its rule index, which is used to
+     * demultiplex the rows back into a SearchResult per rule.
+     */
+    private List<SearchResult> performUnionSearch(Set<QueryStatement> queryStatements, StatementCanceller canceller) {
+        if (queryStatements.size() == 1) {
+            return performSearch(queryStatements, canceller)
         }
+        Map<Integer, QueryStatement> statementsByRuleIndex = queryStatements.collectEntries { [it.ruleIndex, it] }
+        String unionSql = queryStatements*.unionBranchSql.join(" UNION ALL ")
+        List unionValues = queryStatements.collectMany { it.values }
+        String referenceColumn = matchConfig.matchReference.column
 
-        return rows
+        Map<String, Set<String>> referenceIdsByRuleName = [:]
+        queryStatements.each { referenceIdsByRuleName[it.ruleName] = new LinkedHashSet<String>() }
+
+        if (canceller?.cancelled) {
+            return []
+        }
+        def sql = sqlService.sqlInstance
+        try {
+            log.debug("Performing union query: $unionSql with values ${queryStatements.collectMany { it.redactedValues }}")
+            def start = System.currentTimeMillis()
+            eachCancellableRow(sql, unionSql, unionValues, canceller) { row ->
+                QueryStatement queryStatement = statementsByRuleIndex[row[MatchRulePlan.RULE_INDEX_COLUMN] as Integer]
+                referenceIdsByRuleName[queryStatement.ruleName] << (row[referenceColumn] as String)
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("--- returned: ${referenceIdsByRuleName} in ${System.currentTimeMillis() - start} ms")
+            }
+        }
+        finally {
+            sql.close()
+        }
+
+        return referenceIdsByRuleName.collect { String ruleName, Set<String> referenceIds ->
+            new SearchResult(ruleName, referenceIds)
+        }
     }
 
-    private SearchResult performSearch(QueryStatement queryStatement) {
+    /**
+     * Run the query of one rule.  The query only projects the reference
+     * column and the reference ids are deduplicated as the rows are read.
+     */
+    private SearchResult performSearch(QueryStatement queryStatement, StatementCanceller canceller) {
+        if (canceller?.cancelled) {
+            return new SearchResult(queryStatement.ruleName, [] as Set<String>)
+        }
+        String referenceColumn = matchConfig.matchReference.column
         def sql = sqlService.sqlInstance
         try {
             log.debug("Performing query: $queryStatement.sql with values ${queryStatement.redactedValues}")
             def start = System.currentTimeMillis()
-            List<Map> result = sql.rows(queryStatement.normalizedSql, queryStatement.values)
+            Set<String> referenceIds = new LinkedHashSet<>()
+            eachCancellableRow(sql, queryStatement.sql, queryStatement.values, canceller) { row ->
+                referenceIds << (row[referenceColumn] as String)
+            }
             if (log.isDebugEnabled()) {
-                List<Map> forLogging = result.collect { it.subMap([matchConfig.matchReference.column]) }
-                log.debug("--- returned: ${forLogging} in ${System.currentTimeMillis() - start} ms")
+                log.debug("--- returned: ${referenceIds} in ${System.currentTimeMillis() - start} ms")
             }
-            return new SearchResult(queryStatement.ruleName, result as Set)
+            return new SearchResult(queryStatement.ruleName, referenceIds)
         }
         finally {
             sql.close()
         }
     }
 
+    /**
+     * Run a query whose statement may be cancelled by the canceller.  The
+     * connection is held until the statement has been unregistered from
+     * the canceller, so that a cancel can't reach the connection after it
+     * has been returned to the pool and is running another query.
+     */
+    private static void eachCancellableRow(Sql sql, String query, List values, StatementCanceller canceller, Closure rowClosure) {
+        if (!canceller) {
+            sql.eachRow(query, values, rowClosure)
+            return
+        }
+        List<Statement> statements = []
+        sql.withStatement { Statement stmt ->
+            statements << stmt
+            canceller.register(stmt)
+        }
+        sql.cacheConnection {
+            try {
+                sql.eachRow(query, values, rowClosure)
+            }
+            finally {
+                statements.each { canceller.unregister(it) }
+            }
+        }
+    }
+
+    private static QueryStatement toQueryStatement(WhereAndValues whereClause) {
+        // The query text was prebuilt when the match configuration was
+        // compiled.
+        return new QueryStatement(
+                ruleName: whereClause.ruleName,
+                sql: whereClause.querySql,
+                unionBranchSql: whereClause.unionBranchSql,
+                ruleIndex: whereClause.ruleIndex,
+                values: whereClause.values.flatten())
+    }
+
+    private int getBatchChunkSize() {
+        return Math.max(1, matchEngineConfigProperties?.search?.batchChunkSize ?: 500)
+    }
+
     private String getReferenceIdFromRow(Map<String, String> databaseRow) {
         def column = matchConfig.matchReference.column
         return databaseRow?."${column}"
@@ -211,12 +421,10 @@ AND sor.sorName = ? AND so.sorObjKey = ?"""
     private static class QueryStatement {
         String ruleName
         String sql
+        String unionBranchSql
+        int ruleIndex
         List values
 
-        String getNormalizedSql() {
-            sql?.replaceAll(/\s+/, ' ')?.trim()
-        }
-
         List getRedactedValues() {
             // Rather crude method of redacting last-5 SSNs and DOBs:
             // Anything that is 5 digits or in the format of yyyy-mm-dd.
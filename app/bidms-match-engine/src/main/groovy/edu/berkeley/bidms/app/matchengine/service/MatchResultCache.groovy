@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchengine.service
+
+import edu.berkeley.bidms.app.matchengine.ConfidenceType
+import edu.berkeley.bidms.app.matchengine.MatchInput
+import edu.berkeley.bidms.app.matchengine.config.MatchAttributePlan
+import edu.berkeley.bidms.app.matchengine.config.MatchConfig
+import edu.berkeley.bidms.app.matchengine.config.properties.MatchEngineConfigProperties
+import edu.berkeley.bidms.app.matchengine.response.ExactMatchResponse
+import edu.berkeley.bidms.app.matchengine.response.Response
+import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.Counter
+import io.micrometer.core.instrument.Gauge
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.beans.factory.ObjectProvider
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.stereotype.Service
+
+/**
+ * An optional cache of the responses of the match engine for inputs that
+ * aren't already matched, so that an input that is sent again doesn't
+ * repeat the three tier search.
+ * <p>
+ * Exact match responses and not found responses are cached.  Potential
+ * match responses are never cached.
+ * <p>
+ * The key is the systemOfRecord and identifier of the input and the
+ * normalized search value of every attribute used by the rules, so inputs
+ * that only differ in values the rules don't search on, or in case and
+ * formatting that the rules normalize away, share an entry.
+ * <p>
+ * Changes to the registry are reported to /match-engine/changes, and each
+ * report only evicts what it can affect:
+ * <ul>
+ *     <li>A change to existing people evicts the exact match responses
+ *     for those people, which are found through a reverse index from
+ *     reference id to cache keys.</li>
+ *     <li>A new uid could be a match for any input that nothing matched
+ *     before, so it expires every not found response.</li>
+ * </ul>
+ * Every report advances a change sequence.  A search is stamped with the
+ * sequence from before it started, and its response isn't cached if a
+ * report that affects it arrived during the search.
+ * <p>
+ * Reports only reach the instance that receives them, writes that aren't
+ * reported at all are never seen, and a new uid that also matches an input
+ * with a cached exact match response doesn't evict it, so entries also
+ * expire after ttlSeconds.  The least recently used entry is evicted past maxEntries.
+ * The hit, miss and eviction counts are published as the {@value
+ * #METER_PREFIX} Micrometer meters.
+ */
+@Slf4j
+@Service
+class MatchResultCache {
+    static final String METER_PREFIX = "bidms.matchengine.resultcache"
+
+    MatchConfig matchConfig
+    MatchEngineConfigProperties matchEngineConfigProperties
+
+    // All of the following are guarded by the entries lock.
+    private final LinkedHashMap<List, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true)
+    private final Map<String, Set<List>> keysByReferenceId = [:]
+    private long changeSequence
+    // the sequence of the last change to each recently changed reference
+    // id, oldest first
+    private final LinkedHashMap<String, Long> changedReferenceIds = new LinkedHashMap<>()
+    // the highest sequence dropped from changedReferenceIds
+    private long forgottenChangeSequence
+    private long newUidSequence
+
+    private volatile List<MatchAttributePlan> keyAttributePlans
+
+    private final Counter hitCounter
+    private final Counter missCounter
+    private final Counter evictionCounter
+
+    @Autowired
+    MatchResultCache(MatchConfig matchConfig, MatchEngineConfigProperties matchEngineConfigProperties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this(matchConfig, matchEngineConfigProperties, meterRegistry.getIfAvailable { new SimpleMeterRegistry() })
+    }
+
+    MatchResultCache(MatchConfig matchConfig, MatchEngineConfigProperties matchEngineConfigProperties, MeterRegistry meterRegistry) {
+        this.matchConfig = matchConfig
+        this.matchEngineConfigProperties = matchEngineConfigProperties
+        this.hitCounter = Counter.builder("${METER_PREFIX}.hits").description("Match requests answered from the result cache").register(meterRegistry)
+        this.missCounter = Counter.builder("${METER_PREFIX}.misses").description("Match requests that weren't in the result cache").register(meterRegistry)
+        this.evictionCounter = Counter.builder("${METER_PREFIX}.evictions").description("Least recently used responses evicted from the full result cache").register(meterRegistry)
+        Gauge.builder("${METER_PREFIX}.size", this, { MatchResultCache cache -> (double) cache.size }).description("Responses in the result cache").register(meterRegistry)
+    }
+
+    boolean isEnabled() {
+        return matchEngineConfigProperties?.resultCache?.enabled
+    }
+
+    /**
+     * @return the current change sequence, to be passed to {@link
+     *         #put(List, long, Response)} after the search for a key that
+     *         wasn't cached
+     */
+    long getGeneration() {
+        synchronized (entries) {
+            return changeSequence
+        }
+    }
+
+    /**
+     * @return the number of cached responses
+     */
+    int getSize() {
+        synchronized (entries) {
+            return entries.size()
+        }
+    }
+
+    /**
+     * @return the cache key for the matchInput
+     */
+    List keyOf(Map matchInput) {
+        MatchInput input = MatchInput.of(matchInput)
+        List key = [input.systemOfRecord, input.identifier]
+        attributePlans.each { MatchAttributePlan attributePlan ->
+            key << input.getSearchValue(attributePlan)
+        }
+        return key
+    }
+
+    /**
+     * @return the cached response for the key, or null if there isn't a
+     *         current one
+     */
+    Response get(List key) {
+        long now = System.currentTimeMillis()
+        CachedResponse cached
+        synchronized (entries) {
+            cached = entries.get(key)
+            if (cached != null && (cached.expiresAt <= now || (cached.referenceId == null && cached.generation < newUidSequence))) {
+                removeEntry(key)
+                cached = null
+            }
+        }
+        if (cached == null) {
+            missCounter.increment()
+            return null
+        }
+        hitCounter.increment()
+        return cached.response
+    }
+
+    /**
+     * Cache the response for the key, if it is an exact match or not found
+     * response.
+     *
+     * @param generation the {@link #getGeneration() generation} from before
+     *        the search for the response started.  The response isn't
+     *        cached if a change that affects it has been reported since.
+     */
+    void put(List key, long generation, Response response) {
+        String referenceId
+        if (response instanceof ExactMatchResponse) {
+            referenceId = ((ExactMatchResponse) response).responseData?.referenceId
+            if (referenceId == null) {
+                return
+            }
+        } else if (!response.is(Response.NOT_FOUND)) {
+            return
+        }
+        int maxEntries = Math.max(1, matchEngineConfigProperties.resultCache.maxEntries)
+        long expiresAt = System.currentTimeMillis() + matchEngineConfigProperties.resultCache.ttlSeconds * 1000L
+        synchronized (entries) {
+            if (referenceId != null ? lastChangeSequence(referenceId) > generation : newUidSequence > generation) {
+                return
+            }
+            removeEntry(key)
+            entries.put(key, new CachedResponse(generation, expiresAt, referenceId, response))
+            if (referenceId != null) {
+                keysByReferenceId.computeIfAbsent(referenceId) { new HashSet<List>() }.add(key)
+            }
+            while (entries.size() > maxEntries) {
+                removeEntry(entries.keySet().iterator().next())
+                evictionCounter.increment()
+            }
+        }
+    }
+
+    /**
+     * Evict the cached responses that can be affected by a change to the
+     * match table rows of some people.
+     *
+     * @param referenceIds the reference ids (uids) of the people
+     * @param newUids true if the people are new to the registry, in which
+     *        case every not found response is expired too
+     */
+    void invalidate(Collection<String> referenceIds, boolean newUids) {
+        int maxEntries = Math.max(1, matchEngineConfigProperties.resultCache.maxEntries)
+        synchronized (entries) {
+            long sequence = ++changeSequence
+            if (newUids) {
+                newUidSequence = sequence
+            }
+            referenceIds.each { String referenceId ->
+                keysByReferenceId[referenceId]?.toList()?.each { removeEntry(it) }
+                changedReferenceIds.remove(referenceId)
+                changedReferenceIds.put(referenceId, sequence)
+            }
+            // Only the changes that can overlap a search in progress are
+            // needed, and any search started before a forgotten change is
+            // treated as if it overlapped it.
+            while (changedReferenceIds.size() > maxEntries) {
+                Iterator<Map.Entry<String, Long>> iterator = changedReferenceIds.entrySet().iterator()
+                forgottenChangeSequence = iterator.next().value
+                iterator.remove()
+            }
+        }
+    }
+
+    private long lastChangeSequence(String referenceId) {
+        Long sequence = changedReferenceIds.get(referenceId)
+        return sequence != null ? sequence : forgottenChangeSequence
+    }
+
+    private void removeEntry(List key) {
+        CachedResponse removed = entries.remove(key)
+        if (removed?.referenceId != null) {
+            Set<List> keys = keysByReferenceId[removed.referenceId]
+            keys?.remove(key)
+            if (keys?.isEmpty()) {
+                keysByReferenceId.remove(removed.referenceId)
+            }
+        }
+    }
+
+    private List<MatchAttributePlan> getAttributePlans() {
+        List<MatchAttributePlan> plans = keyAttributePlans
+        if (plans == null) {
+            Map<String, MatchAttributePlan> byName = [:]
+            ConfidenceType.values().each { ConfidenceType confidenceType ->
+                matchConfig.getRulePlans(confidenceType).each { rulePlan ->
+                    rulePlan.attributePlans.each { byName.putIfAbsent(it.name, it) }
+                }
+            }
+            plans = keyAttributePlans = byName.values().toList().asImmutable()
+        }
+        return plans
+    }
+
+    private static class CachedResponse {
+        final long generation
+        final long expiresAt
+        // the matched person of an exact match response, or null for a
+        // not found response
+        final String referenceId
+        final Response response
+
+        CachedResponse(long generation, long expiresAt, String referenceId, Response response) {
+            this.generation = generation
+            this.expiresAt = expiresAt
+            this.referenceId = referenceId
+            this.response = response
+        }
+    }
+}
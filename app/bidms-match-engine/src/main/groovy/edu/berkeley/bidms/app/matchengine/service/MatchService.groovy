@@ -27,21 +27,35 @@
 package edu.berkeley.bidms.app.matchengine.service
 
 import edu.berkeley.bidms.app.matchengine.ConfidenceType
+import edu.berkeley.bidms.app.matchengine.MatchInput
+import edu.berkeley.bidms.app.matchengine.config.properties.MatchEngineConfigProperties
 import edu.berkeley.bidms.app.matchengine.database.Candidate
 import edu.berkeley.bidms.app.matchengine.database.Record
+import edu.berkeley.bidms.app.matchengine.util.sql.StatementCanceller
 import groovy.util.logging.Slf4j
+import org.springframework.beans.factory.annotation.Qualifier
 import org.springframework.stereotype.Service
 import org.springframework.transaction.annotation.Transactional
 
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Future
+import java.util.concurrent.RejectedExecutionException
+
 @Slf4j
 @Service
 @Transactional
 class MatchService {
 
     DatabaseService databaseService
+    MatchEngineConfigProperties matchEngineConfigProperties
+    ExecutorService matchEngineSearchExecutor
 
-    MatchService(DatabaseService databaseService) {
+    MatchService(DatabaseService databaseService, MatchEngineConfigProperties matchEngineConfigProperties, @Qualifier("matchEngineSearchExecutor") ExecutorService matchEngineSearchExecutor) {
         this.databaseService = databaseService
+        this.matchEngineConfigProperties = matchEngineConfigProperties
+        this.matchEngineSearchExecutor = matchEngineSearchExecutor
     }
 
     /**
@@ -49,16 +63,157 @@ class MatchService {
      * with the matchConfig.
      */
     Set<Candidate> findCandidates(Map matchInput) {
+        // normalized once for all the tiers
+        MatchInput input = MatchInput.of(matchInput)
+        if (matchEngineConfigProperties?.search?.speculative) {
+            return findCandidatesSpeculatively(input)
+        }
+        return findCandidatesSequentially(input)
+    }
+
+    /**
+     * Same as findCandidates, but for many matchInputs at once.  Each
+     * confidence tier is searched for all the matchInputs that haven't
+     * been resolved by a higher-priority tier, using set-based queries.
+     *
+     * @param matchInputs the matchInputs, keyed by an index chosen by the
+     *        caller
+     * @return the candidates for each matchInput index
+     */
+    Map<Integer, Set<Candidate>> findCandidatesBatch(Map<Integer, Map> matchInputs) {
+        // normalized once for all the tiers
+        matchInputs = matchInputs.collectEntries { Integer inputIndex, Map matchInput -> [inputIndex, MatchInput.of(matchInput)] }
+        Map<Integer, Set<Candidate>> results = [:]
+        log.debug("findCandidatesBatch (SuperCanonical) for ${matchInputs.size()} inputs")
+        Map<Integer, Set<Candidate>> superCanonical = databaseService.searchDatabaseBatch(matchInputs, ConfidenceType.SUPERCANONICAL)
+        Map<Integer, Map> pending = matchInputs.findAll { Integer inputIndex, Map matchInput ->
+            Set<Candidate> candidates = superCanonical[inputIndex] ?: [] as Set<Candidate>
+            if (isResolvedBySuperCanonical(matchInput, candidates)) {
+                results[inputIndex] = candidates
+                return false
+            }
+            return true
+        }
+        if (pending) {
+            log.debug("findCandidatesBatch (Canonical) for ${pending.size()} inputs")
+            Map<Integer, Set<Candidate>> canonical = databaseService.searchDatabaseBatch(pending, ConfidenceType.CANONICAL)
+            pending = pending.findAll { Integer inputIndex, Map matchInput ->
+                if (canonical[inputIndex]) {
+                    results[inputIndex] = canonical[inputIndex]
+                    return false
+                }
+                return true
+            }
+        }
+        if (pending) {
+            log.debug("findCandidatesBatch (Potential) for ${pending.size()} inputs")
+            Map<Integer, Set<Candidate>> potential = databaseService.searchDatabaseBatch(pending, ConfidenceType.POTENTIAL)
+            pending.keySet().each { Integer inputIndex ->
+                results[inputIndex] = potential[inputIndex] ?: [] as Set<Candidate>
+            }
+        }
+        return results
+    }
+
+    private Set<Candidate> findCandidatesSequentially(Map matchInput) {
         Set<Candidate> candidates = null
         log.debug("findCandidates (SuperCanonical) for ${matchInput.systemOfRecord}/${matchInput.identifier}")
         candidates = databaseService.searchDatabase(matchInput, ConfidenceType.SUPERCANONICAL)
-        // Super canonical means if anything found, stop searching, as long
-        // as there was exactly one exactMatch candidate.  superCanonical
-        // rules in the match configuration should be intentionally designed
-        // to only ever exactMatch one uid.  superCanonical rules are meant
-        // to match with definitive identifiers, not match on demographic
-        // data.
-        //
+        if (isResolvedBySuperCanonical(matchInput, candidates)) {
+            return candidates
+        }
+        log.debug("findCandidates (Canonical) for ${matchInput.systemOfRecord}/${matchInput.identifier}")
+        candidates = databaseService.searchDatabase(matchInput, ConfidenceType.CANONICAL)
+        if (!candidates) {
+            log.debug("findCandidates (Potential) for ${matchInput.systemOfRecord}/${matchInput.identifier}")
+            candidates = databaseService.searchDatabase(matchInput, ConfidenceType.POTENTIAL)
+        }
+        log.debug("findCandidates found ${candidates.size()} candidates")
+        return candidates
+    }
+
+    /**
+     * Same result as the sequential search in findCandidates, but the
+     * canonical and potential tiers are searched on
+     * matchEngineSearchExecutor while the super-canonical tier is searched
+     * on the calling thread.  As soon as a higher-priority tier resolves
+     * the match, the lower-priority searches are cancelled and their
+     * results, if any, are discarded.
+     *
+     * If the executor is saturated, this falls back to the sequential
+     * search.
+     */
+    private Set<Candidate> findCandidatesSpeculatively(Map matchInput) {
+        StatementCanceller canonicalCanceller = new StatementCanceller()
+        StatementCanceller potentialCanceller = new StatementCanceller()
+        Future<Set<Candidate>> canonicalFuture = null
+        Future<Set<Candidate>> potentialFuture = null
+        try {
+            canonicalFuture = matchEngineSearchExecutor.submit({
+                databaseService.searchDatabase(matchInput, ConfidenceType.CANONICAL, canonicalCanceller)
+            } as Callable<Set<Candidate>>)
+            potentialFuture = matchEngineSearchExecutor.submit({
+                databaseService.searchDatabase(matchInput, ConfidenceType.POTENTIAL, potentialCanceller)
+            } as Callable<Set<Candidate>>)
+        }
+        catch (RejectedExecutionException ignored) {
+            log.debug("Speculative search executor is saturated.  Searching sequentially for ${matchInput.systemOfRecord}/${matchInput.identifier}")
+            cancel(canonicalFuture, canonicalCanceller)
+            return findCandidatesSequentially(matchInput)
+        }
+
+        try {
+            log.debug("findCandidates (SuperCanonical, speculative) for ${matchInput.systemOfRecord}/${matchInput.identifier}")
+            Set<Candidate> candidates = databaseService.searchDatabase(matchInput, ConfidenceType.SUPERCANONICAL)
+            if (isResolvedBySuperCanonical(matchInput, candidates)) {
+                return candidates
+            }
+            log.debug("findCandidates (Canonical, speculative) for ${matchInput.systemOfRecord}/${matchInput.identifier}")
+            candidates = getResult(canonicalFuture)
+            if (candidates) {
+                log.debug("findCandidates found ${candidates.size()} candidates")
+                return candidates
+            }
+            log.debug("findCandidates (Potential, speculative) for ${matchInput.systemOfRecord}/${matchInput.identifier}")
+            candidates = getResult(potentialFuture)
+            log.debug("findCandidates found ${candidates.size()} candidates")
+            return candidates
+        }
+        finally {
+            // No-op for searches that have already completed.
+            cancel(canonicalFuture, canonicalCanceller)
+            cancel(potentialFuture, potentialCanceller)
+        }
+    }
+
+    private static Set<Candidate> getResult(Future<Set<Candidate>> future) {
+        try {
+            return future.get()
+        }
+        catch (ExecutionException e) {
+            throw e.cause
+        }
+    }
+
+    private static void cancel(Future future, StatementCanceller canceller) {
+        canceller.cancel()
+        // Not interrupting: the canceller already stops the query, and
+        // interrupting a virtual thread blocked in socket I/O closes the
+        // pooled JDBC connection.
+        future?.cancel(false)
+    }
+
+    /**
+     * Super canonical means if anything found, stop searching, as long as
+     * there was exactly one exactMatch candidate.  superCanonical rules in
+     * the match configuration should be intentionally designed to only
+     * ever exactMatch one uid.  superCanonical rules are meant to match
+     * with definitive identifiers, not match on demographic data.
+     *
+     * @return true if the super-canonical candidates are the final result
+     * and no other tiers should be searched.
+     */
+    private boolean isResolvedBySuperCanonical(Map matchInput, Set<Candidate> candidates) {
         // Example: Data from a database SOR and data from a realtime
         // messaging SOR where it's really the same source system.  The
         // primary key is guaranteed to be the same in both.  If there's
@@ -75,7 +230,7 @@ class MatchService {
             // Matched with exactly one super candidate, stop processing any
             // further rules.
             log.debug("findCandidates found one super candidate for ${matchInput.systemOfRecord}/${matchInput.identifier}")
-            return candidates
+            return true
         } else if (candidates.size() > 1 && candidates.any { it.exactMatch }) {
             // Match configuration rules should be designed to prevent
             // multiple super candidates when there is an exact match, so
@@ -87,24 +242,26 @@ class MatchService {
             // There's a SORObject from the other SOR in the PartialMatch
             // table so this SORObject should go into PartialMatch too.
             log.debug("findCandidates found a super candidate that's in the partial match queue so ${matchInput.systemOfRecord}/${matchInput.identifier} is also a potential")
-            return candidates
+            return true
         } else if (candidates.size() > 1) {
             // Shouldn't get here.
             log.warn("findCandidate found more than one super candidate with unexpected states.")
             // Drop down to rest of rules since there are errant multiple
             // super candidates.
         }
-        log.debug("findCandidates (Canonical) for ${matchInput.systemOfRecord}/${matchInput.identifier}")
-        candidates = databaseService.searchDatabase(matchInput, ConfidenceType.CANONICAL)
-        if (!candidates) {
-            log.debug("findCandidates (Potential) for ${matchInput.systemOfRecord}/${matchInput.identifier}")
-            candidates = databaseService.searchDatabase(matchInput, ConfidenceType.POTENTIAL)
-        }
-        log.debug("findCandidates found ${candidates.size()} candidates")
-        return candidates
+        return false
     }
 
     Record findExistingRecord(Map matchInput) {
         return databaseService.findRecord(matchInput.systemOfRecord, matchInput.identifier as String)
     }
+
+    /**
+     * @param matchInputs the matchInputs, keyed by an index chosen by the
+     *        caller
+     * @return the existing Record for each matchInput index that was found
+     */
+    Map<Integer, Record> findExistingRecords(Map<Integer, Map> matchInputs) {
+        return databaseService.findRecords(matchInputs)
+    }
 }
@@ -26,8 +26,10 @@
  */
 package edu.berkeley.bidms.app.matchengine.service
 
+import edu.berkeley.bidms.app.matchengine.MatchInput
 import edu.berkeley.bidms.app.matchengine.config.MatchConfig
 import edu.berkeley.bidms.app.matchengine.database.Candidate
+import edu.berkeley.bidms.app.matchengine.database.Record
 import edu.berkeley.bidms.app.matchengine.response.ExactMatchResponse
 import edu.berkeley.bidms.app.matchengine.response.ExistingMatchResponse
 import edu.berkeley.bidms.app.matchengine.response.FuzzyMatchResponse
@@ -43,10 +45,12 @@ class PersonService {
 
     MatchService matchService
     MatchConfig matchConfig
+    MatchResultCache matchResultCache
 
-    PersonService(MatchService matchService, MatchConfig matchConfig) {
+    PersonService(MatchService matchService, MatchConfig matchConfig, MatchResultCache matchResultCache) {
         this.matchService = matchService
         this.matchConfig = matchConfig
+        this.matchResultCache = matchResultCache
     }
 
     /**
@@ -76,7 +80,72 @@ class PersonService {
             return new ExistingMatchResponse(responseData: existingRecord)
         }
 
-        Set<Candidate> candidates = matchService.findCandidates(matchInput)
+        if (!matchResultCache?.enabled) {
+            return toResponse(matchInput, matchService.findCandidates(matchInput))
+        }
+        // normalized once for the key and the search
+        MatchInput input = MatchInput.of(matchInput)
+        List cacheKey = matchResultCache.keyOf(input)
+        Response cached = matchResultCache.get(cacheKey)
+        if (cached) {
+            log.debug("Using cached response for ${matchInput.systemOfRecord}/${matchInput.identifier}")
+            return cached
+        }
+        long generation = matchResultCache.generation
+        Response response = toResponse(input, matchService.findCandidates(input))
+        matchResultCache.put(cacheKey, generation, response)
+        return response
+    }
+
+    /**
+     * Same as matchPerson, but for many people at once.  The match engine
+     * rules are evaluated for all of the people together using set-based
+     * queries.
+     *
+     * @param matchInputs a list of matchInputs in the format described in
+     *        matchPerson
+     * @return a Response for each matchInput, in the same order as
+     *         matchInputs
+     */
+    List<Response> matchPeople(List<Map> matchInputs) {
+        Map<Integer, Map> indexedInputs = [:]
+        matchInputs.eachWithIndex { Map matchInput, int i ->
+            indexedInputs[i] = matchInput
+        }
+        Response[] responses = new Response[matchInputs.size()]
+
+        Map<Integer, Record> existingRecords = matchService.findExistingRecords(indexedInputs)
+        existingRecords.each { Integer inputIndex, Record existingRecord ->
+            responses[inputIndex] = new ExistingMatchResponse(responseData: existingRecord)
+        }
+
+        Map<Integer, Map> toMatch = indexedInputs.findAll { Integer inputIndex, Map matchInput -> !existingRecords.containsKey(inputIndex) }
+        Map<Integer, List> cacheKeys = [:]
+        long generation = 0
+        if (toMatch && matchResultCache?.enabled) {
+            generation = matchResultCache.generation
+            toMatch = toMatch.collectEntries { Integer inputIndex, Map matchInput -> [inputIndex, MatchInput.of(matchInput)] } as Map<Integer, Map>
+            toMatch.each { Integer inputIndex, Map matchInput ->
+                List cacheKey = matchResultCache.keyOf(matchInput)
+                cacheKeys[inputIndex] = cacheKey
+                responses[inputIndex] = matchResultCache.get(cacheKey)
+            }
+            toMatch = toMatch.findAll { Integer inputIndex, Map matchInput -> responses[inputIndex] == null }
+        }
+        if (toMatch) {
+            Map<Integer, Set<Candidate>> candidates = matchService.findCandidatesBatch(toMatch)
+            toMatch.each { Integer inputIndex, Map matchInput ->
+                responses[inputIndex] = toResponse(matchInput, candidates[inputIndex])
+                if (cacheKeys.containsKey(inputIndex)) {
+                    matchResultCache.put(cacheKeys[inputIndex], generation, responses[inputIndex])
+                }
+            }
+        }
+
+        return responses as List<Response>
+    }
+
+    private Response toResponse(Map matchInput, Set<Candidate> candidates) {
         if (!candidates) {
             log.debug("No match found for ${getRedactedParams(matchInput)}")
             return Response.NOT_FOUND
@@ -48,34 +48,41 @@ class RowMapperService {
     }
 
     /**
-     * Map row data to candidates. If a candidate already exists in the set of candidates, it is updated.
-     * @param searchResults database rows
+     * Map the reference ids that the rules found to records, in one pass.
+     * There is one record per distinct reference id, in the order the
+     * reference ids were first found, with the names of the rules that
+     * found it in rule order.
+     *
+     * @param searchResults the reference ids found by each rule
      * @param confidenceType canonical or potential
      * @param matchInput the match request
      * @return set of candidates that match
      */
     Set<Record> mapDataRowsToRecords(List<SearchResult> searchResults, ConfidenceType confidenceType, Map matchInput) {
-
-        // Group all searchResults by the ruleName
-        Map<String, List<SearchResult>> searchResultsByRuleName = searchResults.groupBy { it.ruleName }
-
-        // Create a list of each referenceId and what ruleName that caused the match
-        List<Map<String, String>> referenceIdByRuleName = searchResultsByRuleName.collectMany { ruleName, searchResults1 ->
-            searchResults1*.rows.flatten().collect {
-                [ruleName: ruleName, referenceId: it[matchConfig.matchReference.column]]
+        // A reference id is found by a handful of rules at most, so a
+        // small list is cheaper than a set for its rule names.
+        Map<String, List<String>> ruleNamesByReferenceId = new LinkedHashMap<>()
+        for (SearchResult searchResult : searchResults) {
+            String ruleName = searchResult.ruleName
+            for (String referenceId : searchResult.referenceIds) {
+                List<String> ruleNames = ruleNamesByReferenceId.get(referenceId)
+                if (ruleNames == null) {
+                    ruleNames = new ArrayList<>(2)
+                    ruleNamesByReferenceId.put(referenceId, ruleNames)
+                }
+                if (!ruleNames.contains(ruleName)) {
+                    ruleNames.add(ruleName)
+                }
             }
         }
-        // Group the list by referenceId
-        Map<String, List<Map<String, String>>> referenceIdByRuleNameGrouped = referenceIdByRuleName.groupBy {
-            it.referenceId
-        }
-        // For each group of referenceIds create a list of referenceIds and the rules that caused the match
-        List<Map<String, List<String>>> ruleNamesByReferenceId = referenceIdByRuleNameGrouped.collect { String referenceId, def referenceByIdByRuleName ->
-            [referenceId: referenceId, ruleNames: referenceByIdByRuleName*.ruleName.unique()]
-        }
 
-        // Collect a list of Record objects that holds the referenceId, the rules that caused the match, and what match type
-        return ruleNamesByReferenceId.collect { new Record(ruleNames: it.ruleNames, referenceId: it.referenceId, exactMatch: confidenceType.exactMatch) }
+        // Collect a set of Record objects that holds the referenceId, the rules that caused the match, and what match type
+        Set<Record> records = new LinkedHashSet<>(ruleNamesByReferenceId.size())
+        boolean exactMatch = confidenceType.exactMatch
+        ruleNamesByReferenceId.each { String referenceId, List<String> ruleNames ->
+            records.add(new Record(ruleNames: ruleNames, referenceId: referenceId, exactMatch: exactMatch))
+        }
+        return records
 
 //        Group the returned rows by referenceId. The value is a list of db rows returned
 //        def Map<String, List<Map>> groupedByReferenceId = rows.groupBy { it[matchConfig.matchReference.column] }
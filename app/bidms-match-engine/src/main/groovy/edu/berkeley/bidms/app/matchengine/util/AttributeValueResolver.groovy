@@ -26,8 +26,11 @@
  */
 package edu.berkeley.bidms.app.matchengine.util
 
+import edu.berkeley.bidms.app.matchengine.MatchInput
 import edu.berkeley.bidms.app.matchengine.config.MatchAttributeConfig
 
+import java.util.regex.Pattern
+
 class AttributeValueResolver {
     private AttributeValueResolver() {}
 
@@ -44,7 +47,13 @@ class AttributeValueResolver {
             }
             // If the config has a group specified, find the element with type = "group" otherwise take the first element from candidates that
             // does not have a type, and finally try with the first one
-            Map candidate = config.group ? candidates.find { it.type == config.group } : (candidates.find { !it.type } ?: candidates.first())
+            Map candidate
+            if (config.group) {
+                // a MatchInput indexes the entries of each path by type once
+                candidate = matchInput instanceof MatchInput ? ((MatchInput) matchInput).findEntryOfType(config.path, config.group) : candidates.find { it.type == config.group }
+            } else {
+                candidate = candidates.find { !it.type } ?: candidates.first()
+            }
 
             return normalizeValue(config, candidate?.getAt(config.attribute))
         } else {
@@ -72,14 +81,16 @@ class AttributeValueResolver {
 
     private static String normalizeValue(MatchAttributeConfig matchAttributeConfig, String value) {
         // If the nullEquivalents is not set, return the value
-        if (!matchAttributeConfig.nullEquivalents) {
-            value
+        if (value == null || !matchAttributeConfig.nullEquivalents) {
+            return value
         }
-        // Expect matchAttributeConfig ot be a list of Regular Expressions. If any of these matches, it's a null like value
-        def nullMatches = matchAttributeConfig.nullEquivalents.any {
-            value ==~ it
+        // The nullEquivalents are Patterns compiled when the config was set. If any of these matches, it's a null like value
+        for (Pattern nullEquivalent : matchAttributeConfig.nullEquivalents) {
+            if (nullEquivalent.matcher(value).matches()) {
+                return null
+            }
         }
-        return nullMatches ? null : value
+        return value
     }
 
 }
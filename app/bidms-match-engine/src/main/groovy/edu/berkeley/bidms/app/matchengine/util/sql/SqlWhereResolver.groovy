@@ -27,12 +27,16 @@
 package edu.berkeley.bidms.app.matchengine.util.sql
 
 import edu.berkeley.bidms.app.matchengine.config.MatchAttributeConfig
+import edu.berkeley.bidms.app.matchengine.config.MatchAttributePlan
 import groovy.util.logging.Slf4j
 
+import java.util.regex.Pattern
+
 import static edu.berkeley.bidms.app.matchengine.config.MatchConfig.MatchType
 
 class SqlWhereResolver {
     static ALL_ALPHANUMERIC = /[^A-Za-z0-9]/
+    private static final Pattern ALL_ALPHANUMERIC_PATTERN = Pattern.compile(ALL_ALPHANUMERIC)
 
     // If you did something other than this:
     // CREATE EXTENSION IF NOT EXISTS fuzzystrmatch WITH SCHEMA public
@@ -41,35 +45,30 @@ class SqlWhereResolver {
 
     @Slf4j
     private static class QueryBuilderForWhereClause<T> {
-        MatchType matchType
+        final MatchAttributePlan plan
         final MatchAttributeConfig config
         T queryValue
 
-        final MatchAttributeConfig.InputSettings inputConfig
         final MatchAttributeConfig.SearchSettings searchConfig
 
         String sql
 
-        QueryBuilderForWhereClause(MatchType matchType, MatchAttributeConfig config, T queryValue) {
-            this.matchType = matchType
-            this.config = config
+        QueryBuilderForWhereClause(MatchAttributePlan plan, T queryValue) {
+            this.plan = plan
+            this.config = plan.config
             this.queryValue = queryValue
-            this.inputConfig = config.input
             this.searchConfig = config.search
         }
 
         QueryBuilderForWhereClause build() {
-            sql = config.column
-
-            boolean isInputList = inputConfig?.list || inputConfig?.stringList
+            boolean isInputList = plan.listInput
             if (isInputList && !(queryValue instanceof List)) {
                 throw new IllegalStateException("input is configured as a list but the incoming matchInput value is not a list")
             } else if (queryValue instanceof List && !isInputList) {
                 throw new IllegalStateException("incoming matchInput value is a list but input is not configured to be a list")
             }
 
-            if (!searchConfig?.caseSensitive && !searchConfig?.dateFormat) {
-                sql = "lower($sql)"
+            if (plan.lowerCase) {
                 if (queryValue instanceof List) {
                     queryValue = (T) queryValue.collect { it.toString()?.toLowerCase() }
                 } else {
@@ -84,10 +83,6 @@ class SqlWhereResolver {
                 }
             }
             if (searchConfig?.dateFormat) {
-                if (matchType != MatchType.EXACT) {
-                    // must always be exact match SQL
-                    throw new IllegalStateException("${config.name} is configured with a dateFormat.  Date formatted attributes must be EXACT string matches.  You should change your match configuration to be EXACT for this rule.")
-                }
                 if (queryValue instanceof List) {
                     queryValue = (T) queryValue.collect {
                         dateFormat(searchConfig.dateFormat, it?.toString())
@@ -97,50 +92,15 @@ class SqlWhereResolver {
                 }
             }
 
-            if (isInputList) {
-                switch (matchType) {
-                    case MatchType.EXACT:
-                        sql = exactInSql(sql, (List) queryValue)
-                        break
-                    default:
-                        throw new UnsupportedOperationException("$matchType is not supported for a list attribute")
-                }
-            } else {
-                switch (matchType) {
-                    case MatchType.SUBSTRING: // If type is substring check if the config has a substring setting
-                        sql = searchConfig?.substring ? substringSql(searchConfig, sql) : exactSql(sql)
-                        break
-                    case MatchType.DISTANCE:
-                        def distance = searchConfig.distance // If type is distance check if the config has a distance setting
-                        sql = searchConfig?.distance ? "levenshtein_less_equal($sql,?,$distance)<${distance + 1}" : exactSql(sql)
-                        break
-                    case [MatchType.EXACT, MatchType.FIXED_VALUE]:
-                        sql = exactSql(sql)
-                        break
-                    default:
-                        throw new UnsupportedOperationException("$matchType is not supported")
-                }
-            }
+            // The SQL was resolved when the plan was compiled.  For lists,
+            // only the number of IN placeholders varies.
+            sql = isInputList ? plan.getSql(((List) queryValue).size()) : plan.sql
 
             return this
         }
 
-        private static String substringSql(MatchAttributeConfig.SearchSettings searchConfig, String sql) {
-            def from = searchConfig.substring.from
-            def length = searchConfig.substring.length
-            "substring($sql from $from for $length)=substring(? from $from for $length)"
-        }
-
-        private static String exactSql(String sql) {
-            "${sql}=?"
-        }
-
-        private static String exactInSql(String sql, List values) {
-            "${sql} IN (${values.collect { '?' }.join(',')})"
-        }
-
         private static String alphanumeric(String str) {
-            return str?.replaceAll(ALL_ALPHANUMERIC, '')
+            return str != null ? ALL_ALPHANUMERIC_PATTERN.matcher(str).replaceAll('') : null
         }
 
         private static java.sql.Date dateFormat(String dateFormat, String dateStr) {
@@ -153,7 +113,11 @@ class SqlWhereResolver {
     }
 
     static WhereAndValue getWhereClause(MatchType matchType, MatchAttributeConfig config, String value) {
-        QueryBuilderForWhereClause qb = new QueryBuilderForWhereClause<String>(matchType, config, value).build()
+        return getWhereClause(MatchAttributePlan.compile(matchType, config), value)
+    }
+
+    static WhereAndValue getWhereClause(MatchAttributePlan plan, String value) {
+        QueryBuilderForWhereClause qb = new QueryBuilderForWhereClause<String>(plan, value).build()
         return new WhereAndValue(sql: qb.sql, value: qb.queryValue)
     }
 
@@ -162,7 +126,15 @@ class SqlWhereResolver {
         if (!values) {
             throw new IllegalArgumentException("values may not be null or empty because SQL does not support this.  This should be checked before calling this method.")
         }
-        QueryBuilderForWhereClause qb = new QueryBuilderForWhereClause<List>(matchType, config, values).build()
+        return getWhereListClause(MatchAttributePlan.compile(matchType, config), values)
+    }
+
+    static WhereAndValueList getWhereListClause(MatchAttributePlan plan, List values) {
+        // The list of values must not be empty because SQL does not support "IN ()".  The caller must ensure this.
+        if (!values) {
+            throw new IllegalArgumentException("values may not be null or empty because SQL does not support this.  This should be checked before calling this method.")
+        }
+        QueryBuilderForWhereClause qb = new QueryBuilderForWhereClause<List>(plan, values).build()
         return new WhereAndValueList(sql: qb.sql, value: qb.queryValue)
     }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchengine.util.sql
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+
+import java.sql.SQLException
+import java.sql.Statement
+
+/**
+ * Tracks the JDBC statements of a search that may need to be abandoned
+ * while still running.  Statements are registered as they are created and
+ * {@link #cancel()} calls {@link Statement#cancel()} on all of them.  Any
+ * statement registered after cancellation is cancelled immediately.
+ * <p>
+ * A statement must be unregistered once it has completed and before its
+ * connection is returned to the pool.  Unregistering waits for a cancel
+ * that is in progress, so a cancel never reaches a pooled connection that
+ * is already running another query.
+ */
+@CompileStatic
+@Slf4j
+class StatementCanceller {
+    private final List<Statement> statements = []
+    private boolean cancelled
+
+    synchronized void register(Statement statement) {
+        if (cancelled) {
+            cancelStatement(statement)
+        } else {
+            statements << statement
+        }
+    }
+
+    synchronized void unregister(Statement statement) {
+        statements.remove(statement)
+    }
+
+    synchronized boolean isCancelled() {
+        return cancelled
+    }
+
+    synchronized void cancel() {
+        if (cancelled) {
+            return
+        }
+        cancelled = true
+        statements.each { cancelStatement(it) }
+        statements.clear()
+    }
+
+    private static void cancelStatement(Statement statement) {
+        // The statement may complete and be closed concurrently.  That's
+        // harmless: its connection is still held by the search until the
+        // statement is unregistered, and cancelling a closed statement
+        // only throws.
+        try {
+            statement.cancel()
+        }
+        catch (SQLException e) {
+            log.debug("Unable to cancel statement: ${e.message}")
+        }
+    }
+}
@@ -34,6 +34,11 @@ import groovy.transform.ToString
 class WhereAndValues {
     String ruleName
     String sql
+    // the complete query for the rule, if the rule has a matchTable
+    String querySql
+    // the rule as a UNION ALL branch, if the rule has a matchTable
+    String unionBranchSql
+    int ruleIndex
     List values
 
     List getRedactedValues() {
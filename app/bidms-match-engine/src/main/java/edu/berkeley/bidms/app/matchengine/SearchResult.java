@@ -26,23 +26,29 @@
  */
 package edu.berkeley.bidms.app.matchengine;
 
-import java.util.Map;
 import java.util.Set;
 
+/**
+ * The reference ids of the rows that one rule found.
+ */
 public class SearchResult {
     private String ruleName;
-    private Set<Map<String, Object>> rows;
+    private Set<String> referenceIds;
 
-    public SearchResult(String ruleName, Set<Map<String, Object>> rows) {
+    /**
+     * @param referenceIds The distinct reference ids, in the order they
+     *                     were found.
+     */
+    public SearchResult(String ruleName, Set<String> referenceIds) {
         this.ruleName = ruleName;
-        this.rows = rows;
+        this.referenceIds = referenceIds;
     }
 
     public String getRuleName() {
         return ruleName;
     }
 
-    public Set<Map<String, Object>> getRows() {
-        return rows;
+    public Set<String> getReferenceIds() {
+        return referenceIds;
     }
 }
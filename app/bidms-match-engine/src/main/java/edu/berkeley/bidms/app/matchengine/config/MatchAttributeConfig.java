@@ -26,6 +26,7 @@
  */
 package edu.berkeley.bidms.app.matchengine.config;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -120,8 +121,22 @@ public class MatchAttributeConfig {
         return nullEquivalents;
     }
 
-    public void setNullEquivalents(List<Pattern> nullEquivalents) {
-        this.nullEquivalents = nullEquivalents;
+    /**
+     * @param nullEquivalents Regular expressions for values that are to be
+     *                        treated as null.  Each element may be a {@link
+     *                        Pattern} or a String, which is compiled once
+     *                        here rather than on every match.
+     */
+    public void setNullEquivalents(List<?> nullEquivalents) {
+        if (nullEquivalents == null) {
+            this.nullEquivalents = null;
+            return;
+        }
+        List<Pattern> patterns = new ArrayList<>(nullEquivalents.size());
+        for (Object nullEquivalent : nullEquivalents) {
+            patterns.add(nullEquivalent instanceof Pattern ? (Pattern) nullEquivalent : Pattern.compile(nullEquivalent.toString()));
+        }
+        this.nullEquivalents = List.copyOf(patterns);
     }
 
     public SearchSettings getSearch() {
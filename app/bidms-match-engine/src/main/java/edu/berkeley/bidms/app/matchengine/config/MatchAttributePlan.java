@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchengine.config;
+
+import java.util.Map;
+
+/**
+ * The compiled, immutable form of one attribute of one match rule.  The
+ * SQL fragment for a scalar attribute is resolved once when the match
+ * configuration is compiled.  For list attributes, only the column
+ * expression is resolved up front since the number of placeholders in the
+ * IN clause depends on the incoming matchInput.
+ */
+public final class MatchAttributePlan {
+    private final String name;
+    private final MatchConfig.MatchType matchType;
+    private final MatchAttributeConfig config;
+    private final boolean listInput;
+    private final boolean lowerCase;
+    private final String columnExpression;
+    private final String sql;
+
+    private MatchAttributePlan(String name, MatchConfig.MatchType matchType, MatchAttributeConfig config) {
+        this.name = name;
+        this.matchType = matchType;
+        this.config = config;
+
+        MatchAttributeConfig.InputSettings inputConfig = config.getInput();
+        MatchAttributeConfig.SearchSettings searchConfig = config.getSearch();
+
+        this.listInput = inputConfig != null && (inputConfig.isList() || inputConfig.isStringList());
+        boolean caseSensitive = searchConfig != null && searchConfig.isCaseSensitive();
+        boolean hasDateFormat = searchConfig != null && searchConfig.getDateFormat() != null && !searchConfig.getDateFormat().isEmpty();
+        this.lowerCase = !caseSensitive && !hasDateFormat;
+        this.columnExpression = lowerCase ? "lower(" + config.getColumn() + ")" : config.getColumn();
+
+        if (hasDateFormat && matchType != MatchConfig.MatchType.EXACT) {
+            // must always be exact match SQL
+            throw new IllegalStateException(config.getName() + " is configured with a dateFormat.  Date formatted attributes must be EXACT string matches.  You should change your match configuration to be EXACT for this rule.");
+        }
+
+        if (listInput) {
+            if (matchType != MatchConfig.MatchType.EXACT) {
+                throw new UnsupportedOperationException(matchType + " is not supported for a list attribute");
+            }
+            // resolved per list size in getSql(int)
+            this.sql = null;
+        } else {
+            this.sql = scalarSql(matchType, searchConfig, columnExpression, "?");
+        }
+    }
+
+    /**
+     * Compile a rule attribute.
+     *
+     * @param matchType The match type the rule uses for this attribute.
+     * @param config    The attribute configuration.
+     * @return The compiled attribute plan.
+     * @throws IllegalStateException         If the attribute is configured
+     *                                       with a dateFormat but the match
+     *                                       type is not EXACT.
+     * @throws UnsupportedOperationException If the match type is not
+     *                                       supported for the attribute.
+     */
+    public static MatchAttributePlan compile(MatchConfig.MatchType matchType, MatchAttributeConfig config) {
+        return new MatchAttributePlan(config.getName(), matchType, config);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public MatchConfig.MatchType getMatchType() {
+        return matchType;
+    }
+
+    public MatchAttributeConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * @return true if the input for this attribute is a list, in which case
+     * the SQL is an IN clause.
+     */
+    public boolean isListInput() {
+        return listInput;
+    }
+
+    /**
+     * @return true if the column and the input value are both lower-cased
+     * for a case insensitive comparison.
+     */
+    public boolean isLowerCase() {
+        return lowerCase;
+    }
+
+    public String getColumnExpression() {
+        return columnExpression;
+    }
+
+    /**
+     * @return The SQL fragment for a scalar attribute.
+     * @throws IllegalStateException If this is a list attribute.
+     */
+    public String getSql() {
+        if (listInput) {
+            throw new IllegalStateException("input is configured as a list: the SQL depends on the number of values");
+        }
+        return sql;
+    }
+
+    /**
+     * @param listSize The number of values in the incoming matchInput list.
+     *                 Ignored for scalar attributes.
+     * @return The SQL fragment for this attribute.
+     */
+    public String getSql(int listSize) {
+        if (!listInput) {
+            return sql;
+        }
+        if (listSize < 1) {
+            throw new IllegalArgumentException("listSize must be at least 1 because SQL does not support \"IN ()\"");
+        }
+        StringBuilder sb = new StringBuilder(columnExpression.length() + 6 + listSize * 2);
+        sb.append(columnExpression).append(" IN (");
+        for (int i = 0; i < listSize; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('?');
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * The SQL fragment for a scalar attribute where the value is an SQL
+     * expression rather than a placeholder.  Used to join the match table
+     * against a set of match inputs.
+     *
+     * @param valueExpression The SQL expression for the value, such as a
+     *                        column of a VALUES list.
+     * @return The SQL fragment for this attribute.
+     * @throws IllegalStateException If this is a list attribute.
+     */
+    public String getJoinSql(String valueExpression) {
+        if (listInput) {
+            throw new IllegalStateException("input is configured as a list: list attributes can't be joined against a single value");
+        }
+        return scalarSql(matchType, config.getSearch(), columnExpression, valueExpression);
+    }
+
+    private static String scalarSql(MatchConfig.MatchType matchType, MatchAttributeConfig.SearchSettings searchConfig, String columnExpression, String valueExpression) {
+        switch (matchType) {
+            case SUBSTRING:
+                // If type is substring check if the config has a substring setting
+                if (searchConfig != null && searchConfig.getSubstring() != null && !searchConfig.getSubstring().isEmpty()) {
+                    Map substring = searchConfig.getSubstring();
+                    Object from = substring.get("from");
+                    Object length = substring.get("length");
+                    return "substring(" + columnExpression + " from " + from + " for " + length + ")=substring(" + valueExpression + " from " + from + " for " + length + ")";
+                }
+                return columnExpression + "=" + valueExpression;
+            case DISTANCE:
+                // If type is distance check if the config has a distance setting
+                if (searchConfig != null && searchConfig.getDistance() != 0) {
+                    int distance = searchConfig.getDistance();
+                    return "levenshtein_less_equal(" + columnExpression + "," + valueExpression + "," + distance + ")<" + (distance + 1);
+                }
+                return columnExpression + "=" + valueExpression;
+            case EXACT:
+            case FIXED_VALUE:
+                return columnExpression + "=" + valueExpression;
+            default:
+                throw new UnsupportedOperationException(matchType + " is not supported");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MatchAttributePlan{" +
+                "name='" + name + '\'' +
+                ", matchType=" + matchType +
+                ", listInput=" + listInput +
+                ", sql='" + (listInput ? columnExpression + " IN (...)" : sql) + '\'' +
+                '}';
+    }
+}
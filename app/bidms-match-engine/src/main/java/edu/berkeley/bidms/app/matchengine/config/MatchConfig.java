@@ -26,8 +26,15 @@
  */
 package edu.berkeley.bidms.app.matchengine.config;
 
+import edu.berkeley.bidms.app.matchengine.ConfidenceType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 public class MatchConfig {
     public enum MatchType {
@@ -48,12 +55,16 @@ public class MatchConfig {
     private List<MatchConfidence> canonicalConfidences = new LinkedList<>();
     private List<MatchConfidence> potentialConfidences = new LinkedList<>();
 
+    // Built by compile().  Reset to null whenever the configuration changes.
+    private volatile CompiledMatchConfig compiled;
+
     public String getMatchTable() {
         return matchTable;
     }
 
     public void setMatchTable(String matchTable) {
         this.matchTable = matchTable;
+        this.compiled = null;
     }
 
     public MatchReference getMatchReference() {
@@ -62,6 +73,7 @@ public class MatchConfig {
 
     public void setMatchReference(MatchReference matchReference) {
         this.matchReference = matchReference;
+        this.compiled = null;
     }
 
     public List<MatchAttributeConfig> getMatchAttributeConfigs() {
@@ -70,6 +82,7 @@ public class MatchConfig {
 
     public void setMatchAttributeConfigs(List<MatchAttributeConfig> matchAttributeConfigs) {
         this.matchAttributeConfigs = matchAttributeConfigs;
+        this.compiled = null;
     }
 
     public List<MatchConfidence> getSuperCanonicalConfidences() {
@@ -78,6 +91,7 @@ public class MatchConfig {
 
     public void setSuperCanonicalConfidences(List<MatchConfidence> superCanonicalConfidences) {
         this.superCanonicalConfidences = superCanonicalConfidences;
+        this.compiled = null;
     }
 
     public List<MatchConfidence> getCanonicalConfidences() {
@@ -86,6 +100,7 @@ public class MatchConfig {
 
     public void setCanonicalConfidences(List<MatchConfidence> canonicalConfidences) {
         this.canonicalConfidences = canonicalConfidences;
+        this.compiled = null;
     }
 
     public List<MatchConfidence> getPotentialConfidences() {
@@ -94,6 +109,80 @@ public class MatchConfig {
 
     public void setPotentialConfidences(List<MatchConfidence> potentialConfidences) {
         this.potentialConfidences = potentialConfidences;
+        this.compiled = null;
+    }
+
+    /**
+     * Compile this configuration into immutable per-rule query plans.  This
+     * is called once at startup by {@link MatchConfigFactoryBean}.  If it
+     * hasn't been called, or if the configuration has changed since, the
+     * plans are compiled on first use.
+     *
+     * @throws IllegalStateException If a rule refers to an attribute that
+     *                               is not configured or a rule is
+     *                               otherwise invalid.
+     */
+    public void compile() {
+        this.compiled = new CompiledMatchConfig(this);
+    }
+
+    private CompiledMatchConfig getCompiled() {
+        CompiledMatchConfig result = compiled;
+        if (result == null) {
+            result = new CompiledMatchConfig(this);
+            this.compiled = result;
+        }
+        return result;
+    }
+
+    /**
+     * @param name The name of the attribute as configured in attributes.
+     * @return The attribute configuration with the name, or null if there
+     * isn't one.
+     */
+    public MatchAttributeConfig getMatchAttributeConfig(String name) {
+        return getCompiled().matchAttributeConfigsByName.get(name);
+    }
+
+    /**
+     * @param confidenceType The confidence tier.
+     * @return The compiled rules for the confidence tier, in configuration
+     * order.
+     */
+    public List<MatchRulePlan> getRulePlans(ConfidenceType confidenceType) {
+        return getCompiled().rulePlans.get(confidenceType);
+    }
+
+    /**
+     * @return The query used to find an existing record by system of
+     * record and identifier, or null if the matchReference
+     * systemOfRecordAttribute or identifierAttribute isn't configured.
+     */
+    public String getFindRecordSql() {
+        return getCompiled().findRecordSql;
+    }
+
+    /**
+     * A query that finds existing records for many match inputs at once.
+     * Each VALUES row is the input index, the system of record and the
+     * identifier.  The final placeholder is for the isPrimaryKeyColumn
+     * value.  The query projects the input index, labeled {@link
+     * MatchRulePlan#INPUT_INDEX_COLUMN}, and the reference column.
+     *
+     * @param inputCount The number of match inputs in the VALUES list.
+     * @return The batch query, or null if the matchReference
+     * systemOfRecordAttribute or identifierAttribute isn't configured.
+     */
+    public String getFindRecordsBatchSql(int inputCount) {
+        CompiledMatchConfig c = getCompiled();
+        if (c.findRecordsBatchPrefix == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(c.findRecordsBatchPrefix);
+        for (int i = 0; i < inputCount; i++) {
+            sb.append(i > 0 ? ",(?,?,?)" : "(?,?,?)");
+        }
+        return sb.append(c.findRecordsBatchSuffix).toString();
     }
 
     @Override
@@ -107,4 +196,53 @@ public class MatchConfig {
                 ", potentialConfidences=" + potentialConfidences +
                 '}';
     }
+
+    private static final class CompiledMatchConfig {
+        private final Map<String, MatchAttributeConfig> matchAttributeConfigsByName;
+        private final Map<ConfidenceType, List<MatchRulePlan>> rulePlans;
+        private final String findRecordSql;
+        private final String findRecordsBatchPrefix;
+        private final String findRecordsBatchSuffix;
+
+        private CompiledMatchConfig(MatchConfig config) {
+            Map<String, MatchAttributeConfig> byName = new LinkedHashMap<>();
+            for (MatchAttributeConfig attributeConfig : config.matchAttributeConfigs) {
+                // first one wins, same as a find() on the list
+                byName.putIfAbsent(attributeConfig.getName(), attributeConfig);
+            }
+            this.matchAttributeConfigsByName = Collections.unmodifiableMap(byName);
+
+            String referenceColumn = config.matchReference != null ? config.matchReference.getColumn() : null;
+            Map<ConfidenceType, List<MatchRulePlan>> plans = new EnumMap<>(ConfidenceType.class);
+            plans.put(ConfidenceType.SUPERCANONICAL, compileRules(ConfidenceType.SUPERCANONICAL, config.superCanonicalConfidences, config.matchTable, referenceColumn));
+            plans.put(ConfidenceType.CANONICAL, compileRules(ConfidenceType.CANONICAL, config.canonicalConfidences, config.matchTable, referenceColumn));
+            plans.put(ConfidenceType.POTENTIAL, compileRules(ConfidenceType.POTENTIAL, config.potentialConfidences, config.matchTable, referenceColumn));
+            this.rulePlans = Collections.unmodifiableMap(plans);
+
+            MatchAttributeConfig systemOfRecordAttribute = config.matchReference != null ? byName.get(config.matchReference.getSystemOfRecordAttribute()) : null;
+            MatchAttributeConfig identifierAttribute = config.matchReference != null ? byName.get(config.matchReference.getIdentifierAttribute()) : null;
+            this.findRecordSql = systemOfRecordAttribute != null && identifierAttribute != null
+                    ? "SELECT * FROM " + config.matchTable + " WHERE " + systemOfRecordAttribute.getColumn() + "=? AND " + identifierAttribute.getColumn() + "=? AND " + systemOfRecordAttribute.getIsPrimaryKeyColumn() + "=?"
+                    : null;
+            if (systemOfRecordAttribute != null && identifierAttribute != null) {
+                this.findRecordsBatchPrefix = "SELECT matchinput." + MatchRulePlan.INPUT_INDEX_COLUMN + ", " + referenceColumn + " FROM " + config.matchTable + " JOIN (VALUES ";
+                this.findRecordsBatchSuffix = ") AS matchinput(" + MatchRulePlan.INPUT_INDEX_COLUMN + ", matchinputsor, matchinputidentifier) ON "
+                        + systemOfRecordAttribute.getColumn() + "=matchinput.matchinputsor AND " + identifierAttribute.getColumn() + "=matchinput.matchinputidentifier AND " + systemOfRecordAttribute.getIsPrimaryKeyColumn() + "=?";
+            } else {
+                this.findRecordsBatchPrefix = null;
+                this.findRecordsBatchSuffix = null;
+            }
+        }
+
+        private List<MatchRulePlan> compileRules(ConfidenceType confidenceType, List<MatchConfidence> confidences, String matchTable, String referenceColumn) {
+            if (confidences == null) {
+                return List.of();
+            }
+            List<MatchRulePlan> plans = new ArrayList<>(confidences.size());
+            for (int i = 0; i < confidences.size(); i++) {
+                plans.add(new MatchRulePlan(confidenceType, i, confidences.get(i), matchAttributeConfigsByName, matchTable, referenceColumn));
+            }
+            return Collections.unmodifiableList(plans);
+        }
+    }
 }
@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchengine.config;
+
+import edu.berkeley.bidms.app.matchengine.ConfidenceType;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The compiled, immutable form of one match rule (a {@link
+ * MatchConfidence}).  The match attribute configurations for the rule are
+ * resolved once and the complete query text is prebuilt so that a match
+ * request doesn't have to assemble any SQL.
+ * <p>
+ * When the rule has list attributes, the query text depends on the number
+ * of values in each incoming list.  That text is built the first time a
+ * particular combination of list sizes is seen and then cached.
+ */
+public final class MatchRulePlan {
+    /**
+     * The column label for the rule index in a UNION ALL branch.
+     */
+    public static final String RULE_INDEX_COLUMN = "matchruleindex";
+
+    /**
+     * The column label for the match input index in a batch query.
+     */
+    public static final String INPUT_INDEX_COLUMN = "matchinputindex";
+
+    /**
+     * The maximum number of list size combinations whose query text is
+     * cached per rule.  Query text for other combinations is built on
+     * every request.
+     */
+    static final int MAX_CACHED_LIST_SIZES = 64;
+
+    private final String ruleName;
+    private final int ruleIndex;
+    private final ConfidenceType confidenceType;
+    private final List<MatchAttributePlan> attributePlans;
+    private final MatchAttributeConfig systemOfRecordAttributeConfig;
+    private final String queryPrefix;
+    private final String unionBranchPrefix;
+    private final boolean hasListInput;
+
+    // Used when there are no list attributes in the rule
+    private final String whereSql;
+    private final String querySql;
+    private final String unionBranchSql;
+
+    // Used for batch queries when there are no list attributes in the rule
+    private final String batchQueryPrefix;
+    private final String batchValuesRow;
+    private final String batchQuerySuffix;
+
+    // Keyed by list sizes when there are list attributes in the rule.  The
+    // list sizes come from the match input, so only the first
+    // MAX_CACHED_LIST_SIZES combinations are cached.
+    private final Map<String, String[]> sqlByListSizes;
+
+    MatchRulePlan(ConfidenceType confidenceType, int ruleIndex, MatchConfidence matchConfidence, Map<String, MatchAttributeConfig> matchAttributeConfigsByName, String matchTable, String referenceColumn) {
+        this.ruleName = matchConfidence.getRuleName();
+        this.ruleIndex = ruleIndex;
+        this.confidenceType = confidenceType;
+
+        List<MatchAttributePlan> plans = new ArrayList<>(matchConfidence.getConfidence().size());
+        for (Map.Entry<String, MatchConfig.MatchType> entry : matchConfidence.getConfidence().entrySet()) {
+            MatchAttributeConfig config = matchAttributeConfigsByName.get(entry.getKey());
+            if (config == null) {
+                throw new IllegalStateException("Rule " + ruleName + " refers to attribute " + entry.getKey() + " which is not configured in attributes");
+            }
+            plans.add(MatchAttributePlan.compile(entry.getValue(), config));
+        }
+        this.attributePlans = List.copyOf(plans);
+        this.systemOfRecordAttributeConfig = plans.stream()
+                .map(MatchAttributePlan::getConfig)
+                .filter(it -> "systemOfRecord".equals(it.getAttribute()))
+                .findFirst()
+                .orElse(null);
+        this.queryPrefix = matchTable != null ? "SELECT " + referenceColumn + " FROM " + matchTable + " WHERE " + referenceColumn + " IS NOT NULL AND " : null;
+        this.unionBranchPrefix = matchTable != null ? "SELECT " + ruleIndex + " AS " + RULE_INDEX_COLUMN + ", " + referenceColumn + " FROM " + matchTable + " WHERE " + referenceColumn + " IS NOT NULL AND " : null;
+        this.hasListInput = plans.stream().anyMatch(MatchAttributePlan::isListInput);
+
+        if (!hasListInput && matchTable != null) {
+            // SELECT matchinputindex, uid FROM MatchView JOIN (VALUES (?,?,?),...) AS
+            // matchinput(matchinputindex, matchinputvalue0, matchinputvalue1) ON uid IS NOT NULL AND col0=matchinput.matchinputvalue0 AND ...
+            StringBuilder valuesRow = new StringBuilder("(?");
+            StringBuilder columns = new StringBuilder(INPUT_INDEX_COLUMN);
+            StringBuilder on = new StringBuilder(referenceColumn).append(" IS NOT NULL");
+            for (int i = 0; i < plans.size(); i++) {
+                valuesRow.append(",?");
+                columns.append(", matchinputvalue").append(i);
+                on.append(" AND ").append(plans.get(i).getJoinSql("matchinput.matchinputvalue" + i));
+            }
+            this.batchQueryPrefix = "SELECT matchinput." + INPUT_INDEX_COLUMN + ", " + referenceColumn + " FROM " + matchTable + " JOIN (VALUES ";
+            this.batchValuesRow = valuesRow.append(')').toString();
+            this.batchQuerySuffix = ") AS matchinput(" + columns + ") ON " + on;
+        } else {
+            this.batchQueryPrefix = null;
+            this.batchValuesRow = null;
+            this.batchQuerySuffix = null;
+        }
+
+        if (hasListInput) {
+            this.whereSql = null;
+            this.querySql = null;
+            this.unionBranchSql = null;
+            this.sqlByListSizes = new ConcurrentHashMap<>();
+        } else {
+            this.whereSql = buildWhereSql(null);
+            this.querySql = queryPrefix != null ? queryPrefix + whereSql : null;
+            this.unionBranchSql = unionBranchPrefix != null ? unionBranchPrefix + whereSql : null;
+            this.sqlByListSizes = null;
+        }
+    }
+
+    /**
+     * Compile a single rule outside of a {@link MatchConfig}.  The rule has
+     * a where clause but no complete query since there is no matchTable.
+     *
+     * @param confidenceType        The confidence tier of the rule.  May be
+     *                              null.
+     * @param matchConfidence       The rule.
+     * @param matchAttributeConfigs The attribute configurations the rule
+     *                              refers to.
+     * @return The compiled rule.
+     */
+    public static MatchRulePlan compile(ConfidenceType confidenceType, MatchConfidence matchConfidence, List<MatchAttributeConfig> matchAttributeConfigs) {
+        Map<String, MatchAttributeConfig> byName = new LinkedHashMap<>();
+        for (MatchAttributeConfig config : matchAttributeConfigs) {
+            byName.putIfAbsent(config.getName(), config);
+        }
+        return new MatchRulePlan(confidenceType, 0, matchConfidence, byName, null, null);
+    }
+
+    public String getRuleName() {
+        return ruleName;
+    }
+
+    /**
+     * @return The position of this rule within its confidence tier.
+     */
+    public int getRuleIndex() {
+        return ruleIndex;
+    }
+
+    public ConfidenceType getConfidenceType() {
+        return confidenceType;
+    }
+
+    /**
+     * @return The compiled attributes of this rule, in rule order.
+     */
+    public List<MatchAttributePlan> getAttributePlans() {
+        return attributePlans;
+    }
+
+    /**
+     * @return The first attribute configuration of this rule that matches
+     * on the systemOfRecord attribute, or null if there isn't one.
+     */
+    public MatchAttributeConfig getSystemOfRecordAttributeConfig() {
+        return systemOfRecordAttributeConfig;
+    }
+
+    public boolean hasListInput() {
+        return hasListInput;
+    }
+
+    /**
+     * @param listSizes The size of each incoming list value, indexed the
+     *                  same as {@link #getAttributePlans()}.  Entries for
+     *                  scalar attributes are ignored.  May be null if there
+     *                  are no list attributes in this rule.
+     * @return The where clause for this rule, with placeholders.
+     */
+    public String getWhereSql(int[] listSizes) {
+        return hasListInput ? getListSql(listSizes)[0] : whereSql;
+    }
+
+    /**
+     * @param listSizes The size of each incoming list value, indexed the
+     *                  same as {@link #getAttributePlans()}.  Entries for
+     *                  scalar attributes are ignored.  May be null if there
+     *                  are no list attributes in this rule.
+     * @return The complete query for this rule, with placeholders, or null
+     * if the rule was compiled without a matchTable.  The query projects
+     * only the reference column.
+     */
+    public String getQuerySql(int[] listSizes) {
+        return hasListInput ? getListSql(listSizes)[1] : querySql;
+    }
+
+    /**
+     * @param listSizes The size of each incoming list value, indexed the
+     *                  same as {@link #getAttributePlans()}.  Entries for
+     *                  scalar attributes are ignored.  May be null if there
+     *                  are no list attributes in this rule.
+     * @return This rule as a branch of a UNION ALL query for the whole
+     * confidence tier.  The branch projects the rule index, labeled {@link
+     * #RULE_INDEX_COLUMN}, and the reference column.  Null if the rule was
+     * compiled without a matchTable.
+     */
+    public String getUnionBranchSql(int[] listSizes) {
+        return hasListInput ? getListSql(listSizes)[2] : unionBranchSql;
+    }
+
+    /**
+     * @return true if this rule can be evaluated for many match inputs in
+     * one query with {@link #getBatchQuerySql(int)}.  Rules with list
+     * attributes can't be.
+     */
+    public boolean isBatchable() {
+        return batchQueryPrefix != null;
+    }
+
+    /**
+     * A query that evaluates this rule for many match inputs at once by
+     * joining the match table against a VALUES list of the inputs.  Each
+     * VALUES row is the input index followed by one value per attribute,
+     * in {@link #getAttributePlans()} order.  The query projects the input
+     * index, labeled {@link #INPUT_INDEX_COLUMN}, and the reference column.
+     *
+     * @param inputCount The number of match inputs in the VALUES list.
+     * @return The batch query, with placeholders.
+     * @throws IllegalStateException If this rule is not batchable.
+     */
+    public String getBatchQuerySql(int inputCount) {
+        if (!isBatchable()) {
+            throw new IllegalStateException("Rule " + ruleName + " can't be evaluated as a batch");
+        }
+        if (inputCount < 1) {
+            throw new IllegalArgumentException("inputCount must be at least 1");
+        }
+        StringBuilder sb = new StringBuilder(batchQueryPrefix.length() + batchQuerySuffix.length() + inputCount * (batchValuesRow.length() + 1));
+        sb.append(batchQueryPrefix);
+        for (int i = 0; i < inputCount; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(batchValuesRow);
+        }
+        return sb.append(batchQuerySuffix).toString();
+    }
+
+    private String[] getListSql(int[] listSizes) {
+        if (listSizes == null || listSizes.length != attributePlans.size()) {
+            throw new IllegalArgumentException("listSizes must have one entry per rule attribute");
+        }
+        String key = listSizesKey(listSizes);
+        String[] sql = sqlByListSizes.get(key);
+        if (sql == null) {
+            sql = buildListSql(listSizes);
+            if (sqlByListSizes.size() < MAX_CACHED_LIST_SIZES) {
+                String[] existing = sqlByListSizes.putIfAbsent(key, sql);
+                if (existing != null) {
+                    sql = existing;
+                }
+            }
+        }
+        return sql;
+    }
+
+    private String[] buildListSql(int[] listSizes) {
+        String where = buildWhereSql(listSizes);
+        return new String[]{
+                where,
+                queryPrefix != null ? queryPrefix + where : null,
+                unionBranchPrefix != null ? unionBranchPrefix + where : null
+        };
+    }
+
+    private String listSizesKey(int[] listSizes) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < attributePlans.size(); i++) {
+            if (attributePlans.get(i).isListInput()) {
+                sb.append(listSizes[i]).append(',');
+            }
+        }
+        return sb.toString();
+    }
+
+    private String buildWhereSql(int[] listSizes) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < attributePlans.size(); i++) {
+            if (i > 0) {
+                sb.append(" AND ");
+            }
+            MatchAttributePlan plan = attributePlans.get(i);
+            sb.append(plan.isListInput() ? plan.getSql(listSizes[i]) : plan.getSql());
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "MatchRulePlan{" +
+                "ruleName='" + ruleName + '\'' +
+                ", confidenceType=" + confidenceType +
+                ", attributePlans=" + attributePlans +
+                '}';
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchengine.config.properties;
+
+public class SearchProperties {
+    /**
+     * When true, all the rules of a confidence tier are combined into one
+     * UNION ALL query that is executed on a single connection, rather than
+     * one query per rule.
+     */
+    private boolean unionAll;
+
+    /**
+     * When true, the canonical and potential tiers are searched
+     * concurrently while the super-canonical tier is searched.  Results
+     * from a lower-priority tier are discarded, and its statements
+     * cancelled, as soon as a higher-priority tier resolves the match.
+     */
+    private boolean speculative;
+
+    /**
+     * The maximum number of tier searches that may run concurrently in
+     * speculative mode, across all match requests.  Each running search
+     * holds a database connection.
+     */
+    private int speculativeThreads = 8;
+
+    /**
+     * The maximum number of match inputs in one set-based query when
+     * matching a batch of people.
+     */
+    private int batchChunkSize = 500;
+
+    public boolean isUnionAll() {
+        return unionAll;
+    }
+
+    public void setUnionAll(boolean unionAll) {
+        this.unionAll = unionAll;
+    }
+
+    public boolean isSpeculative() {
+        return speculative;
+    }
+
+    public void setSpeculative(boolean speculative) {
+        this.speculative = speculative;
+    }
+
+    public int getSpeculativeThreads() {
+        return speculativeThreads;
+    }
+
+    public void setSpeculativeThreads(int speculativeThreads) {
+        this.speculativeThreads = speculativeThreads;
+    }
+
+    public int getBatchChunkSize() {
+        return batchChunkSize;
+    }
+
+    public void setBatchChunkSize(int batchChunkSize) {
+        this.batchChunkSize = batchChunkSize;
+    }
+}
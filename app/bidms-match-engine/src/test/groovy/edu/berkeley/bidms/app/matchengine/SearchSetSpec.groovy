@@ -154,4 +154,30 @@ class SearchSetSpec extends Specification {
         "input matches input config input.fixedValue"  | "SIS"           || true
         "input does not match config input.fixedValue" | "PAYROLL"       || false
     }
+
+    def "test that the rules searching with a MatchInput resolve each attribute only once"() {
+        setup:
+        def matchAttributeConfigs = [
+                create(name: 'firstName', column: 'first', attribute: 'given', path: 'names', group: 'official'),
+                create(name: 'lastName', column: 'last', attribute: 'family', path: 'names', group: 'official'),
+                create(name: 'sorid', column: 'sorid', attribute: 'identifier', search: new SearchSettings(alphanumeric: true))
+        ]
+        def firstRule = new SearchSet(matchAttributeConfigs: matchAttributeConfigs, matchConfidence: new MatchConfidence(confidence: [firstName: EXACT, sorid: EXACT], ruleName: 'first'))
+        def secondRule = new SearchSet(matchAttributeConfigs: matchAttributeConfigs, matchConfidence: new MatchConfidence(confidence: [lastName: EXACT, sorid: EXACT], ruleName: 'second'))
+        Map rawInput = new LinkedHashMap(matchInput)
+        rawInput.identifier = "SI-12345"
+        MatchInput input = MatchInput.of(rawInput)
+
+        when:
+        def firstWhereClause = firstRule.buildWhereClause(input)
+        // not seen by the second rule because sorid has already been resolved
+        rawInput.identifier = "OTHER"
+        def secondWhereClause = secondRule.buildWhereClause(input)
+
+        then:
+        input == rawInput
+        MatchInput.of(input).is(input)
+        firstWhereClause.values == ['janet', 'si12345']
+        secondWhereClause.values == ['smith', 'si12345']
+    }
 }
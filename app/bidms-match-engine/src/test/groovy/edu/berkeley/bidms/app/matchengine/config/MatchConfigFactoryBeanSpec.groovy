@@ -26,6 +26,7 @@
  */
 package edu.berkeley.bidms.app.matchengine.config
 
+import edu.berkeley.bidms.app.matchengine.ConfidenceType
 import spock.lang.Specification
 
 import static edu.berkeley.bidms.app.matchengine.config.MatchConfig.MatchType.DISTANCE
@@ -76,4 +77,63 @@ class MatchConfigFactoryBeanSpec extends Specification {
         matchConfig.potentialConfidences*.confidence == [[sor: EXACT, name: DISTANCE]]
         matchConfig.potentialConfidences*.ruleName == ["Potential #1"]
     }
+
+    def "test that a parsed config compiles into rule plans"() {
+        setup:
+        def config = """
+            import static edu.berkeley.bidms.app.matchengine.config.MatchConfig.MatchType.*
+
+            matchTable('MatchView')
+
+            referenceId {
+                responseType = "enterprise"
+                column = "uid"
+                systemOfRecordAttribute = "sor"
+                identifierAttribute = "sorid"
+            }
+
+            attributes {
+                'sor' {
+                    column = "sorColumn"
+                    isPrimaryKeyColumn = "isPk"
+                    attribute = "systemOfRecord"
+                    search {
+                        caseSensitive = true
+                    }
+                }
+                'sorid' {
+                    column = "soridColumn"
+                    attribute = "identifier"
+                }
+                'email' {
+                    column = "emailColumn"
+                    path = "emails"
+                    input {
+                        stringList = true
+                    }
+                }
+            }
+            confidences {
+                superCanonical sor: EXACT, sorid: EXACT
+                potential sorid: EXACT, email: EXACT
+            }
+        """
+
+        when:
+        def matchConfig = MatchConfigFactoryBean.parseConfig(config)
+        matchConfig.compile()
+        def superCanonical = matchConfig.getRulePlans(ConfidenceType.SUPERCANONICAL)
+        def potential = matchConfig.getRulePlans(ConfidenceType.POTENTIAL)
+
+        then:
+        matchConfig.getMatchAttributeConfig('sorid').column == 'soridColumn'
+        matchConfig.findRecordSql == "SELECT * FROM MatchView WHERE sorColumn=? AND soridColumn=? AND isPk=?"
+        !matchConfig.getRulePlans(ConfidenceType.CANONICAL)
+        superCanonical*.ruleName == ["SuperCanonical #1"]
+        superCanonical[0].systemOfRecordAttributeConfig.name == 'sor'
+        superCanonical[0].getQuerySql(null) == "SELECT uid FROM MatchView WHERE uid IS NOT NULL AND sorColumn=? AND lower(soridColumn)=?"
+        potential[0].hasListInput()
+        potential[0].getWhereSql([0, 3] as int[]) == "lower(soridColumn)=? AND lower(emailColumn) IN (?,?,?)"
+        potential[0].getWhereSql([0, 1] as int[]) == "lower(soridColumn)=? AND lower(emailColumn) IN (?)"
+    }
 }
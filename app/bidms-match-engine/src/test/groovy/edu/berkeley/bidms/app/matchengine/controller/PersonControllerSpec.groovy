@@ -28,6 +28,7 @@ package edu.berkeley.bidms.app.matchengine.controller
 
 import edu.berkeley.bidms.app.matchengine.database.Candidate
 import edu.berkeley.bidms.app.matchengine.response.ExactMatchResponse
+import edu.berkeley.bidms.app.matchengine.response.Response
 import edu.berkeley.bidms.app.matchengine.service.PersonService
 import org.springframework.http.HttpStatus
 import org.springframework.http.ResponseEntity
@@ -54,4 +55,21 @@ class PersonControllerSpec extends Specification {
         response.body.matchingRecord.systemOfRecord == 'HR'
         response.body.matchingRecord.referenceId == '1'
     }
+
+    def "test that get people returns a response for each match input in order"() {
+        when:
+        ResponseEntity<List<Map>> response = controller.getPeople([[input1: 'xxx'], [input1: 'yyy']])
+
+        then:
+        1 * controller.personService.matchPeople([[input1: 'xxx'], [input1: 'yyy']]) >> [
+                new ExactMatchResponse(responseData: new Candidate(referenceId: '1', systemOfRecord: 'HR')),
+                Response.NOT_FOUND
+        ]
+
+        and:
+        response.statusCode == HttpStatus.OK
+        response.body*.responseCode == [200, 404]
+        response.body[0].response.matchingRecord.referenceId == '1'
+        response.body[1].response.error == 'not found'
+    }
 }
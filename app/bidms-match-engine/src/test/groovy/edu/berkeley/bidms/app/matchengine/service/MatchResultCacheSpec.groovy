@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchengine.service
+
+import edu.berkeley.bidms.app.matchengine.config.MatchConfidence
+import edu.berkeley.bidms.app.matchengine.config.MatchConfig
+import edu.berkeley.bidms.app.matchengine.config.MatchReference
+import edu.berkeley.bidms.app.matchengine.config.properties.MatchEngineConfigProperties
+import edu.berkeley.bidms.app.matchengine.database.Candidate
+import edu.berkeley.bidms.app.matchengine.response.ExactMatchResponse
+import edu.berkeley.bidms.app.matchengine.response.FuzzyMatchResponse
+import edu.berkeley.bidms.app.matchengine.response.Response
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+
+import static edu.berkeley.bidms.app.matchengine.config.MatchAttributeConfigCreator.create
+import static edu.berkeley.bidms.app.matchengine.config.MatchConfig.MatchType.EXACT
+
+class MatchResultCacheSpec extends Specification {
+    static final Response EXACT_MATCH = new ExactMatchResponse(responseData: new Candidate(referenceId: 'R1', exactMatch: true))
+
+    MatchEngineConfigProperties properties
+    MeterRegistry meterRegistry
+    MatchResultCache cache
+
+    def setup() {
+        MatchConfig matchConfig = new MatchConfig(
+                matchTable: 'myMatchTable',
+                matchReference: new MatchReference(column: 'reference_id', systemOfRecordAttribute: 'sor', identifierAttribute: 'id'),
+                matchAttributeConfigs: [
+                        create(name: 'sor', column: 'sorname', attribute: 'systemOfRecord', caseSensitive: true),
+                        create(name: 'lastName', column: 'SUR_NAME', path: 'names', attribute: 'sur', group: 'official')
+                ],
+                canonicalConfidences: [
+                        new MatchConfidence(ruleName: 'sorAndLastName', confidence: [sor: EXACT, lastName: EXACT])
+                ]
+        )
+        properties = new MatchEngineConfigProperties()
+        properties.resultCache.enabled = true
+        meterRegistry = new SimpleMeterRegistry()
+        cache = new MatchResultCache(matchConfig, properties, meterRegistry)
+    }
+
+    def "test that inputs that only differ in values the rules normalize away share a key"() {
+        expect:
+        cache.keyOf([systemOfRecord: 'SIS', identifier: '1', names: [[type: 'official', sur: 'Smith']], dateOfBirth: '2000-01-01']) ==
+                cache.keyOf([systemOfRecord: 'SIS', identifier: '1', names: [[type: 'official', sur: 'SMITH']]])
+        cache.keyOf([systemOfRecord: 'SIS', identifier: '1', names: [[type: 'official', sur: 'Smith']]]) !=
+                cache.keyOf([systemOfRecord: 'SIS', identifier: '2', names: [[type: 'official', sur: 'Smith']]])
+    }
+
+    def "test that a change to a person only evicts the exact match responses for that person"() {
+        given:
+        List key1 = cache.keyOf([systemOfRecord: 'SIS', identifier: '1'])
+        List key2 = cache.keyOf([systemOfRecord: 'SIS', identifier: '2'])
+        List key3 = cache.keyOf([systemOfRecord: 'SIS', identifier: '3'])
+
+        when:
+        cache.put(key1, cache.generation, EXACT_MATCH)
+        cache.put(key2, cache.generation, exactMatch('R2'))
+        cache.put(key3, cache.generation, Response.NOT_FOUND)
+        cache.invalidate(['R1'], false)
+
+        then:
+        cache.get(key1) == null
+        cache.get(key2) != null
+        cache.get(key3).is(Response.NOT_FOUND)
+        meterRegistry.get("${MatchResultCache.METER_PREFIX}.hits").counter().count() == 2
+        meterRegistry.get("${MatchResultCache.METER_PREFIX}.misses").counter().count() == 1
+    }
+
+    def "test that a new uid expires the not found responses only"() {
+        given:
+        List key1 = cache.keyOf([systemOfRecord: 'SIS', identifier: '1'])
+        List key2 = cache.keyOf([systemOfRecord: 'SIS', identifier: '2'])
+
+        when:
+        cache.put(key1, cache.generation, EXACT_MATCH)
+        cache.put(key2, cache.generation, Response.NOT_FOUND)
+        cache.invalidate(['R9'], true)
+
+        then:
+        cache.get(key1) != null
+        cache.get(key2) == null
+        cache.size == 1
+    }
+
+    def "test that a response searched for before a change that affects it is not cached"() {
+        given:
+        List key = cache.keyOf([systemOfRecord: 'SIS', identifier: '1'])
+        long generation = cache.generation
+
+        when:
+        cache.invalidate(changed, newUids)
+        cache.put(key, generation, response)
+
+        then:
+        (cache.get(key) != null) == cached
+
+        where:
+        changed | newUids | response           || cached
+        ['R1']  | false   | EXACT_MATCH        || false
+        ['R2']  | false   | EXACT_MATCH        || true
+        ['R2']  | true    | EXACT_MATCH        || true
+        ['R2']  | true    | Response.NOT_FOUND || false
+        ['R1']  | false   | Response.NOT_FOUND || true
+    }
+
+    def "test that a response searched for before a forgotten change is not cached"() {
+        given:
+        properties.resultCache.maxEntries = 1
+        List key = cache.keyOf([systemOfRecord: 'SIS', identifier: '1'])
+        long generation = cache.generation
+
+        when: "the change to R1 is pushed out by a later change"
+        cache.invalidate(['R1'], false)
+        cache.invalidate(['R2'], false)
+        cache.put(key, generation, EXACT_MATCH)
+
+        then:
+        cache.get(key) == null
+    }
+
+    def "test that the least recently used response is evicted"() {
+        given:
+        properties.resultCache.maxEntries = 2
+        List key1 = cache.keyOf([systemOfRecord: 'SIS', identifier: '1'])
+        List key2 = cache.keyOf([systemOfRecord: 'SIS', identifier: '2'])
+        List key3 = cache.keyOf([systemOfRecord: 'SIS', identifier: '3'])
+
+        when:
+        cache.put(key1, cache.generation, EXACT_MATCH)
+        cache.put(key2, cache.generation, EXACT_MATCH)
+        cache.get(key1)
+        cache.put(key3, cache.generation, EXACT_MATCH)
+
+        then:
+        cache.get(key1) != null
+        cache.get(key2) == null
+        cache.get(key3) != null
+        meterRegistry.get("${MatchResultCache.METER_PREFIX}.evictions").counter().count() == 1
+
+        when: "the evicted key is no longer in the reverse index"
+        cache.invalidate(['R1'], false)
+
+        then:
+        cache.size == 0
+    }
+
+    def "test that responses expire"() {
+        given:
+        properties.resultCache.ttlSeconds = 0
+        List key = cache.keyOf([systemOfRecord: 'SIS', identifier: '1'])
+
+        when:
+        cache.put(key, cache.generation, EXACT_MATCH)
+
+        then:
+        cache.get(key) == null
+    }
+
+    def "test that potential match responses are not cached"() {
+        given:
+        List key = cache.keyOf([systemOfRecord: 'SIS', identifier: '1'])
+
+        when:
+        cache.put(key, cache.generation, new FuzzyMatchResponse(responseData: [new Candidate(referenceId: 'R1', exactMatch: false)] as Set))
+
+        then:
+        cache.get(key) == null
+        cache.size == 0
+    }
+
+    private static Response exactMatch(String referenceId) {
+        return new ExactMatchResponse(responseData: new Candidate(referenceId: referenceId, exactMatch: true))
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchengine.util.sql
+
+import spock.lang.Specification
+
+import java.sql.SQLException
+import java.sql.Statement
+
+class StatementCancellerSpec extends Specification {
+
+    void "test cancel cancels registered statements"() {
+        given:
+        StatementCanceller canceller = new StatementCanceller()
+        Statement stmt1 = Mock(Statement)
+        Statement stmt2 = Mock(Statement)
+        canceller.register(stmt1)
+        canceller.register(stmt2)
+
+        when:
+        canceller.cancel()
+
+        then:
+        1 * stmt1.cancel()
+        1 * stmt2.cancel()
+        canceller.cancelled
+    }
+
+    void "test unregistered statements are not cancelled"() {
+        given:
+        StatementCanceller canceller = new StatementCanceller()
+        Statement stmt = Mock(Statement)
+        canceller.register(stmt)
+        canceller.unregister(stmt)
+
+        when:
+        canceller.cancel()
+
+        then:
+        0 * stmt.cancel()
+    }
+
+    void "test a statement registered after cancellation is cancelled immediately"() {
+        given:
+        StatementCanceller canceller = new StatementCanceller()
+        Statement stmt = Mock(Statement)
+        canceller.cancel()
+
+        when:
+        canceller.register(stmt)
+
+        then:
+        1 * stmt.cancel()
+    }
+
+    void "test a statement that fails to cancel doesn't stop the others from being cancelled"() {
+        given:
+        StatementCanceller canceller = new StatementCanceller()
+        Statement stmt1 = Mock(Statement)
+        Statement stmt2 = Mock(Statement)
+        canceller.register(stmt1)
+        canceller.register(stmt2)
+
+        when:
+        canceller.cancel()
+
+        then:
+        1 * stmt1.cancel() >> { throw new SQLException("closed") }
+        1 * stmt2.cancel()
+        noExceptionThrown()
+    }
+}
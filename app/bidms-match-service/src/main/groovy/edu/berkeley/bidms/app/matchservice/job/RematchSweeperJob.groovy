@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchservice.job
+
+import edu.berkeley.bidms.app.matchservice.config.properties.MatchServiceConfigProperties
+import edu.berkeley.bidms.app.matchservice.config.properties.RematchProperties
+import edu.berkeley.bidms.app.matchservice.service.NewSORConsumerService
+import edu.berkeley.bidms.app.matchservice.service.RematchService
+import edu.berkeley.bidms.app.registryModel.model.SORObject
+import edu.berkeley.bidms.app.registryModel.model.SORObjectRematch
+import edu.berkeley.bidms.app.registryModel.repo.SORObjectRepository
+import groovy.util.logging.Slf4j
+import org.quartz.DisallowConcurrentExecution
+import org.quartz.Job
+import org.quartz.JobBuilder
+import org.quartz.JobDetail
+import org.quartz.JobExecutionContext
+import org.quartz.Trigger
+import org.quartz.impl.triggers.CronTriggerImpl
+import org.springframework.beans.factory.annotation.Qualifier
+import org.springframework.context.annotation.Bean
+import org.springframework.context.annotation.Configuration
+import org.springframework.stereotype.Component
+
+/**
+ * Matches again the SORObjects whose match failed and that are due for
+ * another attempt, at most batchSize of them per run.  This keeps retries
+ * off the newSORObject queue, where they would compete with new SORObjects.
+ *
+ * The job runs on every instance, so each run first claims the SORObjects
+ * it matches with {@link RematchService#claimDue(int)}.  The SORObject is
+ * read again before it's matched, and a SORObject whose JSON has changed
+ * since its match attributes were recorded isn't matched with them.
+ *
+ * A failed attempt is recorded by {@link RematchService}, which schedules
+ * the next one with exponential backoff.
+ */
+@Slf4j
+@Component
+@DisallowConcurrentExecution
+@Configuration
+class RematchSweeperJob implements Job {
+    @Slf4j
+    static class JobTrigger extends CronTriggerImpl {
+        JobTrigger(RematchProperties config) {
+            super()
+            log.info("RematchSweeperJob instantiating with config: $config")
+            setCronExpression(config?.cronExpression ?: "0 * * * * ?")
+            name = NAME
+            description = DESCRIPTION
+        }
+    }
+
+    static final String NAME = "rematchSweeper"
+    static final String DESCRIPTION = "Rematch Sweeper Job"
+    static final Class<Trigger> TRIGGER_CLASS = JobTrigger
+
+    MatchServiceConfigProperties matchServiceConfigProperties
+    RematchService rematchService
+    NewSORConsumerService newSORConsumerService
+    SORObjectRepository sorObjectRepository
+
+    RematchSweeperJob(MatchServiceConfigProperties matchServiceConfigProperties, RematchService rematchService, NewSORConsumerService newSORConsumerService, SORObjectRepository sorObjectRepository) {
+        this.matchServiceConfigProperties = matchServiceConfigProperties
+        this.rematchService = rematchService
+        this.newSORConsumerService = newSORConsumerService
+        this.sorObjectRepository = sorObjectRepository
+    }
+
+    RematchProperties getConfig() {
+        return matchServiceConfigProperties.rematch
+    }
+
+    @Override
+    void execute(JobExecutionContext context) {
+        if (!config?.enabled) {
+            log.debug("Quartz job is not enabled.  Not running: $DESCRIPTION")
+            return
+        }
+        sweep()
+    }
+
+    /**
+     * @return The number of SORObjects that were matched.
+     */
+    int sweep() {
+        List<SORObjectRematch> due = rematchService.claimDue(config.batchSize)
+        if (!due) {
+            return 0
+        }
+        log.info("Rematching ${due.size()} SORObjects")
+        int matched = 0
+        for (SORObjectRematch rematch in due) {
+            SORObject sorObject = sorObjectRepository.get(rematch.sorObjectId)
+            if (!sorObject) {
+                log.info("SORObject ${rematch.sorObjectId} no longer exists.  Not rematching it.")
+                rematchService.remove(rematch)
+                continue
+            }
+            if (rematchService.isStale(rematch, sorObject)) {
+                // A newSORObject message for the change brings the current
+                // attributes, and matching it removes the rematch.  This
+                // counts as a failed attempt so that the rematch is left
+                // DEAD if that message never comes.
+                log.info("SORObject sor=${sorObject.sor?.name}, sorObjectKey=${sorObject.sorPrimaryKey} has changed since its match failed.  Not rematching it with its old match attributes.")
+                rematchService.recordFailure(sorObject, rematch.eventId, null, new IllegalStateException("The SORObject has changed since its match attributes were recorded"))
+                continue
+            }
+            try {
+                newSORConsumerService.matchPerson(rematch.eventId, sorObject, rematchService.getMatchAttributes(rematch))
+                rematchService.remove(rematch)
+                matched++
+            }
+            catch (Exception e) {
+                log.error("Rematch attempt ${rematch.attemptCount + 1} failed for sor=${sorObject.sor?.name}, sorObjectKey=${sorObject.sorPrimaryKey}", e)
+                rematchService.recordFailure(sorObject, rematch.eventId, null, e)
+            }
+        }
+        log.info("Rematched $matched of ${due.size()} SORObjects")
+        return matched
+    }
+
+    @Bean(name = "rematchSweeperJobDetail")
+    JobDetail getRematchSweeperJobDetail() {
+        return JobBuilder.newJob().ofType(RematchSweeperJob)
+                .storeDurably()
+                .withIdentity(RematchSweeperJob.NAME)
+                .withDescription(RematchSweeperJob.DESCRIPTION)
+                .build()
+    }
+
+    @Bean
+    Trigger getRematchSweeperJobTrigger(@Qualifier("rematchSweeperJobDetail") JobDetail jobDetail) {
+        if (jobDetail.getKey().getName() == null) {
+            throw new IllegalArgumentException("The given job has not yet had a name assigned to it.")
+        }
+        Trigger trigger = RematchSweeperJob.TRIGGER_CLASS.getConstructor(RematchProperties).newInstance([getConfig()] as Object[])
+        trigger.jobKey = jobDetail.key
+        return trigger
+    }
+}
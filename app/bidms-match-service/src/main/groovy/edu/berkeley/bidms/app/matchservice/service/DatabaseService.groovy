@@ -41,31 +41,52 @@ import edu.berkeley.bidms.app.registryModel.model.type.MatchHistoryResultTypeEnu
 import edu.berkeley.bidms.app.registryModel.repo.PartialMatchRepository
 import edu.berkeley.bidms.app.registryModel.repo.SORObjectRepository
 import edu.berkeley.bidms.app.registryModel.repo.history.MatchHistoryRepository
+import edu.berkeley.bidms.common.json.JsonUtil
 import groovy.util.logging.Slf4j
 import jakarta.persistence.EntityManager
+import org.hibernate.Session
+import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.stereotype.Service
 import org.springframework.transaction.annotation.Transactional
+import org.springframework.transaction.support.TransactionSynchronization
+import org.springframework.transaction.support.TransactionSynchronizationManager
 
 @Slf4j
 @Service("matchServiceDatabaseService")
 @Transactional(rollbackFor = Exception)
 class DatabaseService {
 
+    // upper bound of the JDBC batches partial matches are written in
+    private static final int PARTIAL_MATCH_JDBC_BATCH_SIZE = 100
+
     EntityManager entityManager
     SORObjectRepository sorObjectRepository
     PartialMatchRepository partialMatchRepository
     MatchHistoryRepository matchHistoryRepository
+    MatchHistoryWriter matchHistoryWriter
 
     DatabaseService(
             EntityManager entityManager,
             SORObjectRepository sorObjectRepository,
             PartialMatchRepository partialMatchRepository,
             MatchHistoryRepository matchHistoryRepository
+    ) {
+        this(entityManager, sorObjectRepository, partialMatchRepository, matchHistoryRepository, null)
+    }
+
+    @Autowired
+    DatabaseService(
+            EntityManager entityManager,
+            SORObjectRepository sorObjectRepository,
+            PartialMatchRepository partialMatchRepository,
+            MatchHistoryRepository matchHistoryRepository,
+            MatchHistoryWriter matchHistoryWriter
     ) {
         this.entityManager = entityManager
         this.sorObjectRepository = sorObjectRepository
         this.partialMatchRepository = partialMatchRepository
         this.matchHistoryRepository = matchHistoryRepository
+        this.matchHistoryWriter = matchHistoryWriter
     }
 
     /**
@@ -81,38 +102,84 @@ class DatabaseService {
     }
 
     /**
-     * Store a potential match(es), linking a sorObject to the People in the Database
+     * Store a potential match(es), linking a sorObject to the People in the Database.
+     *
+     * The existing partial matches of the sorObject are reconciled with
+     * matchingPeople rather than replaced: the rows of people no longer
+     * matched are deleted with one statement, the rows of people still
+     * matched are updated in place if their rules or rejection changed and
+     * the rows of newly matched people are inserted, with the updates and
+     * inserts written in JDBC batches by one flush.  A row that hasn't
+     * changed keeps the eventId of the match that created it; the eventId
+     * of each match is in MatchHistory.
      */
     void storePartialMatch(SORObject sorObject, List<PersonPartialMatch> matchingPeople) {
-        removeExistingPartialMatches(sorObject)
-        matchingPeople.each {
-            createPartialMatch(sorObject, it)
+        Map<String, PartialMatch> existing = partialMatchRepository.findAllBySorObject(sorObject).collectEntries { PartialMatch partialMatch ->
+            [partialMatch.personUid, partialMatch]
         }
-    }
-
-    private void createPartialMatch(SORObject sorObject, PersonPartialMatch personPartialMatch) {
-        PartialMatch partialMatch = partialMatchRepository.findBySorObjectAndPerson(sorObject, personPartialMatch.person)
-        if (!partialMatch) {
-            partialMatch = new PartialMatch(personPartialMatch.person)
-            partialMatch.sorObject = sorObject
+        // the last one wins if a person is in matchingPeople more than once
+        Map<String, PersonPartialMatch> candidates = matchingPeople.collectEntries { PersonPartialMatch personPartialMatch ->
+            [personPartialMatch.person.uid, personPartialMatch]
         }
-        try {
+
+        List<PartialMatch> removed = existing.findAll { !candidates.containsKey(it.key) }.values() as List<PartialMatch>
+        deletePartialMatches(removed)
+
+        candidates.each { String uid, PersonPartialMatch personPartialMatch ->
+            PartialMatch partialMatch = existing[uid]
+            if (partialMatch) {
+                if (!partialMatch.isReject && partialMatch.metaData.ruleNames == personPartialMatch.ruleNames) {
+                    // unchanged: don't UPDATE the row just for the eventId
+                    return
+                }
+                // a rematch clears a previous rejection, the same as if the
+                // row had been recreated
+                partialMatch.isReject = false
+            } else {
+                partialMatch = new PartialMatch(personPartialMatch.person)
+                partialMatch.sorObject = sorObject
+            }
             partialMatch.metaData.eventId = personPartialMatch.eventId
             partialMatch.metaData.ruleNames = personPartialMatch.ruleNames
-            partialMatchRepository.saveAndFlush(partialMatch)
-        } catch (e) {
-            log.error("Failed to save PartialMatch for SORObject: ${sorObject}, Person: ${personPartialMatch}", e)
+            // metaData isn't dirty checked, only metaDataJson is
+            partialMatch.metaDataJson = JsonUtil.convertMapToJson(partialMatch.metaData)
+            if (!partialMatch.id) {
+                partialMatchRepository.save(partialMatch)
+            }
         }
+        flushBatched(candidates.size())
     }
 
     void removeExistingPartialMatches(SORObject sorObject) {
-        List<PartialMatch> partialMatches = partialMatchRepository.findAllBySorObject(sorObject)
-        partialMatches.each {
-            partialMatchRepository.delete(it)
+        deletePartialMatches(partialMatchRepository.findAllBySorObject(sorObject))
+    }
+
+    private void deletePartialMatches(List<PartialMatch> partialMatches) {
+        if (partialMatches) {
+            // one DELETE statement for all of them
+            partialMatchRepository.deleteAllInBatch(partialMatches)
+            // the batch delete bypasses the persistence context
+            partialMatches.each { entityManager.detach(it) }
         }
-        entityManager.flush()
     }
 
+    private void flushBatched(int writeCount) {
+        Session session = entityManager.unwrap(Session)
+        Integer jdbcBatchSize = session.jdbcBatchSize
+        session.jdbcBatchSize = Math.max(Math.min(writeCount, PARTIAL_MATCH_JDBC_BATCH_SIZE), jdbcBatchSize ?: 1)
+        try {
+            entityManager.flush()
+        }
+        finally {
+            session.jdbcBatchSize = jdbcBatchSize
+        }
+    }
+
+    /**
+     * Record a match in MatchHistory.  When the MatchHistory writer is
+     * enabled, the row is handed to it to be written in the background
+     * once the current transaction commits, and is returned unsaved.
+     */
     MatchHistory recordMatchHistory(SORObject sorObject, PersonMatch personMatch, String newlyGeneratedUid) {
         if (personMatch instanceof PersonExistingMatch) {
             // if PersonExistingMatch, then sorObject was already assigned to a uid and no action was taken
@@ -172,6 +239,25 @@ class DatabaseService {
             }
         }
 
+        if (matchHistoryWriter?.enabled) {
+            submitAfterCommit(matchHistory)
+            return matchHistory
+        }
         return matchHistoryRepository.saveAndFlush(matchHistory)
     }
+
+    // The writer writes outside of the current transaction, so the row is
+    // only handed to it once the match it records has been committed.
+    private void submitAfterCommit(MatchHistory matchHistory) {
+        if (TransactionSynchronizationManager.synchronizationActive) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                void afterCommit() {
+                    matchHistoryWriter.submit(matchHistory)
+                }
+            })
+        } else {
+            matchHistoryWriter.submit(matchHistory)
+        }
+    }
 }
@@ -36,8 +36,10 @@ import edu.berkeley.bidms.app.matchservice.rest.MatchEngineRestOperations
 import edu.berkeley.bidms.app.registryModel.model.Person
 import edu.berkeley.bidms.app.registryModel.repo.PersonRepository
 import edu.berkeley.bidms.app.restclient.service.MatchEngineRestClientService
+import groovy.transform.PackageScope
 import groovy.util.logging.Slf4j
 import org.springframework.http.HttpStatus
+import org.springframework.http.HttpStatusCode
 import org.springframework.http.ResponseEntity
 import org.springframework.stereotype.Service
 import org.springframework.transaction.annotation.Transactional
@@ -72,46 +74,169 @@ class MatchClientService {
     PersonMatch match(String eventId, Map<String, Object> sorKeyData) {
         Map matchInputData = buildMatchInputData(sorKeyData)
         ResponseEntity<Map> response = matchEngineRestClientService.match(restTemplate, matchInputData)
+        return toPersonMatch(eventId, matchInputData, response.statusCode, response.body, resolveCandidates([response.body]))
+    }
+
+    /**
+     * Match many records at once.  When the match-engine people endpoint
+     * is configured, all the records are matched with one request.
+     * Otherwise, this is the same as calling {@link #match(String, Map)}
+     * for each record.
+     *
+     * @param eventIds The event id of each record.
+     * @param sorKeyDataList The match attributes of each record, in the
+     *        format {@link #match(String, Map)} accepts.
+     * @return A PersonMatch for each record, in the same order, or null
+     *         for a record the match-engine responded to with an
+     *         unexpected status code, which is logged.
+     * @throws RuntimeException if the request to the match-engine fails
+     */
+    List<PersonMatch> matchAll(List<String> eventIds, List<Map<String, Object>> sorKeyDataList) {
+        if (eventIds.size() != sorKeyDataList.size()) {
+            throw new IllegalArgumentException("eventIds and sorKeyDataList must be the same size")
+        }
+        if (!matchEngineRestClientService.peopleEndpointConfigured) {
+            return [eventIds, sorKeyDataList].transpose().collect { List pair ->
+                matchOrNull((String) pair[0]) { match((String) pair[0], (Map<String, Object>) pair[1]) }
+            }
+        }
+
+        List<Map> matchInputDataList = sorKeyDataList.collect { buildMatchInputData(it) }
+        ResponseEntity<List> response = matchEngineRestClientService.matchPeople(restTemplate, matchInputDataList)
+        if (response.statusCode != HttpStatus.OK || response.body?.size() != matchInputDataList.size()) {
+            throw new RuntimeException("Got wrong response from match engine for a batch of ${matchInputDataList.size()}: $response.statusCode - ${response.body}")
+        }
+        // the candidates of the whole batch are loaded with one query
+        Map<String, Person> candidates = resolveCandidates(response.body.collect { ((Map) it).response as Map })
+        List<PersonMatch> matches = []
+        matchInputDataList.eachWithIndex { Map matchInputData, int i ->
+            Map entry = (Map) response.body[i]
+            String eventId = eventIds[i]
+            matches << matchOrNull(eventId) {
+                toPersonMatch(eventId, matchInputData, HttpStatusCode.valueOf(entry.responseCode as Integer), (Map) entry.response, candidates)
+            }
+        }
+        return matches
+    }
+
+    private PersonMatch matchOrNull(String eventId, Closure<PersonMatch> closure) {
+        try {
+            return closure.call()
+        }
+        catch (UnexpectedMatchResponseException e) {
+            log.error("eventId=$eventId: ${e.message}")
+            return null
+        }
+    }
+
+    /**
+     * Load the Persons that match-engine responses refer to, for exact,
+     * existing and partial matches, with one query.  Only the Person rows
+     * are loaded: their collections are lazy and nothing the match results
+     * are used for reads them.
+     *
+     * @return The Persons found, by uid.  A uid that doesn't exist is
+     *         left out.
+     */
+    @PackageScope
+    Map<String, Person> resolveCandidates(List<Map> jsonResponses) {
+        List<String> uids = jsonResponses.collectMany { Map json -> getReferenceIds(json) }.unique()
+        if (!uids) {
+            return [:]
+        }
+        return personRepository.findAllByUidIn(uids).collectEntries { Person person -> [person.uid, person] }
+    }
+
+    private static List<String> getReferenceIds(Map json) {
+        List<String> referenceIds = []
+        if (json?.matchingRecord?.referenceId) {
+            referenceIds << (json.matchingRecord.referenceId as String)
+        }
+        json?.partialMatchingRecords?.each {
+            if (it.referenceId) {
+                referenceIds << (it.referenceId as String)
+            }
+        }
+        return referenceIds
+    }
+
+    private PersonMatch toPersonMatch(String eventId, Map matchInputData, HttpStatusCode statusCode, Map jsonResponse, Map<String, Person> candidates) {
         // The difference between OK and ACCEPTED (I think) is that OK
         // indicates the SORObject matches up to an existing uid, where
         // as ACCEPTED indicates the SORObject is already matched.  See
         // difference between the ExactMatchResponse (OK) and
         // ExistingMatchResponse (ACCEPTED) in ucb-match.
-        Map jsonResponse = response.body
-        switch (response.statusCode) {
+        switch (statusCode) {
             case HttpStatus.NOT_FOUND:
                 // matchOnly=true on input will cause person not to go to newUid queue
                 return new PersonNoMatch(eventId: eventId, matchOnly: matchInputData.matchOnly as Boolean)
             case HttpStatus.OK:
-                return exactMatch(eventId, jsonResponse)
+                return exactMatch(eventId, jsonResponse, candidates)
             case HttpStatus.ACCEPTED:
-                return existingMatch(eventId, jsonResponse)
+                return existingMatch(eventId, jsonResponse, candidates)
             case HttpStatus.MULTIPLE_CHOICES:
-                return partialMatch(eventId, jsonResponse)
+                return partialMatch(eventId, jsonResponse, candidates)
             default:
                 log.error("Got wrong return code from match engine..")
-                throw new RuntimeException("Got wrong return code from match engine: $response.statusCode.reasonPhrase ($response.statusCode) - ${response.body}")
+                throw new UnexpectedMatchResponseException("Got wrong return code from match engine: $statusCode - ${jsonResponse}")
         }
+    }
+
+    static class UnexpectedMatchResponseException extends RuntimeException {
+        UnexpectedMatchResponseException(String message) {
+            super(message)
+        }
+    }
 
+    /**
+     * Report to the match-engine that the match table rows of some existing
+     * uids have changed, so that it can invalidate its caches.  Does
+     * nothing if the match-engine changes endpoint isn't configured.
+     * Failures are logged and not thrown since the match itself has already
+     * been committed.
+     */
+    void notifyChanged(Collection<String> uids) {
+        reportChanges(uids, false)
+    }
+
+    /**
+     * Report newly generated uids to the match-engine, so that it can
+     * invalidate the no-match responses it cached.  Same as {@link
+     * #notifyChanged(Collection)} otherwise.
+     */
+    void notifyNewUids(Collection<String> uids) {
+        reportChanges(uids, true)
+    }
+
+    private void reportChanges(Collection<String> uids, boolean newUids) {
+        if (!uids || !matchEngineRestClientService.changesEndpointConfigured) {
+            return
+        }
+        try {
+            matchEngineRestClientService.notifyChanged(restTemplate, uids, newUids)
+        }
+        catch (Exception e) {
+            log.warn("Failed to report ${newUids ? 'new' : 'changed'} uids $uids to the match engine", e)
+        }
     }
 
-    private PersonExactMatch exactMatch(String eventId, Map json) {
+    private static PersonExactMatch exactMatch(String eventId, Map json, Map<String, Person> candidates) {
         // Person object is not to be changed
-        Person person = personRepository.get(json.matchingRecord.referenceId as String)
+        Person person = candidates[json.matchingRecord.referenceId as String]
         List<String> ruleNames = json.matchingRecord.ruleNames
 
         new PersonExactMatch(eventId: eventId, person: person, ruleNames: ruleNames)
     }
 
-    private PersonExistingMatch existingMatch(String eventId, Map json) {
-        def person = personRepository.get(json.matchingRecord.referenceId as String)
+    private static PersonExistingMatch existingMatch(String eventId, Map json, Map<String, Person> candidates) {
+        def person = candidates[json.matchingRecord.referenceId as String]
         new PersonExistingMatch(eventId: eventId, person: person)
     }
 
-    private PersonPartialMatches partialMatch(String eventId, Map json) {
+    private static PersonPartialMatches partialMatch(String eventId, Map json, Map<String, Person> candidates) {
         def partialMatches = json.partialMatchingRecords.collect {
             // Person object is not to be changed
-            Person person = personRepository.get(it.referenceId as String)
+            Person person = candidates[it.referenceId as String]
             List<String> ruleNames = it.ruleNames
             new PersonPartialMatch(eventId: eventId, person: person, ruleNames: ruleNames)
         }
@@ -0,0 +1,562 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchservice.service
+
+import edu.berkeley.bidms.app.matchservice.config.properties.MatchHistoryWriterProperties
+import edu.berkeley.bidms.app.matchservice.config.properties.MatchServiceConfigProperties
+import edu.berkeley.bidms.app.registryModel.model.history.MatchHistory
+import edu.berkeley.bidms.app.registryModel.model.history.MatchHistoryMetaData
+import edu.berkeley.bidms.app.registryModel.model.type.MatchHistoryResultTypeEnum
+import edu.berkeley.bidms.common.json.JsonUtil
+import groovy.transform.PackageScope
+import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.Counter
+import io.micrometer.core.instrument.Gauge
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.Timer
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import jakarta.persistence.EntityManager
+import org.hibernate.Session
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.beans.factory.InitializingBean
+import org.springframework.beans.factory.ObjectProvider
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.stereotype.Service
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.support.TransactionTemplate
+
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.BlockingQueue
+import java.util.concurrent.TimeUnit
+
+/**
+ * Writes MatchHistory rows on a background thread so that the transaction
+ * recording a match doesn't pay for its audit trail.  Submitted rows go
+ * into a bounded queue and are inserted in JDBC batches, one transaction
+ * per batch.
+ *
+ * Rows that can't be written to the database are appended to a local
+ * spool file instead: rows that don't fit in the queue, rows whose batch
+ * failed and rows still queued at shutdown.  The spool is written to the
+ * database when the writer starts and, after that, whenever the writer is
+ * idle and at least {@value #SPOOL_RETRY_MILLIS} ms have passed since the
+ * last attempt.
+ *
+ * Before a row is queued, it's appended to a journal in the spool
+ * directory, and journal files are deleted or truncated once all of their
+ * rows have been written or spooled.  When the writer starts, the rows
+ * left in the journal by a process that was killed are moved to the spool.
+ * The journal isn't synced to disk, so it survives the process dying but
+ * not the host, and a row whose batch committed just before a crash is
+ * written again.  The spool directory must therefore be set, and be on
+ * persistent storage, when the writer is enabled.
+ *
+ * The throughput and lag are published as the bidms.matchhistory.writer
+ * Micrometer meters.
+ */
+@Slf4j
+@Service
+class MatchHistoryWriter implements InitializingBean, DisposableBean {
+    static final String METER_PREFIX = "bidms.matchhistory.writer"
+    static final long SPOOL_RETRY_MILLIS = 60000
+    static final String SPOOL_FILE_NAME = "matchhistory.spool"
+    static final String REPLAY_FILE_SUFFIX = ".replay"
+    static final String JOURNAL_FILE_SUFFIX = ".journal"
+    // the journal file being trimmed and how many of its rows are done
+    static final String JOURNAL_CHECKPOINT_FILE_NAME = "matchhistory.checkpoint"
+    // how long shutdown waits for the queue to be written
+    private static final long STOP_TIMEOUT_MILLIS = 30000
+
+    private final MatchHistoryWriterProperties config
+    private final TransactionTemplate transactionTemplate
+    private final EntityManager entityManager
+
+    private final Object spoolLock = new Object()
+    private final BlockingQueue<QueuedMatchHistory> queue
+    private Thread writerThread
+    private volatile boolean running
+    private long lastReplayTime
+
+    // guarded by spoolLock
+    private final Deque<JournalFile> journalFiles = new ArrayDeque<JournalFile>()
+    private FileChannel journal
+    private long nextJournalSequence
+    private int oldestJournalFileDone
+
+    private final Counter writtenCounter
+    private final Counter spooledCounter
+    private final Counter lostCounter
+    private final Timer lagTimer
+    private final Timer batchTimer
+
+    @Autowired
+    MatchHistoryWriter(MatchServiceConfigProperties matchServiceConfigProperties, PlatformTransactionManager transactionManager, EntityManager entityManager, ObjectProvider<MeterRegistry> meterRegistry) {
+        this(matchServiceConfigProperties.matchHistoryWriter, transactionManager, entityManager, meterRegistry.getIfAvailable { new SimpleMeterRegistry() })
+    }
+
+    MatchHistoryWriter(MatchHistoryWriterProperties config, PlatformTransactionManager transactionManager, EntityManager entityManager, MeterRegistry meterRegistry) {
+        this.config = config
+        this.transactionTemplate = new TransactionTemplate(transactionManager)
+        this.entityManager = entityManager
+        this.queue = new ArrayBlockingQueue<QueuedMatchHistory>(Math.max(config.queueCapacity, 1))
+        this.writtenCounter = Counter.builder("${METER_PREFIX}.written").description("MatchHistory rows written to the database").register(meterRegistry)
+        this.spooledCounter = Counter.builder("${METER_PREFIX}.spooled").description("MatchHistory rows appended to the spool file").register(meterRegistry)
+        this.lostCounter = Counter.builder("${METER_PREFIX}.lost").description("MatchHistory rows that could be neither written nor spooled").register(meterRegistry)
+        this.lagTimer = Timer.builder("${METER_PREFIX}.lag")
+                .description("Time from a MatchHistory row being submitted to it being committed")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry)
+        this.batchTimer = Timer.builder("${METER_PREFIX}.batch").description("Time taken to write a batch of MatchHistory rows").register(meterRegistry)
+        Gauge.builder("${METER_PREFIX}.queued", queue, { BlockingQueue q -> (double) q.size() }).description("MatchHistory rows waiting to be written").register(meterRegistry)
+    }
+
+    @PackageScope
+    static class QueuedMatchHistory {
+        MatchHistory matchHistory
+        long submittedNanos
+    }
+
+    private static class JournalFile {
+        Path path
+        int journaled
+    }
+
+    /**
+     * @return true if the writer is running and MatchHistory rows should
+     *         be submitted to it rather than saved directly.
+     */
+    boolean isEnabled() {
+        return running
+    }
+
+    @Override
+    void afterPropertiesSet() {
+        if (config.enabled) {
+            if (!config.spoolDirectory) {
+                throw new IllegalStateException("bidms.matchservice.match-history-writer.spool-directory must be set to a directory on persistent storage when the MatchHistory writer is enabled")
+            }
+            start()
+        }
+    }
+
+    @Override
+    void destroy() {
+        stop()
+    }
+
+    @PackageScope
+    synchronized void start() {
+        if (running) {
+            return
+        }
+        log.info("Starting the MatchHistory writer with queueCapacity=${config.queueCapacity}, batchSize=${config.batchSize}, spoolDirectory=${spoolDirectory}")
+        openJournal()
+        running = true
+        writerThread = new Thread({ work() } as Runnable, "matchHistoryWriter")
+        writerThread.daemon = true
+        writerThread.start()
+    }
+
+    /**
+     * Stop the writer once the queue has been written.  Whatever is still
+     * queued after {@value #STOP_TIMEOUT_MILLIS} ms is spooled.
+     */
+    @PackageScope
+    synchronized void stop() {
+        if (!running) {
+            return
+        }
+        synchronized (spoolLock) {
+            running = false
+        }
+        writerThread.join(STOP_TIMEOUT_MILLIS)
+        if (writerThread.alive) {
+            log.warn("The MatchHistory writer didn't finish writing the queue in ${STOP_TIMEOUT_MILLIS}ms")
+            writerThread.interrupt()
+        }
+        List<QueuedMatchHistory> remaining = []
+        queue.drainTo(remaining)
+        if (remaining) {
+            spool(remaining*.matchHistory)
+            completed(remaining.size())
+        }
+        closeJournal()
+    }
+
+    /**
+     * Journal and queue a MatchHistory row to be written.  Doesn't wait
+     * for the database: if the queue is full, the row is spooled.
+     */
+    void submit(MatchHistory matchHistory) {
+        if (running) {
+            ByteBuffer line = StandardCharsets.UTF_8.encode(JsonUtil.convertMapToJson(toSpoolRecord(matchHistory)) + "\n")
+            // journal and queue under the same lock so that both hold the rows in the same order
+            synchronized (spoolLock) {
+                if (running && queue.remainingCapacity() > 0 && appendToJournal(line)) {
+                    queue.offer(new QueuedMatchHistory(matchHistory: matchHistory, submittedNanos: System.nanoTime()))
+                    return
+                }
+            }
+        }
+        spool([matchHistory])
+    }
+
+    private void work() {
+        replaySpool()
+        List<QueuedMatchHistory> batch = new ArrayList<QueuedMatchHistory>(config.batchSize)
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedMatchHistory first = queue.poll(config.flushIntervalMillis, TimeUnit.MILLISECONDS)
+                if (first) {
+                    batch.add(first)
+                    queue.drainTo(batch, config.batchSize - 1)
+                    write(batch)
+                    completed(batch.size())
+                    batch.clear()
+                } else if (System.currentTimeMillis() - lastReplayTime >= SPOOL_RETRY_MILLIS) {
+                    replaySpool()
+                }
+            }
+            catch (InterruptedException ignored) {
+                break
+            }
+            catch (Exception e) {
+                // keep the writer alive
+                log.error("The MatchHistory writer threw an exception", e)
+            }
+        }
+    }
+
+    @PackageScope
+    void write(List<QueuedMatchHistory> batch) {
+        long start = System.nanoTime()
+        try {
+            persist(batch*.matchHistory)
+        }
+        catch (Exception e) {
+            log.error("Failed to write a batch of ${batch.size()} MatchHistory rows.  Spooling them to be retried.", e)
+            spool(batch*.matchHistory)
+            return
+        }
+        long now = System.nanoTime()
+        batchTimer.record(now - start, TimeUnit.NANOSECONDS)
+        batch.each { lagTimer.record(now - it.submittedNanos, TimeUnit.NANOSECONDS) }
+        writtenCounter.increment(batch.size())
+    }
+
+    private void persist(List<MatchHistory> matchHistories) {
+        transactionTemplate.executeWithoutResult {
+            entityManager.unwrap(Session).jdbcBatchSize = config.batchSize
+            matchHistories.each { MatchHistory matchHistory ->
+                // a failed batch may have assigned ids
+                matchHistory.id = null
+                entityManager.persist(matchHistory)
+            }
+            entityManager.flush()
+            entityManager.clear()
+        }
+    }
+
+    @PackageScope
+    Path getSpoolDirectory() {
+        return Paths.get(config.spoolDirectory)
+    }
+
+    private void openJournal() {
+        synchronized (spoolLock) {
+            Files.createDirectories(spoolDirectory)
+            recoverJournal()
+            nextJournalSequence = System.currentTimeMillis()
+            oldestJournalFileDone = 0
+            journalFiles.clear()
+            startJournalFile()
+        }
+    }
+
+    // called with spoolLock held
+    private void startJournalFile() {
+        Path path = spoolDirectory.resolve(String.format("matchhistory-%020d%s", nextJournalSequence++, JOURNAL_FILE_SUFFIX))
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+        journal?.close()
+        journal = channel
+        journalFiles.add(new JournalFile(path: path))
+    }
+
+    /**
+     * Append a row to the journal, starting a new journal file once the
+     * current one holds queueCapacity rows so that written rows don't pile
+     * up while the queue is never empty.  Called with spoolLock held.
+     *
+     * @return false if the row couldn't be journaled.
+     */
+    private boolean appendToJournal(ByteBuffer line) {
+        long size = -1
+        try {
+            if (journalFiles.last.journaled >= Math.max(config.queueCapacity, 1)) {
+                startJournalFile()
+            }
+            size = journal.size()
+            while (line.hasRemaining()) {
+                journal.write(line)
+            }
+            journalFiles.last.journaled++
+            return true
+        }
+        catch (IOException e) {
+            log.error("Failed to journal a MatchHistory row in $spoolDirectory.  Spooling it instead.", e)
+            if (size >= 0) {
+                try {
+                    // don't leave a partial line for the next row to be appended to
+                    journal.truncate(size)
+                }
+                catch (IOException ignored) {
+                }
+            }
+            return false
+        }
+    }
+
+    /**
+     * Record that the oldest journaled rows have been written or spooled,
+     * deleting the journal files whose rows are all done.
+     */
+    private void completed(int count) {
+        synchronized (spoolLock) {
+            if (journal == null) {
+                return
+            }
+            oldestJournalFileDone += count
+            try {
+                while (journalFiles.size() > 1 && oldestJournalFileDone >= journalFiles.first.journaled) {
+                    oldestJournalFileDone -= journalFiles.first.journaled
+                    Files.delete(journalFiles.removeFirst().path)
+                }
+                JournalFile oldest = journalFiles.first
+                Path checkpointFile = spoolDirectory.resolve(JOURNAL_CHECKPOINT_FILE_NAME)
+                if (journalFiles.size() == 1 && oldestJournalFileDone >= oldest.journaled) {
+                    journal.truncate(0)
+                    oldest.journaled = 0
+                    oldestJournalFileDone = 0
+                    Files.deleteIfExists(checkpointFile)
+                }
+                else {
+                    Files.write(checkpointFile, ["${oldest.path.fileName} $oldestJournalFileDone".toString()], StandardCharsets.UTF_8)
+                }
+            }
+            catch (IOException e) {
+                log.error("Failed to trim the MatchHistory journal in $spoolDirectory.  Rows already written will be written again if the process dies.", e)
+            }
+        }
+    }
+
+    private void closeJournal() {
+        synchronized (spoolLock) {
+            try {
+                journal?.close()
+                // keep the journal if the writer thread was interrupted mid-batch
+                if (journalFiles.size() == 1 && journalFiles.first.journaled == 0) {
+                    Files.delete(journalFiles.first.path)
+                    Files.deleteIfExists(spoolDirectory.resolve(JOURNAL_CHECKPOINT_FILE_NAME))
+                }
+            }
+            catch (IOException e) {
+                log.error("Failed to close the MatchHistory journal in $spoolDirectory", e)
+            }
+            journal = null
+            journalFiles.clear()
+        }
+    }
+
+    /**
+     * Move the journaled rows that weren't written or spooled before the
+     * writer last stopped to a replay file.  A partial last line, left by a
+     * process that died mid-append, is dropped.
+     */
+    @PackageScope
+    void recoverJournal() {
+        List<Path> files = Files.list(spoolDirectory).withCloseable { it.filter { Path p -> p.fileName.toString().endsWith(JOURNAL_FILE_SUFFIX) }.sorted().toList() }
+        Path checkpointFile = spoolDirectory.resolve(JOURNAL_CHECKPOINT_FILE_NAME)
+        Map checkpoint = readJournalCheckpoint(checkpointFile)
+        List<String> notWritten = []
+        for (Path file in files) {
+            List<String> lines = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).split("\n").findAll { isSpoolRecord(it) }
+            int done = file.fileName.toString() == checkpoint.file ? (int) checkpoint.done : 0
+            notWritten.addAll(lines.drop(done))
+        }
+        if (notWritten) {
+            log.warn("Spooling ${notWritten.size()} journaled MatchHistory rows that weren't written before the writer last stopped")
+            Files.write(spoolDirectory.resolve("matchhistory-${System.currentTimeMillis()}-journal${REPLAY_FILE_SUFFIX}"), notWritten, StandardCharsets.UTF_8)
+            spooledCounter.increment(notWritten.size())
+        }
+        files.each { Files.delete(it) }
+        Files.deleteIfExists(checkpointFile)
+    }
+
+    private static Map readJournalCheckpoint(Path checkpointFile) {
+        try {
+            String[] parts = Files.readString(checkpointFile, StandardCharsets.UTF_8).trim().split(" ")
+            return [file: parts[0], done: parts[1] as Integer]
+        }
+        catch (Exception ignored) {
+            // missing, or torn by a process that died mid-write: recover the whole journal
+            return [file: null, done: 0]
+        }
+    }
+
+    private static boolean isSpoolRecord(String line) {
+        try {
+            return line && JsonUtil.convertJsonToMap(line) != null
+        }
+        catch (Exception ignored) {
+            return false
+        }
+    }
+
+    /**
+     * Append MatchHistory rows to the spool file, one JSON object per line.
+     */
+    @PackageScope
+    void spool(List<MatchHistory> matchHistories) {
+        try {
+            List<String> lines = matchHistories.collect { JsonUtil.convertMapToJson(toSpoolRecord(it)) }
+            synchronized (spoolLock) {
+                Files.createDirectories(spoolDirectory)
+                Files.write(spoolDirectory.resolve(SPOOL_FILE_NAME), lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+            }
+            spooledCounter.increment(matchHistories.size())
+        }
+        catch (Exception e) {
+            lostCounter.increment(matchHistories.size())
+            log.error("Failed to spool ${matchHistories.size()} MatchHistory rows: ${matchHistories.collect { "eventId=${it.eventId}, sorObjectId=${it.sorObjectId}, matchResultType=${it.matchResultType}, uidAssigned=${it.uidAssigned}" }}", e)
+        }
+    }
+
+    /**
+     * Write the spooled MatchHistory rows to the database.  The spool file
+     * is first renamed so that rows spooled in the meantime go to a new
+     * one.  If a batch fails, the rows not yet written are kept for the
+     * next attempt.
+     */
+    @PackageScope
+    void replaySpool() {
+        lastReplayTime = System.currentTimeMillis()
+        List<Path> replayFiles
+        try {
+            synchronized (spoolLock) {
+                Path spoolFile = spoolDirectory.resolve(SPOOL_FILE_NAME)
+                if (Files.exists(spoolFile)) {
+                    Files.move(spoolFile, spoolDirectory.resolve("matchhistory-${System.currentTimeMillis()}${REPLAY_FILE_SUFFIX}"), StandardCopyOption.ATOMIC_MOVE)
+                }
+            }
+            if (!Files.isDirectory(spoolDirectory)) {
+                return
+            }
+            replayFiles = Files.list(spoolDirectory).withCloseable { it.filter { Path p -> p.fileName.toString().endsWith(REPLAY_FILE_SUFFIX) }.sorted().toList() }
+        }
+        catch (IOException e) {
+            log.error("Failed to read the MatchHistory spool directory $spoolDirectory", e)
+            return
+        }
+        for (Path replayFile in replayFiles) {
+            if (!replaySpoolFile(replayFile)) {
+                return
+            }
+        }
+    }
+
+    private boolean replaySpoolFile(Path replayFile) {
+        List<String> lines = []
+        int written = 0
+        try {
+            lines = Files.readAllLines(replayFile, StandardCharsets.UTF_8).findAll { it }
+            for (List<String> batch in lines.collate(config.batchSize)) {
+                persist(batch.collect { fromSpoolRecord(JsonUtil.convertJsonToMap(it)) })
+                written += batch.size()
+            }
+            Files.delete(replayFile)
+            writtenCounter.increment(written)
+            log.info("Wrote ${written} spooled MatchHistory rows from $replayFile")
+            return true
+        }
+        catch (Exception e) {
+            log.error("Failed to write the spooled MatchHistory rows of $replayFile.  Retrying later.", e)
+            if (written) {
+                writtenCounter.increment(written)
+                // keep only the rows not written yet
+                try {
+                    Path rest = replayFile.resolveSibling("matchhistory-${System.currentTimeMillis()}${REPLAY_FILE_SUFFIX}")
+                    Files.write(rest, lines.subList(written, lines.size()), StandardCharsets.UTF_8)
+                    Files.delete(replayFile)
+                }
+                catch (IOException e2) {
+                    log.error("Failed to rewrite $replayFile.  Its first $written rows will be written again.", e2)
+                }
+            }
+            return false
+        }
+    }
+
+    @PackageScope
+    static Map<String, Object> toSpoolRecord(MatchHistory matchHistory) {
+        return [
+                eventId        : matchHistory.eventId,
+                sorId          : matchHistory.sorId,
+                sorObjectId    : matchHistory.sorObjectId,
+                sorPrimaryKey  : matchHistory.sorPrimaryKey,
+                matchResultType: matchHistory.matchResultType?.name(),
+                actionTime     : matchHistory.actionTime?.time,
+                uidAssigned    : matchHistory.uidAssigned,
+                uidUnassigned  : matchHistory.uidUnassigned,
+                doneByUid      : matchHistory.doneByUid,
+                metaData       : JsonUtil.convertObjectToJson(matchHistory.metaData)
+        ] as Map<String, Object>
+    }
+
+    @PackageScope
+    static MatchHistory fromSpoolRecord(Map record) {
+        return new MatchHistory(
+                eventId: record.eventId,
+                sorId: record.sorId as Integer,
+                sorObjectId: record.sorObjectId as Long,
+                sorPrimaryKey: record.sorPrimaryKey,
+                matchResultType: record.matchResultType ? MatchHistoryResultTypeEnum.valueOf((String) record.matchResultType) : null,
+                actionTime: record.actionTime != null ? new Date(record.actionTime as Long) : null,
+                uidAssigned: record.uidAssigned,
+                uidUnassigned: record.uidUnassigned,
+                doneByUid: record.doneByUid,
+                metaData: JsonUtil.convertJsonToObject((String) record.metaData, MatchHistoryMetaData)
+        )
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchservice.service
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import jakarta.jms.JMSException
+import jakarta.jms.Message
+import jakarta.jms.MessageConsumer
+import jakarta.jms.Session
+
+import java.util.concurrent.TimeUnit
+import java.util.function.Consumer
+
+/**
+ * Groups messages into batches from within a message listener.  When the
+ * listener receives a message, {@link #onMessage(Message, Session)}
+ * receives up to batchSize - 1 more messages from the same destination on
+ * the listener's session, waiting at most maxWaitMillis after the first
+ * message, and then processes them together on the listener's thread.
+ *
+ * The extra messages are received on the listener's session, so with a
+ * transacted session (or CLIENT_ACKNOWLEDGE) they are acknowledged
+ * together with the first message once the listener returns, and are
+ * redelivered if the batch throws.  With an auto-acknowledging session,
+ * the extra messages would be acknowledged as soon as they're received, so
+ * no more messages are received and each message is processed on its own.
+ *
+ * The consumer for the extra messages is closed after each batch so that
+ * messages prefetched by it go back to the broker rather than waiting for
+ * the next batch.
+ */
+@CompileStatic
+@Slf4j
+class MessageBatcher {
+    private final Consumer<List<Message>> processor
+    private final int batchSize
+    private final long maxWaitMillis
+    private volatile boolean warnedNotBatching
+
+    /**
+     * @param processor Processes a batch of messages.
+     */
+    MessageBatcher(Consumer<List<Message>> processor, int batchSize, long maxWaitMillis) {
+        this.processor = processor
+        this.batchSize = Math.max(batchSize, 1)
+        this.maxWaitMillis = Math.max(maxWaitMillis, 0L)
+    }
+
+    /**
+     * Receive more messages to batch with the message the listener
+     * received, then process the batch.
+     *
+     * @param session The session the listener received the message on,
+     *        or null to process the message on its own.
+     */
+    void onMessage(Message first, Session session) throws JMSException {
+        processor.accept(receiveBatch(first, session))
+    }
+
+    /**
+     * @return The first message followed by up to batchSize - 1 more
+     *         messages received from its destination.
+     */
+    protected List<Message> receiveBatch(Message first, Session session) throws JMSException {
+        List<Message> batch = [first]
+        if (batchSize == 1 || session == null || first.JMSDestination == null) {
+            return batch
+        }
+        if (!session.transacted && session.acknowledgeMode != Session.CLIENT_ACKNOWLEDGE) {
+            if (!warnedNotBatching) {
+                warnedNotBatching = true
+                log.warn("Not batching messages because the listener session is neither transacted nor CLIENT_ACKNOWLEDGE")
+            }
+            return batch
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis)
+        MessageConsumer consumer = session.createConsumer(first.JMSDestination)
+        try {
+            while (batch.size() < batchSize) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())
+                // receive(0) would wait forever
+                Message next = remainingMillis > 0 ? consumer.receive(remainingMillis) : consumer.receiveNoWait()
+                if (next == null) {
+                    break
+                }
+                batch.add(next)
+            }
+        }
+        finally {
+            consumer.close()
+        }
+        return batch
+    }
+}
@@ -31,6 +31,9 @@ import edu.berkeley.bidms.app.matchservice.PersonExistingMatch
 import edu.berkeley.bidms.app.matchservice.PersonMatch
 import edu.berkeley.bidms.app.matchservice.PersonNoMatch
 import edu.berkeley.bidms.app.matchservice.PersonPartialMatches
+import edu.berkeley.bidms.app.matchservice.config.properties.MatchServiceConfigProperties
+import edu.berkeley.bidms.app.matchservice.config.properties.NewSORBatchProperties
+import edu.berkeley.bidms.app.registryModel.model.SOR
 import edu.berkeley.bidms.app.registryModel.model.SORObject
 import edu.berkeley.bidms.app.registryModel.repo.SORObjectRepository
 import edu.berkeley.bidms.app.registryModel.repo.SORRepository
@@ -39,17 +42,28 @@ import groovy.transform.PackageScope
 import groovy.util.logging.Slf4j
 import jakarta.jms.MapMessage
 import jakarta.jms.Message
+import jakarta.jms.Session
 import jakarta.persistence.EntityManager
 import org.hibernate.ObjectNotFoundException
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.beans.factory.InitializingBean
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.jms.annotation.JmsListener
 import org.springframework.stereotype.Service
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.TransactionDefinition
 import org.springframework.transaction.annotation.Propagation
 import org.springframework.transaction.annotation.Transactional
+import org.springframework.transaction.support.TransactionTemplate
+
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.function.Consumer
 
 @Slf4j
 @Service
-class NewSORConsumerService {
+class NewSORConsumerService implements InitializingBean, DisposableBean {
 
     // these correspond to properties in SorKeyData from the
     // registry-sor-key-data plugin
@@ -75,6 +89,19 @@ class NewSORConsumerService {
     @Autowired
     SORObjectRepository sorObjectRepository
 
+    @Autowired
+    MatchServiceConfigProperties matchServiceConfigProperties
+
+    @Autowired
+    PlatformTransactionManager transactionManager
+
+    @Autowired
+    RematchService rematchService
+
+    // only set when batching is enabled
+    private MessageBatcher batcher
+    private ExecutorService provisionExecutor
+
     NewSORConsumerService() {
     }
 
@@ -87,20 +114,49 @@ class NewSORConsumerService {
         this.sorObjectRepository = sorObjectRepository
     }
 
+    @Override
+    void afterPropertiesSet() {
+        NewSORBatchProperties config = matchServiceConfigProperties?.newSorBatch
+        if (config?.enabled) {
+            log.info("Matching newSORObject messages in batches with batchSize=${config.batchSize}, maxWaitMillis=${config.maxWaitMillis}, provisionParallelism=${config.provisionParallelism}")
+            provisionExecutor = Executors.newFixedThreadPool(Math.max(config.provisionParallelism, 1))
+            batcher = new MessageBatcher({ List<Message> msgs -> handleMessages(msgs) } as Consumer<List<Message>>, config.batchSize, config.maxWaitMillis)
+        }
+    }
+
+    @Override
+    void destroy() {
+        provisionExecutor?.shutdown()
+    }
+
     /**
      * Receives a message on the newSORObjectQueue and processes it according to
      * the rules
      */
     @Transactional(propagation = Propagation.NEVER)
     @JmsListener(destination = '${bidms.jms.match-service.new-sor-object.queue-name}', containerFactory = '${bidms.matchservice.jms.match-service.jms-listener-container-factory-bean-name}')
+    void onMessage(Message msg, Session session) {
+        if (batcher) {
+            // receives more messages on the listener's session and
+            // processes them with this one before returning, so they're
+            // all acknowledged together
+            batcher.onMessage(msg, session)
+        } else {
+            handleMessage(msg)
+        }
+    }
+
+    @Transactional(propagation = Propagation.NEVER)
     void onMessage(Message msg) {
-        handleMessage(msg)
+        onMessage(msg, null)
     }
 
     @PackageScope
     @Transactional(propagation = Propagation.NEVER)
     Map<String, String> handleMessage(Message msg) {
         SORObject sorObject = null
+        String eventId = null
+        Map<String, Object> sorAttributes = null
         try {
             if (!(msg instanceof MapMessage)) {
                 throw new RuntimeException("Received a message that was not of type MapMessage: $msg")
@@ -115,25 +171,17 @@ class NewSORConsumerService {
                 return null
             }
 
-            String eventId = message.getString("eventId") ?: AuditUtil.createEventId()
-            return matchPerson(eventId, sorObject, getAttributesFromMessage(message))
+            eventId = message.getString("eventId") ?: AuditUtil.createEventId()
+            sorAttributes = getAttributesFromMessage(message)
+            Map<String, String> result = matchPerson(eventId, sorObject, sorAttributes)
+            forgetRematch(sorObject)
+            return result
         }
         catch (Exception e) {
             String systemOfRecord = msg.getString('systemOfRecord')
             String sorObjectKey = msg.getString('sorPrimaryKey')
             log.error("There was a newSORObject consumer error for sor=$systemOfRecord, sorObjectKey=$sorObjectKey", e)
-            if (sorObject) {
-                try {
-                    sorObject.rematch = true
-                    sorObjectRepository.saveAndFlush(sorObject)
-                    log.info("Successfully set rematch flag to true for sor=$systemOfRecord, sorObjectKey=$sorObjectKey")
-                }
-                catch (Exception e2) {
-                    log.error("Could not set rematch flag to true for sor=$systemOfRecord, sorObjectKey=$sorObjectKey", e2)
-                }
-            } else {
-                log.error("Could not set rematch flag to true for sor=$systemOfRecord, sorObjectKey=$sorObjectKey because this SORObject could not be retrieved")
-            }
+            markForRematch(sorObject, systemOfRecord, sorObjectKey, eventId, sorAttributes, e)
             return null
         }
         finally {
@@ -147,13 +195,277 @@ class NewSORConsumerService {
         }
     }
 
+    /**
+     * Processes a batch of messages from the newSORObject queue.  This is
+     * the same as {@link #handleMessage(Message)} for each message, except
+     * that the SORObjects of the batch are looked up with one query per
+     * SOR, matched with {@link MatchClientService#matchAll(List, List)},
+     * and their match outcomes saved in one transaction.  The matched uids
+     * are then provisioned in parallel.
+     *
+     * SORObjects that matched no one are provisioned one at a time once the
+     * rest of the batch has been provisioned, and are matched again once an
+     * earlier one has been given a new uid, since two SORObjects of the
+     * same new person in one batch would otherwise both be given a new uid.
+     *
+     * A message that fails sets the rematch flag of its SORObject, as
+     * {@link #handleMessage(Message)} does, without failing the rest of the
+     * batch.
+     *
+     * @return The result of each message, in the same order: null for a
+     *         message that failed or whose SORObject doesn't exist.
+     */
+    @PackageScope
+    @Transactional(propagation = Propagation.NEVER)
+    List<Map<String, String>> handleMessages(List<Message> msgs) {
+        List<BatchEntry> entries = msgs.collect { Message msg -> new BatchEntry(message: msg) }
+        try {
+            resolveSorObjects(entries)
+            List<BatchEntry> toMatch = entries.findAll { !it.done }
+            if (toMatch) {
+                matchBatch(toMatch)
+                saveMatchOutcomes(toMatch.findAll { !it.done && !(it.personMatch instanceof PersonNoMatch) })
+                provisionBatch(toMatch.findAll { !it.done && !(it.personMatch instanceof PersonNoMatch) })
+                rematchNoMatches(toMatch.findAll { !it.done })
+                List<BatchEntry> matched = toMatch.findAll { it.result != null }
+                matchClientService.notifyChanged(matched.collectMany { getChangedUids(it.personMatch) } as Set<String>)
+                matchClientService.notifyNewUids(matched*.newlyGeneratedUid.findAll() as Set<String>)
+            }
+        }
+        catch (Exception e) {
+            entries.findAll { !it.done }.each { it.fail(e) }
+        }
+        finally {
+            // avoid hibernate cache growth
+            try {
+                entityManager?.clear()
+            }
+            catch (Exception e) {
+                log.error("failed to clear hibernate session at the end of handleMessages()", e)
+            }
+        }
+
+        entries.findAll { it.failure }.each { BatchEntry entry ->
+            log.error("There was a newSORObject consumer error for sor=${entry.systemOfRecord}, sorObjectKey=${entry.sorPrimaryKey}", entry.failure)
+            markForRematch(entry.sorObject, entry.systemOfRecord, entry.sorPrimaryKey, entry.eventId, entry.sorAttributes, entry.failure)
+        }
+        entries.findAll { it.result != null }.each { BatchEntry entry ->
+            forgetRematch(entry.sorObject)
+        }
+        return entries*.result
+    }
+
+    @PackageScope
+    static class BatchEntry {
+        Message message
+        String systemOfRecord
+        String sorPrimaryKey
+        String eventId
+        Map<String, Object> sorAttributes
+        SORObject sorObject
+        PersonMatch personMatch
+        String newlyGeneratedUid
+        Map<String, String> result
+        Exception failure
+        // true when there's nothing more to do for the message
+        boolean done
+
+        void fail(Exception e) {
+            failure = e
+            done = true
+        }
+    }
+
+    private void resolveSorObjects(List<BatchEntry> entries) {
+        for (BatchEntry entry in entries) {
+            try {
+                if (!(entry.message instanceof MapMessage)) {
+                    throw new RuntimeException("Received a message that was not of type MapMessage: ${entry.message}")
+                }
+                MapMessage message = (MapMessage) entry.message
+                entry.systemOfRecord = message.getString('systemOfRecord')
+                entry.sorPrimaryKey = message.getString('sorPrimaryKey')
+                entry.eventId = message.getString("eventId") ?: AuditUtil.createEventId()
+                entry.sorAttributes = getAttributesFromMessage(message)
+            }
+            catch (Exception e) {
+                entry.fail(e)
+            }
+        }
+
+        // one query per SOR rather than one per message
+        entries.findAll { !it.done }.groupBy { it.systemOfRecord }.each { String systemOfRecord, List<BatchEntry> sorEntries ->
+            SOR sor = sorRepository.findByName(systemOfRecord)
+            Map<String, SORObject> sorObjects = sor ? sorObjectRepository.findAllBySorAndSorPrimaryKeyIn(sor, sorEntries*.sorPrimaryKey).collectEntries { SORObject sorObject ->
+                [sorObject.sorPrimaryKey, sorObject]
+            } : [:]
+            for (BatchEntry entry in sorEntries) {
+                entry.sorObject = sorObjects[entry.sorPrimaryKey]
+                if (!entry.sorObject) {
+                    log.error("SORObject sorName=${entry.systemOfRecord}, sorPrimaryKey=${entry.sorPrimaryKey} could not be found in the DB while processing message ${entry.message.JMSMessageID} from the New SORObject Queue.  Consuming message to get it off the queue.")
+                    entry.done = true
+                }
+            }
+        }
+    }
+
+    private void matchBatch(List<BatchEntry> entries) {
+        List<PersonMatch> matches
+        try {
+            matches = matchClientService.matchAll(entries*.eventId, entries*.sorAttributes)
+        }
+        catch (Exception e) {
+            entries.each { it.fail(e) }
+            return
+        }
+        entries.eachWithIndex { BatchEntry entry, int i ->
+            if (matches[i] == null) {
+                entry.fail(new RuntimeException("The match engine couldn't match SORObject(sor=${entry.systemOfRecord}, sorObjKey=${entry.sorPrimaryKey})"))
+            } else {
+                entry.personMatch = matches[i]
+                log.info("Response from MatchService for SORObject(sor=${entry.systemOfRecord}, sorObjKey=${entry.sorPrimaryKey}): ${entry.personMatch}")
+            }
+        }
+    }
+
+    // Saves the match outcomes of the batch in one transaction.  If that
+    // fails, they're saved one at a time so that one bad SORObject doesn't
+    // fail the rest of the batch.
+    private void saveMatchOutcomes(List<BatchEntry> entries) {
+        if (!entries) {
+            return
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager)
+        transactionTemplate.propagationBehavior = TransactionDefinition.PROPAGATION_REQUIRES_NEW
+        try {
+            transactionTemplate.executeWithoutResult {
+                entries.each { saveMatchOutcome(it) }
+            }
+        }
+        catch (Exception e) {
+            log.warn("Saving the match outcomes of a batch of ${entries.size()} in one transaction failed.  Saving them one at a time.", e)
+            for (BatchEntry entry in entries) {
+                try {
+                    transactionTemplate.executeWithoutResult {
+                        saveMatchOutcome(entry)
+                    }
+                }
+                catch (Exception e2) {
+                    entry.fail(e2)
+                }
+            }
+        }
+    }
+
+    private void saveMatchOutcome(BatchEntry entry) {
+        applyMatch(entry.sorObject, entry.personMatch)
+        databaseService.recordMatchHistory(entry.sorObject, entry.personMatch, null)
+    }
+
+    private void provisionBatch(List<BatchEntry> entries) {
+        if (provisionExecutor) {
+            List<Future<?>> futures = entries.collect { BatchEntry entry ->
+                provisionExecutor.submit({ provisionBatchEntry(entry) } as Runnable)
+            }
+            futures*.get()
+        } else {
+            entries.each { provisionBatchEntry(it) }
+        }
+    }
+
+    private void provisionBatchEntry(BatchEntry entry) {
+        try {
+            entry.newlyGeneratedUid = doProvisionIfNecessary(entry.personMatch, entry.sorObject, true)
+            entry.result = getResultMap(entry.personMatch, entry.newlyGeneratedUid)
+            entry.done = true
+        }
+        catch (Exception e) {
+            entry.fail(e)
+        }
+    }
+
+    // The SORObjects of a batch that matched no one are provisioned one at
+    // a time, each after the previous one, so a SORObject of a person that
+    // another SORObject of the batch has just been given a new uid for
+    // matches that uid instead of getting one of its own.  Until a new uid
+    // has been generated, the batch match still holds and isn't repeated.
+    private void rematchNoMatches(List<BatchEntry> entries) {
+        boolean uidGenerated = false
+        for (BatchEntry entry in entries) {
+            try {
+                if (uidGenerated) {
+                    entry.personMatch = doMatch(entry.eventId, entry.sorObject, entry.sorAttributes)
+                }
+                entry.newlyGeneratedUid = doProvisionIfNecessary(entry.personMatch, entry.sorObject, true)
+                if (entry.newlyGeneratedUid) {
+                    uidGenerated = true
+                }
+                databaseService.recordMatchHistory(entry.sorObject, entry.personMatch, entry.newlyGeneratedUid)
+                entry.result = getResultMap(entry.personMatch, entry.newlyGeneratedUid)
+                entry.done = true
+            }
+            catch (Exception e) {
+                entry.fail(e)
+            }
+        }
+    }
+
+    // A failed match that was recorded earlier no longer needs to be
+    // retried once the SORObject has been matched.
+    private void forgetRematch(SORObject sorObject) {
+        if (rematchService) {
+            try {
+                rematchService.remove(sorObject)
+            }
+            catch (Exception e) {
+                log.error("Could not remove the rematch of sorObjectId=${sorObject.id}", e)
+            }
+        }
+    }
+
+    private void markForRematch(SORObject sorObject, String systemOfRecord, String sorObjectKey, String eventId, Map<String, Object> sorAttributes, Exception failure) {
+        if (sorObject) {
+            try {
+                sorObject.rematch = true
+                sorObjectRepository.saveAndFlush(sorObject)
+                log.info("Successfully set rematch flag to true for sor=$systemOfRecord, sorObjectKey=$sorObjectKey")
+            }
+            catch (Exception e2) {
+                log.error("Could not set rematch flag to true for sor=$systemOfRecord, sorObjectKey=$sorObjectKey", e2)
+            }
+            if (rematchService && eventId && sorAttributes != null) {
+                try {
+                    rematchService.recordFailure(sorObject, eventId, sorAttributes, failure)
+                }
+                catch (Exception e2) {
+                    log.error("Could not schedule a rematch for sor=$systemOfRecord, sorObjectKey=$sorObjectKey", e2)
+                }
+            }
+        } else {
+            log.error("Could not set rematch flag to true for sor=$systemOfRecord, sorObjectKey=$sorObjectKey because this SORObject could not be retrieved")
+        }
+    }
+
     @Transactional(propagation = Propagation.NEVER)
     Map<String, String> matchPerson(String eventId, SORObject sorObject, Map<String, Object> sorAttributes, boolean synchronousDownstream = true) {
         // done in a new transaction
         PersonMatch personMatch = doMatch(eventId, sorObject, sorAttributes)
         // resumes previous read-only transaction
         String newlyGeneratedUid = doProvisionIfNecessary(personMatch, sorObject, synchronousDownstream)
+        matchClientService.notifyChanged(getChangedUids(personMatch))
+        if (newlyGeneratedUid) {
+            matchClientService.notifyNewUids([newlyGeneratedUid])
+        }
+
+        Map<String, String> resultMap = getResultMap(personMatch, newlyGeneratedUid)
+
+        databaseService.recordMatchHistory(sorObject, personMatch, newlyGeneratedUid)
 
+        return resultMap
+    }
+
+    @PackageScope
+    static Map<String, String> getResultMap(PersonMatch personMatch, String newlyGeneratedUid) {
         Map<String, String> resultMap = [:]
         if (personMatch instanceof PersonExactMatch) {
             resultMap.matchType = "exactMatch"
@@ -168,9 +480,6 @@ class NewSORConsumerService {
             // the uid assignment service.
             resultMap.uid = newlyGeneratedUid
         }
-
-        databaseService.recordMatchHistory(sorObject, personMatch, newlyGeneratedUid)
-
         return resultMap
     }
 
@@ -192,18 +501,7 @@ class NewSORConsumerService {
             }
             PersonMatch match = matchClientService.match(eventId, sorAttributes)
             log.info("Response from MatchService for SORObject(sor=${sorObject.sor.name}, sorObjKey=${sorObject.sorPrimaryKey}): $match")
-
-            // If it is a partial match just store the partial and return
-            if (match instanceof PersonPartialMatches) {
-                databaseService.storePartialMatch(sorObject, match.partialMatches)
-            }
-            // if it is an exact match assign the uid and provision
-            else if (match instanceof PersonExactMatch) {
-                databaseService.assignUidToSOR(sorObject, match.person)
-            }
-
-            // if it's an existing match (already assigned to a uid), do nothing
-
+            applyMatch(sorObject, match)
             return match
         }
         finally {
@@ -217,6 +515,35 @@ class NewSORConsumerService {
         }
     }
 
+    protected void applyMatch(SORObject sorObject, PersonMatch match) {
+        // If it is a partial match just store the partial and return
+        if (match instanceof PersonPartialMatches) {
+            databaseService.storePartialMatch(sorObject, match.partialMatches)
+        }
+        // if it is an exact match assign the uid and provision
+        else if (match instanceof PersonExactMatch) {
+            databaseService.assignUidToSOR(sorObject, match.person)
+        }
+
+        // if it's an existing match (already assigned to a uid), do nothing
+    }
+
+    /**
+     * @return The existing uids whose match table rows changed as a result
+     *         of the match: the uid an exact match was assigned to or the
+     *         uids of partial matches.  A newly generated uid is reported
+     *         separately.
+     */
+    @PackageScope
+    static Set<String> getChangedUids(PersonMatch match) {
+        if (match instanceof PersonExactMatch) {
+            return [((PersonExactMatch) match).person?.uid].findAll() as Set<String>
+        } else if (match instanceof PersonPartialMatches) {
+            return ((PersonPartialMatches) match).partialMatches*.person*.uid.findAll() as Set<String>
+        }
+        return [] as Set<String>
+    }
+
     /**
      * @return If a new uid was generated for the SORObject, the uid is returned, otherwise null is returned.
      */
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchservice.service
+
+import edu.berkeley.bidms.app.matchservice.config.properties.MatchServiceConfigProperties
+import edu.berkeley.bidms.app.matchservice.config.properties.RematchProperties
+import edu.berkeley.bidms.app.registryModel.model.SORObject
+import edu.berkeley.bidms.app.registryModel.model.SORObjectRematch
+import edu.berkeley.bidms.app.registryModel.model.type.RematchStatusEnum
+import edu.berkeley.bidms.app.registryModel.repo.SORObjectRematchRepository
+import edu.berkeley.bidms.app.registryModel.repo.SORObjectRepository
+import edu.berkeley.bidms.common.json.JsonUtil
+import groovy.util.logging.Slf4j
+import org.springframework.data.domain.PageRequest
+import org.springframework.stereotype.Service
+import org.springframework.transaction.annotation.Transactional
+import org.springframework.util.DigestUtils
+
+import java.nio.charset.StandardCharsets
+
+/**
+ * Keeps track of the SORObjects whose match failed, for the rematch
+ * sweeper job to match them again.  Does nothing unless rematching is
+ * enabled.
+ */
+@Slf4j
+@Service
+@Transactional(rollbackFor = Exception)
+class RematchService {
+    private static final int MAX_ERROR_LENGTH = 1024
+
+    MatchServiceConfigProperties matchServiceConfigProperties
+    SORObjectRematchRepository sorObjectRematchRepository
+    SORObjectRepository sorObjectRepository
+
+    RematchService(MatchServiceConfigProperties matchServiceConfigProperties, SORObjectRematchRepository sorObjectRematchRepository, SORObjectRepository sorObjectRepository) {
+        this.matchServiceConfigProperties = matchServiceConfigProperties
+        this.sorObjectRematchRepository = sorObjectRematchRepository
+        this.sorObjectRepository = sorObjectRepository
+    }
+
+    RematchProperties getConfig() {
+        return matchServiceConfigProperties.rematch
+    }
+
+    boolean isEnabled() {
+        return config.enabled
+    }
+
+    /**
+     * Record a failed match attempt of a SORObject and schedule the next
+     * one.  Once the attempts are exhausted, the SORObject is left in the
+     * DEAD state.
+     *
+     * @param sorObjectAttributes The match attributes, or null to keep the
+     *        ones recorded by a previous attempt.  The hash of the
+     *        SORObject's current JSON is recorded with them.
+     */
+    void recordFailure(SORObject sorObject, String eventId, Map<String, Object> sorObjectAttributes, Exception failure) {
+        if (!enabled) {
+            return
+        }
+        SORObjectRematch rematch = sorObjectRematchRepository.get(sorObject.id) ?: new SORObjectRematch(sorObjectId: sorObject.id)
+        rematch.eventId = eventId
+        if (sorObjectAttributes != null) {
+            rematch.matchAttributesJson = JsonUtil.convertMapToJson(sorObjectAttributes)
+            rematch.sorObjectJsonHash = hashJson(sorObject.objJson)
+        }
+        Date now = new Date()
+        rematch.attemptCount++
+        rematch.lastAttemptTime = now
+        rematch.lastError = failure?.toString()?.take(MAX_ERROR_LENGTH)
+        if (rematch.attemptCount >= config.maxAttempts) {
+            rematch.status = RematchStatusEnum.DEAD
+            rematch.nextAttemptTime = now
+            log.error("Giving up on rematching sor=${sorObject.sor?.name}, sorObjectKey=${sorObject.sorPrimaryKey} after ${rematch.attemptCount} attempts")
+        } else {
+            rematch.status = RematchStatusEnum.PENDING
+            rematch.nextAttemptTime = new Date(now.time + getBackoffMillis(rematch.attemptCount))
+        }
+        sorObjectRematchRepository.saveAndFlush(rematch)
+    }
+
+    /**
+     * @return The wait after the given number of failed attempts: the
+     *         initial backoff doubled for each attempt after the first, up
+     *         to the maximum backoff.
+     */
+    long getBackoffMillis(int attemptCount) {
+        int doublings = Math.min(Math.max(attemptCount - 1, 0), 30)
+        long seconds = Math.min(config.initialBackoffSeconds * (1L << doublings), config.maxBackoffSeconds)
+        return seconds * 1000
+    }
+
+    /**
+     * Claim the SORObjects due for a rematch attempt, the longest overdue
+     * first.  Their next attempt is pushed back by claimTimeoutSeconds, so
+     * that the sweepers of other instances don't match them too, and rows
+     * being claimed by another instance at the same time are skipped.  A
+     * claimed SORObject is either removed once it's matched or rescheduled
+     * by {@link #recordFailure(SORObject, String, Map, Exception)}.
+     */
+    List<SORObjectRematch> claimDue(int max) {
+        Date now = new Date()
+        List<SORObjectRematch> due = sorObjectRematchRepository.findDueSkipLocked(RematchStatusEnum.PENDING, now, PageRequest.of(0, max))
+        Date claimedUntil = new Date(now.time + config.claimTimeoutSeconds * 1000)
+        due.each { it.nextAttemptTime = claimedUntil }
+        sorObjectRematchRepository.saveAllAndFlush(due)
+        return due
+    }
+
+    /**
+     * @return true if the SORObject's JSON has changed since the match
+     *         attributes of the rematch were recorded, in which case they
+     *         may no longer describe it.  The newSORObject message for the
+     *         change brings the current attributes.
+     */
+    @Transactional(readOnly = true)
+    boolean isStale(SORObjectRematch rematch, SORObject sorObject) {
+        return rematch.sorObjectJsonHash != null && rematch.sorObjectJsonHash != hashJson(sorObject.objJson)
+    }
+
+    private static String hashJson(String json) {
+        return json != null ? DigestUtils.md5DigestAsHex(json.getBytes(StandardCharsets.UTF_8)) : null
+    }
+
+    Map<String, Object> getMatchAttributes(SORObjectRematch rematch) {
+        return JsonUtil.convertJsonToMap(rematch.matchAttributesJson) as Map<String, Object>
+    }
+
+    /**
+     * Forget a SORObject that has been matched, or that no longer exists,
+     * and clear its rematch flag.
+     */
+    void remove(SORObjectRematch rematch) {
+        sorObjectRematchRepository.deleteById(rematch.sorObjectId)
+        SORObject sorObject = sorObjectRepository.get(rematch.sorObjectId)
+        if (sorObject?.rematch) {
+            sorObject.rematch = false
+            sorObjectRepository.saveAndFlush(sorObject)
+        }
+    }
+
+    /**
+     * Forget a SORObject that has just been matched, if a failed match of
+     * it was recorded.  Only SORObjects with the rematch flag set are
+     * looked up, since a failure always sets it.
+     */
+    void remove(SORObject sorObject) {
+        if (!enabled || !sorObject?.id || !sorObject.rematch) {
+            return
+        }
+        if (sorObjectRematchRepository.get(sorObject.id)) {
+            sorObjectRematchRepository.deleteById(sorObject.id)
+        }
+        SORObject current = sorObjectRepository.get(sorObject.id)
+        if (current?.rematch) {
+            current.rematch = false
+            sorObjectRepository.saveAndFlush(current)
+        }
+    }
+}
@@ -28,6 +28,7 @@ package edu.berkeley.bidms.app.matchservice.config;
 
 import edu.berkeley.bidms.app.common.config.properties.BidmsConfigProperties;
 import edu.berkeley.bidms.app.matchservice.config.properties.MatchServiceConfigProperties;
+import edu.berkeley.bidms.app.matchservice.config.properties.rest.RestEndpointConfigProperties;
 import edu.berkeley.bidms.app.matchservice.rest.MatchEngineRestTemplate;
 import edu.berkeley.bidms.app.matchservice.rest.ProvisionRestTemplate;
 import edu.berkeley.bidms.restclient.util.RestClientUtil;
@@ -66,7 +67,8 @@ public class MatchServiceConfiguration {
 
     @Bean("matchServiceMatchEngineRestTemplate")
     public MatchEngineRestTemplate getMatchEngineRestTemplate(RestTemplateBuilder builder) {
-        return RestClientUtil.configureSslBasicAuthRestTemplate(builder, getRestMatchEngineBaseUrl(), getMatchEngineRestUsername(), getMatchEngineRestPassword(), new MatchEngineRestTemplate());
+        RestEndpointConfigProperties endpoint = matchServiceConfigProperties.getRest().getMatchengine();
+        return RestClientUtil.configureSslBasicAuthRestTemplate(builder, getRestMatchEngineBaseUrl(), getMatchEngineRestUsername(), getMatchEngineRestPassword(), endpoint.getMaxConnectionsPerRoute(), endpoint.getMaxConnectionsTotal(), new MatchEngineRestTemplate());
     }
 
     private URI getRestProvisionBaseUrl() {
@@ -91,6 +93,7 @@ public class MatchServiceConfiguration {
 
     @Bean("matchServiceProvisionRestTemplate")
     public ProvisionRestTemplate getProvisionRestTemplate(RestTemplateBuilder builder) {
-        return RestClientUtil.configureSslBasicAuthRestTemplate(builder, getRestProvisionBaseUrl(), getProvisionRestUsername(), getProvisionRestPassword(), new ProvisionRestTemplate());
+        RestEndpointConfigProperties endpoint = matchServiceConfigProperties.getRest().getProvision();
+        return RestClientUtil.configureSslBasicAuthRestTemplate(builder, getRestProvisionBaseUrl(), getProvisionRestUsername(), getProvisionRestPassword(), endpoint.getMaxConnectionsPerRoute(), endpoint.getMaxConnectionsTotal(), new ProvisionRestTemplate());
     }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchservice.config.properties;
+
+public class MatchHistoryWriterProperties {
+    /**
+     * When true, MatchHistory rows are written by a background thread in
+     * JDBC batches rather than in the transaction that records the match.
+     * A row is committed shortly after its match, rather than with it.
+     */
+    private boolean enabled;
+
+    /**
+     * The maximum number of MatchHistory rows waiting to be written.  When
+     * the queue is full, rows are spooled to a local file rather than
+     * holding up the match.
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * The maximum number of MatchHistory rows written in one transaction.
+     */
+    private int batchSize = 100;
+
+    /**
+     * How long the writer waits for a row to arrive before writing what it
+     * has, in milliseconds.
+     */
+    private long flushIntervalMillis = 200;
+
+    /**
+     * The directory of the spool files that hold the MatchHistory rows
+     * that couldn't be written to the database: rows that didn't fit in
+     * the queue, rows whose write failed and rows still queued at
+     * shutdown.  Spooled rows are written to the database when the writer
+     * starts and when it's idle.  Rows are also journaled here until
+     * they're written, so that they survive the process dying.  Required
+     * when the writer is enabled, and must be on persistent storage rather
+     * than a tmpfs.
+     */
+    private String spoolDirectory;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public String getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    public void setSpoolDirectory(String spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+    }
+}
@@ -40,6 +40,15 @@ public class MatchServiceConfigProperties {
     @NotNull
     private RestProperties rest;
 
+    @NotNull
+    private NewSORBatchProperties newSorBatch = new NewSORBatchProperties();
+
+    @NotNull
+    private MatchHistoryWriterProperties matchHistoryWriter = new MatchHistoryWriterProperties();
+
+    @NotNull
+    private RematchProperties rematch = new RematchProperties();
+
     @Valid
     public RestProperties getRest() {
         return rest;
@@ -48,4 +57,31 @@ public class MatchServiceConfigProperties {
     public void setRest(@Valid RestProperties rest) {
         this.rest = rest;
     }
+
+    @Valid
+    public NewSORBatchProperties getNewSorBatch() {
+        return newSorBatch;
+    }
+
+    public void setNewSorBatch(NewSORBatchProperties newSorBatch) {
+        this.newSorBatch = newSorBatch;
+    }
+
+    @Valid
+    public MatchHistoryWriterProperties getMatchHistoryWriter() {
+        return matchHistoryWriter;
+    }
+
+    public void setMatchHistoryWriter(MatchHistoryWriterProperties matchHistoryWriter) {
+        this.matchHistoryWriter = matchHistoryWriter;
+    }
+
+    @Valid
+    public RematchProperties getRematch() {
+        return rematch;
+    }
+
+    public void setRematch(RematchProperties rematch) {
+        this.rematch = rematch;
+    }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchservice.config.properties;
+
+public class NewSORBatchProperties {
+    /**
+     * When true, messages received from the newSORObject queue are matched
+     * in batches: the SORObjects of a batch are looked up together, matched
+     * with one match-engine request when the match-engine people endpoint
+     * is configured, and their match outcomes saved in one transaction.
+     * A listener thread that receives a message receives the rest of the
+     * batch on its own session, so the listener session has to be
+     * transacted (or CLIENT_ACKNOWLEDGE) for the messages of a batch to be
+     * acknowledged together once the batch has been processed.
+     */
+    private boolean enabled;
+
+    /**
+     * The maximum number of messages in a batch.
+     */
+    private int batchSize = 50;
+
+    /**
+     * How long the listener waits for more messages after the first
+     * message of a batch, in milliseconds.  A batch is processed as soon
+     * as it's full.
+     */
+    private long maxWaitMillis = 100;
+
+    /**
+     * The number of threads that provision the matched uids of a batch.
+     */
+    private int provisionParallelism = 8;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public int getProvisionParallelism() {
+        return provisionParallelism;
+    }
+
+    public void setProvisionParallelism(int provisionParallelism) {
+        this.provisionParallelism = provisionParallelism;
+    }
+}
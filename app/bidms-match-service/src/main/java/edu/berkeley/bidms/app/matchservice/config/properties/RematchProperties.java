@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchservice.config.properties;
+
+public class RematchProperties {
+    /**
+     * When true, SORObjects whose match failed are recorded in the
+     * SORObjectRematch table and matched again by the rematch sweeper job,
+     * backing off exponentially between attempts.  Requires the
+     * SORObjectRematch table.
+     */
+    private boolean enabled;
+
+    /**
+     * The Quartz cron expression of the rematch sweeper job.
+     */
+    private String cronExpression = "0 * * * * ?";
+
+    /**
+     * The maximum number of SORObjects matched again per run of the
+     * sweeper, which limits the rate of rematches.
+     */
+    private int batchSize = 100;
+
+    /**
+     * The number of failed attempts, including the original one, after
+     * which a SORObject is no longer retried and is left in the DEAD
+     * state.
+     */
+    private int maxAttempts = 10;
+
+    /**
+     * How long to wait before the first retry, in seconds.  The wait
+     * doubles with each further failed attempt.
+     */
+    private long initialBackoffSeconds = 60;
+
+    /**
+     * The longest wait between attempts, in seconds.
+     */
+    private long maxBackoffSeconds = 6 * 60 * 60;
+
+    /**
+     * How long a SORObject claimed by a run of the sweeper is hidden from
+     * the sweepers of other instances, in seconds.  A SORObject whose
+     * attempt doesn't finish in this time, for example because its
+     * instance stopped, is claimed again.
+     */
+    private long claimTimeoutSeconds = 30 * 60;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getCronExpression() {
+        return cronExpression;
+    }
+
+    public void setCronExpression(String cronExpression) {
+        this.cronExpression = cronExpression;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getInitialBackoffSeconds() {
+        return initialBackoffSeconds;
+    }
+
+    public void setInitialBackoffSeconds(long initialBackoffSeconds) {
+        this.initialBackoffSeconds = initialBackoffSeconds;
+    }
+
+    public long getMaxBackoffSeconds() {
+        return maxBackoffSeconds;
+    }
+
+    public void setMaxBackoffSeconds(long maxBackoffSeconds) {
+        this.maxBackoffSeconds = maxBackoffSeconds;
+    }
+
+    public long getClaimTimeoutSeconds() {
+        return claimTimeoutSeconds;
+    }
+
+    public void setClaimTimeoutSeconds(long claimTimeoutSeconds) {
+        this.claimTimeoutSeconds = claimTimeoutSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return "RematchProperties{" +
+                "enabled=" + enabled +
+                ", cronExpression='" + cronExpression + '\'' +
+                ", batchSize=" + batchSize +
+                ", maxAttempts=" + maxAttempts +
+                ", initialBackoffSeconds=" + initialBackoffSeconds +
+                ", maxBackoffSeconds=" + maxBackoffSeconds +
+                ", claimTimeoutSeconds=" + claimTimeoutSeconds +
+                '}';
+    }
+}
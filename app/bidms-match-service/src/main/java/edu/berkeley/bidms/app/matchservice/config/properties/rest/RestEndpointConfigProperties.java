@@ -35,6 +35,21 @@ public class RestEndpointConfigProperties {
     @NotNull
     private String password;
 
+    /**
+     * The maximum number of concurrent connections to the endpoint's host.
+     * This caps the number of requests to the endpoint that are in flight
+     * at a time, across all listener threads.
+     */
+    @NotNull
+    private Integer maxConnectionsPerRoute = 20;
+
+    /**
+     * The maximum number of concurrent connections for the endpoint's
+     * client.
+     */
+    @NotNull
+    private Integer maxConnectionsTotal = 20;
+
     public String getUsername() {
         return username;
     }
@@ -50,4 +65,20 @@ public class RestEndpointConfigProperties {
     public void setPassword(String password) {
         this.password = password;
     }
+
+    public Integer getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(Integer maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public Integer getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    public void setMaxConnectionsTotal(Integer maxConnectionsTotal) {
+        this.maxConnectionsTotal = maxConnectionsTotal;
+    }
 }
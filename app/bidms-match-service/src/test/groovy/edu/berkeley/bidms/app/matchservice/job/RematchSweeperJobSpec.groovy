@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchservice.job
+
+import edu.berkeley.bidms.app.matchservice.config.properties.MatchServiceConfigProperties
+import edu.berkeley.bidms.app.matchservice.service.NewSORConsumerService
+import edu.berkeley.bidms.app.matchservice.service.RematchService
+import edu.berkeley.bidms.app.registryModel.model.SOR
+import edu.berkeley.bidms.app.registryModel.model.SORObject
+import edu.berkeley.bidms.app.registryModel.model.SORObjectRematch
+import edu.berkeley.bidms.app.registryModel.repo.SORObjectRepository
+import spock.lang.Specification
+
+class RematchSweeperJobSpec extends Specification {
+    MatchServiceConfigProperties config = new MatchServiceConfigProperties()
+    RematchService rematchService = Mock(RematchService)
+    NewSORConsumerService newSORConsumerService = Mock(NewSORConsumerService)
+    SORObjectRepository sorObjectRepository = Mock(SORObjectRepository)
+    RematchSweeperJob job = new RematchSweeperJob(config, rematchService, newSORConsumerService, sorObjectRepository)
+
+    SORObject sorObject = new SORObject(id: 1L, sor: new SOR(name: 'SIS'), sorPrimaryKey: 'SIS00001', objJson: '{}')
+    SORObjectRematch rematch = new SORObjectRematch(sorObjectId: 1L, eventId: 'event1')
+
+    void "claimed SORObjects are read again and matched with their recorded attributes"() {
+        given:
+        config.rematch.batchSize = 5
+
+        when:
+        int matched = job.sweep()
+
+        then:
+        1 * rematchService.claimDue(5) >> [rematch]
+        1 * sorObjectRepository.get(1L) >> sorObject
+        1 * rematchService.isStale(rematch, sorObject) >> false
+        1 * rematchService.getMatchAttributes(rematch) >> [sorPrimaryKey: 'SIS00001']
+        1 * newSORConsumerService.matchPerson('event1', sorObject, [sorPrimaryKey: 'SIS00001'])
+        1 * rematchService.remove(rematch)
+        matched == 1
+    }
+
+    void "a SORObject that changed since its match failed isn't matched with its old attributes"() {
+        when:
+        int matched = job.sweep()
+
+        then:
+        1 * rematchService.claimDue(_) >> [rematch]
+        1 * sorObjectRepository.get(1L) >> sorObject
+        1 * rematchService.isStale(rematch, sorObject) >> true
+        0 * newSORConsumerService.matchPerson(*_)
+        1 * rematchService.recordFailure(sorObject, 'event1', null, _ as IllegalStateException)
+        0 * rematchService.remove(_)
+        matched == 0
+    }
+
+    void "a failed rematch is rescheduled"() {
+        when:
+        int matched = job.sweep()
+
+        then:
+        1 * rematchService.claimDue(_) >> [rematch]
+        1 * sorObjectRepository.get(1L) >> sorObject
+        1 * newSORConsumerService.matchPerson(*_) >> { throw new RuntimeException("match engine is down") }
+        1 * rematchService.recordFailure(sorObject, 'event1', null, _ as RuntimeException)
+        0 * rematchService.remove(_)
+        matched == 0
+    }
+}
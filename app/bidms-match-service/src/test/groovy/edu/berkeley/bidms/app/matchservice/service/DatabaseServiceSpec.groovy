@@ -46,6 +46,10 @@ import jakarta.persistence.EntityManager
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase
 import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.TransactionDefinition
+import org.springframework.transaction.TransactionStatus
+import org.springframework.transaction.support.TransactionTemplate
 import spock.lang.Specification
 import spock.lang.Unroll
 
@@ -65,6 +69,8 @@ class DatabaseServiceSpec extends Specification {
     PartialMatchRepository partialMatchRepository
     @Autowired
     MatchHistoryRepository matchHistoryRepository
+    @Autowired
+    PlatformTransactionManager transactionManager
 
     DatabaseService service
     SORObject sorObject
@@ -150,6 +156,53 @@ class DatabaseServiceSpec extends Specification {
         }
     }
 
+    void "when storing partial matches, existing PartialMatches no longer matched are removed and those still matched are kept and updated"() {
+        given:
+        def person3 = personRepository.saveAndFlush(new Person(uid: '3'))
+        def epm2 = new PartialMatch(person2)
+        epm2.sorObject = sorObject
+        epm2.isReject = true
+        partialMatchRepository.saveAndFlush(epm2)
+
+        expect:
+        partialMatchRepository.countBySorObject(sorObject) == 2
+
+        when:
+        service.storePartialMatch(sorObject, [createPersonPartialMatch("Potential #2", person2), createPersonPartialMatch("Potential #3", person3)])
+        entityManager.clear()
+
+        then:
+        partialMatchRepository.countBySorObject(sorObject) == 2
+        partialMatchRepository.countBySorObjectAndPerson(sorObject, person1) == 0
+        with(partialMatchRepository.findBySorObjectAndPerson(sorObject, person2)) {
+            id == epm2.id
+            !isReject
+            metaData.ruleNames == ['Potential #2']
+        }
+        with(partialMatchRepository.findBySorObjectAndPerson(sorObject, person3)) {
+            metaData.ruleNames == ['Potential #3']
+        }
+    }
+
+    void "when storing partial matches, a PartialMatch still matched by the same rules is left as it is"() {
+        given:
+        service.storePartialMatch(sorObject, [createPersonPartialMatch("Potential #1", person1)])
+        entityManager.clear()
+        def rematch = createPersonPartialMatch("Potential #1", person1)
+        rematch.eventId = 'eventId2'
+
+        when:
+        service.storePartialMatch(sorObject, [rematch])
+        entityManager.clear()
+
+        then:
+        with(partialMatchRepository.findBySorObjectAndPerson(sorObject, person1)) {
+            id == existingPartialMatch.id
+            metaData.eventId == 'eventId'
+            metaData.ruleNames == ['Potential #1']
+        }
+    }
+
     void "when assigning a new uid to a SORObject in the PartialMatch table, confirm the PartialMatch is removed"() {
         expect: "That there are exactly one partialMatch record for the sorObject"
         partialMatchRepository.countBySorObject(sorObject) == 1
@@ -224,6 +277,30 @@ class DatabaseServiceSpec extends Specification {
         !matchHistory
     }
 
+    @Unroll
+    void "test recordMatchHistory hands the row to the MatchHistory writer only once the transaction commits"() {
+        given:
+        service.matchHistoryWriter = Mock(MatchHistoryWriter) {
+            isEnabled() >> true
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager)
+        transactionTemplate.propagationBehavior = TransactionDefinition.PROPAGATION_REQUIRES_NEW
+
+        when:
+        transactionTemplate.executeWithoutResult { TransactionStatus status ->
+            service.recordMatchHistory(sorObject, new PersonExactMatch(eventId: 'event123', person: person1), null)
+            if (rollback) {
+                status.setRollbackOnly()
+            }
+        }
+
+        then:
+        (rollback ? 0 : 1) * service.matchHistoryWriter.submit({ it.uidAssigned == '1' })
+
+        where:
+        rollback << [false, true]
+    }
+
     private static PersonPartialMatch createPersonPartialMatch(String name, Person person) {
         return new PersonPartialMatch(eventId: 'eventId', person: person, ruleNames: [name])
     }
@@ -27,6 +27,7 @@
 package edu.berkeley.bidms.app.matchservice.service
 
 import edu.berkeley.bidms.app.common.config.properties.BidmsConfigProperties
+import edu.berkeley.bidms.app.common.config.properties.rest.endpoint.RestEndpointConfigProperties
 import edu.berkeley.bidms.app.matchservice.PersonExactMatch
 import edu.berkeley.bidms.app.matchservice.PersonExistingMatch
 import edu.berkeley.bidms.app.matchservice.PersonNoMatch
@@ -201,6 +202,54 @@ class MatchClientServiceSpec extends Specification {
         thrown(ResourceAccessException)
     }
 
+    void "test batch call to match engine"() {
+        setup: "the people endpoint is configured"
+        URI peopleUrl = new URI("http://notneeded/people")
+        bidmsConfigProperties.rest.matchengine.people = new RestEndpointConfigProperties(url: peopleUrl)
+        final mockServer = MockRestServiceServer.createServer(restTemplate)
+        mockServer.expect(requestTo(peopleUrl))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(content().string('[{"systemOfRecord":"b","identifier":"BB00001"},{"systemOfRecord":"b","identifier":"BB00002"},{"systemOfRecord":"b","identifier":"BB00003"}]'))
+                .andExpect(header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE))
+                .andRespond(withSuccess('[{"responseCode":404,"response":{"error":"not found"}},{"responseCode":200,"response":' + EXACT_MATCH_RESPONSE + '},{"responseCode":500,"response":{}}]', MediaType.APPLICATION_JSON))
+
+        when:
+        def results = service.matchAll(['eventId1', 'eventId2', 'eventId3'], [
+                [systemOfRecord: 'b', sorPrimaryKey: 'BB00001'],
+                [systemOfRecord: 'b', sorPrimaryKey: 'BB00002'],
+                [systemOfRecord: 'b', sorPrimaryKey: 'BB00003']
+        ] as List<Map<String, Object>>)
+
+        then: "all three are matched with one request"
+        mockServer.verify()
+        results.size() == 3
+
+        and: "each result corresponds to its input"
+        results[0] instanceof PersonNoMatch
+        results[1] instanceof PersonExactMatch
+        results[1].eventId == 'eventId2'
+        results[1].person.uid == '1'
+
+        and: "the unexpected response code only fails its own input"
+        results[2] == null
+
+        cleanup:
+        bidmsConfigProperties.rest.matchengine.people = null
+    }
+
+    void "test resolving the candidates of match engine responses"() {
+        when:
+        def candidates = service.resolveCandidates([
+                [matchingRecord: [referenceId: '1']],
+                [partialMatchingRecords: [[referenceId: '1'], [referenceId: '2'], [referenceId: '99']]],
+                null
+        ])
+
+        then:
+        candidates.keySet() == ['1', '2'] as Set
+        candidates.values()*.uid.sort() == ['1', '2']
+    }
+
     static EXACT_MATCH_RESPONSE = '{"matchingRecord":{"exactMatch":true,"referenceId":"1","ruleNames":["Canonical #1"]}}'
     static PARTIAL_MATCH_RESPONSE = '{"partialMatchingRecords":[{"exactMatch":false,"referenceId":"1","ruleNames":["Potential #1"]},{"exactMatch":false,"referenceId":"2","ruleNames":["Potential #2"]}]}'
     static EXISTING_RECORD_RESPONSE = '{"matchingRecord":{"exactMatch":true,"referenceId":"1","ruleNames":[]}}'
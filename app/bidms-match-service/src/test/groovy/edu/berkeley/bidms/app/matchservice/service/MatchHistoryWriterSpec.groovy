@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchservice.service
+
+import edu.berkeley.bidms.app.matchservice.config.properties.MatchHistoryWriterProperties
+import edu.berkeley.bidms.app.registryModel.model.history.MatchHistory
+import edu.berkeley.bidms.app.registryModel.model.history.MatchHistoryMetaData
+import edu.berkeley.bidms.app.registryModel.model.type.MatchHistoryResultTypeEnum
+import edu.berkeley.bidms.common.json.JsonUtil
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import jakarta.persistence.EntityManager
+import org.hibernate.Session
+import org.springframework.transaction.PlatformTransactionManager
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class MatchHistoryWriterSpec extends Specification {
+    @TempDir
+    Path spoolDir
+
+    EntityManager entityManager = Mock()
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+    MatchHistoryWriter writer
+
+    def setup() {
+        entityManager.unwrap(Session) >> Mock(Session)
+        writer = new MatchHistoryWriter(new MatchHistoryWriterProperties(batchSize: 2, spoolDirectory: spoolDir.toString()), Mock(PlatformTransactionManager), entityManager, meterRegistry)
+    }
+
+    void "a MatchHistory survives a round trip through a spool record"() {
+        given:
+        def matchHistory = createMatchHistory('event1')
+
+        when:
+        def copy = MatchHistoryWriter.fromSpoolRecord(MatchHistoryWriter.toSpoolRecord(matchHistory))
+
+        then:
+        copy.eventId == 'event1'
+        copy.sorId == 1
+        copy.sorObjectId == 2L
+        copy.sorPrimaryKey == 'SIS123'
+        copy.matchResultType == MatchHistoryResultTypeEnum.POTENTIAL
+        copy.actionTime == matchHistory.actionTime
+        copy.metaData.potentialMatchCount == 1
+        copy.metaData.potentialMatches*.potentialMatchToUid == ['1']
+    }
+
+    void "a batch that fails to be written is spooled and written when the spool is replayed"() {
+        when: "the batch fails"
+        writer.write([queued('event1'), queued('event2')])
+
+        then:
+        2 * entityManager.persist(_)
+        1 * entityManager.flush() >> { throw new RuntimeException("database is down") }
+        Files.readAllLines(spoolDir.resolve(MatchHistoryWriter.SPOOL_FILE_NAME)).size() == 2
+        meterRegistry.counter("${MatchHistoryWriter.METER_PREFIX}.spooled").count() == 2
+
+        when: "the spool is replayed"
+        writer.replaySpool()
+
+        then:
+        2 * entityManager.persist({ it.eventId in ['event1', 'event2'] })
+        1 * entityManager.flush()
+        !Files.list(spoolDir).withCloseable { it.findAny().present }
+        meterRegistry.counter("${MatchHistoryWriter.METER_PREFIX}.written").count() == 2
+    }
+
+    void "submitted rows are written in batches by the writer thread"() {
+        given:
+        writer.start()
+
+        when:
+        (1..3).each { writer.submit(createMatchHistory("event$it")) }
+        writer.stop()
+
+        then:
+        3 * entityManager.persist(_)
+        (1..3) * entityManager.flush()
+        meterRegistry.counter("${MatchHistoryWriter.METER_PREFIX}.written").count() == 3
+        !Files.list(spoolDir).withCloseable { it.findAny().present }
+    }
+
+    void "a submitted row is journaled until its batch is written"() {
+        given:
+        def flushing = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        entityManager.flush() >> {
+            flushing.countDown()
+            release.await(5, TimeUnit.SECONDS)
+        }
+        writer.start()
+
+        when: "the row's batch is being written"
+        writer.submit(createMatchHistory('event1'))
+        flushing.await(5, TimeUnit.SECONDS)
+
+        then:
+        journaledEventIds() == ['event1']
+
+        when: "the batch commits"
+        release.countDown()
+        writer.stop()
+
+        then:
+        !Files.list(spoolDir).withCloseable { it.findAny().present }
+    }
+
+    void "rows journaled by a process that died are written when the writer starts"() {
+        given: "a journal of three rows, the first of which was written, and a partial line"
+        def lines = (1..3).collect { JsonUtil.convertMapToJson(MatchHistoryWriter.toSpoolRecord(createMatchHistory("event$it"))) }
+        Files.writeString(spoolDir.resolve("matchhistory-00000000000000000001${MatchHistoryWriter.JOURNAL_FILE_SUFFIX}"), lines.join('\n') + '\n{"eventId":"ev')
+        Files.writeString(spoolDir.resolve(MatchHistoryWriter.JOURNAL_CHECKPOINT_FILE_NAME), "matchhistory-00000000000000000001${MatchHistoryWriter.JOURNAL_FILE_SUFFIX} 1")
+
+        when:
+        writer.start()
+        writer.stop()
+
+        then:
+        2 * entityManager.persist({ it.eventId in ['event2', 'event3'] })
+        0 * entityManager.persist(_)
+        !Files.list(spoolDir).withCloseable { it.findAny().present }
+    }
+
+    void "the writer can't be enabled without a spool directory"() {
+        given:
+        writer = new MatchHistoryWriter(new MatchHistoryWriterProperties(enabled: true), Mock(PlatformTransactionManager), entityManager, meterRegistry)
+
+        when:
+        writer.afterPropertiesSet()
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    private List<String> journaledEventIds() {
+        return Files.list(spoolDir).withCloseable { it.filter { Path p -> p.fileName.toString().endsWith(MatchHistoryWriter.JOURNAL_FILE_SUFFIX) }.toList() }
+                .collectMany { Files.readAllLines(it) }
+                .collect { JsonUtil.convertJsonToMap(it).eventId as String }
+    }
+
+    private static MatchHistoryWriter.QueuedMatchHistory queued(String eventId) {
+        return new MatchHistoryWriter.QueuedMatchHistory(matchHistory: createMatchHistory(eventId), submittedNanos: System.nanoTime())
+    }
+
+    private static MatchHistory createMatchHistory(String eventId) {
+        def matchHistory = new MatchHistory(
+                eventId: eventId,
+                sorId: 1,
+                sorObjectId: 2L,
+                sorPrimaryKey: 'SIS123',
+                matchResultType: MatchHistoryResultTypeEnum.POTENTIAL,
+                actionTime: new Date()
+        )
+        matchHistory.metaData.potentialMatchCount = 1
+        matchHistory.metaData.potentialMatches = [new MatchHistoryMetaData.MatchHistoryPartialMatch(potentialMatchToUid: '1', ruleNames: ['TEST_RULE'])]
+        return matchHistory
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchservice.service
+
+import jakarta.jms.Message
+import jakarta.jms.MessageConsumer
+import jakarta.jms.Queue
+import jakarta.jms.Session
+import spock.lang.Specification
+
+import java.util.function.Consumer
+
+class MessageBatcherSpec extends Specification {
+    List<List<Message>> batches = []
+    Queue queue = Mock(Queue)
+
+    MessageBatcher newBatcher(int batchSize, long maxWaitMillis) {
+        return new MessageBatcher({ List<Message> batch -> batches.add(batch) } as Consumer<List<Message>>, batchSize, maxWaitMillis)
+    }
+
+    Message newMessage() {
+        return Mock(Message) {
+            getJMSDestination() >> queue
+        }
+    }
+
+    void "test messages are received on the listener's session until the batch is full"() {
+        given:
+        MessageBatcher batcher = newBatcher(3, 60000)
+        Session session = Mock(Session) {
+            getTransacted() >> true
+        }
+        MessageConsumer consumer = Mock(MessageConsumer)
+        Message first = newMessage()
+        Message second = newMessage()
+        Message third = newMessage()
+
+        when:
+        long start = System.currentTimeMillis()
+        batcher.onMessage(first, session)
+
+        then:
+        1 * session.createConsumer(queue) >> consumer
+        2 * consumer.receive({ it > 0 }) >>> [second, third]
+        1 * consumer.close()
+
+        and: "a full batch doesn't wait"
+        batches == [[first, second, third]]
+        System.currentTimeMillis() - start < 60000
+    }
+
+    void "test the batch is processed once maxWaitMillis has passed"() {
+        given:
+        MessageBatcher batcher = newBatcher(10, 50)
+        Session session = Mock(Session) {
+            getTransacted() >> true
+        }
+        MessageConsumer consumer = Mock(MessageConsumer)
+        Message first = newMessage()
+        Message second = newMessage()
+
+        when:
+        batcher.onMessage(first, session)
+
+        then:
+        1 * session.createConsumer(queue) >> consumer
+        consumer.receive({ it > 0 && it <= 50 }) >>> [second, null]
+        1 * consumer.close()
+        batches == [[first, second]]
+    }
+
+    void "test the wait is never an indefinite receive"() {
+        given:
+        MessageBatcher batcher = newBatcher(10, 0)
+        Session session = Mock(Session) {
+            getAcknowledgeMode() >> Session.CLIENT_ACKNOWLEDGE
+        }
+        MessageConsumer consumer = Mock(MessageConsumer)
+        Message first = newMessage()
+        Message second = newMessage()
+
+        when:
+        batcher.onMessage(first, session)
+
+        then:
+        1 * session.createConsumer(queue) >> consumer
+        0 * consumer.receive(_)
+        2 * consumer.receiveNoWait() >>> [second, null]
+        batches == [[first, second]]
+    }
+
+    void "test the message is processed on its own when the session acknowledges messages as they are received"() {
+        given:
+        MessageBatcher batcher = newBatcher(10, 50)
+        Session session = Mock(Session) {
+            getAcknowledgeMode() >> Session.AUTO_ACKNOWLEDGE
+        }
+        Message first = newMessage()
+
+        when:
+        batcher.onMessage(first, session)
+
+        then:
+        0 * session.createConsumer(_)
+        batches == [[first]]
+    }
+
+    void "test the message is processed on its own without a session"() {
+        given:
+        MessageBatcher batcher = newBatcher(10, 50)
+        Message first = newMessage()
+
+        when:
+        batcher.onMessage(first, null)
+
+        then:
+        batches == [[first]]
+    }
+
+    void "test a batch that fails is rethrown so that its messages are redelivered"() {
+        given:
+        MessageBatcher batcher = new MessageBatcher({ List<Message> batch -> throw new RuntimeException("failed") } as Consumer<List<Message>>, 2, 50)
+        Session session = Mock(Session) {
+            getTransacted() >> true
+        }
+        MessageConsumer consumer = Mock(MessageConsumer)
+        Message first = newMessage()
+        Message second = newMessage()
+
+        when:
+        batcher.onMessage(first, session)
+
+        then:
+        1 * session.createConsumer(queue) >> consumer
+        1 * consumer.receive(_) >> second
+        1 * consumer.close()
+        thrown(RuntimeException)
+    }
+}
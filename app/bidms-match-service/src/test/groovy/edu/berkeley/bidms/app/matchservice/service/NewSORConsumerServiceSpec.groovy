@@ -46,6 +46,7 @@ import jakarta.persistence.EntityManager
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase
 import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest
+import org.springframework.transaction.PlatformTransactionManager
 import spock.lang.Specification
 
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
@@ -87,7 +88,8 @@ class NewSORConsumerServiceSpec extends Specification {
 
         then:
         1 * service.matchClientService.match(_, [systemOfRecord: 'SIS', sorPrimaryKey: 'SIS00001', givenName: 'givenName', surName: 'surName', dateOfBirth: 'DOB', socialSecurityNumber: 'SSN', otherIds: [employeeId: '123']]) >> new PersonNoMatch()
-        1 * service.uidClientService.provisionNewUid(_, sorObject, true)
+        1 * service.uidClientService.provisionNewUid(_, sorObject, true) >> '2'
+        1 * service.matchClientService.notifyNewUids(['2'])
         0 * service.databaseService.assignUidToSOR(_, _)
         0 * service.uidClientService.provisionUid(_, _)
         0 * service.uidClientService.provisionNewUid(_, _, _)
@@ -181,6 +183,94 @@ class NewSORConsumerServiceSpec extends Specification {
         0 * service.uidClientService.provisionUid(person1, _)
     }
 
+    void "a recorded failed match is forgotten once the SORObject has been matched"() {
+        given:
+        service.rematchService = Mock(RematchService)
+
+        when:
+        service.onMessage(mockMessage())
+
+        then:
+        1 * service.matchClientService.match(_, _) >> new PersonExactMatch(person: person1)
+        1 * service.rematchService.remove(sorObject)
+        0 * service.rematchService.recordFailure(*_)
+    }
+
+    void "a recorded failed match is forgotten once the SORObject has been matched in a batch"() {
+        given:
+        service.transactionManager = Mock(PlatformTransactionManager)
+        service.rematchService = Mock(RematchService)
+
+        when:
+        service.handleMessages([mockMessage()])
+
+        then:
+        1 * service.matchClientService.matchAll(_, _) >> [new PersonExactMatch(person: person1)]
+        1 * service.rematchService.remove(sorObject)
+        0 * service.rematchService.recordFailure(*_)
+    }
+
+    void "a batch of messages is matched with one match engine call and a failed match only marks its own SORObject for rematch"() {
+        given:
+        service.transactionManager = Mock(PlatformTransactionManager)
+        def missingMessage = Mock(MapMessage)
+        missingMessage.getString('systemOfRecord') >> 'SIS'
+        missingMessage.getString('sorPrimaryKey') >> 'SIS99999'
+
+        when:
+        def results = service.handleMessages([mockMessage(), mockMessageExisting(), missingMessage])
+
+        then:
+        1 * service.matchClientService.matchAll(_, [[systemOfRecord: 'SIS', sorPrimaryKey: 'SIS00001', givenName: 'givenName', surName: 'surName', dateOfBirth: 'DOB', socialSecurityNumber: 'SSN', otherIds: [employeeId: '123']], [systemOfRecord: 'SIS', sorPrimaryKey: 'SIS00002']]) >> [new PersonExactMatch(person: person1), null]
+        0 * service.matchClientService.match(*_)
+        1 * service.databaseService.assignUidToSOR(sorObject, person1)
+        1 * service.databaseService.recordMatchHistory(sorObject, _, null)
+        1 * service.uidClientService.provisionUid(person1, true)
+        1 * service.matchClientService.notifyChanged(['1'] as Set)
+        0 * service.uidClientService.provisionNewUid(_, _, _)
+
+        and:
+        results == [[matchType: 'exactMatch', uid: '1'], null, null]
+        sorObjectRepository.findBySorAndSorPrimaryKey(sorRepository.findByName('SIS'), 'SIS00002').rematch
+        !sorObjectRepository.findBySorAndSorPrimaryKey(sorRepository.findByName('SIS'), 'SIS00001').rematch
+    }
+
+    void "SORObjects of a batch that matched no one are matched again once one of them is given a new uid"() {
+        given: "two SORObjects of the same new person in one batch"
+        service.transactionManager = Mock(PlatformTransactionManager)
+        SORObject sorObject3 = sorObjectRepository.saveAndFlush(new SORObject(
+                sor: sorRepository.findByName('SIS'),
+                sorPrimaryKey: 'SIS00003',
+                objJson: '{}',
+                jsonVersion: 1,
+                queryTime: new Date()
+        ))
+        def message3 = Mock(MapMessage)
+        message3.getString('systemOfRecord') >> 'SIS'
+        message3.getString('sorPrimaryKey') >> 'SIS00003'
+
+        when:
+        def results = service.handleMessages([mockMessage(), message3])
+
+        then: "neither matches anyone in the batch match"
+        1 * service.matchClientService.matchAll(_, _) >> [new PersonNoMatch(), new PersonNoMatch()]
+
+        then: "the first is given a new uid without being matched again"
+        0 * service.matchClientService.match(_, { it.sorPrimaryKey == 'SIS00001' })
+        1 * service.uidClientService.provisionNewUid(_, sorObject, true) >> '2'
+        1 * service.databaseService.recordMatchHistory(sorObject, _, '2')
+
+        then: "the second is matched again after that and matches the new uid"
+        1 * service.matchClientService.match(_, { it.sorPrimaryKey == 'SIS00003' }) >> new PersonExactMatch(person: person2)
+        1 * service.databaseService.assignUidToSOR(sorObject3, person2)
+        1 * service.uidClientService.provisionUid(person2, true)
+        1 * service.databaseService.recordMatchHistory(sorObject3, _, null)
+        0 * service.uidClientService.provisionNewUid(*_)
+
+        and:
+        results == [[matchType: 'noMatch', uid: '2'], [matchType: 'exactMatch', uid: '2']]
+    }
+
     private MapMessage mockMessage() {
         def message = Mock(MapMessage)
         message.getString('systemOfRecord') >> 'SIS'
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchservice.service
+
+import edu.berkeley.bidms.app.matchservice.config.properties.MatchServiceConfigProperties
+import edu.berkeley.bidms.app.registryModel.model.SOR
+import edu.berkeley.bidms.app.registryModel.model.SORObject
+import edu.berkeley.bidms.app.registryModel.model.type.RematchStatusEnum
+import edu.berkeley.bidms.app.registryModel.repo.SORObjectRematchRepository
+import edu.berkeley.bidms.app.registryModel.repo.SORObjectRepository
+import edu.berkeley.bidms.app.registryModel.repo.SORRepository
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase
+import spock.lang.Specification
+
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DataJpaTest
+class RematchServiceSpec extends Specification {
+    @Autowired
+    SORRepository sorRepository
+    @Autowired
+    SORObjectRepository sorObjectRepository
+    @Autowired
+    SORObjectRematchRepository sorObjectRematchRepository
+
+    MatchServiceConfigProperties config = new MatchServiceConfigProperties()
+    RematchService service
+    SORObject sorObject
+
+    def setup() {
+        config.rematch.with {
+            enabled = true
+            maxAttempts = 3
+            initialBackoffSeconds = 60
+            maxBackoffSeconds = 100
+        }
+        service = new RematchService(config, sorObjectRematchRepository, sorObjectRepository)
+        sorObject = sorObjectRepository.saveAndFlush(new SORObject(
+                sor: sorRepository.saveAndFlush(new SOR(name: 'SIS')),
+                sorPrimaryKey: 'SIS00001',
+                objJson: '{}',
+                jsonVersion: 1,
+                queryTime: new Date(),
+                rematch: true
+        ))
+    }
+
+    void "the backoff doubles with each attempt up to the maximum"() {
+        expect:
+        service.getBackoffMillis(attemptCount) == expected * 1000
+
+        where:
+        attemptCount || expected
+        1            || 60
+        2            || 100
+        40           || 100
+    }
+
+    void "failed attempts are retried with backoff until they are exhausted"() {
+        when:
+        service.recordFailure(sorObject, 'event1', [systemOfRecord: 'SIS', sorPrimaryKey: 'SIS00001'], new RuntimeException("match engine is down"))
+        def rematch = sorObjectRematchRepository.get(sorObject.id)
+
+        then:
+        rematch.status == RematchStatusEnum.PENDING
+        rematch.attemptCount == 1
+        rematch.lastError == 'java.lang.RuntimeException: match engine is down'
+        rematch.nextAttemptTime.time - rematch.lastAttemptTime.time == 60000
+        service.getMatchAttributes(rematch) == [systemOfRecord: 'SIS', sorPrimaryKey: 'SIS00001']
+        !service.claimDue(10)
+
+        when: "it's due"
+        rematch.nextAttemptTime = new Date(System.currentTimeMillis() - 1000)
+        sorObjectRematchRepository.saveAndFlush(rematch)
+
+        then:
+        service.claimDue(10)*.sorObjectId == [sorObject.id]
+
+        when: "the attempts are exhausted"
+        2.times { service.recordFailure(sorObject, 'event1', null, new RuntimeException("still down")) }
+        rematch = sorObjectRematchRepository.get(sorObject.id)
+
+        then:
+        rematch.status == RematchStatusEnum.DEAD
+        rematch.attemptCount == 3
+        service.getMatchAttributes(rematch) == [systemOfRecord: 'SIS', sorPrimaryKey: 'SIS00001']
+        !service.claimDue(10)
+    }
+
+    void "removing a rematch clears the rematch flag"() {
+        given:
+        service.recordFailure(sorObject, 'event1', [:], new RuntimeException())
+
+        when:
+        service.remove(sorObjectRematchRepository.get(sorObject.id))
+
+        then:
+        !sorObjectRematchRepository.get(sorObject.id)
+        !sorObjectRepository.get(sorObject.id).rematch
+    }
+
+    void "claiming due rematches hides them from other sweepers until the claim times out"() {
+        given:
+        config.rematch.claimTimeoutSeconds = 600
+        service.recordFailure(sorObject, 'event1', [:], new RuntimeException())
+        def rematch = sorObjectRematchRepository.get(sorObject.id)
+        rematch.nextAttemptTime = new Date(System.currentTimeMillis() - 1000)
+        sorObjectRematchRepository.saveAndFlush(rematch)
+
+        when:
+        long before = System.currentTimeMillis()
+        def claimed = service.claimDue(10)
+
+        then:
+        claimed*.sorObjectId == [sorObject.id]
+        sorObjectRematchRepository.get(sorObject.id).nextAttemptTime.time >= before + 600000
+
+        and: "a second sweeper doesn't get it"
+        !service.claimDue(10)
+    }
+
+    void "the match attributes of a rematch are stale once the SORObject's JSON changes"() {
+        given:
+        service.recordFailure(sorObject, 'event1', [sorPrimaryKey: 'SIS00001'], new RuntimeException())
+        def rematch = sorObjectRematchRepository.get(sorObject.id)
+
+        expect:
+        !service.isStale(rematch, sorObject)
+
+        when:
+        sorObject.objJson = '{"givenName": "changed"}'
+        sorObjectRepository.saveAndFlush(sorObject)
+
+        then:
+        service.isStale(rematch, sorObjectRepository.get(sorObject.id))
+    }
+
+    void "a SORObject that has been matched is forgotten"() {
+        given:
+        service.recordFailure(sorObject, 'event1', [:], new RuntimeException())
+
+        when:
+        service.remove(sorObjectRepository.get(sorObject.id))
+
+        then:
+        !sorObjectRematchRepository.get(sorObject.id)
+        !sorObjectRepository.get(sorObject.id).rematch
+    }
+
+    void "nothing is recorded when rematching is disabled"() {
+        given:
+        config.rematch.enabled = false
+
+        when:
+        service.recordFailure(sorObject, 'event1', [:], new RuntimeException())
+
+        then:
+        sorObjectRematchRepository.count() == 0
+    }
+}
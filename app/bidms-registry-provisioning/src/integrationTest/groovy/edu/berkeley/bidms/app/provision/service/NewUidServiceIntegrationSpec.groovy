@@ -26,6 +26,7 @@
  */
 package edu.berkeley.bidms.app.provision.service
 
+import edu.berkeley.bidms.app.provision.test.H2SequenceBlockAllocator
 import edu.berkeley.bidms.app.registryModel.model.SOR
 import edu.berkeley.bidms.app.registryModel.model.SORObject
 import edu.berkeley.bidms.app.registryModel.model.type.MatchHistoryResultTypeEnum
@@ -33,6 +34,7 @@ import edu.berkeley.bidms.app.registryModel.repo.PersonRepository
 import edu.berkeley.bidms.app.registryModel.repo.SORObjectRepository
 import edu.berkeley.bidms.app.registryModel.repo.SORRepository
 import edu.berkeley.bidms.app.registryModel.repo.history.MatchHistoryRepository
+import edu.berkeley.bidms.orm.sequence.SequenceBlockAllocator
 import groovy.sql.Sql
 import jakarta.persistence.EntityManager
 import org.json.JSONObject
@@ -141,4 +143,85 @@ class NewUidServiceIntegrationSpec extends Specification {
         false                 | _
         true                  | _
     }
+
+    void "test provisionNewUid reserves uids in blocks"() {
+        given: "an unassigned SORObject"
+        SOR sor = sorRepository.findByName("TEST_SOR")
+        SORObject sorObject = sorObjectRepository.findBySorAndSorPrimaryKey(sor, "new123")
+
+        and: "a mock provisionService"
+        newUidService.provisionService = Mock(ProvisionService)
+
+        and: "an allocator that reserves three uids at a time"
+        SequenceBlockAllocator originalAllocator = newUidService.uidAllocator
+        newUidService.uidAllocator = new H2SequenceBlockAllocator("uid_seq", 3)
+
+        when: "assign a new uid"
+        NewUidService.NewUidResult result = newUidService.provisionNewUid(sorObject.id, false, "eventId")
+
+        and: "get the next value from the sequence"
+        Sql sql = new Sql(dataSource)
+        def nextInSequence = sql.firstRow("select nextval('uid_seq') as uid" as String).uid
+        sql.close()
+
+        then: "the first uid of the block is assigned"
+        result.uidGenerationSuccessful
+        result.uid == "1"
+
+        and: "the rest of the block is held in memory"
+        newUidService.uidAllocator.blocksReserved == 1
+        newUidService.uidAllocator.remaining == 2
+
+        and: "the block was reserved from the sequence"
+        nextInSequence == 4
+
+        cleanup:
+        newUidService.uidAllocator = originalAllocator
+    }
+
+    void "test provisionNewUids"() {
+        given: "unassigned SORObjects"
+        SOR sor = sorRepository.findByName("TEST_SOR")
+        List<SORObject> sorObjects = [sorObjectRepository.findBySorAndSorPrimaryKey(sor, "new123")] + ["new456", "new789"].collect { String sorPrimaryKey ->
+            sorObjectRepository.saveAndFlush(new SORObject(
+                    sor: sor,
+                    sorPrimaryKey: sorPrimaryKey,
+                    queryTime: new Date(),
+                    objJson: "{}",
+                    jsonVersion: 1
+            ))
+        }
+        List<Long> sorObjectIds = sorObjects*.id
+
+        and: "a mock provisionService"
+        newUidService.provisionService = Mock(ProvisionService)
+
+        when: "assign new uids, including to a sorObjectId that doesn't exist"
+        List<NewUidService.NewUidResult> results = newUidService.provisionNewUids(sorObjectIds + [-1L], false, "eventId")
+
+        then: "there is a result for each sorObjectId"
+        results*.sorObjectId == sorObjectIds + [-1L]
+
+        and: "each SORObject now has a distinct new uid"
+        results[0..2].every { it.uidGenerationSuccessful && it.uid && !it.hasExistingUid && it.provisioningSuccessful }
+        results[0..2]*.uid.unique().size() == 3
+        sorObjectIds.collect { sorObjectRepository.get(it).uid } == results[0..2]*.uid
+
+        and: "the missing SORObject didn't get a uid"
+        !results[3].uidGenerationSuccessful
+
+        and: "each new uid has been provisioned"
+        3 * newUidService.provisionService.provisionUid(_, false, "eventId") >> { String uid, Boolean _synchronousDownstream, String eventId ->
+            [message: "success", uid: uid]
+        }
+
+        and: "each new uid has a Person row and a match history row"
+        results[0..2].every { personRepository.get(it.uid) }
+        sorObjectIds.every { matchHistoryRepository.findBySorObjectIdAndMatchResultType(it, MatchHistoryResultTypeEnum.NEW_UID).size() == 1 }
+
+        cleanup:
+        ["new456", "new789"].each { String sorPrimaryKey ->
+            sorObjectRepository.delete(sorObjectRepository.findBySorAndSorPrimaryKey(sor, sorPrimaryKey))
+        }
+    }
 }
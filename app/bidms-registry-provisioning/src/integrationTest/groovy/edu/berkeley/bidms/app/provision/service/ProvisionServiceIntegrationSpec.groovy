@@ -27,6 +27,8 @@
 package edu.berkeley.bidms.app.provision.service
 
 import edu.berkeley.bidms.app.jmsclient.service.ProvisioningJmsClientService
+import edu.berkeley.bidms.app.jmslistener.metrics.ProvisioningMetrics
+import edu.berkeley.bidms.app.provision.config.properties.ProvisioningConfigProperties
 import edu.berkeley.bidms.app.registryModel.model.NameType
 import edu.berkeley.bidms.app.registryModel.model.Person
 import edu.berkeley.bidms.app.registryModel.model.PersonName
@@ -39,10 +41,12 @@ import edu.berkeley.bidms.app.registryModel.repo.NameTypeRepository
 import edu.berkeley.bidms.app.registryModel.repo.PersonNameRepository
 import edu.berkeley.bidms.app.registryModel.repo.PersonRepository
 import edu.berkeley.bidms.app.registryModel.repo.PersonSorObjectsJsonRepository
+import edu.berkeley.bidms.app.registryModel.repo.PersonSorObjectsSyncKeyRepository
 import edu.berkeley.bidms.app.registryModel.repo.SORObjectRepository
 import edu.berkeley.bidms.app.registryModel.repo.SORRepository
 import edu.berkeley.bidms.orm.transaction.JpaTransactionTemplate
 import edu.berkeley.bidms.provision.common.ProvisionRunner
+import jakarta.jms.MapMessage
 import org.json.JSONObject
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.test.context.SpringBootTest
@@ -51,6 +55,9 @@ import org.springframework.transaction.TransactionDefinition
 import spock.lang.Specification
 import spock.lang.Unroll
 
+import java.util.concurrent.ConcurrentHashMap
+import java.util.function.Consumer
+
 @SpringBootTest
 class ProvisionServiceIntegrationSpec extends Specification {
 
@@ -69,6 +76,9 @@ class ProvisionServiceIntegrationSpec extends Specification {
     @Autowired
     PersonSorObjectsJsonRepository personSorObjectsJsonRepository
 
+    @Autowired
+    PersonSorObjectsSyncKeyRepository personSorObjectsSyncKeyRepository
+
     @Autowired
     NameTypeRepository nameTypeRepository
 
@@ -137,6 +147,7 @@ class ProvisionServiceIntegrationSpec extends Specification {
 
     void cleanup() {
         transactionTemplate.executeWithoutResult {
+            personSorObjectsSyncKeyRepository.get("1")?.with { personSorObjectsSyncKeyRepository.delete(it) }
             personSorObjectsJsonRepository.delete(personSorObjectsJsonRepository.get("1"))
 
             Person person = personRepository.get("1")
@@ -190,4 +201,361 @@ class ProvisionServiceIntegrationSpec extends Specification {
         false                 | _
         true                  | _
     }
+
+    void "test provisionUid does not rebuild a person whose aggregate JSON has already been provisioned"() {
+        given:
+        String uid = "1"
+
+        when: "person is provisioned twice without the aggregate JSON changing"
+        provisionService.provisionUid(uid, false, "eventId")
+        Map result = provisionService.provisionUid(uid, false, "eventId")
+
+        then: "provision runner is only called for the first provision"
+        result.uid == "1"
+        1 * provisionService.provisionRunnerService.run(_, _) >> [result: "success"]
+
+        and: "downstream is notified both times"
+        2 * provisionService.downstreamProvisioningService.provisionUidAsynchronously("eventId", "1")
+    }
+
+    void "test provisionUid with force rebuilds a person whose aggregate JSON has already been provisioned"() {
+        when: "person is provisioned again with force without the aggregate JSON changing"
+        provisionService.provisionUid("1", false, "eventId")
+        provisionService.provisionUid("1", false, "eventId", true)
+
+        then: "provision runner is called both times"
+        2 * provisionService.provisionRunnerService.run(_, _) >> [result: "success"]
+
+        and: "provisioning clears the mark again"
+        !personSorObjectsSyncKeyRepository.get("1").forceProvision
+    }
+
+    @Unroll
+    void "test provisioning with prefetched aggregate JSON uses the current JSON when the prefetched JSON is stale"() {
+        given:
+        String currentJsonHash = personSorObjectsJsonRepository.get("1").jsonHash
+        ProvisionService.PrefetchedAggregateJson prefetched = new ProvisionService.PrefetchedAggregateJson(
+                stale ? "staleHash" : currentJsonHash,
+                '{"uid": "1", "sorObjects": []}'
+        )
+
+        when:
+        provisionService.provision("1", false, "eventId", prefetched, null)
+
+        then: "the person is rebuilt from the prefetched JSON only if it's still current"
+        1 * provisionService.provisionRunnerService.run(_, _) >> { Person p, Map sorPerson ->
+            assert ((List) sorPerson.sorObjects).size() == expectedSorObjectCount
+            [result: "success"]
+        }
+        1 * provisionService.downstreamProvisioningService.provisionUidAsynchronously("eventId", "1")
+
+        and: "the hash of the current JSON is stored"
+        personSorObjectsSyncKeyRepository.get("1").provisionedJsonHash == currentJsonHash
+
+        where:
+        stale | expectedSorObjectCount
+        false | 0
+        true  | 1
+    }
+
+    @Unroll
+    void "test bulkProvision in partitions provisions every uid once on its partition's worker"() {
+        given: "more uids than fit in one page of the to-provision view"
+        RecordingProvisionService service = new RecordingProvisionService(transactionManager, 2500)
+        service.provisioningConfigProperties.bulkProvision.parallelism = 4
+        service.provisioningConfigProperties.bulkProvision.partitionQueueCapacity = 3
+        service.provisioningConfigProperties.bulkProvision.prefetchSize = prefetchSize
+        service.failingUids = ["u00007", "u01500"] as Set
+
+        when:
+        Map result = service.bulkProvision(false, "eventId")
+
+        then: "every uid is provisioned once and the counts add up"
+        service.workerByUid.size() == 2500
+        result.totalCount == 2500
+        result.failureCount == 2
+        result.successCount == 2498
+        result.failedUids == ["u00007", "u01500"]
+        result.parallelism == 4
+        ((List<Map>) result.partitions)*.totalCount.sum() == 2500
+        ((List<Map>) result.partitions)*.failureCount.sum() == 2
+
+        and: "all the uids of a partition are provisioned by the same worker"
+        service.workerByUid.groupBy { String uid, String worker -> Math.floorMod(uid.hashCode(), 4) }.every { partition, Map<String, String> workers ->
+            workers.values().toSet().size() == 1
+        }
+
+        where:
+        prefetchSize << [0, 100]
+    }
+
+    void "test bulkProvision in partitions halts after too many failures and drains the partitions"() {
+        given:
+        RecordingProvisionService service = new RecordingProvisionService(transactionManager, 2500)
+        service.provisioningConfigProperties.bulkProvision.parallelism = 3
+        service.provisioningConfigProperties.bulkProvision.partitionQueueCapacity = 2
+        service.failAll = true
+
+        when:
+        Map result = service.bulkProvision(false, "eventId")
+
+        then: "no more uids are started once the failure limit is reached"
+        result.failureCount >= 100
+        result.failureCount <= 100 + 3 - 1
+        result.totalCount == result.failureCount
+        ((List) result.failedUids).size() == result.failureCount
+        service.workerByUid.size() == result.totalCount
+    }
+
+    void "test downstream notifications are sent in batches and the rest are sent on close"() {
+        given:
+        DownstreamProvisioningService downstream = Mock(DownstreamProvisioningService)
+        DownstreamNotificationBatch batch = new DownstreamNotificationBatch(downstream, "eventId", 3, 0)
+
+        when:
+        (1..7).each { batch.add("u$it".toString()) }
+
+        then:
+        1 * downstream.provisionUidsAsynchronously("eventId", ["u1", "u2", "u3"])
+        1 * downstream.provisionUidsAsynchronously("eventId", ["u4", "u5", "u6"])
+        0 * downstream._
+
+        when:
+        batch.close()
+
+        then:
+        1 * downstream.provisionUidsAsynchronously("eventId", ["u7"])
+        batch.sentCount == 7
+        !batch.failedUids
+    }
+
+    void "test pending downstream notifications are sent once the oldest has waited maxDelayMillis"() {
+        given:
+        List<List<String>> sent = [].asSynchronized()
+        DownstreamProvisioningService downstream = Mock(DownstreamProvisioningService) {
+            provisionUidsAsynchronously("eventId", _) >> { String eventId, List<String> uids -> sent.add(uids) }
+        }
+        DownstreamNotificationBatch batch = new DownstreamNotificationBatch(downstream, "eventId", 100, 50)
+
+        when:
+        batch.add("u1")
+        long deadline = System.currentTimeMillis() + 5000
+        while (!sent && System.currentTimeMillis() < deadline) {
+            sleep(10)
+        }
+
+        then:
+        sent == [["u1"]]
+
+        cleanup:
+        batch.close()
+    }
+
+    void "test uids of a downstream notification batch that couldn't be sent are passed to the failure handler"() {
+        given:
+        List<String> handledUids = []
+        DownstreamProvisioningService downstream = Mock(DownstreamProvisioningService)
+        DownstreamNotificationBatch batch = new DownstreamNotificationBatch(downstream, "eventId", 2, 0, { List<String> uids -> handledUids.addAll(uids) } as Consumer<List<String>>)
+
+        when:
+        (1..4).each { batch.add("u$it".toString()) }
+        batch.close()
+
+        then:
+        1 * downstream.provisionUidsAsynchronously("eventId", ["u1", "u2"]) >> { throw new RuntimeException("broker unavailable") }
+        1 * downstream.provisionUidsAsynchronously("eventId", ["u3", "u4"])
+        batch.failedUids == ["u1", "u2"]
+        handledUids == ["u1", "u2"]
+        batch.sentCount == 2
+    }
+
+    void "test a uid marked to be force-provisioned is rebuilt again"() {
+        given: "the uid has been provisioned with its current aggregate JSON"
+        provisionService.provisionUid("1", false, "eventId")
+
+        when:
+        provisionService.markForceProvision(["1"])
+        provisionService.provisionUid("1", false, "eventId")
+
+        then: "the person is rebuilt both times"
+        2 * provisionService.provisionRunnerService.run(_, _) >> [result: "success"]
+
+        and: "provisioning clears the mark again"
+        !personSorObjectsSyncKeyRepository.get("1").forceProvision
+    }
+
+    void "test a uid the provisionUid coalescer didn't get to is marked to be force-provisioned when it stops"() {
+        given: "the uid has been provisioned with its current aggregate JSON"
+        provisionService.provisionRunnerService = Mock(ProvisionRunner) {
+            run(_, _) >> [result: "success"]
+        }
+        provisionService.provisionUid("1", false, "eventId")
+        ProvisioningConfigProperties config = new ProvisioningConfigProperties()
+        config.provisionUidCoalescing.enabled = true
+        config.provisionUidCoalescing.windowMillis = 60000
+        ProvisionUidConsumingService consumingService = new ProvisionUidConsumingService(provisionService, config, Mock(ProvisioningMetrics))
+        consumingService.afterPropertiesSet()
+
+        when: "the message is handled"
+        consumingService.handleMessage(Mock(MapMessage) { getString("uid") >> "1" }, ProvisionUidConsumingService.PROVISION_UID_SOURCE)
+
+        then: "the uid isn't marked while it's waiting"
+        !personSorObjectsSyncKeyRepository.get("1").forceProvision
+
+        when: "the coalescer is stopped before the uid is provisioned"
+        consumingService.destroy()
+
+        then: "the next bulk provisioning run still provisions the uid"
+        personSorObjectsSyncKeyRepository.get("1").forceProvision
+        !personSorObjectsSyncKeyRepository.isProvisionedWithCurrentJsonHash("1")
+    }
+
+    void "test bulkProvision sends the downstream notifications in batches"() {
+        given:
+        RecordingProvisionService service = new RecordingProvisionService(transactionManager, 25)
+        service.provisioningConfigProperties.bulkProvision.parallelism = 2
+        service.provisioningConfigProperties.bulkProvision.downstreamBatchSize = 10
+        List<String> notifiedUids = [].asSynchronized()
+        service.downstreamProvisioningService = Mock(DownstreamProvisioningService) {
+            newAsynchronousBatch("eventId", 10, _, _) >> { String eventId, int batchSize, long maxDelayMillis, Consumer<List<String>> handler ->
+                new DownstreamNotificationBatch(service.downstreamProvisioningService, eventId, batchSize, maxDelayMillis, handler)
+            }
+            provisionUidsAsynchronously("eventId", _) >> { String eventId, List<String> uids -> notifiedUids.addAll(uids) }
+        }
+
+        when:
+        Map result = service.bulkProvision(false, "eventId")
+
+        then:
+        result.totalCount == 25
+        result.downstreamNotificationCount == 25
+        result.downstreamNotificationFailureCount == 0
+        notifiedUids.toSorted() == service.workerByUid.keySet().toSorted()
+    }
+
+    void "test requeueUidsNeedingReprovision sends all the uids in batches while bounding the uids read ahead of the sender"() {
+        given:
+        RecordingProvisionService service = new RecordingProvisionService(transactionManager, 2500)
+        service.provisioningConfigProperties.requeue.with {
+            fetchSize = 100
+            batchSize = 100
+            maxInFlightBatches = 2
+            senderThreads = 2
+        }
+        service.sendDelayMillis = 5
+        RequeueJob job = new RequeueJob()
+        service.requeueJob = job
+
+        when:
+        int queuedCount = service.requeueUidsNeedingReprovision(job)
+
+        then:
+        queuedCount == 2500
+        job.readCount.get() == 2500
+        job.queuedCount.get() == 2500
+        service.sentBatches.size() == 25
+        service.sentBatches.every { it.size() == 100 }
+        service.sentBatches.flatten().toSorted() == (1..2500).collect { String.format("u%05d", it) }
+
+        and: "reading waits for the senders: no more than the queued, sending and caller-run batches plus the one being filled are unsent"
+        service.maxUnsentCount <= (2 + 2 + 2) * 100
+    }
+
+    void "test requeueUidsNeedingReprovision stops reading when a batch can't be sent"() {
+        given:
+        RecordingProvisionService service = new RecordingProvisionService(transactionManager, 2500)
+        service.provisioningConfigProperties.requeue.with {
+            fetchSize = 100
+            batchSize = 100
+            maxInFlightBatches = 1
+            senderThreads = 1
+        }
+        service.failingUids = ["u00201"] as Set
+        RequeueJob job = new RequeueJob()
+
+        when:
+        service.requeueUidsNeedingReprovision(job)
+
+        then:
+        thrown(ProvisionServiceException)
+        job.readCount.get() < 2500
+        job.queuedCount.get() < job.readCount.get()
+        !service.sentBatches.flatten().contains("u00201")
+    }
+
+    void "test RequeueJobService runs the requeue in the background and keeps its status"() {
+        given:
+        RecordingProvisionService service = new RecordingProvisionService(transactionManager, 250)
+        service.provisioningConfigProperties.requeue = null
+        RequeueJobService requeueJobService = new RequeueJobService(service, service.provisioningConfigProperties)
+
+        when:
+        RequeueJob job = requeueJobService.start()
+        long deadline = System.currentTimeMillis() + 10000
+        while (job.status == RequeueJob.Status.RUNNING && System.currentTimeMillis() < deadline) {
+            sleep(10)
+        }
+
+        then:
+        job.status == RequeueJob.Status.COMPLETED
+        job.queuedCount.get() == 250
+        requeueJobService.getJob(job.id).is(job)
+        requeueJobService.jobs == [job]
+
+        cleanup:
+        requeueJobService.destroy()
+    }
+
+    /**
+     * Records the uids it's asked to provision instead of rebuilding
+     * people, and reads the to-provision uids from a generated range of
+     * uids instead of PersonSorObjectsToProvisionView.
+     */
+    static class RecordingProvisionService extends ProvisionService {
+        final Map<String, String> workerByUid = new ConcurrentHashMap<String, String>()
+        Set<String> failingUids = [] as Set
+        boolean failAll
+        final List<List<String>> sentBatches = [].asSynchronized()
+        long sendDelayMillis
+        RequeueJob requeueJob
+        volatile int maxUnsentCount
+
+        RecordingProvisionService(PlatformTransactionManager transactionManager, int uidCount) {
+            super(transactionManager)
+            setProvisioningConfigProperties(new ProvisioningConfigProperties())
+            setToProvisionTableName("(SELECT CONCAT('u', LPAD(CAST(X AS VARCHAR), 5, '0')) AS uid FROM SYSTEM_RANGE(1, $uidCount)) toProvision".toString())
+        }
+
+        @Override
+        protected Map<String, PrefetchedAggregateJson> prefetchAggregateJson(Collection<String> uids) {
+            return uids.collectEntries { String uid -> [uid, new PrefetchedAggregateJson("hash", "{}")] }
+        }
+
+        @Override
+        protected void toProvisionUid(String uid, Boolean synchronousDownstream, String eventId, PrefetchedAggregateJson prefetched, DownstreamNotificationBatch downstreamBatch) {
+            if (workerByUid.putIfAbsent(uid, Thread.currentThread().name) != null) {
+                throw new IllegalStateException("uid $uid was provisioned twice")
+            }
+            if (failAll || uid in failingUids) {
+                throw new RuntimeException("uid $uid failed")
+            }
+            downstreamBatch?.add(uid)
+        }
+
+        @Override
+        protected void sendToBulkProvisionUidQueue(List<String> uids) {
+            if (requeueJob) {
+                synchronized (this) {
+                    maxUnsentCount = Math.max(maxUnsentCount, requeueJob.readCount.get() - requeueJob.queuedCount.get())
+                }
+            }
+            if (uids.any { it in failingUids }) {
+                throw new RuntimeException("Couldn't send the batch starting with uid ${uids.first()}")
+            }
+            if (sendDelayMillis) {
+                sleep(sendDelayMillis)
+            }
+            sentBatches.add(uids)
+        }
+    }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.provision.service
+
+import spock.lang.Specification
+
+import java.util.concurrent.BlockingQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+import java.util.function.Consumer
+
+class ProvisionUidCoalescerSpec extends Specification {
+    BlockingQueue<String> provisioned = new LinkedBlockingQueue<String>()
+    ProvisionUidCoalescer coalescer
+
+    void cleanup() {
+        coalescer?.stop()
+    }
+
+    void "test uids submitted again while waiting are provisioned once"() {
+        given:
+        coalescer = new ProvisionUidCoalescer({ String uid -> provisioned.add(uid) } as Consumer<String>, 200, 2, 100)
+        coalescer.start()
+
+        when:
+        3.times { coalescer.submit("1") }
+        coalescer.submit("2")
+        List<String> firstTwo = [provisioned.poll(5, TimeUnit.SECONDS), provisioned.poll(5, TimeUnit.SECONDS)]
+
+        then:
+        firstTwo.toSorted() == ["1", "2"]
+        provisioned.poll(400, TimeUnit.MILLISECONDS) == null
+        coalescer.stats == [submittedCount: 4L, coalescedCount: 2L]
+    }
+
+    void "test a uid submitted while it's being provisioned is provisioned again afterwards"() {
+        given:
+        CountDownLatch provisioning = new CountDownLatch(1)
+        CountDownLatch release = new CountDownLatch(1)
+        coalescer = new ProvisionUidCoalescer({ String uid ->
+            if (provisioning.count) {
+                provisioning.countDown()
+                release.await()
+            }
+            provisioned.add(uid)
+        } as Consumer<String>, 0, 2, 100)
+        coalescer.start()
+
+        when: "the uid is submitted again while the first provisioning is still running"
+        coalescer.submit("1")
+        assert provisioning.await(5, TimeUnit.SECONDS)
+        coalescer.submit("1")
+
+        then: "the other worker doesn't provision it at the same time"
+        provisioned.poll(200, TimeUnit.MILLISECONDS) == null
+
+        when:
+        release.countDown()
+
+        then: "it's provisioned a second time after the first provisioning finishes"
+        provisioned.poll(5, TimeUnit.SECONDS) == "1"
+        provisioned.poll(5, TimeUnit.SECONDS) == "1"
+        provisioned.poll(200, TimeUnit.MILLISECONDS) == null
+    }
+
+    void "test submit blocks while maxPending uids are waiting"() {
+        given:
+        coalescer = new ProvisionUidCoalescer({ String uid -> provisioned.add(uid) } as Consumer<String>, 500, 1, 2)
+        coalescer.start()
+        coalescer.submit("1")
+        coalescer.submit("2")
+        CountDownLatch submitted = new CountDownLatch(1)
+
+        when:
+        Thread.start {
+            coalescer.submit("3")
+            submitted.countDown()
+        }
+        // a uid that's already waiting doesn't block
+        coalescer.submit("1")
+
+        then: "the new uid waits for room"
+        !submitted.await(200, TimeUnit.MILLISECONDS)
+
+        and: "it's accepted once a waiting uid has been taken to be provisioned"
+        submitted.await(5, TimeUnit.SECONDS)
+        provisioned.poll(5, TimeUnit.SECONDS) == "1"
+        coalescer.stats.coalescedCount == 1L
+    }
+
+    void "test stop returns the uids that were still waiting"() {
+        given:
+        coalescer = new ProvisionUidCoalescer({ String uid -> provisioned.add(uid) } as Consumer<String>, 60000, 1, 100)
+        coalescer.start()
+        coalescer.submit("1")
+        coalescer.submit("2")
+        coalescer.submit("1")
+
+        when:
+        List<String> dropped = coalescer.stop()
+
+        then:
+        dropped == ["1", "2"]
+        provisioned.empty
+
+        when:
+        coalescer.submit("3")
+
+        then:
+        thrown(IllegalStateException)
+    }
+}
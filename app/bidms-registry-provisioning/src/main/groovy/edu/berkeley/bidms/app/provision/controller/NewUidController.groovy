@@ -32,6 +32,7 @@ import edu.berkeley.bidms.app.restservice.common.response.BadRequestException
 import edu.berkeley.bidms.logging.AuditFailEvent
 import edu.berkeley.bidms.logging.AuditSuccessEvent
 import edu.berkeley.bidms.logging.AuditUtil
+import edu.berkeley.bidms.provision.command.NewUidBatchCommand
 import edu.berkeley.bidms.provision.command.NewUidCommand
 import edu.berkeley.bidms.provision.jms.ProvisionJmsTemplate
 import groovy.util.logging.Slf4j
@@ -53,7 +54,8 @@ import org.springframework.web.server.ServerErrorException
 class NewUidController {
 
     static enum AuditOperation {
-        newUid
+        newUid,
+        newUidBatch
     }
 
     @Value('${bidms.provision.app-name}')
@@ -150,6 +152,97 @@ class NewUidController {
         }
     }
 
+    /**
+     * Assign new uids to many SORObjects.  The new uids for the whole
+     * batch are saved in one transaction and then provisioned in parallel.
+     *
+     * <ul>
+     *     <li>cmd.sorObjectIds            - ids of the SORObjects in the database</li>
+     *     <li>cmd.synchronousDownstream   - If true, reprovision the UIDs synchronously.</li>
+     *     <li>cmd.asynchronousQueue       - If true, just place one message with all the ids on the newUID queue for asynchronous processing.</li>
+     *     <li>cmd.eventId                 - Optional audit eventId</li>
+     * </ul>
+     */
+    @PutMapping(value = "/newUid/saveBatch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    Map<String, ?> saveBatch(HttpServletRequest request, @RequestBody @Valid NewUidBatchCommand cmd) {
+        String eventId
+        try {
+            eventId = cmd.eventId
+            if (!cmd.sorObjectIds || cmd.sorObjectIds.contains(null)) {
+                throw new BadRequestException("sorObjectIds is a required parameter and cannot contain null")
+            }
+            int maxSorObjectIds = newUidService.provisioningConfigProperties.newUidBatch.maxSorObjectIds
+            if (cmd.sorObjectIds.size() > maxSorObjectIds) {
+                throw new BadRequestException("sorObjectIds cannot contain more than $maxSorObjectIds ids")
+            }
+
+            if (!eventId) {
+                eventId = AuditUtil.createEventId()
+            }
+
+            if (!cmd.asynchronousQueue) {
+                List<NewUidService.NewUidResult> results = newUidService.provisionNewUids(cmd.sorObjectIds, cmd.synchronousDownstream, eventId)
+                List<Map> jsonResults = results.collect { NewUidService.NewUidResult result ->
+                    Map jsonResultMap = [
+                            uid                    : result.uid,
+                            sorObjectId            : result.sorObjectId,
+                            uidGenerationSuccessful: result.uidGenerationSuccessful,
+                            provisioningSuccessful : result.provisioningSuccessful,
+                            sorPrimaryKey          : result.sorPrimaryKey,
+                            sorName                : result.sorName
+                    ]
+                    if (result.hasExistingUid) {
+                        jsonResultMap.hasExistingUid = true
+                    }
+                    Map<String, Object> auditAttrs = getAuditAttrs(result.sorObjectId, cmd.synchronousDownstream, cmd.asynchronousQueue) + [sorPrimaryKey: result.sorPrimaryKey, sorName: result.sorName]
+                    if (result.provisioningSuccessful) {
+                        AuditUtil.logAuditEvent(APP_NAME, new AuditSuccessEvent(request: request, eventId: eventId, loggedInUsername: getCurrentUsername(request),
+                                op: AuditOperation.newUidBatch,
+                                forUid: result.uid,
+                                attrs: auditAttrs))
+                    } else {
+                        jsonResultMap.provisioningErrorMessage = result.provisioningException?.message
+                        log.warn "Provisioning of SORObject data not successful for sorObjectId=${result.sorObjectId}, uid=${result.uid}: ${jsonResultMap.provisioningErrorMessage}"
+                        AuditUtil.logAuditEvent(APP_NAME, new AuditFailEvent(request: request, eventId: eventId, loggedInUsername: getCurrentUsername(request),
+                                op: AuditOperation.newUidBatch,
+                                errorMsg: result.provisioningException?.message,
+                                forUid: result.uid,
+                                attrs: auditAttrs))
+                    }
+                    return jsonResultMap
+                }
+
+                return [
+                        results                 : jsonResults,
+                        uidCount                : results.count { it.uidGenerationSuccessful && !it.hasExistingUid },
+                        provisioningFailureCount: results.count { !it.provisioningSuccessful }
+                ]
+            } else {
+                // send one message to the newUID queue for asynchronous
+                // processing
+                provisioningJmsClientService.newUids(provisionJmsTemplate, cmd.sorObjectIds, cmd.synchronousDownstream)
+                AuditUtil.logAuditEvent(APP_NAME, new AuditSuccessEvent(request: request, eventId: eventId, loggedInUsername: getCurrentUsername(request),
+                        op: AuditOperation.newUidBatch, attrs: getBatchAuditAttrs(cmd)))
+                return [
+                        message: "Successfully sent ${cmd.sorObjectIds.size()} sorObjectIds to newUID queue" as String
+                ]
+            }
+        }
+        catch (BadRequestException e) {
+            AuditUtil.logAuditEvent(APP_NAME, new AuditFailEvent(request: request, eventId: eventId, loggedInUsername: getCurrentUsername(request),
+                    op: AuditOperation.newUidBatch,
+                    errorMsg: e.message, attrs: getBatchAuditAttrs(cmd)))
+            throw e
+        }
+        catch (Exception e) {
+            log.error("unexpected exception", e)
+            AuditUtil.logAuditEvent(APP_NAME, new AuditFailEvent(request: request, eventId: eventId, loggedInUsername: getCurrentUsername(request),
+                    op: AuditOperation.newUidBatch,
+                    errorMsg: e.message, attrs: getBatchAuditAttrs(cmd)))
+            throw new ServerErrorException(e.message, e)
+        }
+    }
+
     @SuppressWarnings("GrMethodMayBeStatic")
     private String getCurrentUsername(HttpServletRequest request) {
         return request?.remoteUser
@@ -166,4 +259,16 @@ class NewUidController {
         }
         return auditAttrs
     }
+
+    @SuppressWarnings("GrMethodMayBeStatic")
+    private Map<String, Object> getBatchAuditAttrs(NewUidBatchCommand cmd) {
+        Map<String, Object> auditAttrs = [sorObjectIdCount: cmd.sorObjectIds?.size() ?: 0] as Map<String, Object>
+        if (cmd.synchronousDownstream) {
+            auditAttrs.synchronousDownstream = true
+        }
+        if (cmd.asynchronousQueue) {
+            auditAttrs.asynchronousQueue = true
+        }
+        return auditAttrs
+    }
 }
@@ -72,13 +72,18 @@ class ProvisionController {
      *        reporting a result.  Default is false where an asynchronous
      *        message is sent to the downstream queue for later processing.
      * @param eventId (Optional) An audit eventId.
+     * @param force (Optional) If true, rebuild the uid even if its current
+     *        aggregate JSON has already been provisioned, such as after a
+     *        change to the provisioning logic.  Only applies when uid is
+     *        set.  Default is false.
      */
     @PostMapping(value = "/provision", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
     Map<String, ?> save(
             HttpServletRequest request,
             @RequestParam(required = false) String uid,
             @RequestParam(required = false) Boolean synchronousDownstream,
-            @RequestParam(required = false) String eventId
+            @RequestParam(required = false) String eventId,
+            @RequestParam(required = false) Boolean force
     ) {
         if (!eventId) {
             eventId = AuditUtil.createEventId()
@@ -98,14 +103,14 @@ class ProvisionController {
         try {
             if (uid) {
                 AuditUtil.logAuditEvent(APP_NAME, new AuditSuccessEvent(request: request, eventId: eventId, loggedInUsername: getCurrentUsername(request),
-                        op: AuditOperation.provisionUid, forUid: uid, attrs: getAuditAttrs(synchronousDownstream)))
+                        op: AuditOperation.provisionUid, forUid: uid, attrs: getAuditAttrs(synchronousDownstream) + (force ? [force: true] : [:])))
                 // Provision just one uid.  The synchronousDownstream
                 // parameter is optional.  If true, then this means this
                 // service will wait for provisioning to downstream to
                 // complete before returning a result.  If false or null,
                 // then this service will notify the downstream provisioner
                 // to reprovision, but will not wait for a result.
-                return provisionService.provisionUid(uid, synchronousDownstream, eventId)
+                return provisionService.provisionUid(uid, synchronousDownstream, eventId, force as boolean)
             } else {
                 AuditUtil.logAuditEvent(APP_NAME, new AuditSuccessEvent(request: request, eventId: eventId, loggedInUsername: getCurrentUsername(request),
                         op: AuditOperation.bulkProvision, attrs: getAuditAttrs(synchronousDownstream)))
@@ -27,8 +27,14 @@
 package edu.berkeley.bidms.app.provision.controller
 
 import edu.berkeley.bidms.app.provision.service.ProvisionService
+import edu.berkeley.bidms.app.provision.service.RequeueJob
+import edu.berkeley.bidms.app.provision.service.RequeueJobService
+import org.springframework.http.HttpStatus
 import org.springframework.http.MediaType
+import org.springframework.http.ResponseEntity
 import org.springframework.web.bind.annotation.GetMapping
+import org.springframework.web.bind.annotation.PathVariable
+import org.springframework.web.bind.annotation.PostMapping
 import org.springframework.web.bind.annotation.RequestMapping
 import org.springframework.web.bind.annotation.RestController
 
@@ -37,11 +43,18 @@ import org.springframework.web.bind.annotation.RestController
 class QueueChangedIdentitiesController {
 
     ProvisionService provisionService
+    RequeueJobService requeueJobService
 
-    QueueChangedIdentitiesController(ProvisionService provisionService) {
+    QueueChangedIdentitiesController(ProvisionService provisionService, RequeueJobService requeueJobService) {
         this.provisionService = provisionService
+        this.requeueJobService = requeueJobService
     }
 
+    /**
+     * Queue the changed identities and wait for it to finish.  For large
+     * numbers of changed identities, start a job with POST
+     * /queueChangedIdentities/jobs instead.
+     */
     @GetMapping(value = "/queueChangedIdentities", produces = MediaType.APPLICATION_JSON_VALUE)
     Map<String, ?> index() {
         int count = provisionService.requeueUidsNeedingReprovision()
@@ -50,4 +63,36 @@ class QueueChangedIdentitiesController {
                 "count" : count
         ]
     }
+
+    /**
+     * Start queueing the changed identities in the background.  Responds
+     * with 202 and the job status, which includes the job id.  If a job is
+     * already running, that job's status is returned instead.
+     */
+    @PostMapping(value = "/queueChangedIdentities/jobs", produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<Map> startJob() {
+        RequeueJob job = requeueJobService.start()
+        return new ResponseEntity<Map>(job.toMap(), HttpStatus.ACCEPTED)
+    }
+
+    /**
+     * The status of the recent queueing jobs, oldest first.
+     */
+    @GetMapping(value = "/queueChangedIdentities/jobs", produces = MediaType.APPLICATION_JSON_VALUE)
+    List<Map<String, ?>> jobs() {
+        return requeueJobService.jobs*.toMap()
+    }
+
+    /**
+     * The status of one queueing job.  Responds with 404 if the job isn't
+     * known.
+     */
+    @GetMapping(value = "/queueChangedIdentities/jobs/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<Map> job(@PathVariable String id) {
+        RequeueJob job = requeueJobService.getJob(id)
+        if (!job) {
+            return new ResponseEntity<Map>(HttpStatus.NOT_FOUND)
+        }
+        return new ResponseEntity<Map>(job.toMap(), HttpStatus.OK)
+    }
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.provision.service
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.TimeUnit
+import java.util.function.Consumer
+
+/**
+ * Accumulates asynchronous downstream provisioning notifications during a
+ * bulk provisioning run and sends them in batches, either once batchSize
+ * uids are pending or once the oldest pending uid has waited maxDelayMillis.
+ *
+ * Uids whose notifications couldn't be sent are collected in
+ * {@link #getFailedUids()} and passed to the sendFailureHandler, if any.
+ * Their PersonSorObjectsSyncKey has already been committed by then, so
+ * the handler is expected to mark them to be provisioned again.  {@link
+ * #close()} sends the remaining pending uids.
+ */
+@CompileStatic
+@Slf4j
+class DownstreamNotificationBatch implements Closeable {
+    private final DownstreamProvisioningService downstreamProvisioningService
+    private final String eventId
+    private final int batchSize
+    private final long maxDelayMillis
+    private final Consumer<List<String>> sendFailureHandler
+
+    private final Object lock = new Object()
+    private List<String> pendingUids = []
+    private long oldestPendingTime
+    private final List<String> failedUids = []
+    private int sentCount
+
+    private final ScheduledExecutorService flushScheduler
+
+    DownstreamNotificationBatch(DownstreamProvisioningService downstreamProvisioningService, String eventId, int batchSize, long maxDelayMillis) {
+        this(downstreamProvisioningService, eventId, batchSize, maxDelayMillis, null)
+    }
+
+    DownstreamNotificationBatch(DownstreamProvisioningService downstreamProvisioningService, String eventId, int batchSize, long maxDelayMillis, Consumer<List<String>> sendFailureHandler) {
+        this.downstreamProvisioningService = downstreamProvisioningService
+        this.eventId = eventId
+        this.batchSize = Math.max(batchSize, 1)
+        this.maxDelayMillis = maxDelayMillis
+        this.sendFailureHandler = sendFailureHandler
+        if (maxDelayMillis > 0) {
+            this.flushScheduler = Executors.newSingleThreadScheduledExecutor({ Runnable r ->
+                Thread t = new Thread(r, "downstreamNotificationBatch")
+                t.daemon = true
+                return t
+            } as ThreadFactory)
+            long checkInterval = Math.max(maxDelayMillis.intdiv(2).longValue(), 10L)
+            flushScheduler.scheduleWithFixedDelay({ flushIfDue() } as Runnable, checkInterval, checkInterval, TimeUnit.MILLISECONDS)
+        } else {
+            this.flushScheduler = null
+        }
+    }
+
+    /**
+     * Queue a uid for downstream notification.  Sends the batch if it's
+     * full.
+     */
+    void add(String uid) {
+        List<String> toSend = null
+        synchronized (lock) {
+            if (!pendingUids) {
+                oldestPendingTime = System.currentTimeMillis()
+            }
+            pendingUids.add(uid)
+            if (pendingUids.size() >= batchSize) {
+                toSend = takePending()
+            }
+        }
+        if (toSend) {
+            send(toSend)
+        }
+    }
+
+    /**
+     * Send the pending uids now.
+     */
+    void flush() {
+        List<String> toSend
+        synchronized (lock) {
+            toSend = takePending()
+        }
+        if (toSend) {
+            send(toSend)
+        }
+    }
+
+    protected void flushIfDue() {
+        List<String> toSend = null
+        synchronized (lock) {
+            if (pendingUids && System.currentTimeMillis() - oldestPendingTime >= maxDelayMillis) {
+                toSend = takePending()
+            }
+        }
+        if (toSend) {
+            send(toSend)
+        }
+    }
+
+    @Override
+    void close() {
+        flushScheduler?.shutdownNow()
+        flush()
+    }
+
+    /**
+     * @return The number of uids that downstream notifications were sent
+     *         for.
+     */
+    int getSentCount() {
+        synchronized (lock) {
+            return sentCount
+        }
+    }
+
+    /**
+     * @return The uids that downstream notifications couldn't be sent for.
+     */
+    List<String> getFailedUids() {
+        synchronized (lock) {
+            return new ArrayList<String>(failedUids)
+        }
+    }
+
+    private List<String> takePending() {
+        List<String> taken = pendingUids
+        pendingUids = []
+        return taken
+    }
+
+    private void send(List<String> uids) {
+        try {
+            downstreamProvisioningService.provisionUidsAsynchronously(eventId, uids)
+            synchronized (lock) {
+                sentCount += uids.size()
+            }
+        }
+        catch (Exception e) {
+            log.error("Couldn't send downstream notifications for ${uids.size()} uids, starting with uid=${uids.first()}.  Message=${e.message}", e)
+            synchronized (lock) {
+                failedUids.addAll(uids)
+            }
+            if (sendFailureHandler) {
+                try {
+                    sendFailureHandler.accept(uids)
+                }
+                catch (Exception handlerException) {
+                    log.error("Couldn't handle the failed downstream notifications for ${uids.size()} uids, starting with uid=${uids.first()}", handlerException)
+                }
+            }
+        }
+    }
+}
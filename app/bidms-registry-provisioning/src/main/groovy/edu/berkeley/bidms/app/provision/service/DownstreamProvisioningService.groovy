@@ -36,6 +36,8 @@ import groovy.util.logging.Slf4j
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean
 import org.springframework.stereotype.Service
 
+import java.util.function.Consumer
+
 @Slf4j
 // If you wish to override this bean, create your own with @Service("downstreamProvisioningService")
 @ConditionalOnMissingBean(name = "downstreamProvisioningService")
@@ -62,17 +64,56 @@ class DownstreamProvisioningService {
     }
 
     void provisionUidAsynchronously(String eventId, String uid) {
-        final Map<String, ?> headers = [
-                eventId   : eventId,
-                fromSource: "reg-prov"
-        ]
+        final Map<String, ?> headers = getAsynchronousHeaders(eventId)
+        downstreamSystemNames.each { String downstreamSystemName ->
+            downstreamProvisioningJmsClientService.provisionUid(downstreamProvisionJmsTemplate, downstreamSystemName, uid, headers)
+        }
+    }
+
+    /**
+     * Send the same messages as {@link #provisionUidAsynchronously(String, String)}
+     * does for each of the uids, with one transacted batch per downstream
+     * system.
+     */
+    void provisionUidsAsynchronously(String eventId, List<String> uids) {
+        final Map<String, ?> headers = getAsynchronousHeaders(eventId)
+        downstreamSystemNames.each { String downstreamSystemName ->
+            downstreamProvisioningJmsClientService.provisionUids(downstreamProvisionJmsTemplate, downstreamSystemName, uids, headers)
+        }
+    }
+
+    /**
+     * @return A new batch of asynchronous downstream notifications that
+     *         must be closed after the last uid has been added.
+     */
+    DownstreamNotificationBatch newAsynchronousBatch(String eventId, int batchSize, long maxDelayMillis) {
+        return newAsynchronousBatch(eventId, batchSize, maxDelayMillis, null)
+    }
+
+    /**
+     * @param sendFailureHandler If not null, called with the uids of a
+     *        batch that couldn't be sent.
+     * @return A new batch of asynchronous downstream notifications that
+     *         must be closed after the last uid has been added.
+     */
+    DownstreamNotificationBatch newAsynchronousBatch(String eventId, int batchSize, long maxDelayMillis, Consumer<List<String>> sendFailureHandler) {
+        return new DownstreamNotificationBatch(this, eventId, batchSize, maxDelayMillis, sendFailureHandler)
+    }
+
+    protected List<String> getDownstreamSystemNames() {
         def downstreamSystems = [DownstreamSystemEnum.LDAP.name]
         if (adEnabled) {
             downstreamSystems << DownstreamSystemEnum.AD.name
         }
-        downstreamSystems.each { String downstreamSystemName ->
-            downstreamProvisioningJmsClientService.provisionUid(downstreamProvisionJmsTemplate, downstreamSystemName, uid, headers)
-        }
+        return downstreamSystems
+    }
+
+    @SuppressWarnings("GrMethodMayBeStatic")
+    protected Map<String, ?> getAsynchronousHeaders(String eventId) {
+        return [
+                eventId   : eventId,
+                fromSource: "reg-prov"
+        ]
     }
 
     void provisionUidSynchronously(String eventId, String uid) {
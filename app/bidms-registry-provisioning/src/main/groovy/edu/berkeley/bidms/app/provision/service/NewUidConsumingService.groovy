@@ -42,7 +42,8 @@ import org.springframework.transaction.annotation.Transactional
 class NewUidConsumingService {
 
     static enum AuditOperation {
-        newUidAsynchronous
+        newUidAsynchronous,
+        newUidBatchAsynchronous
     }
 
     @Value('${bidms.provision.app-name}')
@@ -60,7 +61,12 @@ class NewUidConsumingService {
         if (!(msg instanceof MapMessage)) {
             throw new RuntimeException("JMS Message is not of expected MapMessage type")
         }
-        processMessage((MapMessage) msg)
+        MapMessage message = (MapMessage) msg
+        if (message.itemExists("sorObjectIds")) {
+            processBatchMessage(message)
+        } else {
+            processMessage(message)
+        }
     }
 
     // mandatory: sorObjectId
@@ -97,4 +103,45 @@ class NewUidConsumingService {
             throw e
         }
     }
+
+    // mandatory: sorObjectIds (comma-separated)
+    // optional: synchronousDownstream
+    void processBatchMessage(MapMessage message) {
+        try {
+            String eventId = AuditUtil.createEventId()
+            List<Long> sorObjectIds = message.getString("sorObjectIds").tokenize(",")*.trim().collect { Long.valueOf(it) }
+            Boolean synchronousDownstream = message.getBoolean("synchronousDownstream")
+            List<NewUidService.NewUidResult> results = newUidService.provisionNewUids(sorObjectIds, synchronousDownstream, eventId)
+            int newUidCount = 0
+            for (NewUidService.NewUidResult result in results) {
+                if (!result.uidGenerationSuccessful) {
+                    log.error("UID generation was not successful for sorObjectId ${result.sorObjectId} in a newUid batch")
+                    continue
+                }
+                if (result.hasExistingUid) {
+                    log.warn("sorObjectId=${result.sorObjectId}, sorPrimaryKey=${result.sorPrimaryKey}, sorName=${result.sorName} was successfully consumed from the newUid queue but that SORObject already had a uid (${result.uid}) assigned to it.  Not reassigning a new uid.")
+                } else {
+                    newUidCount++
+                }
+                AuditUtil.logAuditEvent(APP_NAME, new AuditSuccessEvent(eventId: eventId,
+                        op: AuditOperation.newUidBatchAsynchronous,
+                        forUid: result.uid,
+                        attrs: [
+                                sorObjectId           : result.sorObjectId,
+                                sorPrimaryKey         : result.sorPrimaryKey,
+                                sorName               : result.sorName,
+                                provisioningSuccessful: result.provisioningSuccessful,
+                                hasExistingUid        : result.hasExistingUid
+                        ]))
+                if (!result.provisioningSuccessful) {
+                    log.warn("sorObjectId=${result.sorObjectId} has uid ${result.uid} assigned, but there was a problem reprovisioning it: ${result.provisioningException}")
+                }
+            }
+            log.info("A newUid batch of ${sorObjectIds.size()} sorObjectIds was successfully consumed: $newUidCount new uids assigned")
+        }
+        catch (Exception e) {
+            log.error("processBatchMessage failed", e)
+            throw e
+        }
+    }
 }
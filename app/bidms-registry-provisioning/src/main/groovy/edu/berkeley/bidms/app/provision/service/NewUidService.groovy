@@ -26,6 +26,7 @@
  */
 package edu.berkeley.bidms.app.provision.service
 
+import edu.berkeley.bidms.app.provision.config.properties.ProvisioningConfigProperties
 import edu.berkeley.bidms.app.registryModel.model.Person
 import edu.berkeley.bidms.app.registryModel.model.SORObject
 import edu.berkeley.bidms.app.registryModel.model.history.MatchHistory
@@ -33,22 +34,27 @@ import edu.berkeley.bidms.app.registryModel.model.type.MatchHistoryResultTypeEnu
 import edu.berkeley.bidms.app.registryModel.repo.PersonRepository
 import edu.berkeley.bidms.app.registryModel.repo.SORObjectRepository
 import edu.berkeley.bidms.app.registryModel.repo.history.MatchHistoryRepository
+import edu.berkeley.bidms.orm.sequence.SequenceBlockAllocator
 import edu.berkeley.bidms.orm.transaction.JpaTransactionTemplate
-import groovy.sql.Sql
 import groovy.transform.CompileStatic
 import groovy.transform.InheritConstructors
 import groovy.util.logging.Slf4j
 import jakarta.persistence.EntityManager
+import org.hibernate.Session
+import org.springframework.beans.factory.DisposableBean
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.stereotype.Service
 import org.springframework.transaction.PlatformTransactionManager
 import org.springframework.transaction.TransactionDefinition
 
 import javax.sql.DataSource
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
 
 @Slf4j
 @Service
-class NewUidService {
+class NewUidService implements DisposableBean {
 
     @Autowired
     DataSource dataSource
@@ -71,6 +77,13 @@ class NewUidService {
     PlatformTransactionManager transactionManager
     JpaTransactionTemplate mandatoryTransactionTemplate
     JpaTransactionTemplate requiresNewTransactionTemplate
+    ProvisioningConfigProperties provisioningConfigProperties
+
+    // hands out new uids from blocks reserved from uid_seq
+    SequenceBlockAllocator uidAllocator
+
+    // provisions the new uids of batches, shared by all requests
+    private final ExecutorService provisionExecutor
 
     @CompileStatic
     @InheritConstructors
@@ -78,6 +91,7 @@ class NewUidService {
     }
 
     static class NewUidResult {
+        Long sorObjectId
         boolean hasExistingUid
         boolean uidGenerationSuccessful // note: true if hasExistingUid==true
         String uid
@@ -87,10 +101,18 @@ class NewUidService {
         String sorName
     }
 
-    NewUidService(PlatformTransactionManager transactionManager) {
+    NewUidService(PlatformTransactionManager transactionManager, ProvisioningConfigProperties provisioningConfigProperties) {
         this.transactionManager = transactionManager
         this.mandatoryTransactionTemplate = new JpaTransactionTemplate(transactionManager, TransactionDefinition.PROPAGATION_MANDATORY)
         this.requiresNewTransactionTemplate = new JpaTransactionTemplate(transactionManager, TransactionDefinition.PROPAGATION_REQUIRES_NEW)
+        this.provisioningConfigProperties = provisioningConfigProperties
+        this.uidAllocator = new SequenceBlockAllocator("uid_seq", provisioningConfigProperties.uidBlockSize)
+        this.provisionExecutor = Executors.newFixedThreadPool(Math.max(provisioningConfigProperties.newUidBatch.provisionParallelism, 1))
+    }
+
+    @Override
+    void destroy() {
+        provisionExecutor.shutdown()
     }
 
     /**
@@ -140,36 +162,87 @@ class NewUidService {
             // (used by tests)
             beforeProvision()
 
-            // When creating a new uid we also want to run the provisioning
-            // scripts since there's at least one SORObject associated with the
-            // uid.
-            try {
-                // The provisionService will start a new transaction for
-                // provisioning.
-                provisionService.provisionUid(result.uid, synchronousDownstream, eventId)
-                result.provisioningSuccessful = true
-            }
-            catch (Exception e) {
-                // Since a provisioning error isn't fatal to creating a UID (it
-                // had a separate transaction), we note the provisioning failure
-                // in the result.  The caller decides what to do from there.
-                // (One possibility is the caller calls the provision service to
-                // retry, or the caller relies on the batch provisioning system
-                // to retry the provisioning at a later time.)
-                log.error("Provisioning upon new uid generation failed", e)
-                result.provisioningSuccessful = false
-                result.provisioningException = e
-            }
+            provisionNewUidResult(result, synchronousDownstream, eventId)
         }
 
         return result
     }
 
+    /**
+     * Assigns new uids to many SORObjects.  This is the same as calling
+     * {@link #provisionNewUid(Long, Boolean, String)} for each
+     * sorObjectId, except that the new Person, SORObject and MatchHistory
+     * rows for the whole batch are saved in one transaction with JDBC
+     * batching, and the new uids are then provisioned in parallel.
+     *
+     * An exception gets thrown from this method if saving the batch
+     * fails, in which case none of the SORObjects are assigned a uid.  A
+     * sorObjectId that can't be found gets a NewUidResult with
+     * uidGenerationSuccessful set to false.
+     *
+     * @param sorObjectIds The SORObject ids of the originating SOR records.
+     *        Duplicates are ignored.
+     * @param synchronousDownstream See {@link #provisionNewUid(Long,
+     *        Boolean, String)}.
+     * @param eventId Audit event id
+     * @return A NewUidResult for each distinct sorObjectId, in the order
+     *         given.
+     */
+    List<NewUidResult> provisionNewUids(List<Long> sorObjectIds, Boolean synchronousDownstream, String eventId) throws NewUidServiceException {
+        if (!sorObjectIds) {
+            throw new NewUidServiceException("sorObjectIds cannot be empty")
+        }
+        if (sorObjectIds.contains(null)) {
+            throw new NewUidServiceException("sorObjectIds cannot contain null")
+        }
+        int maxSorObjectIds = provisioningConfigProperties.newUidBatch.maxSorObjectIds
+        if (sorObjectIds.size() > maxSorObjectIds) {
+            throw new NewUidServiceException("sorObjectIds cannot contain more than $maxSorObjectIds ids")
+        }
+
+        List<NewUidResult> results = saveNewPersons(eventId, sorObjectIds.unique(false))
+        entityManager.clear()
+
+        List<NewUidResult> toProvision = results.findAll { it.uidGenerationSuccessful }
+        if (toProvision) {
+            beforeProvision()
+            List<Future<?>> futures = toProvision.collect { NewUidResult result ->
+                provisionExecutor.submit({ provisionNewUidResult(result, synchronousDownstream, eventId) } as Runnable)
+            }
+            futures*.get()
+        }
+
+        return results
+    }
+
+    protected void provisionNewUidResult(NewUidResult result, Boolean synchronousDownstream, String eventId) {
+        // When creating a new uid we also want to run the provisioning
+        // scripts since there's at least one SORObject associated with the
+        // uid.
+        try {
+            // The provisionService will start a new transaction for
+            // provisioning.
+            provisionService.provisionUid(result.uid, synchronousDownstream, eventId)
+            result.provisioningSuccessful = true
+        }
+        catch (Exception e) {
+            // Since a provisioning error isn't fatal to creating a UID (it
+            // had a separate transaction), we note the provisioning failure
+            // in the result.  The caller decides what to do from there.
+            // (One possibility is the caller calls the provision service to
+            // retry, or the caller relies on the batch provisioning system
+            // to retry the provisioning at a later time.)
+            log.error("Provisioning upon new uid generation failed for uid ${result.uid}", e)
+            result.provisioningSuccessful = false
+            result.provisioningException = e
+        }
+    }
+
     // We need person committed before we try to provision it because
     // provisioning happens in its own transaction
     protected NewUidResult saveNewPerson(String eventId, long sorObjectId) throws NewUidServiceException {
         return requiresNewTransactionTemplate.execute {
-            NewUidResult result = new NewUidResult()
+            NewUidResult result = new NewUidResult(sorObjectId: sorObjectId)
 
             SORObject sorObject = sorObjectRepository.get(sorObjectId)
             if (!sorObject) {
@@ -219,11 +292,82 @@ class NewUidService {
         }
     }
 
+    // All the new Person, SORObject and MatchHistory rows of a batch are
+    // saved in one transaction.
+    protected List<NewUidResult> saveNewPersons(String eventId, List<Long> sorObjectIds) throws NewUidServiceException {
+        return requiresNewTransactionTemplate.execute {
+            // The inserts and updates are sent in JDBC batches when the
+            // session is flushed.
+            entityManager.unwrap(Session).jdbcBatchSize = provisioningConfigProperties.newUidBatch.jdbcBatchSize
+
+            Map<Long, SORObject> sorObjects = sorObjectRepository.findAllById(sorObjectIds).collectEntries { SORObject sorObject ->
+                [sorObject.id, sorObject]
+            }
+
+            List<NewUidResult> results = []
+            List<SORObject> assignedSorObjects = []
+            for (Long sorObjectId in sorObjectIds) {
+                NewUidResult result = new NewUidResult(sorObjectId: sorObjectId)
+                SORObject sorObject = sorObjects[sorObjectId]
+                if (!sorObject) {
+                    log.error("Couldn't find sorObjectId=$sorObjectId")
+                    result.uidGenerationSuccessful = false
+                    result.provisioningSuccessful = false
+                    result.provisioningException = new Exception("Couldn't find sorObjectId=$sorObjectId")
+                } else if (sorObject.person) {
+                    // Could have been from an outside matching process.
+                    log.warn("sorObjectId=$sorObjectId already has a uid assigned to it: uid=${sorObject.person.uid}")
+                    result.hasExistingUid = true
+                    result.uidGenerationSuccessful = true
+                    result.uid = sorObject.person.uid
+                    result.sorPrimaryKey = sorObject.sorPrimaryKey
+                    result.sorName = sorObject.sor.name
+                } else {
+                    String newUid = getNextUid()
+                    if (!newUid) {
+                        throw new NewUidServiceException("uid failed to generate")
+                    }
+
+                    // persist rather than save: save would select the
+                    // Person first because its id is assigned
+                    Person person = new Person(uid: newUid)
+                    entityManager.persist(person)
+                    sorObject.person = person
+                    assignedSorObjects << sorObject
+
+                    result.uidGenerationSuccessful = true
+                    result.uid = person.uid
+                    result.sorPrimaryKey = sorObject.sorPrimaryKey
+                    result.sorName = sorObject.sor.name
+                }
+                results << result
+            }
+
+            // Persisted after all the Person rows so the inserts of each
+            // table go in the same JDBC batches.
+            Date actionTime = new Date()
+            for (SORObject sorObject in assignedSorObjects) {
+                entityManager.persist(new MatchHistory(
+                        eventId: eventId,
+                        sorObjectId: sorObject.id,
+                        sorId: sorObject.sor.id,
+                        sorPrimaryKey: sorObject.sorPrimaryKey,
+                        matchResultType: MatchHistoryResultTypeEnum.NEW_UID,
+                        actionTime: actionTime,
+                        uidAssigned: sorObject.person.uid
+                ))
+            }
+            entityManager.flush()
+
+            return results
+        }
+    }
+
     protected String getNextUid() {
         return mandatoryTransactionTemplate.execute { txStatus ->
-            Sql regSql = new Sql(JpaTransactionTemplate.getConnection(txStatus))
-            def row = regSql.firstRow("select nextval('uid_seq') as uid" as String)
-            return row?.uid
+            // Only reserves a new block from uid_seq when the current one
+            // is used up.
+            return uidAllocator.next(JpaTransactionTemplate.getConnection(txStatus)).toString()
         }
     }
 
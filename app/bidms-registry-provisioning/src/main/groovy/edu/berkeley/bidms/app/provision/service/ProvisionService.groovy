@@ -27,6 +27,8 @@
 package edu.berkeley.bidms.app.provision.service
 
 import edu.berkeley.bidms.app.jmsclient.service.ProvisioningJmsClientService
+import edu.berkeley.bidms.app.provision.config.properties.ProvisioningConfigProperties
+import edu.berkeley.bidms.app.provision.config.properties.RequeueProperties
 import edu.berkeley.bidms.app.registryModel.model.Person
 import edu.berkeley.bidms.app.registryModel.model.PersonSorObjectsJson
 import edu.berkeley.bidms.app.registryModel.model.PersonSorObjectsSyncKey
@@ -52,6 +54,21 @@ import org.springframework.transaction.TransactionDefinition
 import org.springframework.transaction.annotation.Propagation
 import org.springframework.transaction.annotation.Transactional
 
+import java.sql.Statement
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.BlockingQueue
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicReference
+import java.util.function.Consumer
+
 @CompileStatic
 @Slf4j
 // If you wish to override this bean, create your own with @Service("provisionService")
@@ -101,6 +118,9 @@ class ProvisionService {
     @Autowired
     NameTypeRepository nameTypeRepository
 
+    @Autowired
+    ProvisioningConfigProperties provisioningConfigProperties
+
     PlatformTransactionManager transactionManager
     JpaTransactionTemplate requiresNewTransactionTemplate
     private String toProvisionTableName = "PersonSorObjectsToProvisionView"
@@ -136,10 +156,15 @@ class ProvisionService {
      */
     @Transactional(propagation = Propagation.NEVER)
     Map bulkProvision(Boolean synchronousDownstream, String eventId) {
+        int parallelism = getBulkProvisionParallelism()
+        if (parallelism > 1 || getBulkProvisionPrefetchSize() > 0) {
+            return bulkProvisionInPartitions(synchronousDownstream, eventId, parallelism)
+        }
         log.debug("PROFILE: bulkProvision(): ENTER")
         int count = 0
         int failureCount = 0
         List<String> failedUids = []
+        DownstreamNotificationBatch downstreamBatch = newDownstreamNotificationBatch(synchronousDownstream, eventId)
         try {
             // provision all uids from the registry toProvision service
             String lastUid = null
@@ -154,7 +179,7 @@ class ProvisionService {
                     try {
                         lastUid = uid
                         try {
-                            toProvisionUid(uid, synchronousDownstream, eventId)
+                            toProvisionUid(uid, synchronousDownstream, eventId, null, downstreamBatch)
                         }
                         catch (Exception e) {
                             log.error("Couldn't provision uid=$uid.  Message=${e.message}", e)
@@ -173,6 +198,7 @@ class ProvisionService {
                 }
                 if (isReadyToHalt(count, failureCount)) break
             } while (uidsToProvision.size() > 0)
+            downstreamBatch?.close()
             def jsonResponse = [
                     message              : "Processed $count uids with $failureCount failures",
                     totalCount           : count,
@@ -183,13 +209,297 @@ class ProvisionService {
             if (failedUids.size() > 0) {
                 jsonResponse.failedUids = failedUids
             }
+            addDownstreamNotificationBatchResults(jsonResponse, downstreamBatch)
             return jsonResponse
         }
         finally {
+            downstreamBatch?.close()
             log.debug("PROFILE: bulkProvision(): EXIT")
         }
     }
 
+    /**
+     * @return The number of bulk provisioning workers.  1 means uids are
+     *         provisioned one at a time in the calling thread.
+     */
+    protected int getBulkProvisionParallelism() {
+        Integer parallelism = provisioningConfigProperties?.bulkProvision?.parallelism
+        return parallelism && parallelism > 1 ? parallelism : 1
+    }
+
+    /**
+     * @return The number of uids whose aggregate JSON is loaded together
+     *         ahead of provisioning during bulk provisioning.  0 means the
+     *         aggregate JSON is loaded by each uid's provisioning
+     *         transaction.
+     */
+    protected int getBulkProvisionPrefetchSize() {
+        Integer prefetchSize = provisioningConfigProperties?.bulkProvision?.prefetchSize
+        return prefetchSize && prefetchSize > 0 ? Math.min(prefetchSize, limitRowQuantity) : 0
+    }
+
+    /**
+     * @return A batch for the asynchronous downstream notifications of a
+     *         bulk provisioning run, or null if notifications are to be
+     *         sent one uid at a time.
+     */
+    protected DownstreamNotificationBatch newDownstreamNotificationBatch(Boolean synchronousDownstream, String eventId) {
+        Integer batchSize = provisioningConfigProperties?.bulkProvision?.downstreamBatchSize
+        if (synchronousDownstream || !batchSize || batchSize <= 1) {
+            return null
+        }
+        long maxDelayMillis = provisioningConfigProperties.bulkProvision.downstreamBatchMaxDelayMillis
+        return downstreamProvisioningService.newAsynchronousBatch(eventId, batchSize, maxDelayMillis, { List<String> uids ->
+            int marked = markForceProvision(uids)
+            log.warn("Marked $marked of ${uids.size()} uids to be force-provisioned because their downstream notifications couldn't be sent")
+        } as Consumer<List<String>>)
+    }
+
+    /**
+     * Mark uids to be provisioned again by the next bulk provisioning run,
+     * even if their aggregate JSON hasn't changed since they were last
+     * provisioned.  Provisioning a uid clears the mark.  Uids without a
+     * PersonSorObjectsSyncKey have never been provisioned and don't need
+     * the mark.
+     *
+     * @return The number of uids marked.
+     */
+    protected int markForceProvision(Collection<String> uids) {
+        return requiresNewTransactionTemplate.execute {
+            personSorObjectsSyncKeyRepository.markForceProvision(uids)
+        }
+    }
+
+    private static void addDownstreamNotificationBatchResults(Map jsonResponse, DownstreamNotificationBatch downstreamBatch) {
+        if (downstreamBatch) {
+            List<String> downstreamFailedUids = downstreamBatch.failedUids
+            jsonResponse.downstreamNotificationCount = downstreamBatch.sentCount
+            jsonResponse.downstreamNotificationFailureCount = downstreamFailedUids.size()
+            if (downstreamFailedUids) {
+                jsonResponse.downstreamNotificationFailedUids = downstreamFailedUids
+            }
+        }
+    }
+
+    /**
+     * A uid handed out to a bulk provisioning partition, possibly with its
+     * prefetched aggregate JSON.
+     */
+    @CompileStatic
+    static class BulkProvisionUid {
+        final String uid
+        final PrefetchedAggregateJson prefetched
+
+        BulkProvisionUid(String uid, PrefetchedAggregateJson prefetched) {
+            this.uid = uid
+            this.prefetched = prefetched
+        }
+    }
+
+    /**
+     * The aggregate JSON of a uid as it was loaded from
+     * PersonSorObjectsJson ahead of provisioning.
+     */
+    @CompileStatic
+    static class PrefetchedAggregateJson {
+        final String jsonHash
+        final String aggregateJson
+
+        PrefetchedAggregateJson(String jsonHash, String aggregateJson) {
+            this.jsonHash = jsonHash
+            this.aggregateJson = aggregateJson
+        }
+    }
+
+    @CompileStatic
+    static class BulkProvisionPartition {
+        final int index
+        final BlockingQueue<BulkProvisionUid> queue
+        // only modified by the worker for this partition
+        int count
+        int failureCount
+        volatile boolean done
+
+        BulkProvisionPartition(int index, int queueCapacity) {
+            this.index = index
+            this.queue = new ArrayBlockingQueue<BulkProvisionUid>(queueCapacity)
+        }
+    }
+
+    // placed in each partition queue after the last uid
+    private static final BulkProvisionUid END_OF_PARTITION = new BulkProvisionUid(null, null)
+
+    /**
+     * Provision all uids from the PersonSorObjectsToProvisionView with
+     * multiple workers.
+     *
+     * The calling thread pages through the view the same way as the
+     * sequential bulkProvision does and hands each uid to the partition
+     * that the uid hashes to.  Each partition has one worker that calls
+     * toProvisionUid for its uids, so each uid is still provisioned in its
+     * own transaction.  If a prefetch size is configured, the calling
+     * thread also loads the aggregate JSON of the uids in batches of that
+     * size, and the workers parse it before the provisioning transaction
+     * starts, which leaves only locking, rebuilding and persisting inside
+     * the transaction.  Counts and failures are aggregated across the
+     * workers and once {@link #isReadyToHalt(Integer, Integer)} is true,
+     * no more uids are started.  Uids that are already being provisioned
+     * by other workers at that point are finished, so the totals can
+     * exceed the halting limits by up to parallelism - 1.
+     *
+     * @return Map JSON object with response message.
+     */
+    protected Map bulkProvisionInPartitions(Boolean synchronousDownstream, String eventId, int parallelism) {
+        log.debug("PROFILE: bulkProvisionInPartitions(): ENTER")
+        int prefetchSize = getBulkProvisionPrefetchSize()
+        DownstreamNotificationBatch downstreamBatch = newDownstreamNotificationBatch(synchronousDownstream, eventId)
+        int queueCapacity = Math.max(provisioningConfigProperties?.bulkProvision?.partitionQueueCapacity ?: 0, 1)
+        List<BulkProvisionPartition> partitions = (0..<parallelism).collect { int i -> new BulkProvisionPartition(i, queueCapacity) }
+        AtomicInteger count = new AtomicInteger()
+        AtomicInteger failureCount = new AtomicInteger()
+        Queue<String> failedUids = new ConcurrentLinkedQueue<String>()
+        AtomicBoolean halted = new AtomicBoolean()
+        AtomicInteger threadNumber = new AtomicInteger()
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, { Runnable r ->
+            Thread t = new Thread(r, "bulkProvision-${threadNumber.incrementAndGet()}".toString())
+            t.daemon = true
+            return t
+        } as ThreadFactory)
+        try {
+            List<Future<?>> workers = partitions.collect { BulkProvisionPartition partition ->
+                (Future<?>) executor.submit({
+                    try {
+                        BulkProvisionUid bulkProvisionUid
+                        while (!(bulkProvisionUid = partition.queue.take()).is(END_OF_PARTITION)) {
+                            if (halted.get()) {
+                                // drain the rest of the partition
+                                continue
+                            }
+                            String uid = bulkProvisionUid.uid
+                            try {
+                                toProvisionUid(uid, synchronousDownstream, eventId, bulkProvisionUid.prefetched, downstreamBatch)
+                            }
+                            catch (Exception e) {
+                                log.error("Couldn't provision uid=$uid in partition ${partition.index}.  Message=${e.message}", e)
+                                partition.failureCount++
+                                failureCount.incrementAndGet()
+                                failedUids.add(uid)
+                            }
+                            partition.count++
+                            int totalCount = count.incrementAndGet()
+                            if (partition.count % 1000 == 0) {
+                                log.debug("Processed ${partition.count} users in partition ${partition.index} and $totalCount users overall on this request")
+                            }
+                            if (isReadyToHalt(totalCount, failureCount.get())) {
+                                halted.set(true)
+                            }
+                        }
+                    }
+                    finally {
+                        partition.done = true
+                        partition.queue.clear()
+                    }
+                } as Runnable)
+            }
+
+            // page through the to-provision uids and hand them out to the
+            // partitions
+            String lastUid = null
+            List<String> uidsToProvision
+            do {
+                uidsToProvision = requiresNewTransactionTemplate.execute { txStatus ->
+                    def regSql = new Sql(JpaTransactionTemplate.getConnection(txStatus))
+                    return getToProvisionUids(regSql, lastUid)
+                }
+                for (List<String> uidBatch in (prefetchSize > 0 ? uidsToProvision.collate(prefetchSize) : [uidsToProvision])) {
+                    if (halted.get()) break
+                    Map<String, PrefetchedAggregateJson> prefetched = (prefetchSize > 0 ? prefetchAggregateJson(uidBatch) : [:] as Map<String, PrefetchedAggregateJson>)
+                    for (String uid in uidBatch) {
+                        if (halted.get()) break
+                        lastUid = uid
+                        enqueueToPartition(partitions[Math.floorMod(uid.hashCode(), parallelism)], new BulkProvisionUid(uid, prefetched[uid]))
+                    }
+                }
+            } while (uidsToProvision.size() > 0 && !halted.get())
+
+            partitions.each { BulkProvisionPartition partition ->
+                enqueueToPartition(partition, END_OF_PARTITION)
+            }
+            workers.each { Future<?> worker ->
+                worker.get()
+            }
+            downstreamBatch?.close()
+
+            int finalCount = count.get()
+            int finalFailureCount = failureCount.get()
+            def jsonResponse = [
+                    message              : "Processed $finalCount uids with $finalFailureCount failures",
+                    totalCount           : finalCount,
+                    successCount         : finalCount - finalFailureCount,
+                    failureCount         : finalFailureCount,
+                    synchronousDownstream: synchronousDownstream,
+                    parallelism          : parallelism,
+                    partitions           : partitions.collect { BulkProvisionPartition partition ->
+                        [
+                                partition   : partition.index,
+                                totalCount  : partition.count,
+                                successCount: partition.count - partition.failureCount,
+                                failureCount: partition.failureCount
+                        ]
+                    }
+            ] as Map<String, ?>
+            if (failedUids.size() > 0) {
+                jsonResponse.failedUids = failedUids.sort(false)
+            }
+            addDownstreamNotificationBatchResults(jsonResponse, downstreamBatch)
+            return jsonResponse
+        }
+        finally {
+            executor.shutdownNow()
+            downstreamBatch?.close()
+            log.debug("PROFILE: bulkProvisionInPartitions(): EXIT")
+        }
+    }
+
+    /**
+     * Load the aggregate JSON of multiple uids with one query.  Uids
+     * without a PersonSorObjectsJson row are left out of the returned map
+     * and are handled by the provisioning transaction as usual.
+     *
+     * The JSON may change after it has been prefetched.  The provisioning
+     * transaction compares the prefetched hash with the current one once
+     * the uid is locked and reloads the JSON if it has changed.
+     *
+     * @param uids The uids to load the aggregate JSON for.
+     * @return Map of uid to prefetched aggregate JSON.
+     */
+    protected Map<String, PrefetchedAggregateJson> prefetchAggregateJson(Collection<String> uids) {
+        log.debug("PROFILE: prefetchAggregateJson(): START ${uids.size()}")
+        try {
+            return requiresNewTransactionTemplate.execute {
+                Map<String, PrefetchedAggregateJson> prefetched = [:]
+                for (PersonSorObjectsJson psoj in personSorObjectsJsonRepository.findAllById(uids)) {
+                    prefetched[psoj.id] = new PrefetchedAggregateJson(psoj.jsonHash, psoj.aggregateJson)
+                }
+                flushAndClearHibernateSession(requiresNewTransactionTemplate.currentEntityManager)
+                return prefetched
+            }
+        }
+        finally {
+            log.debug("PROFILE: prefetchAggregateJson(): END")
+        }
+    }
+
+    /**
+     * Blocks while the partition queue is full, unless the worker for the
+     * partition has exited, in which case the uid is dropped.
+     */
+    private static void enqueueToPartition(BulkProvisionPartition partition, BulkProvisionUid bulkProvisionUid) {
+        while (!partition.done && !partition.queue.offer(bulkProvisionUid, 100, TimeUnit.MILLISECONDS)) {
+            // keep waiting for the worker to take from the queue
+        }
+    }
+
     /**
      * Provision one uid.
      *
@@ -202,9 +512,29 @@ class ProvisionService {
      * @param eventId Audit event id.
      * @return Map JSON object with response message.
      */
-    // Important: We must manage our own transactions within this method to avoid lock contention.
     @Transactional(propagation = Propagation.NEVER)
     Map provisionUid(String uid, Boolean synchronousDownstream, String eventId) {
+        return provisionUid(uid, synchronousDownstream, eventId, false)
+    }
+
+    /**
+     * Provision one uid.
+     *
+     * @param uid The uid to provision or reprovision.
+     * @param synchronousDownstream If true, then this means this service
+     *        will wait for provisioning to downstream to complete before
+     *        returning a result.  If false or null, then this service will
+     *        notify the downstream provisioner to reprovision, but will not
+     *        wait for a result.
+     * @param eventId Audit event id.
+     * @param force If true, the person is rebuilt even if its current
+     *        aggregate JSON has already been provisioned, such as after a
+     *        change to the provisioning logic.
+     * @return Map JSON object with response message.
+     */
+    // Important: We must manage our own transactions within this method to avoid lock contention.
+    @Transactional(propagation = Propagation.NEVER)
+    Map provisionUid(String uid, Boolean synchronousDownstream, String eventId, boolean force) {
         /**
          * PROFILE debug statements are detected by the
          * bin/reportProfileTimes.pl script.  If you change any PROFILE
@@ -213,6 +543,10 @@ class ProvisionService {
          */
         log.debug("PROFILE: provisionUid(): ENTER")
         try {
+            if (force && skipUnchanged) {
+                // provisioning clears the mark again
+                markForceProvision([uid])
+            }
             // provision just one uid
             toProvisionUid(uid, synchronousDownstream, eventId)
             def jsonResponse = [message: "Successfully processed 1 uid", uid: uid]
@@ -226,6 +560,17 @@ class ProvisionService {
     @CompileStatic
     static class ProvisionResult {
         boolean stopProcessing
+        // true when the person was not rebuilt because the current
+        // aggregate JSON had already been provisioned
+        boolean alreadyProvisioned
+    }
+
+    /**
+     * @return true if uids whose current aggregate JSON has already been
+     *         provisioned are not rebuilt again.
+     */
+    protected boolean isSkipUnchanged() {
+        return provisioningConfigProperties == null || provisioningConfigProperties.skipUnchanged
     }
 
     /**
@@ -242,25 +587,60 @@ class ProvisionService {
     }
 
     protected ProvisionResult provisionInNewTransaction(String uid, Boolean synchronousDownstream, String eventId) {
+        return provisionInNewTransaction(uid, synchronousDownstream, eventId, null)
+    }
+
+    /**
+     * @param prefetched If not null, the aggregate JSON that was loaded
+     *        ahead of time for the uid.  It's parsed before the
+     *        transaction starts.
+     */
+    protected ProvisionResult provisionInNewTransaction(String uid, Boolean synchronousDownstream, String eventId, PrefetchedAggregateJson prefetched) {
         ProvisionResult provisionResult = newProvisionResult()
 
+        Map prefetchedSorPerson = (prefetched ? parseAggregateJson(uid, prefetched.aggregateJson) : null)
+
         // transaction template used because @Transactional annotation
         // ignored when this method called elsewhere from within this class
         requiresNewTransactionTemplate.execute {
-            log.debug("PROFILE: provision() PersonSorObjectsJson.get() START")
-            PersonSorObjectsJson psoj = personSorObjectsJsonRepository.get(uid)
-            log.debug("PROFILE: provision() PersonSorObjectsJson.get() END")
-            if (!psoj) {
-                Person p = personRepository.get(uid)
-                if (!p) {
-                    log.warn("UID $uid does not appear to exist.  Consuming provisionUid message with no action.")
-                    provisionResult.stopProcessing = true
+            // Skip the rebuild when nothing has changed since the last
+            // time this uid was provisioned, such as for duplicate
+            // provisionUid messages.  This costs one query instead of
+            // loading, locking and rebuilding the person.
+            if (skipUnchanged) {
+                log.debug("PROFILE: provision() isProvisionedWithCurrentJsonHash() START")
+                boolean alreadyProvisioned = personSorObjectsSyncKeyRepository.isProvisionedWithCurrentJsonHash(uid)
+                log.debug("PROFILE: provision() isProvisionedWithCurrentJsonHash() END")
+                if (alreadyProvisioned) {
+                    log.debug("UID $uid has already been provisioned with its current aggregate JSON.  Not rebuilding.")
+                    provisionResult.alreadyProvisioned = true
                     return provisionResult
-                } else {
-                    throw new ProvisionServiceException("Couldn't get PersonSorObjectsJson for uid $uid but Person does exist with that uid.  Race condition?  Problem with trigger?")
                 }
             }
 
+            String jsonHash
+            Map sorPerson
+            if (prefetched) {
+                jsonHash = prefetched.jsonHash
+                sorPerson = prefetchedSorPerson
+            } else {
+                log.debug("PROFILE: provision() PersonSorObjectsJson.get() START")
+                PersonSorObjectsJson psoj = personSorObjectsJsonRepository.get(uid)
+                log.debug("PROFILE: provision() PersonSorObjectsJson.get() END")
+                if (!psoj) {
+                    Person p = personRepository.get(uid)
+                    if (!p) {
+                        log.warn("UID $uid does not appear to exist.  Consuming provisionUid message with no action.")
+                        provisionResult.stopProcessing = true
+                        return provisionResult
+                    } else {
+                        throw new ProvisionServiceException("Couldn't get PersonSorObjectsJson for uid $uid but Person does exist with that uid.  Race condition?  Problem with trigger?")
+                    }
+                }
+                jsonHash = psoj.jsonHash
+                sorPerson = parseAggregateJson(uid, psoj.aggregateJson)
+            }
+
             log.debug("PROFILE: provision() Person.get() START")
             Person person = personRepository.get(uid) // retrieve Person with a row level lock
             log.debug("PROFILE: provision() Person.get() END")
@@ -269,9 +649,21 @@ class ProvisionService {
             }
             // Pessimistically lock the person uid.
             requiresNewTransactionTemplate.currentEntityManager.lock(person, LockModeType.PESSIMISTIC_WRITE)
-            Map sorPerson = JsonUtil.convertJsonToMap(psoj.aggregateJson)
-            if (sorPerson == null) { // "{}" is considered empty, thus the explicit null check
-                throw new ProvisionServiceException("Couldn't get aggregate JSON for uid $uid")
+            if (prefetched) {
+                // The prefetched JSON may have waited in a partition queue
+                // while the uid was provisioned elsewhere with newer JSON.
+                // Now that the uid is locked, make sure it's still current
+                // so the person isn't rebuilt from older JSON.
+                String currentJsonHash = personSorObjectsJsonRepository.findJsonHashById(uid)
+                if (currentJsonHash != jsonHash) {
+                    log.debug("The aggregate JSON of uid $uid changed after it was prefetched.  Reloading it.")
+                    PersonSorObjectsJson psoj = personSorObjectsJsonRepository.get(uid)
+                    if (!psoj) {
+                        throw new ProvisionServiceException("Couldn't get PersonSorObjectsJson for uid $uid but it was prefetched")
+                    }
+                    jsonHash = psoj.jsonHash
+                    sorPerson = parseAggregateJson(uid, psoj.aggregateJson)
+                }
             }
             log.debug("PROFILE: provision() rebuild() START ${person.uid}")
             Map resultMap = null
@@ -303,8 +695,8 @@ class ProvisionService {
             // PersonSorObjectsSyncKey
             log.debug("PROFILE: provision() syncKey.save() START")
             try {
-                if (!psoj.jsonHash) {
-                    throw new RuntimeException("PersonSorObjectsJson.jsonHash cannot be null for uid ${psoj.id}")
+                if (!jsonHash) {
+                    throw new RuntimeException("PersonSorObjectsJson.jsonHash cannot be null for uid ${uid}")
                 }
                 PersonSorObjectsSyncKey syncKey = personSorObjectsSyncKeyRepository.get(person.uid)
                 if (!syncKey) {
@@ -313,7 +705,7 @@ class ProvisionService {
                 } else {
                     requiresNewTransactionTemplate.currentEntityManager.lock(syncKey, LockModeType.PESSIMISTIC_WRITE)
                 }
-                syncKey.provisionedJsonHash = psoj.jsonHash
+                syncKey.provisionedJsonHash = jsonHash
                 syncKey.forceProvision = false
                 // There's a trigger that updates timeUpdated, but Hibernate
                 // won't persist unless something has changed.  Since
@@ -337,6 +729,14 @@ class ProvisionService {
         return provisionResult
     }
 
+    private static Map parseAggregateJson(String uid, String aggregateJson) {
+        Map sorPerson = JsonUtil.convertJsonToMap(aggregateJson)
+        if (sorPerson == null) { // "{}" is considered empty, thus the explicit null check
+            throw new ProvisionServiceException("Couldn't get aggregate JSON for uid $uid")
+        }
+        return sorPerson
+    }
+
     /**
      * Called after person has been rebuilt and saved and the transaction
      * has been fully committed.  Called before an asynchronous downstream
@@ -367,8 +767,20 @@ class ProvisionService {
      * @param eventId Audit event id.
      */
     protected void provision(String uid, Boolean synchronousDownstream, String eventId) {
+        provision(uid, synchronousDownstream, eventId, null, null)
+    }
+
+    /**
+     * @param prefetched If not null, the aggregate JSON that was loaded
+     *        ahead of time for the uid.
+     * @param downstreamBatch If not null and synchronousDownstream is
+     *        false, the downstream notification for the uid is added to
+     *        this batch instead of being sent right away.
+     * @see #provision(String, Boolean, String)
+     */
+    protected void provision(String uid, Boolean synchronousDownstream, String eventId, PrefetchedAggregateJson prefetched, DownstreamNotificationBatch downstreamBatch) {
         log.debug("PROFILE: provision(): ENTER")
-        ProvisionResult provisionResult = provisionInNewTransaction(uid, synchronousDownstream, eventId)
+        ProvisionResult provisionResult = (prefetched ? provisionInNewTransaction(uid, synchronousDownstream, eventId, prefetched) : provisionInNewTransaction(uid, synchronousDownstream, eventId))
         try {
             if (provisionResult.stopProcessing) {
                 // some kind of caught error happened above where we just
@@ -376,12 +788,17 @@ class ProvisionService {
                 return
             }
 
-            afterPersonRebuiltAndSavedPostTransactionPreDownstream(uid, provisionResult)
+            if (!provisionResult.alreadyProvisioned) {
+                afterPersonRebuiltAndSavedPostTransactionPreDownstream(uid, provisionResult)
+            }
 
             // Request downstream provisioning when synchronously
             // provisioning a uid all the way through
             if (synchronousDownstream) {
                 downstreamProvisioningService.provisionUidSynchronously(eventId, uid)
+            } else if (downstreamBatch) {
+                // The notification is sent with the next batch.
+                downstreamBatch.add(uid)
             } else {
                 // Notify the downstream provisioning service of an update
                 // by placing a message in its queue.
@@ -419,9 +836,17 @@ class ProvisionService {
     }
 
     protected void toProvisionUid(String uid, Boolean synchronousDownstream, String eventId) {
+        toProvisionUid(uid, synchronousDownstream, eventId, null, null)
+    }
+
+    protected void toProvisionUid(String uid, Boolean synchronousDownstream, String eventId, PrefetchedAggregateJson prefetched, DownstreamNotificationBatch downstreamBatch) {
         try {
             log.debug("PROFILE: PROVISION JSON PERSON: START call provision")
-            provision(uid, synchronousDownstream, eventId)
+            if (prefetched || downstreamBatch) {
+                provision(uid, synchronousDownstream, eventId, prefetched, downstreamBatch)
+            } else {
+                provision(uid, synchronousDownstream, eventId)
+            }
             log.debug("PROFILE: PROVISION JSON PERSON: END call provision")
         } catch (Exception e) {
             log.error("provision failed for uid $uid", e)
@@ -461,20 +886,96 @@ class ProvisionService {
 
     @Transactional(propagation = Propagation.NEVER)
     int requeueUidsNeedingReprovision() {
+        return requeueUidsNeedingReprovision(new RequeueJob())
+    }
+
+    /**
+     * Send all the uids in PersonSorObjectsToProvisionView to the bulk
+     * provisioning queue.
+     *
+     * The uids are streamed from the view with a server-side cursor and
+     * sent in transacted batches by a small pool of sender threads.  At
+     * most maxInFlightBatches batches wait to be sent; beyond that the
+     * reading thread sends the next batch itself, which pauses reading.
+     * If a batch can't be sent, reading stops and the exception is
+     * thrown once the batches in flight are done.
+     *
+     * @param job Receives the progress.
+     * @return The number of uids queued.
+     */
+    @Transactional(propagation = Propagation.NEVER)
+    int requeueUidsNeedingReprovision(RequeueJob job) {
         log.info("Adding all UIDs to provisionUidBulk queue that need to be reprovisioned.")
         String sql = "SELECT uid FROM ${getToProvisionTableName()} ORDER BY uid"
-        List<String> uids = new LinkedList<String>()
-        requiresNewTransactionTemplate.executeWithoutResult { txStatus ->
-            def regSql = new Sql(JpaTransactionTemplate.getConnection(txStatus))
-            regSql.eachRow(sql) { row ->
-                uids << row.getString("uid")
+        RequeueProperties config = provisioningConfigProperties?.requeue ?: new RequeueProperties()
+        int batchSize = Math.max(config.batchSize, 1)
+        int senderThreads = Math.max(config.senderThreads, 1)
+        AtomicReference<Exception> sendFailure = new AtomicReference<Exception>()
+        AtomicInteger threadNumber = new AtomicInteger()
+        ThreadPoolExecutor sender = new ThreadPoolExecutor(
+                senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(config.maxInFlightBatches, 1)),
+                { Runnable r ->
+                    Thread t = new Thread(r, "requeueSender-${threadNumber.incrementAndGet()}".toString())
+                    t.daemon = true
+                    return t
+                } as ThreadFactory,
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        )
+        try {
+            requiresNewTransactionTemplate.executeWithoutResult { txStatus ->
+                def regSql = new Sql(JpaTransactionTemplate.getConnection(txStatus))
+                regSql.withStatement { Statement stmt -> stmt.fetchSize = config.fetchSize }
+                List<String> batch = new ArrayList<String>(batchSize)
+                regSql.eachRow(sql) { row ->
+                    if (sendFailure.get()) {
+                        throw new ProvisionServiceException("Stopped requeueing because a batch couldn't be sent", sendFailure.get())
+                    }
+                    batch.add(row.getString("uid"))
+                    job.readCount.incrementAndGet()
+                    if (batch.size() >= batchSize) {
+                        submitRequeueBatch(sender, batch, job, sendFailure)
+                        batch = new ArrayList<String>(batchSize)
+                    }
+                }
+                if (batch) {
+                    submitRequeueBatch(sender, batch, job, sendFailure)
+                }
+            }
+            sender.shutdown()
+            sender.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS)
+            if (sendFailure.get()) {
+                throw new ProvisionServiceException("Couldn't send all the uids to the provisionUidBulk queue", sendFailure.get())
             }
         }
-        uids.each { uid ->
-            sendToBulkProvisionUidQueue(uid)
+        finally {
+            sender.shutdownNow()
         }
-        log.info("Added ${uids.size()} UIDs to provisionUid queue")
-        return uids.size()
+        log.info("Added ${job.queuedCount.get()} UIDs to provisionUid queue")
+        return job.queuedCount.get()
+    }
+
+    private void submitRequeueBatch(ThreadPoolExecutor sender, List<String> batch, RequeueJob job, AtomicReference<Exception> sendFailure) {
+        sender.execute({
+            if (sendFailure.get()) {
+                return
+            }
+            try {
+                sendToBulkProvisionUidQueue(batch)
+                int queuedCount = job.queuedCount.addAndGet(batch.size())
+                if (queuedCount.intdiv(100000) != (queuedCount - batch.size()).intdiv(100000)) {
+                    log.info("Added $queuedCount UIDs to provisionUidBulk queue so far")
+                }
+            }
+            catch (Exception e) {
+                log.error("Couldn't send ${batch.size()} uids to the provisionUidBulk queue, starting with uid=${batch.first()}", e)
+                sendFailure.compareAndSet(null, e)
+            }
+        } as Runnable)
+    }
+
+    protected void sendToBulkProvisionUidQueue(List<String> uids) {
+        provisioningJmsClientService.provisionUidsBulk(provisionJmsTemplate, uids)
     }
 
     protected void sendToBulkProvisionUidQueue(String uid) {
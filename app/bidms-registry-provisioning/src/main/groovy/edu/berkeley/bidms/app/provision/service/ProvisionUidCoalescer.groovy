@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.provision.service
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.Condition
+import java.util.concurrent.locks.ReentrantLock
+import java.util.function.Consumer
+
+/**
+ * Coalesces uids to provision.  A submitted uid waits for windowMillis
+ * before it is provisioned, and submitting it again while it's waiting has
+ * no effect, so bursts of messages for the same uid provision it once.
+ *
+ * The uids are provisioned by a fixed number of worker threads.  A uid is
+ * never provisioned by two workers at the same time: if a uid is submitted
+ * while it's being provisioned, it waits again and is provisioned once
+ * more after the current provisioning has finished, since it may have
+ * changed after the current provisioning read it.
+ *
+ * At most maxPending uids wait at a time.  Beyond that,
+ * {@link #submit(String)} blocks, which leaves the remaining messages in
+ * the queue.
+ *
+ * Waiting uids are only kept in memory.  {@link #stop()} returns the uids
+ * that were still waiting, so that the caller can have them provisioned
+ * later: ProvisionUidConsumingService marks them to be force-provisioned.
+ */
+@CompileStatic
+@Slf4j
+class ProvisionUidCoalescer {
+    private final Consumer<String> provisioner
+    private final long windowMillis
+    private final int workerCount
+    private final int maxPending
+
+    private final ReentrantLock lock = new ReentrantLock()
+    private final Condition notFull = lock.newCondition()
+    private final Condition changed = lock.newCondition()
+    // guarded by lock: uid -> time it's due to be provisioned, in due order
+    private final LinkedHashMap<String, Long> pending = new LinkedHashMap<String, Long>()
+    // guarded by lock: uids being provisioned
+    private final Set<String> inFlight = new HashSet<String>()
+    private boolean running
+
+    private final List<Thread> workers = []
+    private final AtomicLong submittedCount = new AtomicLong()
+    private final AtomicLong coalescedCount = new AtomicLong()
+
+    ProvisionUidCoalescer(Consumer<String> provisioner, long windowMillis, int workerCount, int maxPending) {
+        this.provisioner = provisioner
+        this.windowMillis = Math.max(windowMillis, 0L)
+        this.workerCount = Math.max(workerCount, 1)
+        this.maxPending = Math.max(maxPending, 1)
+    }
+
+    void start() {
+        lock.lock()
+        try {
+            running = true
+        }
+        finally {
+            lock.unlock()
+        }
+        for (int i = 1; i <= workerCount; i++) {
+            Thread t = new Thread({ work() } as Runnable, "provisionUidCoalescer-$i".toString())
+            t.daemon = true
+            workers.add(t)
+            t.start()
+        }
+    }
+
+    /**
+     * Stop the workers.  Uids that are still waiting are not provisioned.
+     *
+     * @return The uids that were still waiting.
+     */
+    List<String> stop() {
+        List<String> dropped
+        lock.lock()
+        try {
+            running = false
+            dropped = new ArrayList<String>(pending.keySet())
+            if (dropped) {
+                log.info("Stopping with ${dropped.size()} uids not provisioned")
+            }
+            pending.clear()
+            notFull.signalAll()
+            changed.signalAll()
+        }
+        finally {
+            lock.unlock()
+        }
+        workers.each { Thread t -> t.interrupt() }
+        workers.clear()
+        return dropped
+    }
+
+    /**
+     * Queue a uid to be provisioned once the window has passed.  Has no
+     * effect if the uid is already waiting.
+     *
+     * @throws IllegalStateException If the coalescer has been stopped.
+     */
+    void submit(String uid) {
+        submittedCount.incrementAndGet()
+        lock.lock()
+        try {
+            if (pending.containsKey(uid)) {
+                coalescedCount.incrementAndGet()
+                return
+            }
+            while (running && pending.size() >= maxPending) {
+                notFull.await()
+            }
+            if (!running) {
+                throw new IllegalStateException("The provisionUid coalescer is not running")
+            }
+            pending.put(uid, System.currentTimeMillis() + windowMillis)
+            changed.signal()
+        }
+        finally {
+            lock.unlock()
+        }
+    }
+
+    /**
+     * @return The number of uids submitted and the number of those that
+     *         were merged into a uid that was already waiting.
+     */
+    Map<String, Long> getStats() {
+        return [submittedCount: submittedCount.get(), coalescedCount: coalescedCount.get()]
+    }
+
+    private void work() {
+        String uid
+        while ((uid = take()) != null) {
+            try {
+                provisioner.accept(uid)
+            }
+            catch (Exception e) {
+                log.error("Provisioning of uid $uid threw an exception", e)
+            }
+            finally {
+                finished(uid)
+            }
+        }
+    }
+
+    /**
+     * @return The next due uid that isn't being provisioned, which is then
+     *         marked as being provisioned, or null once stopped.
+     */
+    private String take() {
+        lock.lock()
+        try {
+            while (running) {
+                long now = System.currentTimeMillis()
+                Long nextDueTime = null
+                Iterator<Map.Entry<String, Long>> it = pending.entrySet().iterator()
+                while (it.hasNext()) {
+                    Map.Entry<String, Long> entry = it.next()
+                    if (entry.value > now) {
+                        // the rest are due later
+                        nextDueTime = entry.value
+                        break
+                    }
+                    if (!inFlight.contains(entry.key)) {
+                        it.remove()
+                        inFlight.add(entry.key)
+                        notFull.signal()
+                        return entry.key
+                    }
+                }
+                if (nextDueTime != null) {
+                    changed.await(nextDueTime - now, TimeUnit.MILLISECONDS)
+                } else {
+                    changed.await()
+                }
+            }
+            return null
+        }
+        catch (InterruptedException ignored) {
+            return null
+        }
+        finally {
+            lock.unlock()
+        }
+    }
+
+    private void finished(String uid) {
+        lock.lock()
+        try {
+            inFlight.remove(uid)
+            // the uid may have been submitted again while it was in flight
+            changed.signalAll()
+        }
+        finally {
+            lock.unlock()
+        }
+    }
+}
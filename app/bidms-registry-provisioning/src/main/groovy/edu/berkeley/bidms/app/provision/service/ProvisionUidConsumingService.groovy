@@ -26,10 +26,15 @@
  */
 package edu.berkeley.bidms.app.provision.service
 
+import edu.berkeley.bidms.app.jmslistener.metrics.ProvisioningMetrics
+import edu.berkeley.bidms.app.provision.config.properties.ProvisionUidCoalescingProperties
+import edu.berkeley.bidms.app.provision.config.properties.ProvisioningConfigProperties
 import edu.berkeley.bidms.logging.AuditUtil
 import groovy.util.logging.Slf4j
 import jakarta.jms.MapMessage
 import jakarta.jms.Message
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.beans.factory.InitializingBean
 import org.springframework.jms.annotation.JmsListener
 import org.springframework.stereotype.Service
 import org.springframework.transaction.annotation.Propagation
@@ -37,34 +42,72 @@ import org.springframework.transaction.annotation.Transactional
 
 @Slf4j
 @Service
-class ProvisionUidConsumingService {
+class ProvisionUidConsumingService implements InitializingBean, DisposableBean {
     ProvisionService provisionService
+    ProvisioningConfigProperties provisioningConfigProperties
+    ProvisioningMetrics provisioningMetrics
 
-    private static final Object lock = new Object()
-    private static volatile long counter = 0
-    private static volatile long totalProcessingTime = 0
-    private static volatile long startBatchTime = 0
-    private static volatile long batchCount = 0
-    private static volatile long totalBatchTimeSeconds = 0
-    private static final int batchSize = 1000
+    // metrics source tags
+    static final String PROVISION_UID_SOURCE = "provisionUid"
+    static final String PROVISION_UID_BULK_SOURCE = "provisionUidBulk"
+    static final String COALESCED_SOURCE = "provisionUidCoalesced"
 
-    ProvisionUidConsumingService(ProvisionService provisionService) {
+    // only set when coalescing is enabled
+    private ProvisionUidCoalescer coalescer
+
+    ProvisionUidConsumingService(ProvisionService provisionService, ProvisioningConfigProperties provisioningConfigProperties, ProvisioningMetrics provisioningMetrics) {
         this.provisionService = provisionService
+        this.provisioningConfigProperties = provisioningConfigProperties
+        this.provisioningMetrics = provisioningMetrics
+    }
+
+    @Override
+    void afterPropertiesSet() {
+        ProvisionUidCoalescingProperties config = provisioningConfigProperties.provisionUidCoalescing
+        if (config.enabled) {
+            log.info("Coalescing provisionUid messages with windowMillis=${config.windowMillis}, workers=${config.workers}, maxPending=${config.maxPending}")
+            coalescer = new ProvisionUidCoalescer({ String uid -> provision(uid, COALESCED_SOURCE) }, config.windowMillis, config.workers, config.maxPending)
+            coalescer.start()
+        }
+    }
+
+    @Override
+    void destroy() {
+        List<String> dropped = coalescer?.stop()
+        if (dropped) {
+            // Their messages have already been acknowledged.  Uids whose
+            // aggregate JSON changed are picked up by the next bulk
+            // provisioning run anyway, but a uid could also have been sent
+            // to be reprovisioned as is.
+            try {
+                provisionService.markForceProvision(dropped)
+            }
+            catch (Exception e) {
+                log.error("Failed to mark the ${dropped.size()} uids the provisionUid coalescer didn't get to for force provisioning: $dropped", e)
+            }
+        }
+    }
+
+    /**
+     * @return The coalescing counts, or null if coalescing isn't enabled.
+     */
+    Map<String, Long> getCoalescingStats() {
+        return coalescer?.stats
     }
 
     @Transactional(propagation = Propagation.NEVER)
     @JmsListener(destination = '${bidms.jms.provision.provision-uid.queue-name}', containerFactory = '${bidms.provision.jms.provision.jms-listener-container-factory-bean-name}')
     void receiveProvisionUidMessage(Message msg) {
-        handleMessage(msg)
+        handleMessage(msg, PROVISION_UID_SOURCE)
     }
 
     @Transactional(propagation = Propagation.NEVER)
     @JmsListener(destination = '${bidms.jms.provision.provision-uid-bulk.queue-name}', containerFactory = '${bidms.provision.jms.provision.jms-listener-container-factory-bean-name}')
     void receiveProvisionUidBulkMessage(Message msg) {
-        handleMessage(msg)
+        handleMessage(msg, PROVISION_UID_BULK_SOURCE)
     }
 
-    void handleMessage(Message msg) {
+    void handleMessage(Message msg, String source) {
         try {
             if (!(msg instanceof MapMessage)) {
                 throw new RuntimeException("JMS Message is not of expected MapMessage type")
@@ -83,26 +126,16 @@ class ProvisionUidConsumingService {
                 return
             }
 
-            long start = new Date().time
-            provisionService.provisionUid(uid, false, AuditUtil.createEventId())
-
-            synchronized (lock) {
-                totalProcessingTime += new Date().time - start
-                if (counter > 0 && (counter % batchSize == 0)) {
-                    long endBatchTime = totalProcessingTime
-                    batchCount++
-                    long batchTimeSeconds = Math.round((endBatchTime - startBatchTime) / 1000)
-                    totalBatchTimeSeconds += batchTimeSeconds
-                    log.info("batch $batchCount: batchSize=" + batchSize +
-                            ", batchTime=" + batchTimeSeconds +
-                            "s, avgBatchTime=" + Math.round(totalBatchTimeSeconds / batchCount) + "s" +
-                            ", " + getMemoryUsage())
-                    startBatchTime = totalProcessingTime
-                }
-                counter++
+            if (coalescer) {
+                // Provisioned by a coalescer worker once the window has
+                // passed, after this message has been acknowledged.  The
+                // uids the workers don't get to are marked to be
+                // force-provisioned when the coalescer is stopped.
+                coalescer.submit(uid)
+                return
             }
 
-            log.debug("provisioning of $uid successful")
+            provision(uid, source)
         }
         catch (Exception e) {
             log.error("provisionUid consumer threw an exception", e)
@@ -114,16 +147,17 @@ class ProvisionUidConsumingService {
         }
     }
 
-    private static final long roundMB(long val) {
-        return Math.round(val / 1000000);
-    }
+    protected void provision(String uid, String source) {
+        long start = provisioningMetrics.start()
+        try {
+            provisionService.provisionUid(uid, false, AuditUtil.createEventId())
+        }
+        catch (Exception e) {
+            provisioningMetrics.record(source, null, ProvisioningMetrics.Outcome.FAILED, start)
+            throw e
+        }
+        provisioningMetrics.record(source, null, ProvisioningMetrics.Outcome.SUCCEEDED, start)
 
-    static String getMemoryUsage() {
-        Runtime rt = Runtime.getRuntime();
-        long usedMem = rt.totalMemory() - rt.freeMemory();
-        return ("JVM Memory: used=" + roundMB(usedMem)
-                + "M, total=" + roundMB(rt.totalMemory())
-                + "M, max=" + roundMB(rt.maxMemory())
-                + "M, free=" + roundMB(rt.freeMemory()) + "M");
+        log.debug("provisioning of $uid successful")
     }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.provision.service
+
+import groovy.transform.CompileStatic
+
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * The progress of requeueing the uids that need reprovisioning to the bulk
+ * provisioning queue.
+ */
+@CompileStatic
+class RequeueJob {
+    static enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    final String id
+    final Date startTime = new Date()
+    volatile Date endTime
+    volatile Status status = Status.RUNNING
+    volatile String errorMessage
+
+    /**
+     * The number of uids read from PersonSorObjectsToProvisionView so far.
+     */
+    final AtomicInteger readCount = new AtomicInteger()
+
+    /**
+     * The number of uids sent to the bulk provisioning queue so far.
+     */
+    final AtomicInteger queuedCount = new AtomicInteger()
+
+    RequeueJob() {
+        this(UUID.randomUUID().toString())
+    }
+
+    RequeueJob(String id) {
+        this.id = id
+    }
+
+    void completed() {
+        endTime = new Date()
+        status = Status.COMPLETED
+    }
+
+    void failed(Exception e) {
+        errorMessage = e.message
+        endTime = new Date()
+        status = Status.FAILED
+    }
+
+    Map<String, ?> toMap() {
+        Map<String, ?> map = [
+                id         : id,
+                status     : status.name(),
+                startTime  : startTime,
+                readCount  : readCount.get(),
+                queuedCount: queuedCount.get()
+        ] as Map<String, ?>
+        if (endTime) {
+            map.endTime = endTime
+        }
+        if (errorMessage) {
+            map.errorMessage = errorMessage
+        }
+        return map
+    }
+}
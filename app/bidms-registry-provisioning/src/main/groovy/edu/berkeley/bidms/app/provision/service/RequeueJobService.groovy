@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.provision.service
+
+import edu.berkeley.bidms.app.provision.config.properties.ProvisioningConfigProperties
+import edu.berkeley.bidms.app.provision.config.properties.RequeueProperties
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.stereotype.Service
+
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadFactory
+
+/**
+ * Runs {@link ProvisionService#requeueUidsNeedingReprovision(RequeueJob)}
+ * in the background and keeps the status of recent runs, so that callers
+ * don't have to wait on one long request.  Only one requeue job runs at a
+ * time.
+ */
+@CompileStatic
+@Slf4j
+@Service
+class RequeueJobService implements DisposableBean {
+    ProvisionService provisionService
+    ProvisioningConfigProperties provisioningConfigProperties
+
+    // guarded by this, in start order
+    private final Map<String, RequeueJob> jobs = new LinkedHashMap<String, RequeueJob>()
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor({ Runnable r ->
+        Thread t = new Thread(r, "requeueChangedIdentities")
+        t.daemon = true
+        return t
+    } as ThreadFactory)
+
+    RequeueJobService(ProvisionService provisionService, ProvisioningConfigProperties provisioningConfigProperties) {
+        this.provisionService = provisionService
+        this.provisioningConfigProperties = provisioningConfigProperties
+    }
+
+    /**
+     * Start requeueing the uids that need reprovisioning in the
+     * background.
+     *
+     * @return The new job, or the job that's already running.
+     */
+    synchronized RequeueJob start() {
+        RequeueJob running = jobs.values().find { RequeueJob job -> job.status == RequeueJob.Status.RUNNING }
+        if (running) {
+            log.info("Requeue job ${running.id} is already running")
+            return running
+        }
+        RequeueJob job = new RequeueJob()
+        jobs[job.id] = job
+        removeOldJobs()
+        executor.submit({
+            try {
+                provisionService.requeueUidsNeedingReprovision(job)
+                job.completed()
+            }
+            catch (Exception e) {
+                log.error("Requeue job ${job.id} failed", e)
+                job.failed(e)
+            }
+        } as Runnable)
+        return job
+    }
+
+    /**
+     * @return The job with the id, or null if there's no such job or its
+     *         status is no longer kept.
+     */
+    synchronized RequeueJob getJob(String id) {
+        return jobs[id]
+    }
+
+    /**
+     * @return The recent jobs, oldest first.
+     */
+    synchronized List<RequeueJob> getJobs() {
+        return new ArrayList<RequeueJob>(jobs.values())
+    }
+
+    private void removeOldJobs() {
+        RequeueProperties config = provisioningConfigProperties?.requeue ?: new RequeueProperties()
+        int retainedJobs = Math.max(config.retainedJobs, 1)
+        Iterator<RequeueJob> it = jobs.values().iterator()
+        int excess = jobs.size() - retainedJobs
+        while (excess > 0 && it.hasNext()) {
+            if (it.next().status != RequeueJob.Status.RUNNING) {
+                it.remove()
+                excess--
+            }
+        }
+    }
+
+    @Override
+    void destroy() {
+        executor.shutdownNow()
+    }
+}
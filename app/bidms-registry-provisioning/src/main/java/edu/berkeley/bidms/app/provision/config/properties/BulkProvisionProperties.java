@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.provision.config.properties;
+
+public class BulkProvisionProperties {
+    /**
+     * The number of worker threads that bulk provisioning uses.  The uids
+     * to provision are partitioned by uid hash across the workers and
+     * each worker provisions its partition independently.  1 provisions
+     * the uids one at a time in the calling thread.
+     */
+    private int parallelism = 1;
+
+    /**
+     * The maximum number of uids that can be waiting to be provisioned in
+     * each partition.  Paging through PersonSorObjectsToProvisionView
+     * pauses while the partition queue of the next uid is full.
+     */
+    private int partitionQueueCapacity = 1000;
+
+    /**
+     * When greater than 0, bulk provisioning loads the aggregate JSON of
+     * this many uids at a time with one query ahead of provisioning them,
+     * and the JSON is parsed before each uid's provisioning transaction
+     * starts.  The transaction is then only held while the person is
+     * locked, rebuilt and saved.  When 0, each uid's provisioning
+     * transaction loads and parses its own aggregate JSON.
+     */
+    private int prefetchSize;
+
+    /**
+     * When greater than 1, the asynchronous downstream provisioning
+     * notifications of a bulk provisioning run are sent in transacted
+     * batches of up to this many uids per downstream system rather than
+     * one at a time.
+     */
+    private int downstreamBatchSize;
+
+    /**
+     * The longest a downstream notification waits in a partially filled
+     * batch before the batch is sent anyway, in milliseconds.
+     */
+    private long downstreamBatchMaxDelayMillis = 1000;
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getPartitionQueueCapacity() {
+        return partitionQueueCapacity;
+    }
+
+    public void setPartitionQueueCapacity(int partitionQueueCapacity) {
+        this.partitionQueueCapacity = partitionQueueCapacity;
+    }
+
+    public int getPrefetchSize() {
+        return prefetchSize;
+    }
+
+    public void setPrefetchSize(int prefetchSize) {
+        this.prefetchSize = prefetchSize;
+    }
+
+    public int getDownstreamBatchSize() {
+        return downstreamBatchSize;
+    }
+
+    public void setDownstreamBatchSize(int downstreamBatchSize) {
+        this.downstreamBatchSize = downstreamBatchSize;
+    }
+
+    public long getDownstreamBatchMaxDelayMillis() {
+        return downstreamBatchMaxDelayMillis;
+    }
+
+    public void setDownstreamBatchMaxDelayMillis(long downstreamBatchMaxDelayMillis) {
+        this.downstreamBatchMaxDelayMillis = downstreamBatchMaxDelayMillis;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.provision.config.properties;
+
+public class NewUidBatchProperties {
+    /**
+     * The maximum number of sorObjectIds accepted in one batch request or
+     * batch newUid queue message.
+     */
+    private int maxSorObjectIds = 1000;
+
+    /**
+     * The JDBC batch size used when inserting the new Person and
+     * MatchHistory rows and updating the SORObjects of a batch.
+     */
+    private int jdbcBatchSize = 100;
+
+    /**
+     * The number of threads that provision the new uids of a batch once
+     * they have been committed.  The threads are shared by all batches.
+     */
+    private int provisionParallelism = 4;
+
+    public int getMaxSorObjectIds() {
+        return maxSorObjectIds;
+    }
+
+    public void setMaxSorObjectIds(int maxSorObjectIds) {
+        this.maxSorObjectIds = maxSorObjectIds;
+    }
+
+    public int getJdbcBatchSize() {
+        return jdbcBatchSize;
+    }
+
+    public void setJdbcBatchSize(int jdbcBatchSize) {
+        this.jdbcBatchSize = jdbcBatchSize;
+    }
+
+    public int getProvisionParallelism() {
+        return provisionParallelism;
+    }
+
+    public void setProvisionParallelism(int provisionParallelism) {
+        this.provisionParallelism = provisionParallelism;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.provision.config.properties;
+
+public class ProvisionUidCoalescingProperties {
+    /**
+     * When true, uids received from the provisionUid and provisionUidBulk
+     * queues are handed to a pool of provisioning workers that provisions
+     * each distinct uid once per window, rather than being provisioned by
+     * the listener thread that received them.  The message is
+     * acknowledged once the uid is waiting.  Uids still waiting at
+     * shutdown are marked to be force-provisioned, so that the next bulk
+     * provisioning run provisions them instead.
+     */
+    private boolean enabled;
+
+    /**
+     * How long a received uid waits before it is provisioned, in
+     * milliseconds.  More messages for the uid received during this time
+     * are merged into it.
+     */
+    private long windowMillis = 500;
+
+    /**
+     * The number of provisioning worker threads.
+     */
+    private int workers = 4;
+
+    /**
+     * The maximum number of uids waiting to be provisioned.  The queue
+     * listeners block while this many uids are waiting.
+     */
+    private int maxPending = 10000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public void setWindowMillis(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    public void setMaxPending(int maxPending) {
+        this.maxPending = maxPending;
+    }
+}
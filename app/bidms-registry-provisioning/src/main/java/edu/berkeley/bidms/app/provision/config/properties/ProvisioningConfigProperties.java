@@ -30,6 +30,7 @@ import edu.berkeley.bidms.app.provision.config.properties.jms.JmsProperties;
 import edu.berkeley.bidms.app.provision.config.properties.job.JobConfigProperties;
 import edu.berkeley.bidms.app.provision.config.properties.rest.RestProperties;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
@@ -49,6 +50,37 @@ public class ProvisioningConfigProperties {
 
     private ProvisioningContextProperties provisioningContext;
 
+    /**
+     * When true, provisioning a uid whose current aggregate JSON hash is
+     * the last provisioned hash, and which isn't marked to be
+     * force-provisioned, doesn't rebuild the person.  Downstream systems
+     * are still notified.  After a change to the provisioning logic, use
+     * the force parameter of /registry-provisioning/provision to rebuild a
+     * uid anyway.
+     */
+    private boolean skipUnchanged = true;
+
+    /**
+     * How many uids to reserve from uid_seq at a time when creating new
+     * uids.  Reserved uids that haven't been assigned when the application
+     * stops are skipped, leaving gaps in the assigned uids.  With the
+     * default of 1, every new uid is a separate nextval.
+     */
+    @Min(1)
+    private int uidBlockSize = 1;
+
+    @NotNull
+    private NewUidBatchProperties newUidBatch = new NewUidBatchProperties();
+
+    @NotNull
+    private BulkProvisionProperties bulkProvision = new BulkProvisionProperties();
+
+    @NotNull
+    private RequeueProperties requeue = new RequeueProperties();
+
+    @NotNull
+    private ProvisionUidCoalescingProperties provisionUidCoalescing = new ProvisionUidCoalescingProperties();
+
     @Valid
     public RestProperties getRest() {
         return rest;
@@ -81,4 +113,56 @@ public class ProvisioningConfigProperties {
     public void setJob(JobConfigProperties job) {
         this.job = job;
     }
+
+    @Valid
+    public NewUidBatchProperties getNewUidBatch() {
+        return newUidBatch;
+    }
+
+    public void setNewUidBatch(NewUidBatchProperties newUidBatch) {
+        this.newUidBatch = newUidBatch;
+    }
+
+    @Valid
+    public BulkProvisionProperties getBulkProvision() {
+        return bulkProvision;
+    }
+
+    public void setBulkProvision(BulkProvisionProperties bulkProvision) {
+        this.bulkProvision = bulkProvision;
+    }
+
+    @Valid
+    public RequeueProperties getRequeue() {
+        return requeue;
+    }
+
+    public void setRequeue(RequeueProperties requeue) {
+        this.requeue = requeue;
+    }
+
+    public boolean isSkipUnchanged() {
+        return skipUnchanged;
+    }
+
+    public void setSkipUnchanged(boolean skipUnchanged) {
+        this.skipUnchanged = skipUnchanged;
+    }
+
+    public int getUidBlockSize() {
+        return uidBlockSize;
+    }
+
+    public void setUidBlockSize(int uidBlockSize) {
+        this.uidBlockSize = uidBlockSize;
+    }
+
+    @Valid
+    public ProvisionUidCoalescingProperties getProvisionUidCoalescing() {
+        return provisionUidCoalescing;
+    }
+
+    public void setProvisionUidCoalescing(ProvisionUidCoalescingProperties provisionUidCoalescing) {
+        this.provisionUidCoalescing = provisionUidCoalescing;
+    }
 }
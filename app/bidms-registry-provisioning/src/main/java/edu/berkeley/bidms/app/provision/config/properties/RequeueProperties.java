@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.provision.config.properties;
+
+public class RequeueProperties {
+    /**
+     * The JDBC fetch size used to stream the uids out of
+     * PersonSorObjectsToProvisionView when requeueing changed identities.
+     */
+    private int fetchSize = 1000;
+
+    /**
+     * The number of uids sent to the bulk provisioning queue in one
+     * transacted JMS batch.
+     */
+    private int batchSize = 500;
+
+    /**
+     * The number of batches that may be waiting to be sent.  Reading from
+     * the view pauses while this many batches are waiting.
+     */
+    private int maxInFlightBatches = 4;
+
+    /**
+     * The number of threads that send batches to the bulk provisioning
+     * queue.
+     */
+    private int senderThreads = 2;
+
+    /**
+     * The number of finished requeue jobs whose status is kept.
+     */
+    private int retainedJobs = 10;
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getMaxInFlightBatches() {
+        return maxInFlightBatches;
+    }
+
+    public void setMaxInFlightBatches(int maxInFlightBatches) {
+        this.maxInFlightBatches = maxInFlightBatches;
+    }
+
+    public int getSenderThreads() {
+        return senderThreads;
+    }
+
+    public void setSenderThreads(int senderThreads) {
+        this.senderThreads = senderThreads;
+    }
+
+    public int getRetainedJobs() {
+        return retainedJobs;
+    }
+
+    public void setRetainedJobs(int retainedJobs) {
+        this.retainedJobs = retainedJobs;
+    }
+}
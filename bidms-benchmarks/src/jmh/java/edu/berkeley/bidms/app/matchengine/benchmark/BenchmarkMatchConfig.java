@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchengine.benchmark;
+
+import edu.berkeley.bidms.app.matchengine.config.MatchConfig;
+import edu.berkeley.bidms.app.matchengine.config.MatchConfigFactoryBean;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Loads the match rules that the benchmarks run.  These are the rules of
+ * the match engine integration tests, so they only use the match types
+ * that H2 supports.
+ */
+final class BenchmarkMatchConfig {
+    static final String RESOURCE = "/TestMatchConfig.groovy";
+
+    private BenchmarkMatchConfig() {
+    }
+
+    /**
+     * @return the parsed and compiled match config, the same way {@link
+     * MatchConfigFactoryBean} does it at startup
+     */
+    static MatchConfig load() {
+        String script;
+        try (InputStream is = BenchmarkMatchConfig.class.getResourceAsStream(RESOURCE)) {
+            if (is == null) {
+                throw new IllegalStateException(RESOURCE + " is not on the classpath");
+            }
+            script = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        MatchConfig config = MatchConfigFactoryBean.parseConfig(script);
+        config.compile();
+        return config;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchengine.benchmark;
+
+import edu.berkeley.bidms.app.matchengine.config.MatchConfig;
+import edu.berkeley.bidms.app.matchengine.config.properties.MatchEngineConfigProperties;
+import edu.berkeley.bidms.app.matchengine.service.DatabaseService;
+import edu.berkeley.bidms.app.matchengine.service.MatchService;
+import edu.berkeley.bidms.app.matchengine.service.RowMapperService;
+import edu.berkeley.bidms.app.matchengine.service.SqlService;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the three tier search of {@link MatchService#findCandidates(Map)}
+ * against an embedded H2 MatchView seeded with synthetic people.  The
+ * result cache and the speculative search are off, so every call runs the
+ * rules in SQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FindCandidatesBenchmark {
+
+    /**
+     * The number of MatchView rows.
+     */
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private static final int INPUTS = 1024;
+
+    private JdbcConnectionPool dataSource;
+    private ExecutorService searchExecutor;
+    private MatchService matchService;
+
+    private Map<String, Object>[] canonicalInputs;
+    private Map<String, Object>[] potentialInputs;
+    private Map<String, Object>[] noMatchInputs;
+    private int next;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setup() throws SQLException {
+        int people = rows / SyntheticPeople.ROWS_PER_PERSON;
+        // pooled like the data source of the match engine
+        dataSource = JdbcConnectionPool.create("jdbc:h2:mem:matchview" + rows + ";DB_CLOSE_DELAY=-1", "sa", "");
+        try (Connection connection = dataSource.getConnection()) {
+            SyntheticPeople.createAndSeed(connection, people);
+        }
+
+        MatchConfig matchConfig = BenchmarkMatchConfig.load();
+        MatchEngineConfigProperties properties = new MatchEngineConfigProperties();
+        SqlService sqlService = new SqlService(dataSource);
+        DatabaseService databaseService = new DatabaseService(
+                sqlService,
+                new RowMapperService(matchConfig),
+                matchConfig,
+                properties
+        );
+        searchExecutor = Executors.newCachedThreadPool();
+        matchService = new MatchService(databaseService, properties, searchExecutor);
+
+        Random random = new Random(people);
+        canonicalInputs = new Map[INPUTS];
+        potentialInputs = new Map[INPUTS];
+        noMatchInputs = new Map[INPUTS];
+        for (int j = 0; j < INPUTS; j++) {
+            int i = random.nextInt(people);
+            // same name and date of birth
+            canonicalInputs[j] = SyntheticPeople.matchInput(i);
+            // same surname, email and phone number, but another date of
+            // birth and no identifiers, so only potential rules match
+            potentialInputs[j] = SyntheticPeople.matchInput(i, SyntheticPeople.surName(i), SyntheticPeople.dateOfBirth(i).plusDays(1));
+            potentialInputs[j].remove("identifiers");
+            // a surname no one has, so all three tiers are searched
+            noMatchInputs[j] = SyntheticPeople.matchInput(i, "Nobody" + i, SyntheticPeople.dateOfBirth(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        searchExecutor.shutdownNow();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        } finally {
+            dataSource.dispose();
+        }
+    }
+
+    private int nextInput() {
+        next = (next + 1) % INPUTS;
+        return next;
+    }
+
+    @Benchmark
+    public Object canonicalMatch() {
+        return matchService.findCandidates(canonicalInputs[nextInput()]);
+    }
+
+    @Benchmark
+    public Object potentialMatch() {
+        return matchService.findCandidates(potentialInputs[nextInput()]);
+    }
+
+    @Benchmark
+    public Object noMatch() {
+        return matchService.findCandidates(noMatchInputs[nextInput()]);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchengine.benchmark;
+
+import edu.berkeley.bidms.app.matchengine.ConfidenceType;
+import edu.berkeley.bidms.app.matchengine.SearchResult;
+import edu.berkeley.bidms.app.matchengine.config.MatchConfig;
+import edu.berkeley.bidms.app.matchengine.config.MatchRulePlan;
+import edu.berkeley.bidms.app.matchengine.service.RowMapperService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks mapping the rows that the canonical rules found to records.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RowMapperBenchmark {
+
+    /**
+     * The number of people each rule found.  Half of the people are found
+     * by every rule.
+     */
+    @Param({"1", "10", "100"})
+    public int peoplePerRule;
+
+    private RowMapperService rowMapperService;
+    private List<SearchResult> searchResults;
+    private Map<String, Object> matchInput;
+
+    @Setup
+    public void setup() {
+        MatchConfig matchConfig = BenchmarkMatchConfig.load();
+        rowMapperService = new RowMapperService(matchConfig);
+        matchInput = SyntheticPeople.matchInput(0);
+
+        searchResults = new ArrayList<>();
+        List<MatchRulePlan> rulePlans = matchConfig.getRulePlans(ConfidenceType.CANONICAL);
+        for (int r = 0; r < rulePlans.size(); r++) {
+            Set<String> referenceIds = new LinkedHashSet<>();
+            for (int p = 0; p < peoplePerRule; p++) {
+                // half of the people are shared between the rules
+                int person = p % 2 == 0 ? p : r * peoplePerRule + p;
+                referenceIds.add(SyntheticPeople.uid(person));
+            }
+            searchResults.add(new SearchResult(rulePlans.get(r).getRuleName(), referenceIds));
+        }
+    }
+
+    @Benchmark
+    public Object mapDataRowsToRecords() {
+        return rowMapperService.mapDataRowsToRecords(searchResults, ConfidenceType.CANONICAL, matchInput);
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchengine.benchmark;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deterministic synthetic people for the benchmarks.  Person {@code i}
+ * always has the same attributes, so a match input for a seeded person can
+ * be built without reading the database back.
+ * <p>
+ * Every third person shares a surname and the date of birth cycles every
+ * 20000 people, so the name and date of birth rules hit one person while
+ * the surname alone is not selective.  Even people have an employeeId and
+ * odd people have a studentId.
+ */
+final class SyntheticPeople {
+    private static final String[] GIVEN_NAMES = {
+            "James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda", "William", "Elizabeth",
+            "David", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen",
+            "Wei", "Priya", "Jose", "Fatima", "Hiroshi", "Olga", "Ahmed", "Mei", "Carlos", "Aisha"
+    };
+    private static final LocalDate FIRST_BIRTH_DATE = LocalDate.of(1950, 1, 1);
+
+    /**
+     * The number of MatchView rows seeded per person: one for the SOR
+     * identifier and one for the employeeId or studentId.
+     */
+    static final int ROWS_PER_PERSON = 2;
+
+    private SyntheticPeople() {
+    }
+
+    static String uid(int i) {
+        return String.valueOf(10_000_000 + i);
+    }
+
+    static String sorPrimaryKey(int i) {
+        return "SIS" + i;
+    }
+
+    static String givenName(int i) {
+        return GIVEN_NAMES[i % GIVEN_NAMES.length];
+    }
+
+    static String surName(int i) {
+        return "Sur" + Integer.toString(i / 3, 36);
+    }
+
+    static LocalDate dateOfBirth(int i) {
+        return FIRST_BIRTH_DATE.plusDays(i % 20000);
+    }
+
+    static String idType(int i) {
+        return i % 2 == 0 ? "employeeId" : "studentId";
+    }
+
+    static String id(int i) {
+        return (i % 2 == 0 ? "E" : "S") + i;
+    }
+
+    static String emailAddress(int i) {
+        return "person" + i + "@example.edu";
+    }
+
+    static String phoneNumber(int i) {
+        return String.format("510%07d", i);
+    }
+
+    /**
+     * A match input from another SOR for person {@code i}, so it is not an
+     * existing record.
+     *
+     * @param dateOfBirth the date of birth to send, which can differ from
+     *                    the date of birth of the person
+     */
+    static Map<String, Object> matchInput(int i, String surName, LocalDate dateOfBirth) {
+        Map<String, Object> name = new HashMap<>();
+        name.put("type", "official");
+        name.put("givenName", givenName(i));
+        name.put("surName", surName);
+        Map<String, Object> identifier = new HashMap<>();
+        identifier.put("type", idType(i));
+        identifier.put("identifier", id(i));
+
+        Map<String, Object> matchInput = new HashMap<>();
+        matchInput.put("systemOfRecord", "HR");
+        matchInput.put("identifier", "HR" + i);
+        matchInput.put("dateOfBirth", dateOfBirth.toString());
+        matchInput.put("names", new ArrayList<>(List.of(name)));
+        matchInput.put("identifiers", new ArrayList<>(List.of(identifier)));
+        matchInput.put("emailAddresses", new ArrayList<>(List.of(emailAddress(i).toUpperCase(), "other" + i + "@example.com")));
+        matchInput.put("phoneNumbers", new ArrayList<>(List.of(phoneNumber(i))));
+        return matchInput;
+    }
+
+    static Map<String, Object> matchInput(int i) {
+        return matchInput(i, surName(i), dateOfBirth(i));
+    }
+
+    /**
+     * Create the MatchView table and the tables the PartialMatch lookup
+     * reads, with the same columns as the match engine integration tests,
+     * and seed them with {@code people} people.
+     */
+    static void createAndSeed(Connection connection, int people) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE MatchView (
+                      uid               VARCHAR(64) NOT NULL,
+                      personNameType    VARCHAR(64),
+                      personNameSor     VARCHAR(64),
+                      personNameId      BIGINT,
+                      fullName          VARCHAR(255),
+                      givenName         VARCHAR(127),
+                      middleName        VARCHAR(127),
+                      surName           VARCHAR(127),
+                      dobSor            VARCHAR(64),
+                      dobId             BIGINT,
+                      birthDate         DATE,
+                      identifierType    VARCHAR(64) NOT NULL,
+                      identifierSor     VARCHAR(64),
+                      identifierId      BIGINT,
+                      identifier        VARCHAR(64) NOT NULL,
+                      idIsSorPrimaryKey BOOLEAN,
+                      phoneNumber       VARCHAR(64),
+                      emailAddress      VARCHAR(64)
+                    )""");
+            statement.execute("CREATE TABLE SOR (sorId SMALLINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, sorName VARCHAR(64) NOT NULL)");
+            statement.execute("CREATE TABLE SORObject (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, sorId SMALLINT NOT NULL REFERENCES SOR(sorId), sorObjKey VARCHAR(255) NOT NULL, uid VARCHAR(64), isDeleted BOOLEAN NOT NULL DEFAULT false)");
+            statement.execute("CREATE TABLE PartialMatch (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, sorObjectId BIGINT NOT NULL REFERENCES SORObject(id), personUid VARCHAR(64) NOT NULL, isReject BOOLEAN NOT NULL DEFAULT false)");
+        }
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO MatchView (uid, personNameType, personNameSor, givenName, surName, birthDate, identifierType, identifierSor, identifier, idIsSorPrimaryKey, phoneNumber, emailAddress) VALUES(?,?,?,?,?,?,?,?,?,?,?,?)")) {
+            for (int i = 0; i < people; i++) {
+                addRow(insert, i, "sorPrimaryKey", "SIS", sorPrimaryKey(i), true);
+                addRow(insert, i, idType(i), "SIS", id(i), false);
+                if (i % 5000 == 4999) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        // H2 can't index the lower() expressions of the case insensitive
+        // attributes, so those are resolved through the other columns of
+        // a rule, as they would be for a rule without a usable index.
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE INDEX matchview_uid ON MatchView (uid)");
+            statement.execute("CREATE INDEX matchview_identifier ON MatchView (identifier, identifierType)");
+            statement.execute("CREATE INDEX matchview_sor_identifier ON MatchView (identifierSor, identifier)");
+            statement.execute("CREATE INDEX matchview_birthdate ON MatchView (birthDate)");
+            statement.execute("CREATE INDEX matchview_phonenumber ON MatchView (phoneNumber)");
+        }
+    }
+
+    private static void addRow(PreparedStatement insert, int i, String identifierType, String identifierSor, String identifier, boolean isSorPrimaryKey) throws SQLException {
+        insert.setString(1, uid(i));
+        insert.setString(2, "official");
+        insert.setString(3, "SIS");
+        insert.setString(4, givenName(i));
+        insert.setString(5, surName(i));
+        insert.setDate(6, Date.valueOf(dateOfBirth(i)));
+        insert.setString(7, identifierType);
+        insert.setString(8, identifierSor);
+        insert.setString(9, identifier);
+        insert.setBoolean(10, isSorPrimaryKey);
+        insert.setString(11, phoneNumber(i));
+        insert.setString(12, emailAddress(i));
+        insert.addBatch();
+    }
+}
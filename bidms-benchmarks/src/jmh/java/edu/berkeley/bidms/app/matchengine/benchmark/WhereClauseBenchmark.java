@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.matchengine.benchmark;
+
+import edu.berkeley.bidms.app.matchengine.ConfidenceType;
+import edu.berkeley.bidms.app.matchengine.SearchSet;
+import edu.berkeley.bidms.app.matchengine.config.MatchAttributeConfig;
+import edu.berkeley.bidms.app.matchengine.config.MatchAttributePlan;
+import edu.berkeley.bidms.app.matchengine.config.MatchConfig;
+import edu.berkeley.bidms.app.matchengine.config.MatchRulePlan;
+import edu.berkeley.bidms.app.matchengine.util.AttributeValueResolver;
+import edu.berkeley.bidms.app.matchengine.util.sql.SqlWhereResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the per request work of building the where clauses of the
+ * rules from a match input, without the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WhereClauseBenchmark {
+
+    private List<SearchSet> searchSets;
+    private List<MatchAttributePlan> scalarPlans;
+    private List<String> scalarValues;
+    private List<MatchAttributePlan> listPlans;
+    private List<List<String>> listValues;
+    private List<MatchAttributeConfig> scalarConfigs;
+    private List<MatchAttributeConfig> listConfigs;
+    private Map<String, Object> matchInput;
+
+    @Setup
+    public void setup() {
+        MatchConfig matchConfig = BenchmarkMatchConfig.load();
+        matchInput = SyntheticPeople.matchInput(42);
+
+        Map<String, MatchAttributePlan> plansByName = new LinkedHashMap<>();
+        searchSets = new ArrayList<>();
+        for (ConfidenceType confidenceType : ConfidenceType.values()) {
+            for (MatchRulePlan rulePlan : matchConfig.getRulePlans(confidenceType)) {
+                SearchSet searchSet = new SearchSet();
+                searchSet.setRulePlan(rulePlan);
+                searchSets.add(searchSet);
+                for (MatchAttributePlan attributePlan : rulePlan.getAttributePlans()) {
+                    plansByName.putIfAbsent(attributePlan.getName(), attributePlan);
+                }
+            }
+        }
+
+        scalarPlans = new ArrayList<>();
+        scalarValues = new ArrayList<>();
+        scalarConfigs = new ArrayList<>();
+        listPlans = new ArrayList<>();
+        listValues = new ArrayList<>();
+        listConfigs = new ArrayList<>();
+        for (MatchAttributePlan plan : plansByName.values()) {
+            MatchAttributeConfig config = plan.getConfig();
+            if (plan.isListInput()) {
+                listPlans.add(plan);
+                listValues.add(AttributeValueResolver.getStringAttributeValues(config, matchInput));
+                listConfigs.add(config);
+            } else {
+                scalarPlans.add(plan);
+                scalarValues.add(AttributeValueResolver.getAttributeValue(config, matchInput));
+                scalarConfigs.add(config);
+            }
+        }
+    }
+
+    /**
+     * The where clauses of all the rules of all the tiers for one match
+     * input, which normalizes the input once for all of them.
+     */
+    @Benchmark
+    public void buildWhereClause(Blackhole blackhole) {
+        for (SearchSet searchSet : searchSets) {
+            blackhole.consume(searchSet.buildWhereClause(matchInput));
+        }
+    }
+
+    @Benchmark
+    public void getWhereClause(Blackhole blackhole) {
+        for (int i = 0; i < scalarPlans.size(); i++) {
+            blackhole.consume(SqlWhereResolver.getWhereClause(scalarPlans.get(i), scalarValues.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void getWhereListClause(Blackhole blackhole) {
+        for (int i = 0; i < listPlans.size(); i++) {
+            blackhole.consume(SqlWhereResolver.getWhereListClause(listPlans.get(i), listValues.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void getAttributeValue(Blackhole blackhole) {
+        for (MatchAttributeConfig config : scalarConfigs) {
+            blackhole.consume(AttributeValueResolver.getAttributeValue(config, matchInput));
+        }
+    }
+
+    @Benchmark
+    public void getStringAttributeValues(Blackhole blackhole) {
+        for (MatchAttributeConfig config : listConfigs) {
+            blackhole.consume(AttributeValueResolver.getStringAttributeValues(config, matchInput));
+        }
+    }
+}
@@ -42,6 +42,13 @@ public class JmsConnectionConfigProperties {
     private Integer maximumRedeliveries;
     private Long initialRedeliveryDelay;
     private Long redeliveryDelay;
+    // Listener container concurrency, as a "lower-upper" range of
+    // consumers.  Defaults to 1-4.
+    private String listenerConcurrency;
+    // When true, the listener consumers run on virtual threads, so a
+    // consumer that is waiting on a blocking REST call doesn't hold a
+    // platform thread.
+    private Boolean listenerVirtualThreads;
 
     public String getTrustStore() {
         return trustStore;
@@ -122,4 +129,20 @@ public class JmsConnectionConfigProperties {
     public void setRedeliveryDelay(Long redeliveryDelay) {
         this.redeliveryDelay = redeliveryDelay;
     }
+
+    public String getListenerConcurrency() {
+        return listenerConcurrency;
+    }
+
+    public void setListenerConcurrency(String listenerConcurrency) {
+        this.listenerConcurrency = listenerConcurrency;
+    }
+
+    public Boolean getListenerVirtualThreads() {
+        return listenerVirtualThreads;
+    }
+
+    public void setListenerVirtualThreads(Boolean listenerVirtualThreads) {
+        this.listenerVirtualThreads = listenerVirtualThreads;
+    }
 }
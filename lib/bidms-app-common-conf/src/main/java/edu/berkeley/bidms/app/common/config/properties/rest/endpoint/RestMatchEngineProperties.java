@@ -32,6 +32,19 @@ public class RestMatchEngineProperties extends AbstractRestServiceProviderProper
     @NotNull
     private RestEndpointConfigProperties person;
 
+    /**
+     * Optional.  When set, registry changes made while matching are
+     * reported to this endpoint so that the match engine can invalidate
+     * its caches.
+     */
+    private RestEndpointConfigProperties changes;
+
+    /**
+     * Optional.  When set, batches of match inputs can be matched with
+     * one request to this endpoint.
+     */
+    private RestEndpointConfigProperties people;
+
     public RestEndpointConfigProperties getPerson() {
         return person;
     }
@@ -39,4 +52,20 @@ public class RestMatchEngineProperties extends AbstractRestServiceProviderProper
     public void setPerson(RestEndpointConfigProperties person) {
         this.person = person;
     }
+
+    public RestEndpointConfigProperties getChanges() {
+        return changes;
+    }
+
+    public void setChanges(RestEndpointConfigProperties changes) {
+        this.changes = changes;
+    }
+
+    public RestEndpointConfigProperties getPeople() {
+        return people;
+    }
+
+    public void setPeople(RestEndpointConfigProperties people) {
+        this.people = people;
+    }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.orm.sequence;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Hands out values of a database sequence from blocks reserved in memory,
+ * so that only one in every {@code blockSize} values costs a round trip
+ * to the database.
+ * <p>
+ * A block is reserved with a single statement that calls {@code nextval}
+ * once per value, so this works with sequences that increment by 1 and
+ * never hands out a value that another client of the sequence could also
+ * be given.
+ * <p>
+ * Values are not handed out in strict sequence order across application
+ * instances, and a reserved block that isn't used up is lost when the
+ * application stops or crashes: those values leave gaps in the sequence
+ * and are never reused.  A value is also lost, as it would be with a
+ * plain {@code nextval}, when the transaction that used it rolls back.
+ * <p>
+ * This class is thread-safe.
+ */
+public class SequenceBlockAllocator {
+    private static final Pattern SEQUENCE_NAME_PATTERN = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+
+    private final String sequenceName;
+    private final int blockSize;
+    private final ArrayDeque<Long> reserved = new ArrayDeque<>();
+    private long blocksReserved;
+
+    /**
+     * @param sequenceName The name of the database sequence.
+     * @param blockSize    How many values to reserve at a time.  With a
+     *                     block size of 1, every value is a
+     *                     {@code nextval}.
+     */
+    public SequenceBlockAllocator(String sequenceName, int blockSize) {
+        if (sequenceName == null || !SEQUENCE_NAME_PATTERN.matcher(sequenceName).matches()) {
+            throw new IllegalArgumentException("Invalid sequence name: " + sequenceName);
+        }
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be at least 1");
+        }
+        this.sequenceName = sequenceName;
+        this.blockSize = blockSize;
+    }
+
+    public String getSequenceName() {
+        return sequenceName;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Get the next value, reserving a new block first if the current one
+     * has been used up.
+     *
+     * @param connection The connection to reserve a new block with, if one
+     *                   is needed.  The reservation doesn't depend on the
+     *                   connection's transaction committing.
+     * @return The next value.
+     * @throws SQLException If a new block couldn't be reserved.
+     */
+    public synchronized long next(Connection connection) throws SQLException {
+        if (reserved.isEmpty()) {
+            reserved.addAll(reserveBlock(connection));
+            blocksReserved++;
+        }
+        return reserved.removeFirst();
+    }
+
+    /**
+     * @return The number of values reserved but not yet handed out.
+     */
+    public synchronized int getRemaining() {
+        return reserved.size();
+    }
+
+    /**
+     * @return The number of blocks reserved since this allocator was
+     * created.
+     */
+    public synchronized long getBlocksReserved() {
+        return blocksReserved;
+    }
+
+    /**
+     * Discard the values reserved but not yet handed out, leaving a gap in
+     * the sequence.
+     */
+    public synchronized void discardRemaining() {
+        reserved.clear();
+    }
+
+    protected List<Long> reserveBlock(Connection connection) throws SQLException {
+        List<Long> values = new ArrayList<>(blockSize);
+        try (PreparedStatement ps = connection.prepareStatement(getReserveBlockSql(connection))) {
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    values.add(rs.getLong(1));
+                }
+            }
+        }
+        if (values.size() != blockSize) {
+            throw new SQLException("Expected " + blockSize + " values from sequence " + sequenceName + " but got " + values.size());
+        }
+        Collections.sort(values);
+        return values;
+    }
+
+    /**
+     * @return The query that returns blockSize new values of the sequence,
+     * one per row.  The default query uses PostgreSQL's
+     * {@code generate_series}; override this for other databases.
+     */
+    protected String getReserveBlockSql(Connection connection) throws SQLException {
+        if (blockSize == 1) {
+            return "SELECT nextval('" + sequenceName + "')";
+        }
+        return "SELECT nextval('" + sequenceName + "') FROM generate_series(1, " + blockSize + ")";
+    }
+}
@@ -37,6 +37,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Objects;
 
@@ -54,25 +55,46 @@ public class DownstreamProvisioningJmsClientService {
      */
     @Transactional(propagation = Propagation.SUPPORTS)
     public void provisionUid(final JmsTemplate jmsTemplate, final String downstreamSystemName, final String uid, final Map<String, ?> headers) {
+        jmsTemplate.send(getProvisionUidQueueName(downstreamSystemName), new MessageCreator() {
+            @Override
+            public Message createMessage(Session session) throws JMSException {
+                return createProvisionUidMessage(jmsTemplate, session, downstreamSystemName, uid, headers);
+            }
+        });
+    }
+
+    /**
+     * Notify that multiple Persons are ready to reprovision to a downstream
+     * system.  One message per uid is sent, the same as {@link
+     * #provisionUid(JmsTemplate, String, String, Map)} sends, but all the
+     * messages are sent with one producer in one transacted session, so
+     * either all of them are delivered or none of them are.
+     */
+    public void provisionUids(final JmsTemplate jmsTemplate, final String downstreamSystemName, final Collection<String> uids, final Map<String, ?> headers) throws JMSException {
+        JmsBatchUtil.sendTransacted(jmsTemplate, getProvisionUidQueueName(downstreamSystemName), uids, (session, uid) ->
+                createProvisionUidMessage(jmsTemplate, session, downstreamSystemName, uid, headers)
+        );
+    }
+
+    private String getProvisionUidQueueName(String downstreamSystemName) {
         JmsEndpointConfigProperties jmsEndpointConfigProperties = bidmsConfigProperties.getJms().getDownstream().getProvisionUidOverrides().get(downstreamSystemName);
         if (jmsEndpointConfigProperties == null) {
             // use default queue
             jmsEndpointConfigProperties = bidmsConfigProperties.getJms().getDownstream().getProvisionUid();
         }
-        jmsTemplate.send(jmsEndpointConfigProperties.getQueueName(), new MessageCreator() {
-            @Override
-            public Message createMessage(Session session) throws JMSException {
-                Message message = Objects.requireNonNull(jmsTemplate.getMessageConverter()).toMessage(
-                        Map.of("downstreamSystemName", downstreamSystemName, "uid", uid),
-                        session
-                );
-                if (headers != null) {
-                    for (Map.Entry<String, ?> entry : headers.entrySet()) {
-                        message.setObjectProperty(entry.getKey(), entry.getValue());
-                    }
-                }
-                return message;
+        return jmsEndpointConfigProperties.getQueueName();
+    }
+
+    private static Message createProvisionUidMessage(JmsTemplate jmsTemplate, Session session, String downstreamSystemName, String uid, Map<String, ?> headers) throws JMSException {
+        Message message = Objects.requireNonNull(jmsTemplate.getMessageConverter()).toMessage(
+                Map.of("downstreamSystemName", downstreamSystemName, "uid", uid),
+                session
+        );
+        if (headers != null) {
+            for (Map.Entry<String, ?> entry : headers.entrySet()) {
+                message.setObjectProperty(entry.getKey(), entry.getValue());
             }
-        });
+        }
+        return message;
     }
 }
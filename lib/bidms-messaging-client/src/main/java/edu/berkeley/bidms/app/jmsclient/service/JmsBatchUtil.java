@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.jmsclient.service;
+
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.Destination;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.JmsUtils;
+
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Sends many messages to one queue with a single producer in one
+ * transacted session, so either all of them are delivered or none of them
+ * are.  The delivery mode, priority and time to live of the JmsTemplate
+ * are applied when its explicit QoS is enabled, the same as for messages
+ * sent through the JmsTemplate.
+ */
+final class JmsBatchUtil {
+    private JmsBatchUtil() {
+    }
+
+    @FunctionalInterface
+    interface BatchMessageCreator<T> {
+        Message createMessage(Session session, T item) throws JMSException;
+    }
+
+    static <T> void sendTransacted(JmsTemplate jmsTemplate, String queueName, Collection<T> items, BatchMessageCreator<T> messageCreator) throws JMSException {
+        if (items.isEmpty()) {
+            return;
+        }
+        ConnectionFactory connectionFactory = Objects.requireNonNull(jmsTemplate.getConnectionFactory());
+        Connection connection = null;
+        Session session = null;
+        MessageProducer producer = null;
+        try {
+            connection = connectionFactory.createConnection();
+            session = connection.createSession(true, Session.SESSION_TRANSACTED);
+            Destination destination = jmsTemplate.getDestinationResolver().resolveDestinationName(session, queueName, jmsTemplate.isPubSubDomain());
+            producer = session.createProducer(destination);
+            for (T item : items) {
+                Message message = messageCreator.createMessage(session, item);
+                if (jmsTemplate.isExplicitQosEnabled()) {
+                    producer.send(message, jmsTemplate.getDeliveryMode(), jmsTemplate.getPriority(), jmsTemplate.getTimeToLive());
+                } else {
+                    producer.send(message);
+                }
+            }
+            session.commit();
+        } catch (JMSException | RuntimeException e) {
+            if (session != null) {
+                JmsUtils.rollbackIfNecessary(session);
+            }
+            throw e;
+        } finally {
+            JmsUtils.closeMessageProducer(producer);
+            JmsUtils.closeSession(session);
+            JmsUtils.closeConnection(connection);
+        }
+    }
+}
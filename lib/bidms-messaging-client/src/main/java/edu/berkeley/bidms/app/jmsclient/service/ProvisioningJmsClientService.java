@@ -28,10 +28,15 @@ package edu.berkeley.bidms.app.jmsclient.service;
 
 import edu.berkeley.bidms.app.common.config.properties.BidmsConfigProperties;
 import edu.berkeley.bidms.app.common.config.properties.jms.endpoint.JmsEndpointConfigProperties;
+import jakarta.jms.JMSException;
 import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.converter.MessageConverter;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 @Service
 public class ProvisioningJmsClientService {
@@ -52,6 +57,18 @@ public class ProvisioningJmsClientService {
         jmsTemplate.convertAndSend(jmsEndpointConfigProperties.getQueueName(), Map.of("uid", uid));
     }
 
+    /**
+     * Send the same messages as {@link #provisionUidBulk(JmsTemplate,
+     * String)} for many uids with one producer in one transacted session.
+     */
+    public void provisionUidsBulk(final JmsTemplate jmsTemplate, final Collection<String> uids) throws JMSException {
+        JmsEndpointConfigProperties jmsEndpointConfigProperties = bidmsConfigProperties.getJms().getProvision().getProvisionUidBulk();
+        final MessageConverter messageConverter = Objects.requireNonNull(jmsTemplate.getMessageConverter());
+        JmsBatchUtil.sendTransacted(jmsTemplate, jmsEndpointConfigProperties.getQueueName(), uids, (session, uid) ->
+                messageConverter.toMessage(Map.of("uid", uid), session)
+        );
+    }
+
     public void newUid(final JmsTemplate jmsTemplate, final long sorObjectId, Boolean synchronousDownstream) {
         JmsEndpointConfigProperties jmsEndpointConfigProperties = bidmsConfigProperties.getJms().getProvision().getNewUid();
         if (synchronousDownstream == null) {
@@ -59,4 +76,17 @@ public class ProvisioningJmsClientService {
         }
         jmsTemplate.convertAndSend(jmsEndpointConfigProperties.getQueueName(), Map.of("sorObjectId", sorObjectId, "synchronousDownstream", synchronousDownstream));
     }
+
+    /**
+     * Send many sorObjectIds to the newUid queue in one message.  The ids
+     * are sent as a comma-separated string in the sorObjectIds entry.
+     */
+    public void newUids(final JmsTemplate jmsTemplate, final Collection<Long> sorObjectIds, Boolean synchronousDownstream) {
+        JmsEndpointConfigProperties jmsEndpointConfigProperties = bidmsConfigProperties.getJms().getProvision().getNewUid();
+        if (synchronousDownstream == null) {
+            synchronousDownstream = Boolean.FALSE;
+        }
+        String joinedSorObjectIds = sorObjectIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        jmsTemplate.convertAndSend(jmsEndpointConfigProperties.getQueueName(), Map.of("sorObjectIds", joinedSorObjectIds, "synchronousDownstream", synchronousDownstream));
+    }
 }
@@ -27,12 +27,14 @@
 package edu.berkeley.bidms.app.jmslistener.config;
 
 import edu.berkeley.bidms.app.common.config.properties.BidmsConfigProperties;
+import edu.berkeley.bidms.app.common.config.properties.JmsConnectionConfigProperties;
 import edu.berkeley.bidms.jms.util.ConnectionFactoryUtil;
 import jakarta.jms.ConnectionFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.jms.autoconfigure.DefaultJmsListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
 import org.springframework.jms.config.JmsListenerContainerFactory;
 
@@ -59,7 +61,13 @@ public class JmsConnectionConfiguration {
     ) {
         DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
         configurer.configure(factory, connectionFactory);
-        factory.setConcurrency("1-4");
+        JmsConnectionConfigProperties jmsConnectionConfigProperties = bidmsConfigProperties.getJmsConnections().get("AMQ");
+        factory.setConcurrency(jmsConnectionConfigProperties.getListenerConcurrency() != null ? jmsConnectionConfigProperties.getListenerConcurrency() : "1-4");
+        if (Boolean.TRUE.equals(jmsConnectionConfigProperties.getListenerVirtualThreads())) {
+            SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("amqJmsListener-");
+            taskExecutor.setVirtualThreads(true);
+            factory.setTaskExecutor(taskExecutor);
+        }
         factory.setReceiveTimeout(30000L);
         return factory;
     }
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.jmslistener.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records how long provisioning takes, per source (such as the queue a
+ * message was consumed from), per downstream system and per outcome, as
+ * the {@value #TIMER_NAME} Micrometer timer.  With Spring Boot Actuator
+ * the timers are exported with their rates and 50th, 95th and 99th
+ * percentiles.
+ * <p>
+ * Recording doesn't take any locks: the timers are looked up in a
+ * concurrent map and Micrometer records into lock-free histograms.  A
+ * summary of each timer is also logged every {@value #LOG_INTERVAL}
+ * recordings.
+ */
+@Component
+public class ProvisioningMetrics {
+    private static final Logger log = LoggerFactory.getLogger(ProvisioningMetrics.class);
+
+    public static final String TIMER_NAME = "bidms.provisioning";
+    static final long LOG_INTERVAL = 1000;
+
+    public enum Outcome {
+        /**
+         * Provisioning modified the target.
+         */
+        CHANGED,
+        /**
+         * Provisioning found the target already up to date.
+         */
+        UNCHANGED,
+        /**
+         * Provisioning completed, without telling whether anything
+         * changed.
+         */
+        SUCCEEDED,
+        FAILED;
+
+        String getTagValue() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private record Key(String source, String system, Outcome outcome) {
+    }
+
+    private record KeyMeters(Timer timer, AtomicLong count) {
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<Key, KeyMeters> meters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ProvisioningMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this(meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    public ProvisioningMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @return The start time to pass to {@link #record(String, String,
+     * Outcome, long)}.
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record one provisioning.
+     *
+     * @param source      Where the provisioning came from, such as the
+     *                    queue the message was consumed from.
+     * @param system      The downstream system provisioned to, or null.
+     * @param outcome     The outcome.
+     * @param startNanos  The value {@link #start()} returned when the
+     *                    provisioning started.
+     */
+    public void record(String source, String system, Outcome outcome, long startNanos) {
+        KeyMeters keyMeters = meters.computeIfAbsent(new Key(source, system, outcome), this::register);
+        keyMeters.timer().record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        long count = keyMeters.count().incrementAndGet();
+        if (count % LOG_INTERVAL == 0 && log.isInfoEnabled()) {
+            logSummary(source, system, outcome, count, keyMeters.timer());
+        }
+    }
+
+    private KeyMeters register(Key key) {
+        Timer timer = Timer.builder(TIMER_NAME)
+                .description("Time taken to provision a uid")
+                .tag("source", key.source())
+                .tag("system", key.system() != null ? key.system() : "none")
+                .tag("outcome", key.outcome().getTagValue())
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        return new KeyMeters(timer, new AtomicLong());
+    }
+
+    private static void logSummary(String source, String system, Outcome outcome, long count, Timer timer) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        StringBuilder sb = new StringBuilder()
+                .append("Provisioning metrics: source=").append(source)
+                .append(", system=").append(system)
+                .append(", outcome=").append(outcome.getTagValue())
+                .append(", count=").append(count)
+                .append(", meanMs=").append(Math.round(snapshot.mean(TimeUnit.MILLISECONDS)));
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            sb.append(", p").append(Math.round(percentile.percentile() * 100)).append("Ms=").append(Math.round(percentile.value(TimeUnit.MILLISECONDS)));
+        }
+        log.info(sb.toString());
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.registryModel.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import edu.berkeley.bidms.app.registryModel.model.type.RematchStatusEnum;
+import edu.berkeley.bidms.orm.hibernate.usertype.JSONBType;
+import edu.berkeley.bidms.registryModel.util.EntityUtil;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Type;
+
+import java.util.Date;
+
+/**
+ * A {@link SORObject} whose match failed and that is waiting to be matched
+ * again.  The match attributes are kept because they come from the
+ * newSORObject message rather than from the {@link SORObject}, together
+ * with a hash of the SORObject's JSON at the time, so that attributes that
+ * no longer describe the SORObject aren't matched again.  Each
+ * failed attempt pushes nextAttemptTime further back, and once the
+ * attempts are exhausted the row stays in the {@link RematchStatusEnum#DEAD}
+ * state.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+@Entity
+public class SORObjectRematch {
+
+    @Id
+    private Long sorObjectId;
+
+    @NotNull
+    @Size(max = 36)
+    @Column(length = 36, nullable = false, columnDefinition = "CHAR(36)")
+    private String eventId;
+
+    @NotNull
+    @Type(JSONBType.class)
+    @Column(columnDefinition = "JSONB NOT NULL", nullable = false)
+    private String matchAttributesJson = "{}";
+
+    /**
+     * The MD5 hash of the SORObject's objJson when the match attributes
+     * were recorded.
+     */
+    @Size(max = 32)
+    @Column(length = 32)
+    private String sorObjectJsonHash;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16, nullable = false)
+    private RematchStatusEnum status = RematchStatusEnum.PENDING;
+
+    /**
+     * The number of failed match attempts, including the original one.
+     */
+    @Column(nullable = false)
+    private int attemptCount;
+
+    @NotNull
+    @Column(nullable = false)
+    private Date nextAttemptTime;
+
+    @Column
+    private Date lastAttemptTime;
+
+    @Size(max = 1024)
+    @Column(length = 1024)
+    private String lastError;
+
+    @NotNull
+    @Column(nullable = false)
+    private Date dateCreated = new Date();
+
+    private static final int HCB_INIT_ODDRAND = -1403371153;
+    private static final int HCB_MULT_ODDRAND = 1860193313;
+
+    private Object[] getHashCodeObjects() {
+        return new Object[]{sorObjectId};
+    }
+
+    @Override
+    public int hashCode() {
+        return EntityUtil.genHashCode(
+                HCB_INIT_ODDRAND, HCB_MULT_ODDRAND,
+                getHashCodeObjects()
+        );
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof SORObjectRematch) {
+            return EntityUtil.isEqual(this, getHashCodeObjects(), obj, ((SORObjectRematch) obj).getHashCodeObjects());
+        }
+        return false;
+    }
+
+    public Long getSorObjectId() {
+        return sorObjectId;
+    }
+
+    public void setSorObjectId(Long sorObjectId) {
+        this.sorObjectId = sorObjectId;
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+
+    public String getMatchAttributesJson() {
+        return matchAttributesJson;
+    }
+
+    public void setMatchAttributesJson(String matchAttributesJson) {
+        this.matchAttributesJson = matchAttributesJson;
+    }
+
+    public String getSorObjectJsonHash() {
+        return sorObjectJsonHash;
+    }
+
+    public void setSorObjectJsonHash(String sorObjectJsonHash) {
+        this.sorObjectJsonHash = sorObjectJsonHash;
+    }
+
+    public RematchStatusEnum getStatus() {
+        return status;
+    }
+
+    public void setStatus(RematchStatusEnum status) {
+        this.status = status;
+    }
+
+    public int getAttemptCount() {
+        return attemptCount;
+    }
+
+    public void setAttemptCount(int attemptCount) {
+        this.attemptCount = attemptCount;
+    }
+
+    public Date getNextAttemptTime() {
+        return nextAttemptTime;
+    }
+
+    public void setNextAttemptTime(Date nextAttemptTime) {
+        this.nextAttemptTime = nextAttemptTime;
+    }
+
+    public Date getLastAttemptTime() {
+        return lastAttemptTime;
+    }
+
+    public void setLastAttemptTime(Date lastAttemptTime) {
+        this.lastAttemptTime = lastAttemptTime;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Date getDateCreated() {
+        return dateCreated;
+    }
+
+    public void setDateCreated(Date dateCreated) {
+        this.dateCreated = dateCreated;
+    }
+}
@@ -28,9 +28,16 @@ package edu.berkeley.bidms.app.registryModel.repo;
 
 import edu.berkeley.bidms.app.registryModel.model.PersonSorObjectsJson;
 import edu.berkeley.bidms.registryModel.repo.ExtendedRepository;
+import org.springframework.data.jpa.repository.Query;
 
 /**
  * Repository for {@link PersonSorObjectsJson} entities.
  */
 public interface PersonSorObjectsJsonRepository extends ExtendedRepository<PersonSorObjectsJson, String> {
+    /**
+     * @return the current aggregate JSON hash of the uid, without loading
+     * the aggregate JSON, or null if the uid has no aggregate JSON.
+     */
+    @Query("SELECT j.jsonHash FROM PersonSorObjectsJson j WHERE j.id = ?1")
+    String findJsonHashById(String uid);
 }
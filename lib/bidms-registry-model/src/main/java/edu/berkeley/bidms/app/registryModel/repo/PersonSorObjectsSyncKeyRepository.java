@@ -28,9 +28,34 @@ package edu.berkeley.bidms.app.registryModel.repo;
 
 import edu.berkeley.bidms.app.registryModel.model.PersonSorObjectsSyncKey;
 import edu.berkeley.bidms.registryModel.repo.ExtendedRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
 
 /**
  * Repository for {@link PersonSorObjectsSyncKey} entities.
  */
 public interface PersonSorObjectsSyncKeyRepository extends ExtendedRepository<PersonSorObjectsSyncKey, String> {
+    @Query("SELECT count(k) FROM PersonSorObjectsSyncKey k, PersonSorObjectsJson j WHERE k.id = ?1 AND j.id = k.id AND k.provisionedJsonHash = j.jsonHash AND k.forceProvision = false")
+    long countProvisionedWithCurrentJsonHash(String uid);
+
+    /**
+     * @return true if the current aggregate JSON hash of the uid is the
+     * hash that was last provisioned and the uid isn't marked to be
+     * force-provisioned.
+     */
+    default boolean isProvisionedWithCurrentJsonHash(String uid) {
+        return countProvisionedWithCurrentJsonHash(uid) > 0;
+    }
+
+    /**
+     * Mark the uids to be force-provisioned, so they are provisioned
+     * again by the next bulk provisioning run.
+     *
+     * @return the number of sync keys that were marked
+     */
+    @Modifying
+    @Query("UPDATE PersonSorObjectsSyncKey k SET k.forceProvision = true WHERE k.id IN ?1")
+    int markForceProvision(Collection<String> uids);
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2026, Regents of the University of California and
+ * contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.berkeley.bidms.app.registryModel.repo;
+
+import edu.berkeley.bidms.app.registryModel.model.SORObjectRematch;
+import edu.berkeley.bidms.app.registryModel.model.type.RematchStatusEnum;
+import edu.berkeley.bidms.registryModel.repo.ExtendedRepository;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Repository for {@link SORObjectRematch} entities.
+ */
+public interface SORObjectRematchRepository extends ExtendedRepository<SORObjectRematch, Long> {
+    /**
+     * Finds the rematches with the given status that are due at
+     * nextAttemptTime, the longest overdue first.  The rows are locked for
+     * the rest of the transaction and rows another transaction has locked
+     * are skipped (FOR UPDATE SKIP LOCKED), so that concurrent callers get
+     * different rows.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    // a lock timeout of -2 is Hibernate's SKIP LOCKED
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT r FROM SORObjectRematch r WHERE r.status = ?1 AND r.nextAttemptTime <= ?2 ORDER BY r.nextAttemptTime")
+    List<SORObjectRematch> findDueSkipLocked(RematchStatusEnum status, Date nextAttemptTime, Pageable pageable);
+
+    long countByStatus(RematchStatusEnum status);
+}
@@ -32,6 +32,7 @@ import edu.berkeley.bidms.app.registryModel.model.SORObject;
 import edu.berkeley.bidms.registryModel.repo.ExtendedRepository;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -50,6 +51,8 @@ public interface SORObjectRepository extends ExtendedRepository<SORObject, Long>
 
     List<SORObject> findAllBySorPrimaryKeyIn(List<String> sorPrimaryKeys);
 
+    List<SORObject> findAllBySorAndSorPrimaryKeyIn(SOR sor, Collection<String> sorPrimaryKeys);
+
     @Query("SELECT obj.sorObject.id FROM PartialMatch obj WHERE obj.isReject=?1 GROUP BY obj.sorObject.id")
     List<Long> findAllPartialMatchSORObjectIdsByIsRejectGroupBySorObject(boolean isReject);
 }
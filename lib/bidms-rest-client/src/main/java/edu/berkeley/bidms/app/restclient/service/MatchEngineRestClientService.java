@@ -27,6 +27,7 @@
 package edu.berkeley.bidms.app.restclient.service;
 
 import edu.berkeley.bidms.app.common.config.properties.BidmsConfigProperties;
+import edu.berkeley.bidms.restclient.util.SmarterURIBuilder;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.RequestEntity;
@@ -35,6 +36,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestOperations;
 
+import java.net.URI;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -68,4 +72,61 @@ public class MatchEngineRestClientService {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
     }
+
+    /**
+     * @return true if the match-engine people endpoint is configured.
+     */
+    public boolean isPeopleEndpointConfigured() {
+        return bidmsConfigProperties.getRest().getMatchengine().getPeople() != null;
+    }
+
+    /**
+     * Match many new incoming SORObject entities with one request.
+     *
+     * @param restTemplate       The REST client template for the endpoint.
+     * @param matchInputDataList Match data from each SORObject.
+     * @return The response body is a list with one entry per match input,
+     * in the same order.  Each entry is a {@link Map} with the responseCode
+     * the person endpoint would have responded with and the response body.
+     */
+    public ResponseEntity<List> matchPeople(RestOperations restTemplate, List<Map> matchInputDataList) {
+        return restTemplate.exchange(
+                RequestEntity
+                        .post(bidmsConfigProperties.getRest().getMatchengine().getPeople().getUrl())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(matchInputDataList),
+                List.class
+        );
+    }
+
+    /**
+     * @return true if the match-engine changes endpoint is configured.
+     */
+    public boolean isChangesEndpointConfigured() {
+        return bidmsConfigProperties.getRest().getMatchengine().getChanges() != null;
+    }
+
+    /**
+     * Report to the match-engine that the registry rows of some uids have
+     * changed.
+     *
+     * @param restTemplate The REST client template for the endpoint.
+     * @param uids         The changed uids.
+     * @param newUids      True if the uids are newly generated rather than
+     *                     changes to existing uids.
+     * @return The response, which has no body.
+     */
+    public ResponseEntity<Void> notifyChanged(RestOperations restTemplate, Collection<String> uids, boolean newUids) {
+        URI url = new SmarterURIBuilder(bidmsConfigProperties.getRest().getMatchengine().getChanges().getUrl())
+                .conditionalAddParameter(newUids, "newUids", true)
+                .rbuild();
+        return restTemplate.exchange(
+                RequestEntity
+                        .post(url)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(uids),
+                Void.class
+        );
+    }
 }
@@ -54,9 +54,11 @@ public class RestClientUtil {
 
     private static ClientHttpRequestFactory getSslClientHttpRequestFactory(
             CredentialsProvider credentialsProvider,
-            AuthCache authCache
+            AuthCache authCache,
+            Integer maxConnectionsPerRoute,
+            Integer maxConnectionsTotal
     ) throws IOException, CertificateException, NoSuchAlgorithmException, KeyStoreException, KeyManagementException {
-        CloseableHttpClient httpClient = Hc5RestClientUtil.getSslHttpClient(credentialsProvider);
+        CloseableHttpClient httpClient = Hc5RestClientUtil.getSslHttpClient(credentialsProvider, null, null, maxConnectionsPerRoute, maxConnectionsTotal);
         return new HttpComponentsClientHttpRequestFactory(httpClient) {
             @Override
             protected HttpContext createHttpContext(HttpMethod httpMethod, URI uri) {
@@ -69,11 +71,29 @@ public class RestClientUtil {
             RestTemplateBuilder builder,
             CredentialsProvider credentialsProvider,
             AuthCache authCache
+    ) {
+        return getSslRestTemplateBuilder(builder, credentialsProvider, authCache, null, null);
+    }
+
+    /**
+     * @param maxConnectionsPerRoute The maximum number of connections to
+     *                               one host, or null for the HttpClient
+     *                               default.
+     * @param maxConnectionsTotal    The maximum number of connections to
+     *                               all hosts, or null for the HttpClient
+     *                               default.
+     */
+    public static RestTemplateBuilder getSslRestTemplateBuilder(
+            RestTemplateBuilder builder,
+            CredentialsProvider credentialsProvider,
+            AuthCache authCache,
+            Integer maxConnectionsPerRoute,
+            Integer maxConnectionsTotal
     ) {
         return builder
                 .requestFactory(() -> {
                     try {
-                        return getSslClientHttpRequestFactory(credentialsProvider, authCache);
+                        return getSslClientHttpRequestFactory(credentialsProvider, authCache, maxConnectionsPerRoute, maxConnectionsTotal);
                     } catch (IOException | CertificateException | NoSuchAlgorithmException | KeyStoreException |
                              KeyManagementException e) {
                         throw new RuntimeException(e);
@@ -88,8 +108,12 @@ public class RestClientUtil {
     }
 
     public static <T extends RestTemplate> T configureSslBasicAuthRestTemplate(RestTemplateBuilder builder, URI baseUrl, String username, String password, T restTemplate) {
+        return configureSslBasicAuthRestTemplate(builder, baseUrl, username, password, null, null, restTemplate);
+    }
+
+    public static <T extends RestTemplate> T configureSslBasicAuthRestTemplate(RestTemplateBuilder builder, URI baseUrl, String username, String password, Integer maxConnectionsPerRoute, Integer maxConnectionsTotal, T restTemplate) {
         HttpHost target = new HttpHost(baseUrl.getScheme(), baseUrl.getHost(), baseUrl.getPort());
-        return getSslRestTemplateBuilder(builder, Hc5RestClientUtil.getHttpCredentialsProvider(target, username, password), Hc5RestClientUtil.getBasicAuthCache(target))
+        return getSslRestTemplateBuilder(builder, Hc5RestClientUtil.getHttpCredentialsProvider(target, username, password), Hc5RestClientUtil.getBasicAuthCache(target), maxConnectionsPerRoute, maxConnectionsTotal)
                 .basicAuthentication(username, password)
                 .configure(restTemplate);
     }
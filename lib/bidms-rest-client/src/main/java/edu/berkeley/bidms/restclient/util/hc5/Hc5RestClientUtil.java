@@ -37,7 +37,6 @@ import org.apache.hc.client5.http.impl.auth.BasicScheme;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
-import org.apache.hc.client5.http.io.HttpClientConnectionManager;
 import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
 import org.apache.hc.core5.http.HttpHost;
@@ -64,6 +63,26 @@ public class Hc5RestClientUtil {
             CredentialsProvider credentialsProvider,
             URL trustStoreUrl,
             char[] trustStorePassword
+    ) throws CertificateException, NoSuchAlgorithmException, KeyStoreException, IOException, KeyManagementException {
+        return getSslHttpClient(credentialsProvider, trustStoreUrl, trustStorePassword, null, null);
+    }
+
+    /**
+     * @param maxConnectionsPerRoute The maximum number of pooled
+     *                               connections to one host, or null for
+     *                               the HttpClient default of 5.  This
+     *                               caps the number of requests in flight
+     *                               to that host.
+     * @param maxConnectionsTotal    The maximum number of pooled
+     *                               connections to all hosts, or null for
+     *                               the HttpClient default of 25.
+     */
+    public static CloseableHttpClient getSslHttpClient(
+            CredentialsProvider credentialsProvider,
+            URL trustStoreUrl,
+            char[] trustStorePassword,
+            Integer maxConnectionsPerRoute,
+            Integer maxConnectionsTotal
     ) throws CertificateException, NoSuchAlgorithmException, KeyStoreException, IOException, KeyManagementException {
         SSLContextBuilder sslContextBuilder = SSLContexts.custom();
         if (trustStoreUrl != null) {
@@ -74,11 +93,16 @@ public class Hc5RestClientUtil {
         }
         SSLContext sslContext = sslContextBuilder.build();
         DefaultClientTlsStrategy tlsStrategy = new DefaultClientTlsStrategy(sslContext);
-        final HttpClientConnectionManager cm = PoolingHttpClientConnectionManagerBuilder.create()
-                .setTlsSocketStrategy(tlsStrategy)
-                .build();
+        PoolingHttpClientConnectionManagerBuilder cmBuilder = PoolingHttpClientConnectionManagerBuilder.create()
+                .setTlsSocketStrategy(tlsStrategy);
+        if (maxConnectionsPerRoute != null) {
+            cmBuilder.setMaxConnPerRoute(maxConnectionsPerRoute);
+        }
+        if (maxConnectionsTotal != null) {
+            cmBuilder.setMaxConnTotal(maxConnectionsTotal);
+        }
         return HttpClients.custom()
-                .setConnectionManager(cm)
+                .setConnectionManager(cmBuilder.build())
                 .setDefaultCredentialsProvider(credentialsProvider)
                 .setDefaultRequestConfig(
                         RequestConfig.custom()